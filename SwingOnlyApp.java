@@ -3,48 +3,107 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import javax.imageio.ImageIO;
-import javax.sound.sampled.*;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 // 添加WebcamCapture支持
 import com.github.sarxos.webcam.Webcam;
-import com.github.sarxos.webcam.WebcamPanel;
 import com.github.sarxos.webcam.WebcamResolution;
 
+import org.example.audio.ChannelRole;
+import org.example.audio.LevelMeter;
+import org.example.audio.LineAudioSink;
+import org.example.audio.MixerChannel;
+import org.example.audio.MixerEngine;
+import org.example.audio.PeerAudioBuffer;
+import org.example.audio.StreamingTrack;
+import org.example.net.PeerState;
+import org.example.net.PresenceClient;
+import org.example.net.PresenceClientLoop;
+import org.example.net.PresenceListener;
+import org.example.net.PresenceRelay;
+import org.example.reaction.Reaction;
+import org.example.reaction.ReactionBatch;
+import org.example.reaction.ReactionBus;
+import org.example.reaction.ReactionOrigin;
+import org.example.session.Presence;
+import org.example.session.PresenceEngine;
+import org.example.session.SessionState;
+import org.example.session.SessionStateStore;
+import org.example.ui.UiUpdateDispatcher;
+import org.example.ui.VideoTile;
+import org.example.video.AdaptiveAnalysisScheduler;
+import org.example.video.BackgroundBlur;
+import org.example.video.FrameAnalyzer;
+import org.example.video.FrameSource;
+import org.example.video.FrameSources;
+import org.example.video.Gesture;
+import org.example.video.GestureDetector;
+import org.example.video.VideoPipeline;
+
 /**
  * 使用Swing实现的Vibecoding Helper，包含用户状态分析、隐私设置和手势识别
  */
 public class SwingOnlyApp {
     // 摄像头相关
     private static Webcam webcam;
-    private static WebcamPanel webcamPanel;
-    private static BufferedImage currentFrame;
-    private static ScheduledExecutorService executor;
-
-    // 状态跟踪
-    private static enum UserState { COLLABORATE, FOCUS, AWAY }
-    private static UserState currentState = UserState.COLLABORATE;
-    private static boolean useVirtualAvatar = false;
-    private static boolean useBlurBackground = false;
+    // 本地视频画面：摄像头、背景模糊和虚拟形象都合成到同一个组件中
+    private static VideoTile videoTile;
+    // 分析管线使用的帧来源：摄像头，或通过-Dvibecoding.frameSource指定的合成/回放来源
+    private static FrameSource frameSource;
+    // 最近一次分析的帧，分析线程写入，其他线程只读
+    private static final AtomicReference<BufferedImage> currentFrame = new AtomicReference<>();
+    private static VideoPipeline videoPipeline;
+    // 分析和采集频率随场景活跃度调整：静止或离开时采集最低降到2 fps，
+    // CPU预算可通过-Dvibecoding.cpuBudget（单核百分比）配置
+    private static final AdaptiveAnalysisScheduler analysisScheduler = new AdaptiveAnalysisScheduler(
+            100, 1000, 2000, 500, Double.parseDouble(System.getProperty("vibecoding.cpuBudget", "5")));
+
+    // 帧分析引擎，复用亮度缓冲区，只在分析线程中使用
+    private static final FrameAnalyzer frameAnalyzer = new FrameAnalyzer();
+    // 手势识别在分析线程上复用frameAnalyzer的金字塔
+    private static final GestureDetector gestureDetector = new GestureDetector();
+    private static volatile boolean gestureEnabled = true;
+    // 在线状态判断，只在分析线程中使用；关闭自动检测时不更新
+    private static final PresenceEngine presenceEngine = new PresenceEngine(Presence.FOCUS);
+    private static boolean autoDetectActive;
+
+    // 状态跟踪：在线状态、隐私设置和手势以不可变快照发布，各线程无锁读取
+    private static final SessionStateStore session = new SessionStateStore();
+    // 最近一次应用到界面的快照，只在EDT上访问
+    private static SessionState appliedState;
+    // 界面更新合并后批量在EDT上执行，避免每次分析都向EDT投递任务
+    private static final UiUpdateDispatcher ui = new UiUpdateDispatcher();
+    // 按钮和手势识别发布的反应，按窗口汇总后在EDT上处理
+    private static final ReactionBus reactions = ReactionBus.forSwing();
+    // 房间状态同步：-Dvibecoding.relay=local在本机启动中继，或指定host:port；未设置时不联网
+    private static PresenceRelay presenceRelay;
+    private static PresenceClientLoop presenceLoop;
+    private static volatile PresenceClient presenceClient;
 
     // UI组件
     private static JLabel statusLabel;
     private static JLabel stateAnalysisLabel;
+    private static JLabel gestureLabel;
     private static JPanel videoPanel;
     private static JSlider musicVolumeSlider;
     private static JSlider userVolumeSlider;
+    private static JProgressBar peerLevelBar;
+    private static Timer levelMeterTimer;
 
     // 音频组件
-    private static Clip backgroundMusic;
+    // 背景音乐流式解码后作为混音器的一个通道播放
+    private static StreamingTrack backgroundMusic;
     private static float musicVolume = 0.5f;
     private static float userVolume = 1.0f;
-
-    // 手势识别结果
-    private static String lastDetectedGesture = "无";
-    private static long lastGestureTime = 0;
+    // 软件混音器，同伴音频通道的音量由用户音量滑块控制
+    private static final MixerEngine mixer = new MixerEngine(new LineAudioSink());
+    private static final String PEER_CHANNEL = "user";
+    private static final String MUSIC_CHANNEL = "background_music";
 
     // 虚拟头像
     private static BufferedImage avatarImage;
@@ -79,6 +138,7 @@ public class SwingOnlyApp {
                 } catch (Exception e) {
                     System.out.println("音频初始化失败: " + e.getMessage());
                 }
+                initMixer();
 
             } catch (Exception e) {
                 e.printStackTrace();
@@ -90,29 +150,30 @@ public class SwingOnlyApp {
 
     private static void initAudio() {
         try {
-            // 模拟背景音乐
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(
-                    SwingOnlyApp.class.getResource("/sounds/background.wav"));
-            backgroundMusic = AudioSystem.getClip();
-            backgroundMusic.open(audioInputStream);
-
-            // 设置循环播放
-            backgroundMusic.loop(Clip.LOOP_CONTINUOUSLY);
-
-            // 初始化音量
-            setMusicVolume(musicVolume);
+            // 背景音乐分块流式读取并无缝循环，内存占用与音轨长度无关；
+            // 资源位于本地目录（未打包运行）时按文件打开，较大的WAV使用内存映射
+            backgroundMusic = StreamingTrack.open(
+                    SwingOnlyApp.class.getResource("/sounds/background.wav"), mixer.getSampleRate(), true);
+            mixer.addChannel(MUSIC_CHANNEL, backgroundMusic, musicVolume, ChannelRole.MUSIC);
         } catch (Exception e) {
             System.out.println("加载音频失败，使用静音模式: " + e.getMessage());
         }
     }
 
+    private static void initMixer() {
+        try {
+            mixer.addChannel(PEER_CHANNEL, new PeerAudioBuffer((int) (mixer.getSampleRate() / 5)), userVolume);
+            mixer.start();
+        } catch (Exception e) {
+            System.out.println("混音器启动失败: " + e.getMessage());
+        }
+    }
+
     private static void setMusicVolume(float volume) {
         try {
-            if (backgroundMusic != null) {
-                FloatControl gainControl = (FloatControl) backgroundMusic.getControl(FloatControl.Type.MASTER_GAIN);
-                float range = gainControl.getMaximum() - gainControl.getMinimum();
-                float gain = (range * volume) + gainControl.getMinimum();
-                gainControl.setValue(gain);
+            MixerChannel channel = mixer.getChannel(MUSIC_CHANNEL);
+            if (channel != null) {
+                channel.setGain(volume);
             }
         } catch (Exception e) {
             System.out.println("设置音量失败: " + e.getMessage());
@@ -182,21 +243,18 @@ public class SwingOnlyApp {
 
         // 添加事件监听器
         collaborateBtn.addActionListener(e -> {
-            currentState = UserState.COLLABORATE;
-            stateAnalysisLabel.setText("当前状态: 协作模式");
-            statusLabel.setText("已切换到协作模式");
+            session.update(s -> s.withPresence(Presence.COLLABORATE, null));
+            ui.setText(statusLabel, "已切换到协作模式");
         });
 
         focusBtn.addActionListener(e -> {
-            currentState = UserState.FOCUS;
-            stateAnalysisLabel.setText("当前状态: 专注模式");
-            statusLabel.setText("已切换到专注模式");
+            session.update(s -> s.withPresence(Presence.FOCUS, null));
+            ui.setText(statusLabel, "已切换到专注模式");
         });
 
         awayBtn.addActionListener(e -> {
-            currentState = UserState.AWAY;
-            stateAnalysisLabel.setText("当前状态: 暂时离开");
-            statusLabel.setText("已切换到离开模式");
+            session.update(s -> s.withPresence(Presence.AWAY, null));
+            ui.setText(statusLabel, "已切换到离开模式");
         });
 
         JLabel autoStateLabel = new JLabel("状态自动检测: 已启用");
@@ -206,6 +264,7 @@ public class SwingOnlyApp {
         autoStateCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
         autoStateCheckbox.addActionListener(e -> {
             boolean isSelected = autoStateCheckbox.isSelected();
+            session.update(s -> s.withAutoDetect(isSelected));
             autoStateLabel.setText("状态自动检测: " + (isSelected ? "已启用" : "已禁用"));
             collaborateBtn.setEnabled(!isSelected);
             focusBtn.setEnabled(!isSelected);
@@ -237,21 +296,39 @@ public class SwingOnlyApp {
         JCheckBox blurCheckbox = new JCheckBox("启用背景模糊", false);
         blurCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
 
+        // 显示模式的切换由状态监听器统一应用
         avatarCheckbox.addActionListener(e -> {
-            useVirtualAvatar = avatarCheckbox.isSelected();
-            blurCheckbox.setEnabled(!useVirtualAvatar);
-            updateVideoDisplay();
-            statusLabel.setText("虚拟形象: " + (useVirtualAvatar ? "已启用" : "已禁用"));
+            boolean enabled = avatarCheckbox.isSelected();
+            blurCheckbox.setEnabled(!enabled);
+            session.update(s -> s.withVirtualAvatar(enabled));
+            ui.setText(statusLabel, "虚拟形象: " + (enabled ? "已启用" : "已禁用"));
         });
 
         blurCheckbox.addActionListener(e -> {
-            useBlurBackground = blurCheckbox.isSelected();
-            updateVideoDisplay();
-            statusLabel.setText("背景模糊: " + (useBlurBackground ? "已启用" : "已禁用"));
+            boolean enabled = blurCheckbox.isSelected();
+            session.update(s -> s.withBlurBackground(enabled));
+            ui.setText(statusLabel, "背景模糊: " + (enabled ? "已启用" : "已禁用"));
+        });
+
+        JLabel blurRadiusLabel = new JLabel("模糊半径:");
+        blurRadiusLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JSlider blurRadiusSlider = new JSlider(JSlider.HORIZONTAL, 2, 32, BackgroundBlur.DEFAULT_RADIUS);
+        blurRadiusSlider.setMajorTickSpacing(10);
+        blurRadiusSlider.setPaintTicks(true);
+        blurRadiusSlider.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        blurRadiusSlider.addChangeListener(e -> {
+            if (videoTile != null) {
+                videoTile.setBlurRadius(blurRadiusSlider.getValue());
+            }
+            ui.setText(statusLabel, "模糊半径: " + blurRadiusSlider.getValue());
         });
 
         privacyPanel.add(avatarCheckbox);
         privacyPanel.add(blurCheckbox);
+        privacyPanel.add(blurRadiusLabel);
+        privacyPanel.add(blurRadiusSlider);
 
         controlPanel.add(privacyPanel);
         controlPanel.add(Box.createVerticalStrut(10));
@@ -273,7 +350,9 @@ public class SwingOnlyApp {
 
         userVolumeSlider.addChangeListener(e -> {
             userVolume = userVolumeSlider.getValue() / 100.0f;
-            statusLabel.setText("用户音量: " + userVolume);
+            // 只写入混音器的无锁参数信箱，音频线程在下一块平滑过渡
+            mixer.getChannel(PEER_CHANNEL).setGain(userVolume);
+            ui.setText(statusLabel, "用户音量: " + userVolume);
         });
 
         JLabel musicVolumeLabel = new JLabel("背景音乐音量:");
@@ -289,14 +368,31 @@ public class SwingOnlyApp {
         musicVolumeSlider.addChangeListener(e -> {
             musicVolume = musicVolumeSlider.getValue() / 100.0f;
             setMusicVolume(musicVolume);
-            statusLabel.setText("背景音乐音量: " + musicVolume);
+            ui.setText(statusLabel, "背景音乐音量: " + musicVolume);
         });
 
+        // 同伴输入电平，混音器每100ms发布一次，这里以相同频率读取
+        peerLevelBar = new JProgressBar(0, 60);
+        peerLevelBar.setStringPainted(true);
+        peerLevelBar.setString("静音");
+        peerLevelBar.setAlignmentX(Component.LEFT_ALIGNMENT);
+        levelMeterTimer = new Timer((int) MixerEngine.METER_PUBLISH_MILLIS, e -> updateLevelMeter());
+        levelMeterTimer.start();
+
         audioPanel.add(userVolumeLabel);
         audioPanel.add(userVolumeSlider);
+        audioPanel.add(peerLevelBar);
         audioPanel.add(Box.createVerticalStrut(10));
+        JCheckBox duckingCheckbox = new JCheckBox("有人说话时降低音乐", true);
+        duckingCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        duckingCheckbox.addActionListener(e -> {
+            mixer.getDucker().setEnabled(duckingCheckbox.isSelected());
+            ui.setText(statusLabel, "音乐闪避: " + (duckingCheckbox.isSelected() ? "已启用" : "已禁用"));
+        });
+
         audioPanel.add(musicVolumeLabel);
         audioPanel.add(musicVolumeSlider);
+        audioPanel.add(duckingCheckbox);
 
         controlPanel.add(audioPanel);
         controlPanel.add(Box.createVerticalStrut(10));
@@ -306,7 +402,7 @@ public class SwingOnlyApp {
         gesturePanel.setLayout(new BoxLayout(gesturePanel, BoxLayout.Y_AXIS));
         gesturePanel.setBorder(BorderFactory.createTitledBorder("手势识别"));
 
-        JLabel gestureLabel = new JLabel("检测到的手势: " + lastDetectedGesture);
+        gestureLabel = new JLabel("检测到的手势: " + session.get().getLastGesture());
         gestureLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         JCheckBox gestureCheckbox = new JCheckBox("启用手势识别", true);
@@ -314,36 +410,17 @@ public class SwingOnlyApp {
 
         gestureCheckbox.addActionListener(e -> {
             boolean enabled = gestureCheckbox.isSelected();
+            gestureEnabled = enabled;
             gestureLabel.setEnabled(enabled);
-            statusLabel.setText("手势识别: " + (enabled ? "已启用" : "已禁用"));
+            ui.setText(statusLabel, "手势识别: " + (enabled ? "已启用" : "已禁用"));
         });
 
         JPanel gestureButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JButton thumbsUpBtn = new JButton("👍");
-        JButton thinkingBtn = new JButton("🤔");
-        JButton celebrateBtn = new JButton("🎉");
-
-        thumbsUpBtn.addActionListener(e -> {
-            lastDetectedGesture = "👍 赞同";
-            gestureLabel.setText("检测到的手势: " + lastDetectedGesture);
-            statusLabel.setText("模拟手势: 赞同");
-        });
-
-        thinkingBtn.addActionListener(e -> {
-            lastDetectedGesture = "🤔 思考";
-            gestureLabel.setText("检测到的手势: " + lastDetectedGesture);
-            statusLabel.setText("模拟手势: 思考");
-        });
-
-        celebrateBtn.addActionListener(e -> {
-            lastDetectedGesture = "🎉 庆祝";
-            gestureLabel.setText("检测到的手势: " + lastDetectedGesture);
-            statusLabel.setText("模拟手势: 庆祝");
-        });
-
-        gestureButtonPanel.add(thumbsUpBtn);
-        gestureButtonPanel.add(thinkingBtn);
-        gestureButtonPanel.add(celebrateBtn);
+        for (Reaction reaction : Reaction.BUTTONS) {
+            JButton button = new JButton(reaction.getEmoji());
+            button.addActionListener(e -> sendReaction(reaction, ReactionOrigin.LOCAL));
+            gestureButtonPanel.add(button);
+        }
 
         gesturePanel.add(gestureCheckbox);
         gesturePanel.add(gestureLabel);
@@ -361,6 +438,12 @@ public class SwingOnlyApp {
         bottomPanel.add(bottomLabel);
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
+        // 状态变化时刷新界面；监听器可能在任意线程上被调用，连续多次变化合并为一次刷新
+        appliedState = session.get();
+        session.addListener((previous, current) -> ui.submit(session, "state", SwingOnlyApp::applySessionState));
+        reactions.addListener(SwingOnlyApp::applyReactions);
+        startPresenceSync();
+
         frame.setContentPane(mainPanel);
         frame.setLocationRelativeTo(null); // 居中显示
         frame.setVisible(true);
@@ -381,6 +464,19 @@ public class SwingOnlyApp {
 
     private static void initializeWebcam() {
         try {
+            // 指定了替代帧来源时不打开摄像头
+            FrameSource configured = FrameSources.fromSystemProperty();
+            if (configured != null) {
+                if (configured.open()) {
+                    frameSource = configured;
+                    addVideoTile(configured, false);
+                    ui.setText(statusLabel, "使用替代视频源: " + configured.getName());
+                } else {
+                    ui.setText(statusLabel, "替代视频源打开失败: " + configured.getName());
+                }
+                return;
+            }
+
             // 获取默认摄像头
             webcam = Webcam.getDefault();
 
@@ -390,17 +486,12 @@ public class SwingOnlyApp {
 
                 // 打开摄像头
                 webcam.open();
+                frameSource = new WebcamFrameSource(webcam);
 
-                // 创建摄像头显示面板
-                webcamPanel = new WebcamPanel(webcam);
-                webcamPanel.setFPSDisplayed(true);
-                webcamPanel.setImageSizeDisplayed(true);
-                webcamPanel.setMirrored(true);
+                // 画面由视频管线的渲染阶段送入，摄像头只有一条采集路径
+                addVideoTile(frameSource, true);
 
-                // 添加到视频面板
-                videoPanel.add(webcamPanel, BorderLayout.CENTER);
-
-                statusLabel.setText("摄像头已连接");
+                ui.setText(statusLabel, "摄像头已连接");
             } else {
                 // 如果没有找到摄像头，显示占位符
                 JLabel placeholderLabel = new JLabel("未检测到摄像头", SwingConstants.CENTER);
@@ -408,7 +499,7 @@ public class SwingOnlyApp {
                 placeholderLabel.setFont(new Font("Arial", Font.BOLD, 18));
                 videoPanel.add(placeholderLabel, BorderLayout.CENTER);
 
-                statusLabel.setText("未找到摄像头设备");
+                ui.setText(statusLabel, "未找到摄像头设备");
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -416,250 +507,299 @@ public class SwingOnlyApp {
             errorLabel.setForeground(Color.RED);
             videoPanel.add(errorLabel, BorderLayout.CENTER);
 
-            statusLabel.setText("摄像头初始化失败");
+            ui.setText(statusLabel, "摄像头初始化失败");
         }
     }
 
-    private static void startVideoAnalysis() {
-        // 创建线程池，定期分析视频
-        executor = Executors.newSingleThreadScheduledExecutor();
-
-        // 每500毫秒分析一次
-        executor.scheduleAtFixedRate(() -> {
-            try {
-                if (webcam != null && webcam.isOpen()) {
-                    // 获取当前帧
-                    currentFrame = webcam.getImage();
+    /** 创建本地视频画面，显示模式取自当前会话状态 */
+    private static void addVideoTile(FrameSource source, boolean mirrored) {
+        Dimension size = source.getViewSize();
+        videoTile = new VideoTile(size.width, size.height);
+        videoTile.setMirrored(mirrored);
+        videoTile.setAvatar(avatarImage);
+        videoTile.setCaption(source.getName() + " " + size.width + "x" + size.height);
+        videoTile.setMode(session.get().getTileMode());
+        videoPanel.add(videoTile, BorderLayout.CENTER);
+    }
 
-                    // 进行视频分析
-                    analyzeVideo(currentFrame);
+    private static void startVideoAnalysis() {
+        if (frameSource == null) {
+            return;
+        }
 
-                    // 更新显示
-                    updateVideoDisplay();
-                }
-            } catch (Exception e) {
-                System.out.println("视频分析错误: " + e.getMessage());
-            }
-        }, 1000, 500, TimeUnit.MILLISECONDS);
+        // 采集、分析、渲染各自独立线程，分析频率自适应，慢分析不会拖慢画面
+        videoPipeline = new VideoPipeline(frameSource, 15, analysisScheduler,
+                frame -> {
+                    currentFrame.set(frame.getImage());
+                    analyzeVideo(frame.getImage());
+                },
+                (frame, lastAnalyzed) -> {
+                    // 只提交最新帧，合成在EDT绘制时进行；显示模式的切换由状态监听器在EDT上完成
+                    if (videoTile != null) {
+                        videoTile.setFrame(frame.getImage());
+                    }
+                });
+        videoPipeline.start();
     }
 
     private static void analyzeVideo(BufferedImage frame) {
         if (frame == null) return;
 
         // 模拟视频分析，实际项目中可以接入OpenCV或其他视频分析库
-        // 这里使用简单的颜色分析来模拟状态检测
-
-        // 获取中心区域的平均亮度
-        int centerX = frame.getWidth() / 2;
-        int centerY = frame.getHeight() / 2;
-        int sampleSize = 100;
-        int totalBrightness = 0;
-        int motionDetected = 0;
-
-        // 使用前一帧检测运动
-        static BufferedImage prevFrame = null;
-
-        if (prevFrame != null) {
-            for (int x = centerX - sampleSize/2; x < centerX + sampleSize/2; x++) {
-                for (int y = centerY - sampleSize/2; y < centerY + sampleSize/2; y++) {
-                    if (x >= 0 && x < frame.getWidth() && y >= 0 && y < frame.getHeight()) {
-                        Color pixelColor = new Color(frame.getRGB(x, y));
-                        Color prevPixelColor = new Color(prevFrame.getRGB(x, y));
-
-                        int brightness = (pixelColor.getRed() + pixelColor.getGreen() + pixelColor.getBlue()) / 3;
-                        int prevBrightness = (prevPixelColor.getRed() + prevPixelColor.getGreen() + prevPixelColor.getBlue()) / 3;
-
-                        totalBrightness += brightness;
-
-                        // 如果像素变化明显，认为有运动
-                        if (Math.abs(brightness - prevBrightness) > 30) {
-                            motionDetected++;
-                        }
-                    }
-                }
+        // 这里使用跟随用户位置的ROI亮度和帧间差异来模拟状态检测
+        frameAnalyzer.analyze(frame);
+
+        int avgBrightness = frameAnalyzer.getAverageBrightness();
+        double motionRatio = frameAnalyzer.getMotionRatio();
+
+        SessionState state = session.get();
+        long now = System.currentTimeMillis();
+        if (state.isAutoDetect()) {
+            if (!autoDetectActive || state.getPresence() != presenceEngine.getPresence()) {
+                // 刚启用自动检测，或自动检测期间用户手动选择了状态：从当前状态重新开始判断，
+                // 否则判断器仍按旧状态的阈值滞回，手动选择会一直保留或被错误地切回
+                presenceEngine.reset(state.getPresence(), now);
+                autoDetectActive = true;
             }
+            // 平滑和滞回后只在真正切换时更新状态；期间若关闭了自动检测则保留手动选择
+            if (presenceEngine.update(avgBrightness, motionRatio, mixer.getActiveVoiceCount() > 0, now)) {
+                Presence presence = presenceEngine.getPresence();
+                String reason = presenceEngine.getReason();
+                state = session.update(s -> s.isAutoDetect() ? s.withPresence(presence, reason) : s);
+            }
+        } else {
+            autoDetectActive = false;
         }
 
-        // 保存当前帧作为下一次比较
-        prevFrame = copyImage(frame);
+        // 静止或离开时降低分析和采集频率，出现动作时立即恢复
+        analysisScheduler.reportActivity(motionRatio, state.getPresence() == Presence.AWAY);
 
-        // 计算平均亮度
-        int pixelCount = sampleSize * sampleSize;
-        int avgBrightness = totalBrightness / pixelCount;
-        double motionRatio = (double)motionDetected / pixelCount;
+        if (gestureEnabled) {
+            detectGestures(frame);
+        }
+    }
 
-        // 根据亮度和运动检测状态
-        SwingUtilities.invokeLater(() -> {
-            if (avgBrightness < 30) {
-                // 很暗，可能离开了
-                currentState = UserState.AWAY;
-                stateAnalysisLabel.setText("当前状态: 暂时离开 (检测到低亮度)");
-            } else if (motionRatio > 0.1) {
-                // 运动较多，可能在协作
-                currentState = UserState.COLLABORATE;
-                stateAnalysisLabel.setText("当前状态: 协作模式 (检测到动作)");
+    /** 连接状态同步中继，把本地状态和反应发给房间里的其他人，其他人的反应进入反应总线 */
+    private static void startPresenceSync() {
+        String relay = System.getProperty("vibecoding.relay");
+        if (relay == null || relay.isEmpty()) {
+            return;
+        }
+        try {
+            InetSocketAddress address;
+            if (relay.equals("local")) {
+                presenceRelay = PresenceRelay.startLocal(PresenceRelay.DEFAULT_PORT);
+                address = presenceRelay.getAddress();
             } else {
-                // 亮度正常但运动少，可能在专注
-                currentState = UserState.FOCUS;
-                stateAnalysisLabel.setText("当前状态: 专注模式 (检测到静止)");
+                int colon = relay.lastIndexOf(':');
+                address = new InetSocketAddress(relay.substring(0, colon), Integer.parseInt(relay.substring(colon + 1)));
             }
+            String name = System.getProperty("vibecoding.name", System.getProperty("user.name", "me"));
+            PresenceClient client = PresenceClient.connect(address, new Random().nextInt(Integer.MAX_VALUE) + 1, name,
+                    new PresenceListener() {
+                        @Override
+                        public void peerStateChanged(int peerId, String peer, PeerState state) {
+                            ui.setText(statusLabel, displayName(peerId, peer) + ": " + state.getPresence().getDisplayName());
+                        }
 
-            // 模拟手势检测
-            detectGestures(frame);
-        });
+                        @Override
+                        public void peerLeft(int peerId, String peer) {
+                            ui.setText(statusLabel, displayName(peerId, peer) + " 已离开");
+                        }
+
+                        @Override
+                        public void reactionReceived(int peerId, String peer, Reaction reaction, int count) {
+                            // 对方合并过的次数展开后由反应总线再次汇总，次数过多时只计入有限几条
+                            for (int i = 0; i < Math.min(count, 16); i++) {
+                                reactions.publish(reaction, ReactionOrigin.REMOTE, displayName(peerId, peer));
+                            }
+                        }
+                    });
+            presenceLoop = new PresenceClientLoop("presence-client");
+            presenceLoop.add(client);
+            presenceClient = client;
+            client.publish(PeerState.from(session.get()));
+            // 只有同步的字段变化时才会发送
+            session.addListener((previous, current) -> client.publish(PeerState.from(current)));
+            System.out.println("状态同步已连接: " + address + " (" + name + ")");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("状态同步启动失败: " + e.getMessage());
+        }
     }
 
-    private static BufferedImage copyImage(BufferedImage source) {
-        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), source.getType());
-        Graphics g = copy.getGraphics();
-        g.drawImage(source, 0, 0, null);
-        g.dispose();
-        return copy;
+    private static String displayName(int peerId, String name) {
+        return name != null ? name : "同伴" + peerId;
     }
 
-    private static void detectGestures(BufferedImage frame) {
-        // 实际项目中应使用机器学习模型进行手势识别
-        // 这里我们使用随机模拟来演示功能
+    /** 发布本地或手势识别出的反应，并发给房间里的其他人 */
+    private static void sendReaction(Reaction reaction, ReactionOrigin origin) {
+        reactions.publish(reaction, origin, null);
+        PresenceClient client = presenceClient;
+        if (client != null) {
+            client.sendReaction(reaction, 1);
+        }
+    }
 
-        // 每10秒最多触发一次随机手势，以避免频繁误报
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastGestureTime < 10000) {
+    /** EDT：一个窗口内的按钮和手势反应汇总后更新一次会话状态和状态栏 */
+    private static void applyReactions(ReactionBatch batch) {
+        Reaction last = batch.getLast();
+        if (last == null) {
             return;
         }
+        if (batch.getLastOrigin() != ReactionOrigin.REMOTE) {
+            session.update(s -> s.withGesture(last.getLabel(), batch.getLastTime()));
+        }
+        if (batch.getTotal() > 1) {
+            ui.setText(statusLabel, "手势: " + batch.summary());
+        } else if (batch.getLastOrigin() == ReactionOrigin.REMOTE) {
+            ui.setText(statusLabel, batch.getLastSender() + ": " + last.getDisplayName());
+        } else if (batch.getLastOrigin() == ReactionOrigin.GESTURE) {
+            ui.setText(statusLabel, "检测到手势: " + last.getLabel());
+        } else {
+            ui.setText(statusLabel, "模拟手势: " + last.getDisplayName());
+        }
+    }
 
-        // 1/50的概率触发手势识别
-        if (Math.random() < 0.02) {
-            String[] gestures = {"👍 赞同", "🤔 思考", "🎉 庆祝"};
-            String detectedGesture = gestures[(int)(Math.random() * gestures.length)];
-
-            lastDetectedGesture = detectedGesture;
-            lastGestureTime = currentTime;
-
-            SwingUtilities.invokeLater(() -> {
-                statusLabel.setText("检测到手势: " + detectedGesture);
-            });
+    /** 分析线程：识别出的手势作为反应发布，由applyReactions在EDT上处理 */
+    private static void detectGestures(BufferedImage frame) {
+        Gesture gesture = gestureDetector.detect(frame, frameAnalyzer.getPyramid(), System.currentTimeMillis());
+        switch (gesture) {
+            case RAISED_HAND:
+                sendReaction(Reaction.RAISED_HAND, ReactionOrigin.GESTURE);
+                break;
+            case THUMBS_UP:
+                sendReaction(Reaction.THUMBS_UP, ReactionOrigin.GESTURE);
+                break;
+            case WAVE:
+                sendReaction(Reaction.WAVE, ReactionOrigin.GESTURE);
+                break;
+            default:
+                break;
         }
     }
 
-    private static void updateVideoDisplay() {
-        if (webcam == null || !webcam.isOpen() || webcamPanel == null) {
+    /** 在EDT上刷新同伴电平条，电平未变化时不触及组件 */
+    private static void updateLevelMeter() {
+        MixerChannel channel = mixer.getChannel(PEER_CHANNEL);
+        if (channel == null) {
             return;
         }
+        LevelMeter meter = channel.getMeter();
+        // -60~0 dBFS映射到进度条
+        int level = (int) Math.max(0, Math.min(60, meter.getRmsDb() + 60));
+        String text = meter.isVoiceActive() ? "正在说话" : (level == 0 ? "静音" : meter.getRmsDb() > -40 ? "有声音" : "安静");
+        if (peerLevelBar.getValue() != level) {
+            peerLevelBar.setValue(level);
+        }
+        if (!text.equals(peerLevelBar.getString())) {
+            peerLevelBar.setString(text);
+        }
+    }
 
-        // 根据隐私设置更新视频显示
-        if (useVirtualAvatar) {
-            // 使用虚拟头像
-            webcamPanel.stop();
-            webcamPanel.setVisible(false);
-
-            // 显示头像
-            JLabel avatarLabel = new JLabel(new ImageIcon(avatarImage));
-            videoPanel.add(avatarLabel, BorderLayout.CENTER);
+    /** 把最新的状态快照应用到界面，只在EDT上调用；与上次应用的快照相同的部分不会触及组件 */
+    private static void applySessionState() {
+        SessionState state = session.get();
+        SessionState previous = appliedState;
+        if (state == previous) {
+            return;
+        }
+        appliedState = state;
 
-        } else if (useBlurBackground) {
-            // 需要实现背景模糊，但简化版只做简单处理
-            webcamPanel.setPainter(new BlurredWebcamPainter(webcam));
-            webcamPanel.setVisible(true);
-            webcamPanel.start();
+        if (state.getPresence() != previous.getPresence()
+                || !Objects.equals(state.getPresenceReason(), previous.getPresenceReason())) {
+            String reason = state.getPresenceReason();
+            stateAnalysisLabel.setText("当前状态: " + state.getPresence().getDisplayName()
+                    + (reason != null ? " (" + reason + ")" : ""));
+        }
+        if (state.getLastGestureTime() != previous.getLastGestureTime()
+                || !state.getLastGesture().equals(previous.getLastGesture())) {
+            gestureLabel.setText("检测到的手势: " + state.getLastGesture());
+        }
+        if (state.getTileMode() != previous.getTileMode()) {
+            updateVideoDisplay();
+        }
+    }
 
-        } else {
-            // 正常显示
-            webcamPanel.setPainter(new DefaultPainter());
-            webcamPanel.setVisible(true);
-            webcamPanel.start();
+    /** 切换显示模式只改变合成方式，不增删组件 */
+    private static void updateVideoDisplay() {
+        if (videoTile != null) {
+            videoTile.setMode(session.get().getTileMode());
         }
     }
 
-    // 实现简单的背景模糊画笔
-    private static class BlurredWebcamPainter implements WebcamPanel.Painter {
-        private Webcam webcam;
+    // 把sarxos摄像头适配为FrameSource
+    private static class WebcamFrameSource implements FrameSource {
+        private final Webcam webcam;
 
-        public BlurredWebcamPainter(Webcam webcam) {
+        WebcamFrameSource(Webcam webcam) {
             this.webcam = webcam;
         }
 
         @Override
-        public void paintPanel(WebcamPanel panel, Graphics2D g2) {
-            if (webcam.isOpen()) {
-                BufferedImage image = webcam.getImage();
-                if (image != null) {
-                    // 简单模糊实现（实际项目中应使用高斯模糊）
-                    BufferedImage blurred = new BufferedImage(
-                            image.getWidth(), image.getHeight(), image.getType());
-
-                    // 简单模糊处理 - 像素块化
-                    int blockSize = 10;
-                    for (int x = 0; x < image.getWidth(); x += blockSize) {
-                        for (int y = 0; y < image.getHeight(); y += blockSize) {
-                            // 获取块的平均颜色
-                            int avgR = 0, avgG = 0, avgB = 0;
-                            int count = 0;
-
-                            for (int i = 0; i < blockSize; i++) {
-                                for (int j = 0; j < blockSize; j++) {
-                                    int px = x + i;
-                                    int py = y + j;
-
-                                    if (px < image.getWidth() && py < image.getHeight()) {
-                                        Color pixel = new Color(image.getRGB(px, py));
-                                        avgR += pixel.getRed();
-                                        avgG += pixel.getGreen();
-                                        avgB += pixel.getBlue();
-                                        count++;
-                                    }
-                                }
-                            }
-
-                            if (count > 0) {
-                                avgR /= count;
-                                avgG /= count;
-                                avgB /= count;
-
-                                Color avgColor = new Color(avgR, avgG, avgB);
+        public boolean open() {
+            return webcam.isOpen() || webcam.open();
+        }
 
-                                // 使用平均颜色填充块
-                                for (int i = 0; i < blockSize; i++) {
-                                    for (int j = 0; j < blockSize; j++) {
-                                        int px = x + i;
-                                        int py = y + j;
+        @Override
+        public boolean isOpen() {
+            return webcam.isOpen();
+        }
 
-                                        if (px < blurred.getWidth() && py < blurred.getHeight()) {
-                                            blurred.setRGB(px, py, avgColor.getRGB());
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+        @Override
+        public BufferedImage getImage() {
+            return webcam.getImage();
+        }
 
-                    g2.drawImage(blurred, 0, 0, panel.getWidth(), panel.getHeight(), null);
-                }
-            }
+        @Override
+        public Dimension getViewSize() {
+            return webcam.getViewSize();
         }
 
         @Override
-        public void paintImage(WebcamPanel panel, BufferedImage image, Graphics2D g2) {
-            // 不需要实现，因为我们已经在paintPanel中处理了图像
+        public double getFrameRate() {
+            return webcam.getFPS();
         }
-    }
 
-    // 默认绘图类
-    private static class DefaultPainter implements WebcamPanel.Painter {
         @Override
-        public void paintPanel(WebcamPanel panel, Graphics2D g2) {
-            // 不需要实现，默认行为
+        public String getName() {
+            return webcam.getName();
         }
 
         @Override
-        public void paintImage(WebcamPanel panel, BufferedImage image, Graphics2D g2) {
-            g2.drawImage(image, 0, 0, panel.getWidth(), panel.getHeight(), null);
+        public void close() {
+            webcam.close();
         }
     }
 
     private static void cleanupResources() {
-        // 关闭线程池
-        if (executor != null) {
-            executor.shutdown();
+        // 通知房间里的其他人并停止状态同步
+        if (presenceLoop != null) {
+            presenceLoop.close();
+            System.out.println(presenceClient);
+        }
+        if (presenceRelay != null) {
+            presenceRelay.close();
+            System.out.println(presenceRelay);
+        }
+
+        // 停止视频管线
+        if (videoPipeline != null) {
+            videoPipeline.close();
+            System.out.println("视频管线统计:\n" + videoPipeline.report() + "\n" + gestureDetector + "\n" + presenceEngine);
+        }
+        if (videoTile != null) {
+            System.out.println(videoTile.report());
+        }
+        // 管线已停止，不会再有新的提交；窗口事件在EDT上，剩余更新立即执行
+        ui.flushNow();
+        System.out.println(ui);
+        if (levelMeterTimer != null) {
+            levelMeterTimer.stop();
+        }
+
+        // 关闭替代帧来源（摄像头在下面单独关闭）
+        if (frameSource != null && !(frameSource instanceof WebcamFrameSource)) {
+            frameSource.close();
         }
 
         // 关闭摄像头
@@ -667,14 +807,10 @@ public class SwingOnlyApp {
             webcam.close();
         }
 
-        // 停止摄像头面板
-        if (webcamPanel != null) {
-            webcamPanel.stop();
-        }
-
         // 停止音频
-        if (backgroundMusic != null && backgroundMusic.isRunning()) {
-            backgroundMusic.stop();
+        mixer.close();
+        System.out.println(mixer + ", " + mixer.getParameterStats());
+        if (backgroundMusic != null) {
             backgroundMusic.close();
         }
 
@@ -1,6 +1,7 @@
 plugins {
     id("java")
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -15,9 +16,13 @@ dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter")
 }
 
+// 帧统计内核使用孵化中的向量API，编译和运行时都需要加载该模块；未加载时自动回退到标量实现
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+
 application {
     // 只使用SwingApp作为主类
     mainClass.set("org.example.SwingApp")
+    applicationDefaultJvmArgs = vectorModuleArgs
 }
 
 // 创建一个特殊的任务，只编译和运行SwingApp
@@ -26,14 +31,120 @@ tasks.register<JavaExec>("runSwingApp") {
     description = "运行Swing版本的应用程序"
     classpath = sourceSets["main"].runtimeClasspath
     mainClass.set("org.example.SwingApp")
+    jvmArgs(vectorModuleArgs)
 }
 
 // 配置Java编译选项
 tasks.withType<JavaCompile> {
     // 只编译SwingApp，忽略其他带有JavaFX依赖的文件
     options.compilerArgs.add("-Xlint:-path")
+    options.compilerArgs.addAll(vectorModuleArgs)
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    jvmArgs(vectorModuleArgs)
+}
+// JMH基准：src/jmh/java，结果可与用jmhBaseline记录在src/jmh/baseline/results.json的基准线对比
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+val jmhBaselineDir = layout.projectDirectory.dir("src/jmh/baseline")
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // GC分析器报告每次操作的分配字节数和分配速率
+    profilers.add("gc")
+    jvmArgsAppend.addAll(vectorModuleArgs)
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+    (project.findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+// 在合成的带标注手势片段上评估识别准确率、延迟和单帧耗时，参数：每类片段数 分辨率
+tasks.register<JavaExec>("gestureEval") {
+    group = "verification"
+    description = "评估手势识别的准确率和延迟"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.example.bench.GestureEvaluation")
+    jvmArgs(vectorModuleArgs)
+    (project.findProperty("gestureArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+// 本机中继扇出负载测试，参数：客户端数 发送者数 每秒更新次数 秒数 接收线程数
+tasks.register<JavaExec>("presenceLoadTest") {
+    group = "verification"
+    description = "测试状态同步中继向上千个客户端扇出时的延迟"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.example.bench.PresenceLoadTest")
+    (project.findProperty("presenceArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+// 房间服务器吞吐测试，参数：房间数 成员数 每秒更新次数 秒数 慢成员处理毫秒；不带参数时运行默认组合
+tasks.register<JavaExec>("roomBenchmark") {
+    group = "verification"
+    description = "测试房间服务器在不同房间数、成员数和更新频率下的转发吞吐"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.example.bench.RoomBenchmark")
+    (project.findProperty("roomArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+// 在合成视频上评估帧编码器的字节/帧、码率、编解码耗时和PSNR，参数：分辨率 帧数 关键帧间隔
+tasks.register<JavaExec>("codecEval") {
+    group = "verification"
+    description = "评估帧编码器的码率、耗时和画质"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.example.bench.FrameCodecEvaluation")
+    (project.findProperty("codecArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+// 画廊渲染测试，参数：视口宽x高 秒数 成员数...；不带参数时测试1到100个成员
+tasks.register<JavaExec>("galleryBenchmark") {
+    group = "verification"
+    description = "测试画廊视图在不同成员数下的渲染耗时和内存占用"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.example.bench.GalleryBenchmark")
+    jvmArgs("-Djava.awt.headless=true")
+    (project.findProperty("galleryArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+tasks.register<Copy>("jmhBaseline") {
+    group = "verification"
+    description = "把最近一次JMH结果保存为基准线"
+    from(jmhResults)
+    into(jmhBaselineDir)
+}
+
+tasks.register("jmhCompare") {
+    group = "verification"
+    description = "对比最近一次JMH结果与基准线"
+    doLast {
+        val current = jmhResults.get().asFile
+        val baseline = jmhBaselineDir.file("results.json").asFile
+        if (!baseline.exists()) {
+            throw GradleException("尚未记录基准线: $baseline 不存在，请先在参考机器上运行jmh，再运行jmhBaseline并提交该文件")
+        }
+        if (!current.exists()) {
+            throw GradleException("缺少本次JMH结果: $current 不存在，请先运行jmh")
+        }
+        fun scores(file: File): Map<String, Pair<Double, String>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>
+            return runs.associate { run ->
+                val params = (run["params"] as Map<*, *>?)?.entries?.joinToString(",") { "${it.key}=${it.value}" } ?: ""
+                val metric = run["primaryMetric"] as Map<*, *>
+                "${run["benchmark"]}($params)" to Pair((metric["score"] as Number).toDouble(), metric["scoreUnit"] as String)
+            }
+        }
+        val before = scores(baseline)
+        scores(current).forEach { (name, score) ->
+            val old = before[name]
+            if (old == null) {
+                println(String.format("%-90s %12.3f %s  (无基准)", name, score.first, score.second))
+            } else {
+                println(String.format("%-90s %12.3f %s  基准 %12.3f  比值 %.2f",
+                    name, score.first, score.second, old.first, score.first / old.first))
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.bench;
+
+import org.example.video.Rasters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保存前一帧的开销：原copyImage整幅复制 vs 读入复用的亮度数组。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CopyImageBenchmark {
+    private byte[] luma;
+    private int[] rowScratch;
+
+    @Setup
+    public void allocate(FrameFixture fixture) {
+        luma = new byte[fixture.width * fixture.height];
+        rowScratch = new int[fixture.width];
+    }
+
+    @Benchmark
+    public BufferedImage legacyCopyImage(FrameFixture fixture) {
+        return LegacyVideoPaths.copyImage(fixture.nextFrame());
+    }
+
+    @Benchmark
+    public byte[] recycledLuma(FrameFixture fixture) {
+        BufferedImage frame = fixture.nextFrame();
+        Rasters.readLuma(frame, 0, 0, frame.getWidth(), frame.getHeight(), luma, rowScratch);
+        return luma;
+    }
+}
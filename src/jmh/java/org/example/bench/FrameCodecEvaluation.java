@@ -0,0 +1,98 @@
+package org.example.bench;
+
+import org.example.video.FrameDecoder;
+import org.example.video.FrameEncoder;
+import org.example.video.Rasters;
+import org.example.video.SyntheticFrameSource;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 在合成视频上评估FrameEncoder：不同噪声幅度和量化位数下的平均字节/帧、码率、编解码耗时和亮度PSNR。
+ * 编码和解码都使用同一个复用的直接ByteBuffer，与网络发送路径一致。
+ * 用法：gradle codecEval [-PcodecArgs="宽x高 帧数 关键帧间隔"]
+ */
+public final class FrameCodecEvaluation {
+    private static final double FRAME_RATE = 30;
+    private static final int[] NOISE = {0, 4, 8};
+    private static final int[] LUMA_SHIFTS = {2, 3, 4};
+
+    private FrameCodecEvaluation() {
+    }
+
+    public static void main(String[] args) {
+        String resolution = args.length > 0 ? args[0] : "640x480";
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int keyframeInterval = args.length > 2 ? Integer.parseInt(args[2]) : FrameEncoder.DEFAULT_KEYFRAME_INTERVAL;
+        int x = resolution.indexOf('x');
+        int width = Integer.parseInt(resolution.substring(0, x));
+        int height = Integer.parseInt(resolution.substring(x + 1));
+
+        System.out.printf("帧编码评估: %s@%.0f, %d 帧, 关键帧间隔 %d, 原始 %d 字节/帧%n",
+                resolution, FRAME_RATE, frames, keyframeInterval, width * height * 3);
+        System.out.printf("%6s %6s %10s %10s %10s %10s %10s %10s %10s %8s%n", "噪声", "量化", "字节/帧", "关键帧",
+                "增量帧", "kbit/s", "编码p50", "编码p99", "解码p50", "PSNR");
+        for (int noise : NOISE) {
+            for (int shift : LUMA_SHIFTS) {
+                run(width, height, frames, keyframeInterval, noise, shift);
+            }
+        }
+    }
+
+    private static void run(int width, int height, int frames, int keyframeInterval, int noise, int shift) {
+        SyntheticFrameSource source = new SyntheticFrameSource(width, height, FRAME_RATE, 42L, noise, true);
+        FrameEncoder encoder = new FrameEncoder(width, height, keyframeInterval, shift);
+        FrameDecoder decoder = new FrameDecoder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoder.maxEncodedBytes());
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        int[] original = new int[width * height];
+        int[] decoded = new int[width * height];
+        int[] rowScratch = new int[width];
+        long[] encodeNanos = new long[frames];
+        long[] decodeNanos = new long[frames];
+        long keyframeBytes = 0;
+        long totalBytes = 0;
+        double squaredError = 0;
+
+        for (int i = 0; i < frames; i++) {
+            source.render(i, frame);
+            buffer.clear();
+            long before = encoder.getKeyframeCount();
+            int bytes = encoder.encode(frame, buffer);
+            encodeNanos[i] = encoder.getLastEncodeNanos();
+            totalBytes += bytes;
+            if (encoder.getKeyframeCount() > before) {
+                keyframeBytes += bytes;
+            }
+            buffer.flip();
+            if (!decoder.decode(buffer)) {
+                throw new IllegalStateException("第 " + i + " 帧解码失败");
+            }
+            decodeNanos[i] = decoder.getLastDecodeNanos();
+
+            Rasters.readRgb(frame, original, rowScratch);
+            Rasters.readRgb(decoder.getImage(), decoded, rowScratch);
+            for (int p = 0; p < original.length; p++) {
+                int d = luma(original[p]) - luma(decoded[p]);
+                squaredError += d * d;
+            }
+        }
+
+        long keyframes = encoder.getKeyframeCount();
+        double mse = squaredError / ((double) frames * width * height);
+        Arrays.sort(encodeNanos);
+        Arrays.sort(decodeNanos);
+        System.out.printf("%6d %6d %10.0f %10.0f %10.0f %10.0f %10.2f %10.2f %10.2f %8.1f%n",
+                noise, shift, (double) totalBytes / frames, (double) keyframeBytes / keyframes,
+                frames == keyframes ? 0.0 : (double) (totalBytes - keyframeBytes) / (frames - keyframes),
+                totalBytes * 8.0 / 1000 / (frames / FRAME_RATE),
+                encodeNanos[frames / 2] / 1e6, encodeNanos[(int) (frames * 0.99)] / 1e6,
+                decodeNanos[frames / 2] / 1e6, mse == 0 ? 99.0 : 10 * Math.log10(255.0 * 255.0 / mse));
+    }
+
+    private static int luma(int p) {
+        return (77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF)) >> 8;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.bench;
+
+import org.example.video.SyntheticFrameSource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 各基准共享的合成帧：VGA、720p、1080p三种分辨率，预先渲染若干连续帧后轮流使用，
+ * 帧生成开销不计入测量。
+ */
+@State(Scope.Thread)
+public class FrameFixture {
+    private static final int FRAME_COUNT = 8;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    public int width;
+    public int height;
+    private BufferedImage[] frames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void render() {
+        int x = resolution.indexOf('x');
+        width = Integer.parseInt(resolution.substring(0, x));
+        height = Integer.parseInt(resolution.substring(x + 1));
+        SyntheticFrameSource source = new SyntheticFrameSource(width, height, 30);
+        frames = new BufferedImage[FRAME_COUNT];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            frames[i] = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            // 间隔3帧取样，保证相邻帧之间有明显运动
+            source.render(i * 3L, frames[i]);
+        }
+    }
+
+    /** 依次返回下一帧 */
+    public BufferedImage nextFrame() {
+        BufferedImage frame = frames[next];
+        next = (next + 1) % FRAME_COUNT;
+        return frame;
+    }
+}
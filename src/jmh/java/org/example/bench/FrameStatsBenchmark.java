@@ -0,0 +1,90 @@
+package org.example.bench;
+
+import org.example.video.FrameStats;
+import org.example.video.FrameStatsKernel;
+import org.example.video.FrameStatsKernels;
+import org.example.video.Rasters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全分辨率亮度平面上的统计内核：原按列遍历的int循环、标量内核、向量内核对比。
+ * 向量内核需要--add-modules jdk.incubator.vector，未加载时vector与scalar结果相同。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameStatsBenchmark {
+    private static final int THRESHOLD = 30;
+
+    private final FrameStatsKernel scalar = FrameStatsKernels.scalar();
+    private final FrameStatsKernel vector = FrameStatsKernels.best();
+    private final FrameStats stats = new FrameStats();
+    private byte[] current;
+    private byte[] previous;
+    private int width;
+    private int height;
+
+    @Setup(Level.Trial)
+    public void prepare(FrameFixture fixture) {
+        width = fixture.width;
+        height = fixture.height;
+        current = new byte[width * height];
+        previous = new byte[width * height];
+        int[] rowScratch = new int[width];
+        BufferedImage first = fixture.nextFrame();
+        BufferedImage second = fixture.nextFrame();
+        Rasters.readLuma(first, 0, 0, width, height, previous, rowScratch);
+        Rasters.readLuma(second, 0, 0, width, height, current, rowScratch);
+    }
+
+    /** 与原analyzeVideo相同的遍历方式：按列访问、int累加 */
+    @Benchmark
+    public long legacyLoop() {
+        int total = 0;
+        int moving = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int b = current[y * width + x] & 0xFF;
+                total += b;
+                if (Math.abs(b - (previous[y * width + x] & 0xFF)) > THRESHOLD) {
+                    moving++;
+                }
+            }
+        }
+        return total + moving;
+    }
+
+    @Benchmark
+    public long scalar() {
+        scalar.compute(current, previous, width, 0, 0, width, height, THRESHOLD, false, stats);
+        return stats.getLumaSum() + stats.getDiffCount();
+    }
+
+    @Benchmark
+    public long vector() {
+        vector.compute(current, previous, width, 0, 0, width, height, THRESHOLD, false, stats);
+        return stats.getLumaSum() + stats.getDiffCount();
+    }
+
+    @Benchmark
+    public long scalarWithHistogram() {
+        scalar.compute(current, previous, width, 0, 0, width, height, THRESHOLD, true, stats);
+        return stats.getLumaSum() + stats.getHistogram()[128];
+    }
+
+    @Benchmark
+    public long vectorWithHistogram() {
+        vector.compute(current, previous, width, 0, 0, width, height, THRESHOLD, true, stats);
+        return stats.getLumaSum() + stats.getHistogram()[128];
+    }
+}
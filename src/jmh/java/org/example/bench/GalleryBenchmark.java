@@ -0,0 +1,150 @@
+package org.example.bench;
+
+import org.example.video.GalleryRenderer;
+import org.example.video.SyntheticFrameSource;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 画廊渲染测试：不同成员数下，每个成员以30 fps提交合成视频帧，其中一人在说话（每3秒轮换），
+ * 测量GalleryRenderer每帧的渲染耗时、缩放和重绘的画面数、渲染器占用的堆内存，
+ * 并与每帧把所有成员的原始帧直接缩放绘制到各自位置的做法对比，两者都报告平均值和p99。
+ * 时间按帧号模拟，不等待真实时间；帧预先渲染，生成开销不计入测量。
+ * 用法：gradle galleryBenchmark [-PgalleryArgs="视口宽x高 秒数 成员数..."]
+ */
+public final class GalleryBenchmark {
+    private static final int FRAME_RATE = 30;
+    private static final long TICK_NANOS = 1_000_000_000L / FRAME_RATE;
+    private static final int SPEAKER_TICKS = 3 * FRAME_RATE;
+    private static final int FRAME_COUNT = 16;
+    private static final int[] DEFAULT_COUNTS = {1, 4, 9, 16, 25, 49, 100};
+
+    private GalleryBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String viewport = args.length > 0 ? args[0] : "1280x720";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int[] counts = args.length > 2
+                ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_COUNTS;
+        int x = viewport.indexOf('x');
+        int viewWidth = Integer.parseInt(viewport.substring(0, x));
+        int viewHeight = Integer.parseInt(viewport.substring(x + 1));
+
+        // 两个来源交替取帧，相邻成员的画面不同
+        BufferedImage[] frames = new BufferedImage[FRAME_COUNT];
+        SyntheticFrameSource[] sources = {
+                new SyntheticFrameSource(640, 480, FRAME_RATE),
+                new SyntheticFrameSource(640, 480, FRAME_RATE, 7L, 8, false)
+        };
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            frames[i] = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+            sources[i % 2].render(i * 2L, frames[i]);
+        }
+
+        System.out.printf("画廊渲染: 视口 %s, 每个成员 640x480@%d, %d 秒%n", viewport, FRAME_RATE, seconds);
+        System.out.printf("%6s %6s %6s %10s %10s %10s %10s %10s %12s %12s %10s %10s%n", "成员", "列", "可见",
+                "平均 ms", "p50 ms", "p99 ms", "缩放/帧", "重绘/帧", "直接平均 ms", "直接p99 ms", "堆 MB", "KB/成员");
+        for (int count : counts) {
+            run(count, viewWidth, viewHeight, seconds * FRAME_RATE, frames);
+        }
+    }
+
+    private static void run(int count, int viewWidth, int viewHeight, int ticks, BufferedImage[] frames)
+            throws InterruptedException {
+        long heapBefore = usedHeap();
+        GalleryRenderer renderer = new GalleryRenderer();
+        for (int p = 0; p < count; p++) {
+            renderer.addPeer(p, "成员" + p);
+        }
+        renderer.setViewport(viewWidth, viewHeight, 0);
+
+        long[] renderNanos = new long[ticks];
+        long scaled = 0;
+        long drawn = 0;
+        int speaker = -1;
+        for (int t = 0; t < ticks; t++) {
+            int next = (t / SPEAKER_TICKS) % count;
+            if (next != speaker) {
+                if (speaker >= 0) {
+                    renderer.setSpeaking(speaker, false);
+                }
+                renderer.setSpeaking(next, true);
+                speaker = next;
+            }
+            for (int p = 0; p < count; p++) {
+                renderer.submitFrame(p, frames[(p + t) % FRAME_COUNT]);
+            }
+            renderer.render(t * TICK_NANOS);
+            renderNanos[t] = renderer.getLastRenderNanos();
+            scaled += renderer.getLastScaled();
+            drawn += renderer.getLastDrawn();
+        }
+        int visible = count - renderer.getLastOffscreen();
+        int columns = columns(renderer, count);
+        long heap = usedHeap() - heapBefore;
+        // 保持渲染器在测量堆内存之后仍然可达
+        int peers = renderer.getPeerCount();
+
+        long[] directNanos = directDraw(renderer, count, viewWidth, viewHeight, ticks, frames);
+        System.out.printf("%6d %6d %6d %10.2f %10.2f %10.2f %10.1f %10.1f %12.2f %12.2f %10.1f %10.0f%n",
+                peers, columns, visible, averageMillis(renderNanos), percentileMillis(renderNanos, 0.5),
+                percentileMillis(renderNanos, 0.99), (double) scaled / ticks, (double) drawn / ticks,
+                averageMillis(directNanos), percentileMillis(directNanos, 0.99), heap / 1e6, heap / 1024.0 / count);
+    }
+
+    /** 对比：每帧把所有成员的原始帧直接缩放绘制到各自位置，不做可见性判断和缓存；返回每帧耗时 */
+    private static long[] directDraw(GalleryRenderer renderer, int count, int viewWidth, int viewHeight, int ticks,
+                                     BufferedImage[] frames) {
+        Rectangle[] bounds = new Rectangle[count];
+        for (int p = 0; p < count; p++) {
+            bounds[p] = renderer.getTileBounds(p);
+        }
+        BufferedImage back = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
+        long[] nanos = new long[ticks];
+        for (int t = 0; t < ticks; t++) {
+            long start = System.nanoTime();
+            Graphics2D g = back.createGraphics();
+            for (int p = 0; p < count; p++) {
+                Rectangle r = bounds[p];
+                g.drawImage(frames[(p + t) % FRAME_COUNT], r.x, r.y, r.width, r.height, null);
+            }
+            g.dispose();
+            nanos[t] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static double averageMillis(long[] nanos) {
+        return Arrays.stream(nanos).sum() / 1e6 / nanos.length;
+    }
+
+    /** 不修改传入的数组 */
+    private static double percentileMillis(long[] nanos, double p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1e6;
+    }
+
+    private static int columns(GalleryRenderer renderer, int count) {
+        int y = renderer.getTileBounds(0).y;
+        int columns = 0;
+        while (columns < count && renderer.getTileBounds(columns).y == y) {
+            columns++;
+        }
+        return columns;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.bench;
+
+import org.example.video.Gesture;
+import org.example.video.GestureDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 手势识别的单帧开销：原来的随机实现与GestureDetector（含自行构建金字塔的开销）。
+ * 识别准确率和延迟见GestureEvaluation。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GestureBenchmark {
+    private final LegacyVideoPaths legacy = new LegacyVideoPaths();
+    private final GestureDetector detector = new GestureDetector();
+    private long clock;
+
+    @Benchmark
+    public String legacyDetectGestures(FrameFixture fixture) {
+        // 每次调用推进11秒，使冷却期不会让原实现直接返回
+        clock += 11000;
+        return legacy.detectGestures(fixture.nextFrame(), clock);
+    }
+
+    @Benchmark
+    public Gesture gestureDetector(FrameFixture fixture) {
+        // 按15fps推进时间
+        clock += 67;
+        return detector.detect(fixture.nextFrame(), clock);
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.bench;
+
+import org.example.video.Gesture;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+/**
+ * 带标注的合成手势片段：灰色背景、深色上衣、随机肤色和大小的脸，手按标注完成举手、点赞、挥手，
+ * 或者（NONE）不出现、放在桌面、在胸前不停比划。每个片段的内容只取决于标注和种子。
+ * onsetMillis为手势完成（到位或开始摆动）的时刻，用于计算识别延迟。
+ */
+final class GestureClips {
+    static final double FRAME_RATE = 15;
+    static final long DURATION_MILLIS = 3000;
+
+    private static final int[][] SKIN_TONES = {
+            {235, 190, 160}, {224, 172, 140}, {198, 134, 100}, {141, 85, 60}
+    };
+    private static final int[][] SHIRTS = {
+            {30, 40, 90}, {25, 70, 45}, {60, 60, 65}, {20, 20, 25}
+    };
+
+    private final int width;
+    private final int height;
+
+    GestureClips(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /** 一个片段的全部参数 */
+    final class Clip {
+        final Gesture label;
+        final long onsetMillis;
+        private final int variant;
+        private final int[] skin;
+        private final int[] shirt;
+        private final double light;
+        private final int background;
+        private final double faceCx;
+        private final double faceTop;
+        private final double faceW;
+        private final int side;
+        private final double waveHz;
+        private final long seed;
+
+        Clip(Gesture label, long seed) {
+            Random random = new Random(seed);
+            this.label = label;
+            this.seed = seed;
+            this.variant = random.nextInt(3);
+            this.skin = SKIN_TONES[random.nextInt(SKIN_TONES.length)];
+            this.shirt = SHIRTS[random.nextInt(SHIRTS.length)];
+            this.light = 0.75 + 0.4 * random.nextDouble();
+            this.background = 60 + random.nextInt(120);
+            // 脸的大小按画面高度取，宽屏时人物比例与4:3一致
+            this.faceW = height * (0.21 + 0.11 * random.nextDouble());
+            this.faceCx = width * (0.4 + 0.2 * random.nextDouble());
+            this.faceTop = height * (0.12 + 0.1 * random.nextDouble());
+            // 手放在离画面边缘较远的一侧
+            this.side = faceCx < width / 2.0 ? 1 : -1;
+            this.waveHz = 1.8 + 0.8 * random.nextDouble();
+            this.onsetMillis = 600 + random.nextInt(400);
+        }
+
+        int frameCount() {
+            return (int) (DURATION_MILLIS * FRAME_RATE / 1000);
+        }
+
+        long timeOf(int frame) {
+            return Math.round(frame * 1000 / FRAME_RATE);
+        }
+
+        void render(int frame, BufferedImage dst) {
+            long t = timeOf(frame);
+            double faceH = faceW * 1.3;
+            double cx = faceCx + faceW * 0.05 * Math.sin(2 * Math.PI * t / 4000.0);
+            double faceBottom = faceTop + faceH;
+
+            Graphics2D g = dst.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setPaint(new GradientPaint(0, 0, gray(background + 15), 0, height, gray(background - 15)));
+                g.fillRect(0, 0, width, height);
+
+                // 上衣、脖子、脸和头发
+                g.setColor(color(shirt));
+                g.fillRoundRect((int) (cx - faceW * 1.3), (int) (faceBottom + faceH * 0.15),
+                        (int) (faceW * 2.6), height, (int) faceW, (int) faceW);
+                g.setColor(color(skin));
+                g.fillRect((int) (cx - faceW * 0.18), (int) (faceBottom - faceH * 0.1),
+                        (int) (faceW * 0.36), (int) (faceH * 0.3));
+                g.fillOval((int) (cx - faceW / 2), (int) faceTop, (int) faceW, (int) faceH);
+                g.setColor(color(new int[]{35, 25, 20}));
+                g.fillArc((int) (cx - faceW / 2), (int) (faceTop - faceH * 0.05), (int) faceW, (int) (faceH * 0.5), 0, 180);
+
+                drawHand(g, t, cx, faceBottom, faceH);
+            } finally {
+                g.dispose();
+            }
+            addNoise(dst, seed * 31 + frame);
+        }
+
+        private void drawHand(Graphics2D g, long t, double cx, double faceBottom, double faceH) {
+            // 手从桌面位置(rest)在400ms内移动到目标位置
+            double restX = cx + side * faceW * 0.9;
+            double restY = height - faceW * 0.3;
+            double hx;
+            double hy;
+            boolean fist = false;
+            double progress = Math.min(1, Math.max(0, (t - (onsetMillis - 400)) / 400.0));
+            switch (label) {
+                case RAISED_HAND:
+                    hx = lerp(restX, cx + side * faceW * 1.0, progress);
+                    // 手的上沿高出头顶0.3个脸宽
+                    hy = lerp(restY, faceTop - faceW * 0.3 + faceW * 0.325, progress);
+                    break;
+                case THUMBS_UP:
+                    fist = true;
+                    hx = lerp(restX, cx + side * faceW * 0.95, progress);
+                    hy = lerp(restY, faceBottom + faceH * 0.35, progress);
+                    break;
+                case WAVE:
+                    hx = lerp(restX, cx + side * faceW * 1.15, progress);
+                    hy = lerp(restY, faceTop + faceH * 0.45, progress);
+                    if (t >= onsetMillis) {
+                        hx += faceW * 0.3 * Math.sin(2 * Math.PI * waveHz * (t - onsetMillis) / 1000.0);
+                    }
+                    break;
+                default:
+                    if (variant == 0) {
+                        // 手不在画面中
+                        return;
+                    }
+                    if (variant == 1) {
+                        hx = restX;
+                        hy = restY;
+                        fist = true;
+                    } else {
+                        // 说话时在胸前比划，一直在动
+                        hx = cx + side * faceW * (0.6 + 0.4 * Math.sin(2 * Math.PI * t / 900.0));
+                        hy = faceBottom + faceH * (0.6 + 0.2 * Math.sin(2 * Math.PI * t / 700.0));
+                        fist = true;
+                    }
+                    break;
+            }
+
+            // 袖子
+            g.setColor(color(shirt));
+            int sleeve = (int) (faceW * 0.3);
+            g.fillRect((int) (hx - sleeve / 2.0), (int) (hy + faceW * 0.25), sleeve, height);
+            g.setColor(color(skin));
+            if (fist) {
+                double fw = faceW * 0.4;
+                double fh = faceW * 0.35;
+                g.fillRoundRect((int) (hx - fw / 2), (int) (hy - fh / 2), (int) fw, (int) fh, (int) (fw / 3), (int) (fw / 3));
+                if (label == Gesture.THUMBS_UP) {
+                    double tw = faceW * 0.13;
+                    double th = faceW * 0.3;
+                    // 拇指竖在拳头上方靠一侧
+                    g.fillRoundRect((int) (hx - fw / 2 + fw * 0.1), (int) (hy - fh / 2 - th + 2),
+                            (int) tw, (int) th, (int) tw, (int) tw);
+                }
+            } else {
+                double w = faceW * 0.45;
+                double h = faceW * 0.65;
+                g.fillRoundRect((int) (hx - w / 2), (int) (hy - h / 2), (int) w, (int) h, (int) (w / 2), (int) (w / 2));
+            }
+        }
+
+        private Color color(int[] rgb) {
+            return new Color(clamp((int) (rgb[0] * light)), clamp((int) (rgb[1] * light)), clamp((int) (rgb[2] * light)));
+        }
+
+        private Color gray(int v) {
+            int c = clamp((int) (v * light));
+            return new Color(c, c, c);
+        }
+    }
+
+    private static void addNoise(BufferedImage dst, long seed) {
+        byte[] data = ((DataBufferByte) dst.getRaster().getDataBuffer()).getData();
+        long state = seed * 0x9E3779B97F4A7C15L + 1;
+        for (int i = 0; i < data.length; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            int noise = (int) ((state >>> 33) % 13) - 6;
+            data[i] = (byte) clamp((data[i] & 0xFF) + noise);
+        }
+    }
+
+    private static double lerp(double a, double b, double f) {
+        return a + (b - a) * f;
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+
+    BufferedImage newFrame() {
+        return new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.bench;
+
+import org.example.video.Gesture;
+import org.example.video.GestureDetector;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 在GestureClips生成的带标注片段上评估GestureDetector：混淆矩阵、准确率、识别延迟和单帧耗时。
+ * 每个片段取第一次识别结果，NONE片段中出现任何识别都算误报。
+ * 用法：gradle gestureEval [-PgestureArgs="片段数/类 宽x高"]
+ */
+public final class GestureEvaluation {
+    private GestureEvaluation() {
+    }
+
+    public static void main(String[] args) {
+        int clipsPerLabel = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        String resolution = args.length > 1 ? args[1] : "640x480";
+        int x = resolution.indexOf('x');
+        int width = Integer.parseInt(resolution.substring(0, x));
+        int height = Integer.parseInt(resolution.substring(x + 1));
+
+        GestureClips clips = new GestureClips(width, height);
+        Gesture[] labels = Gesture.values();
+        int[][] confusion = new int[labels.length][labels.length];
+        long[] latencies = new long[labels.length * clipsPerLabel];
+        int latencyCount = 0;
+        long[] costs = new long[labels.length * clipsPerLabel * 64];
+        int costCount = 0;
+        BufferedImage frame = clips.newFrame();
+
+        for (Gesture label : labels) {
+            for (int i = 0; i < clipsPerLabel; i++) {
+                GestureClips.Clip clip = clips.new Clip(label, 1000L * label.ordinal() + i);
+                GestureDetector detector = new GestureDetector();
+                Gesture first = Gesture.NONE;
+                long detectedAt = -1;
+                for (int f = 0; f < clip.frameCount(); f++) {
+                    clip.render(f, frame);
+                    long t = clip.timeOf(f);
+                    Gesture g = detector.detect(frame, t);
+                    if (costCount < costs.length) {
+                        costs[costCount++] = detector.getLastCostNanos();
+                    }
+                    if (g != Gesture.NONE && first == Gesture.NONE) {
+                        first = g;
+                        detectedAt = t;
+                    }
+                }
+                confusion[label.ordinal()][first.ordinal()]++;
+                if (label != Gesture.NONE && first == label) {
+                    latencies[latencyCount++] = detectedAt - clip.onsetMillis;
+                }
+            }
+        }
+
+        System.out.printf("手势识别评估: %s, 每类 %d 个片段, %.0f fps%n", resolution, clipsPerLabel, GestureClips.FRAME_RATE);
+        System.out.printf("%-12s", "标注\\识别");
+        for (Gesture g : labels) {
+            System.out.printf("%12s", g);
+        }
+        System.out.println();
+        int correct = 0;
+        for (Gesture label : labels) {
+            System.out.printf("%-12s", label);
+            for (Gesture g : labels) {
+                System.out.printf("%12d", confusion[label.ordinal()][g.ordinal()]);
+            }
+            System.out.println();
+            correct += confusion[label.ordinal()][label.ordinal()];
+        }
+        System.out.printf("准确率 %.1f%%%n", 100.0 * correct / (labels.length * clipsPerLabel));
+
+        long[] l = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(l);
+        if (l.length > 0) {
+            System.out.printf("识别延迟(手势完成后): 中位数 %d ms, p95 %d ms, 最大 %d ms%n",
+                    l[l.length / 2], l[(int) (l.length * 0.95)], l[l.length - 1]);
+        }
+        long[] c = Arrays.copyOf(costs, costCount);
+        Arrays.sort(c);
+        System.out.printf("单帧耗时: 中位数 %.3f ms, p99 %.3f ms, 最大 %.3f ms, 预算 %.1f ms%n",
+                c[c.length / 2] / 1e6, c[(int) (c.length * 0.99)] / 1e6, c[c.length - 1] / 1e6,
+                GestureDetector.DEFAULT_BUDGET_NANOS / 1e6);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.bench;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * SwingOnlyApp中被替换前的视频处理实现，原样保留作为性能对比基准。
+ */
+final class LegacyVideoPaths {
+    private BufferedImage prevFrame;
+    private long lastGestureTime;
+    String lastDetectedGesture = "无";
+
+    /** 原analyzeVideo：逐像素getRGB并创建Color，按列遍历，每帧复制整幅图像 */
+    int analyzeVideo(BufferedImage frame) {
+        int centerX = frame.getWidth() / 2;
+        int centerY = frame.getHeight() / 2;
+        int sampleSize = 100;
+        int totalBrightness = 0;
+        int motionDetected = 0;
+
+        if (prevFrame != null) {
+            for (int x = centerX - sampleSize / 2; x < centerX + sampleSize / 2; x++) {
+                for (int y = centerY - sampleSize / 2; y < centerY + sampleSize / 2; y++) {
+                    if (x >= 0 && x < frame.getWidth() && y >= 0 && y < frame.getHeight()) {
+                        Color pixelColor = new Color(frame.getRGB(x, y));
+                        Color prevPixelColor = new Color(prevFrame.getRGB(x, y));
+                        int brightness = (pixelColor.getRed() + pixelColor.getGreen() + pixelColor.getBlue()) / 3;
+                        int prevBrightness = (prevPixelColor.getRed() + prevPixelColor.getGreen() + prevPixelColor.getBlue()) / 3;
+                        totalBrightness += brightness;
+                        if (Math.abs(brightness - prevBrightness) > 30) {
+                            motionDetected++;
+                        }
+                    }
+                }
+            }
+        }
+        prevFrame = copyImage(frame);
+        return totalBrightness / (sampleSize * sampleSize) + motionDetected;
+    }
+
+    static BufferedImage copyImage(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), source.getType());
+        Graphics g = copy.getGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /** 原detectGestures：10秒冷却后以2%概率随机产生手势 */
+    String detectGestures(BufferedImage frame, long currentTime) {
+        if (currentTime - lastGestureTime < 10000) {
+            return null;
+        }
+        if (Math.random() < 0.02) {
+            String[] gestures = {"👍 赞同", "🤔 思考", "🎉 庆祝"};
+            String detectedGesture = gestures[(int) (Math.random() * gestures.length)];
+            lastDetectedGesture = detectedGesture;
+            lastGestureTime = currentTime;
+            return detectedGesture;
+        }
+        return null;
+    }
+
+    /** 原BlurredWebcamPainter的像素块化"模糊" */
+    static BufferedImage pixelate(BufferedImage image) {
+        BufferedImage blurred = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        int blockSize = 10;
+        for (int x = 0; x < image.getWidth(); x += blockSize) {
+            for (int y = 0; y < image.getHeight(); y += blockSize) {
+                int avgR = 0, avgG = 0, avgB = 0;
+                int count = 0;
+                for (int i = 0; i < blockSize; i++) {
+                    for (int j = 0; j < blockSize; j++) {
+                        int px = x + i;
+                        int py = y + j;
+                        if (px < image.getWidth() && py < image.getHeight()) {
+                            Color pixel = new Color(image.getRGB(px, py));
+                            avgR += pixel.getRed();
+                            avgG += pixel.getGreen();
+                            avgB += pixel.getBlue();
+                            count++;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    Color avgColor = new Color(avgR / count, avgG / count, avgB / count);
+                    for (int i = 0; i < blockSize; i++) {
+                        for (int j = 0; j < blockSize; j++) {
+                            int px = x + i;
+                            int py = y + j;
+                            if (px < blurred.getWidth() && py < blurred.getHeight()) {
+                                blurred.setRGB(px, py, avgColor.getRGB());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return blurred;
+    }
+}
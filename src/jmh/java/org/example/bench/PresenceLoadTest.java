@@ -0,0 +1,103 @@
+package org.example.bench;
+
+import org.example.net.PresenceClient;
+import org.example.net.PresenceClientLoop;
+import org.example.net.PresenceRelay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 状态同步负载测试：进程内启动一个PresenceRelay，连接上千个模拟客户端，其中一部分以固定频率切换状态，
+ * 测量中继扇出到其余所有客户端的端到端延迟和送达率。
+ * 发送时间和延迟由PresenceTraffic记录。
+ * 用法：gradle presenceLoadTest [-PpresenceArgs="客户端数 发送者数 每秒更新次数 秒数 接收线程数"]
+ */
+public final class PresenceLoadTest {
+    private PresenceLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int senderCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int loopCount = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        int updatesPerSender = rate * seconds;
+
+        PresenceTraffic traffic = new PresenceTraffic(senderCount, updatesPerSender,
+                (long) clientCount * updatesPerSender * senderCount);
+        PresenceTraffic.Receiver[] receivers = new PresenceTraffic.Receiver[clientCount];
+
+        try (PresenceRelay relay = PresenceRelay.startLocal(0)) {
+            List<PresenceClientLoop> loops = new ArrayList<>();
+            List<PresenceClient> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < loopCount; i++) {
+                    loops.add(new PresenceClientLoop("presence-client-" + i));
+                }
+                long joinStart = System.nanoTime();
+                for (int i = 0; i < clientCount; i++) {
+                    receivers[i] = traffic.receiver(i, 0, senderCount, 0, true);
+                    PresenceClient client = PresenceClient.connect(relay.getAddress(), i + 1, "peer" + i,
+                            receivers[i]);
+                    clients.add(client);
+                    loops.get(i % loopCount).add(client);
+                }
+                PresenceTraffic.waitUntil(() -> clients.stream().allMatch(PresenceClient::isJoined), 20000);
+                System.out.printf("%d 个客户端加入用时 %.0f ms, 中继成员 %d%n", clientCount,
+                        (System.nanoTime() - joinStart) / 1e6, relay.getMemberCount());
+
+                // 发送者先发布关键帧，其他客户端由此得到名字和初始状态
+                for (int s = 0; s < senderCount; s++) {
+                    clients.get(s).publish(PresenceTraffic.update(0));
+                }
+                Thread.sleep(500);
+                traffic.resetLatencies();
+
+                // 发送者在每个周期内错开发送，与真实房间里各自独立的状态变化一致
+                long intervalNanos = 1_000_000_000L / rate;
+                long slotNanos = intervalNanos / senderCount;
+                long start = System.nanoTime();
+                for (int n = 1; n <= updatesPerSender; n++) {
+                    for (int s = 0; s < senderCount; s++) {
+                        long wait = start + n * intervalNanos + s * slotNanos - System.nanoTime();
+                        if (wait > 0) {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        }
+                        traffic.markSent(s, n);
+                        clients.get(s).publish(PresenceTraffic.update(n));
+                    }
+                }
+                Thread.sleep(1000);
+
+                long expected = (long) senderCount * updatesPerSender * (clientCount - 1);
+                long[] all = traffic.sortedLatencies();
+                long delivered = all.length;
+                // 过载时中间状态会被合并，但每个客户端最终都应看到每个发送者的最新状态
+                int converged = 0;
+                for (int c = 0; c < clientCount; c++) {
+                    if (receivers[c].hasLatest(updatesPerSender)) {
+                        converged++;
+                    }
+                }
+                System.out.printf("%d 个发送者 × %d 次/秒 × %d 秒, 扇出到 %d 个客户端: %d 条/秒%n",
+                        senderCount, rate, seconds, clientCount - 1, senderCount * rate * (clientCount - 1));
+                System.out.printf("送达 %d / %d (%.2f%%), 最终状态一致的客户端 %d / %d%n",
+                        delivered, expected, 100.0 * delivered / expected, converged, clientCount);
+                if (all.length > 0) {
+                    System.out.printf("延迟: 中位数 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, 最大 %.2f ms%n",
+                            PresenceTraffic.percentileMillis(all, 0.5), PresenceTraffic.percentileMillis(all, 0.99),
+                            PresenceTraffic.percentileMillis(all, 0.999), PresenceTraffic.percentileMillis(all, 1));
+                }
+                System.out.println(relay);
+                System.out.println(clients.get(0));
+                System.out.println(clients.get(clientCount - 1));
+            } finally {
+                for (PresenceClientLoop loop : loops) {
+                    loop.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.bench;
+
+import org.example.net.PeerState;
+import org.example.net.PresenceListener;
+import org.example.session.Presence;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * PresenceLoadTest和RoomBenchmark共用的状态更新记录：发送前记下每个发送者每次更新的发送时间，
+ * 接收方的监听器按状态原因里的序号（"#序号"）查出发送时间，换算成端到端延迟。
+ * 发送者编号为peerId - 1。
+ */
+final class PresenceTraffic {
+    private static final Presence[] PRESENCES = Presence.values();
+
+    private final long[][] sentAt;
+    // sentUpTo[发送者]在sentAt写入之后更新，接收方读取后sentAt[发送者][序号]一定可见
+    private final AtomicLongArray sentUpTo;
+    private final long[] latencies;
+    private final AtomicLong recorded = new AtomicLong();
+
+    PresenceTraffic(int senders, int updates, long expectedDeliveries) {
+        this.sentAt = new long[senders][updates + 1];
+        this.sentUpTo = new AtomicLongArray(senders);
+        this.latencies = new long[(int) Math.min(expectedDeliveries + 1024, Integer.MAX_VALUE - 8)];
+    }
+
+    /** 第n次更新的状态，序号写在原因里 */
+    static PeerState update(int n) {
+        return new PeerState(PRESENCES[n % PRESENCES.length], "#" + n, false, false);
+    }
+
+    /** 在发布第n次更新之前调用 */
+    void markSent(int sender, int n) {
+        sentAt[sender][n] = System.nanoTime();
+        sentUpTo.set(sender, n);
+    }
+
+    /** 丢弃之前记录的延迟，预热之后调用 */
+    void resetLatencies() {
+        recorded.set(0);
+    }
+
+    /** 已记录的延迟（纳秒），升序 */
+    long[] sortedLatencies() {
+        long[] copy = Arrays.copyOf(latencies, (int) Math.min(recorded.get(), latencies.length));
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * 一个客户端的监听器，只跟踪编号在[firstSender, firstSender + senders)内的发送者。
+     * @param self 客户端自己的发送者编号，自己的更新不会被转发回来
+     * @param delayMillis 处理每条状态后睡眠的时间，用于模拟慢成员
+     * @param recordLatency 是否把延迟计入统计
+     */
+    Receiver receiver(int self, int firstSender, int senders, long delayMillis, boolean recordLatency) {
+        return new Receiver(self, firstSender, senders, delayMillis, recordLatency);
+    }
+
+    /** 升序数组的百分位数，单位毫秒；空数组返回0 */
+    static double percentileMillis(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1e6;
+    }
+
+    static void waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void record(long nanos) {
+        long i = recorded.getAndIncrement();
+        if (i < latencies.length) {
+            latencies[(int) i] = nanos;
+        }
+    }
+
+    /** 记录延迟和看到的每个发送者的最新序号 */
+    final class Receiver implements PresenceListener {
+        private final int self;
+        private final int firstSender;
+        private final long delayMillis;
+        private final boolean recordLatency;
+        private final int[] latest;
+
+        private Receiver(int self, int firstSender, int senders, long delayMillis, boolean recordLatency) {
+            this.self = self;
+            this.firstSender = firstSender;
+            this.delayMillis = delayMillis;
+            this.recordLatency = recordLatency;
+            this.latest = new int[senders];
+            Arrays.fill(latest, -1);
+        }
+
+        @Override
+        public void peerStateChanged(int peerId, String name, PeerState state) {
+            long now = System.nanoTime();
+            int sender = peerId - 1;
+            String reason = state.getReason();
+            if (sender < firstSender || sender - firstSender >= latest.length
+                    || reason == null || !reason.startsWith("#")) {
+                return;
+            }
+            int n = Integer.parseInt(reason.substring(1));
+            synchronized (this) {
+                latest[sender - firstSender] = n;
+            }
+            if (recordLatency && n > 0 && sentUpTo.get(sender) >= n) {
+                record(now - sentAt[sender][n]);
+            }
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean isSlow() {
+            return delayMillis > 0;
+        }
+
+        /** 是否看到了每个发送者（自己除外）的第n次更新 */
+        synchronized boolean hasLatest(int n) {
+            for (int s = 0; s < latest.length; s++) {
+                if (firstSender + s != self && latest[s] != n) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.bench;
+
+import org.example.net.RoomClient;
+import org.example.net.RoomServer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 房间服务器吞吐测试：在本机启动RoomServer，按 房间数 × 每房间成员数 × 每人每秒更新次数 组合运行模拟客户端，
+ * 测量转发吞吐、延迟、快照次数，以及每个房间中一个慢成员（处理每条消息都要睡眠）是否拖慢其他人。
+ * 延迟、送达率和最终状态一致只统计正常成员。
+ * 发送时间和延迟由PresenceTraffic记录。
+ * 用法：gradle roomBenchmark [-ProomArgs="房间数 成员数 每秒更新次数 秒数 [慢成员处理毫秒]"]，不带参数时运行一组默认组合。
+ */
+public final class RoomBenchmark {
+    private static final int[][] DEFAULT_MATRIX = {
+            // 房间数, 每房间成员数, 每人每秒更新次数
+            {1, 10, 10},
+            {1, 100, 5},
+            {10, 20, 10},
+            {50, 10, 10},
+            {10, 100, 2},
+    };
+
+    private RoomBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long slowMillis = args.length > 4 ? Long.parseLong(args[4]) : 50;
+        int[][] matrix = args.length >= 3
+                ? new int[][]{{Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2])}}
+                : DEFAULT_MATRIX;
+        System.out.printf("%6s %6s %6s %10s %12s %10s %10s %10s %8s %8s%n",
+                "房间", "成员", "次/秒", "更新/秒", "送达/秒", "送达率", "p50 ms", "p99 ms", "快照", "一致");
+        for (int[] config : matrix) {
+            run(config[0], config[1], config[2], seconds, slowMillis);
+        }
+    }
+
+    private static void run(int roomCount, int peersPerRoom, int rate, int seconds, long slowMillis) throws Exception {
+        int clientCount = roomCount * peersPerRoom;
+        int updates = rate * seconds;
+        PresenceTraffic traffic = new PresenceTraffic(clientCount, updates,
+                (long) clientCount * (peersPerRoom - 1) * updates);
+        PresenceTraffic.Receiver[] receivers = new PresenceTraffic.Receiver[clientCount];
+        List<RoomClient> clients = new ArrayList<>();
+
+        try (RoomServer server = RoomServer.startLocal(0, RoomServer.DEFAULT_QUEUE_CAPACITY)) {
+            try {
+                for (int i = 0; i < clientCount; i++) {
+                    int room = i / peersPerRoom;
+                    // 每个房间的最后一个成员是慢成员
+                    boolean slow = slowMillis > 0 && i % peersPerRoom == peersPerRoom - 1;
+                    receivers[i] = traffic.receiver(i, room * peersPerRoom, peersPerRoom, slow ? slowMillis : 0,
+                            !slow);
+                    clients.add(RoomClient.connect(server.getAddress(), "room" + room, i + 1, "peer" + i, receivers[i]));
+                }
+                PresenceTraffic.waitUntil(() -> clients.stream().allMatch(RoomClient::isJoined), 20000);
+                for (int i = 0; i < clientCount; i++) {
+                    clients.get(i).publish(PresenceTraffic.update(0));
+                }
+                Thread.sleep(300);
+                traffic.resetLatencies();
+                long snapshotsBefore = server.getSnapshotCount();
+
+                // 每个周期内各客户端错开发送
+                long intervalNanos = 1_000_000_000L / rate;
+                long slotNanos = intervalNanos / clientCount;
+                long start = System.nanoTime();
+                for (int n = 1; n <= updates; n++) {
+                    for (int i = 0; i < clientCount; i++) {
+                        long wait = start + n * intervalNanos + i * slotNanos - System.nanoTime();
+                        if (wait > 100_000) {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        }
+                        traffic.markSent(i, n);
+                        clients.get(i).publish(PresenceTraffic.update(n));
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                Thread.sleep(1000);
+
+                long[] latencies = traffic.sortedLatencies();
+                long fastReceivers = (long) roomCount * (slowMillis > 0 ? peersPerRoom - 1 : peersPerRoom);
+                long expected = fastReceivers * (peersPerRoom - 1) * updates;
+                // 正常成员应看到同房间每个人的最终状态；慢成员内核缓冲区里的积压只能慢慢读完，不计入
+                int converged = 0;
+                for (PresenceTraffic.Receiver receiver : receivers) {
+                    if (!receiver.isSlow() && receiver.hasLatest(updates)) {
+                        converged++;
+                    }
+                }
+                System.out.printf("%6d %6d %6d %10.0f %12.0f %9.2f%% %10.2f %10.2f %8d %4d/%d%n",
+                        roomCount, peersPerRoom, rate, clientCount * (double) updates / (elapsed / 1e9),
+                        latencies.length / (elapsed / 1e9), 100.0 * latencies.length / expected,
+                        PresenceTraffic.percentileMillis(latencies, 0.5),
+                        PresenceTraffic.percentileMillis(latencies, 0.99),
+                        server.getSnapshotCount() - snapshotsBefore, converged, fastReceivers);
+                System.out.println("    " + server);
+            } finally {
+                for (RoomClient client : clients) {
+                    client.close();
+                }
+            }
+        }
+    }
+}
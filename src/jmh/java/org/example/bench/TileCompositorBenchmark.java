@@ -0,0 +1,63 @@
+package org.example.bench;
+
+import org.example.video.TileCompositor;
+import org.example.video.TileMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频画面合成：每帧整幅重绘（摄像头、背景模糊）与只重绘说明文字区域（虚拟形象模式下文字变化）对比。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TileCompositorBenchmark {
+    private final TileCompositor camera = new TileCompositor();
+    private final TileCompositor blur = new TileCompositor();
+    private final TileCompositor avatar = new TileCompositor();
+    private long captionIndex;
+
+    @Setup(Level.Trial)
+    public void prepare(FrameFixture fixture) {
+        BufferedImage avatarImage = new BufferedImage(fixture.width, fixture.height, BufferedImage.TYPE_INT_ARGB);
+        for (TileCompositor compositor : new TileCompositor[]{camera, blur, avatar}) {
+            compositor.setSize(fixture.width, fixture.height);
+            compositor.setMirrored(true);
+            compositor.setAvatar(avatarImage);
+            compositor.setCaption("合成视频源");
+        }
+        blur.setMode(TileMode.BLUR);
+        avatar.setMode(TileMode.AVATAR);
+        avatar.compose();
+    }
+
+    @Benchmark
+    public Rectangle cameraFrame(FrameFixture fixture) {
+        camera.setFrame(fixture.nextFrame());
+        return camera.compose();
+    }
+
+    @Benchmark
+    public Rectangle blurFrame(FrameFixture fixture) {
+        blur.setFrame(fixture.nextFrame());
+        return blur.compose();
+    }
+
+    /** 虚拟形象模式下新帧被丢弃，只有说明文字变化 */
+    @Benchmark
+    public Rectangle avatarCaptionChange(FrameFixture fixture) {
+        avatar.setFrame(fixture.nextFrame());
+        avatar.setCaption((captionIndex++ & 1) == 0 ? "专注模式" : "协作模式");
+        return avatar.compose();
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.bench;
+
+import org.example.video.FrameAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * analyzeVideo：原实现与FrameAnalyzer对比。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VideoAnalysisBenchmark {
+    private final LegacyVideoPaths legacy = new LegacyVideoPaths();
+    private final FrameAnalyzer analyzer = new FrameAnalyzer();
+
+    @Benchmark
+    public int legacyAnalyzeVideo(FrameFixture fixture) {
+        return legacy.analyzeVideo(fixture.nextFrame());
+    }
+
+    @Benchmark
+    public double frameAnalyzer(FrameFixture fixture) {
+        analyzer.analyze(fixture.nextFrame());
+        return analyzer.getAverageBrightness() + analyzer.getMotionRatio();
+    }
+}
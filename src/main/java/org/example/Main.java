@@ -1,10 +1,10 @@
 package org.example;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -16,9 +16,26 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
-
+import javafx.util.Duration;
+
+import org.example.audio.AudioSource;
+import org.example.audio.ChannelRole;
+import org.example.audio.LineAudioSink;
+import org.example.audio.MixerChannel;
+import org.example.audio.MixerEngine;
+import org.example.audio.PeerAudioBuffer;
+import org.example.audio.StreamingTrack;
+import org.example.reaction.Reaction;
+import org.example.reaction.ReactionBus;
+import org.example.reaction.ReactionOrigin;
+import org.example.ui.NotificationScheduler;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 一个完整的JavaFX应用程序，用于Vibecoding，集成了交互功能。
@@ -43,14 +60,62 @@ public class Main extends Application {
         public boolean useAvatar = false;
     }
 
+    /** 客户端混音器，实际混音由MixerEngine在专用音频线程中完成 */
     static class ClientAudioMixer {
-        private final Map<String, Float> channels = new ConcurrentHashMap<>();
+        // 同伴音频缓冲200ms
+        private static final int PEER_BUFFER_FRAMES = (int) (MixerEngine.DEFAULT_SAMPLE_RATE / 5);
+        private final MixerEngine engine = new MixerEngine(new LineAudioSink());
+        private final List<StreamingTrack> tracks = new ArrayList<>();
+
+        /** 滑块拖动时调用：按句柄写入无锁参数信箱，不查找、不加锁、不输出日志 */
+        public void setVolume(int handle, float volume) {
+            engine.setGain(handle, volume);
+        }
         public void setVolume(String channelId, float volume) {
-            channels.put(channelId, volume);
-            System.out.printf("音频混合器: 设置通道 '%s' 的音量为 %.2f%n", channelId, volume);
+            MixerChannel channel = engine.getChannel(channelId);
+            if (channel == null) {
+                addChannel(channelId, volume);
+            } else {
+                channel.setGain(volume);
+            }
         }
-        public void addChannel(String id, float initialVolume) {
-            channels.put(id, initialVolume);
+        /** 为同伴添加语音通道，返回通道句柄；同伴已存在时返回已有句柄 */
+        public int addPeer(String name) {
+            MixerChannel channel = engine.getChannel("user_" + name);
+            return channel != null ? channel.getHandle() : addChannel("user_" + name, 1.0f);
+        }
+        public int addChannel(String id, float initialVolume) {
+            return addChannel(id, new PeerAudioBuffer(PEER_BUFFER_FRAMES), initialVolume);
+        }
+        public int addChannel(String id, AudioSource source, float initialVolume) {
+            return engine.addChannel(id, source, initialVolume).getHandle();
+        }
+        /** 添加流式播放、无缝循环的背景音乐通道；资源不存在或格式不支持时退化为静音通道 */
+        public int addMusicChannel(String id, URL track, float initialVolume) {
+            try {
+                StreamingTrack music = StreamingTrack.open(track, engine.getSampleRate(), true);
+                tracks.add(music);
+                return engine.addChannel(id, music, initialVolume, ChannelRole.MUSIC).getHandle();
+            } catch (Exception e) {
+                System.out.println("加载背景音乐失败，使用静音通道: " + e.getMessage());
+                return addChannel(id, initialVolume);
+            }
+        }
+        public void start() {
+            try {
+                engine.start();
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                System.out.println("音频输出不可用，混音器未启动: " + e.getMessage());
+            }
+        }
+        public void close() {
+            engine.close();
+            tracks.forEach(StreamingTrack::close);
+        }
+        /** 混音和参数信箱统计，是否输出由调用方决定 */
+        @Override
+        public String toString() {
+            return engine + ", " + engine.getParameterStats();
         }
     }
 
@@ -61,11 +126,18 @@ public class Main extends Application {
     private Label statusLabel;
     private Label privacyLabel;
     private Label videoStatusLabel;
+    // 视频区域的正常状态文本，通知结束后恢复为此文本
+    private String videoStatusText;
+    private NotificationScheduler notifications;
+    private ReactionBus reactions;
 
     // 实例化核心逻辑类
     private final UserSessionState sessionState = new UserSessionState();
     private final PrivacySettings privacySettings = new PrivacySettings();
     private final ClientAudioMixer audioMixer = new ClientAudioMixer();
+    // 同伴音量滑块，按同伴名索引，只在FX线程访问
+    private final VBox peerControls = new VBox(5);
+    private final Map<String, Node> peerControlsByName = new HashMap<>();
 
     @Override
     public void start(Stage primaryStage) {
@@ -86,6 +158,8 @@ public class Main extends Application {
 
         // 1. 视频显示区域 (左侧) - 暂时显示占位符
         createVideoPlaceholder(root);
+        notifications = createNotificationScheduler();
+        reactions = createReactionBus();
 
         // 2. 控制面板 (右侧)
         VBox controlPanel = createControlPanel();
@@ -121,7 +195,8 @@ public class Main extends Application {
         titleLabel.setTextFill(Color.WHITE);
         titleLabel.setFont(Font.font("System", FontWeight.BOLD, 24));
 
-        videoStatusLabel = new Label("摄像头功能将在后续版本中实现");
+        videoStatusText = "摄像头功能将在后续版本中实现";
+        videoStatusLabel = new Label(videoStatusText);
         videoStatusLabel.setTextFill(Color.LIGHTGRAY);
         videoStatusLabel.setFont(Font.font("System", 14));
 
@@ -183,15 +258,15 @@ public class Main extends Application {
             if (collaborateBtn.isSelected()) {
                 sessionState.presence = UserPresence.COLLABORATE;
                 statusLabel.setText("当前状态: 协作");
-                videoStatusLabel.setText("协作模式：准备与团队成员进行编程协作");
+                setVideoStatus("协作模式：准备与团队成员进行编程协作");
             } else if (focusBtn.isSelected()) {
                 sessionState.presence = UserPresence.FOCUS;
                 statusLabel.setText("当前状态: 专注");
-                videoStatusLabel.setText("专注模式：减少干扰，集中精力编程");
+                setVideoStatus("专注模式：减少干扰，集中精力编程");
             } else if (awayBtn.isSelected()) {
                 sessionState.presence = UserPresence.AWAY;
                 statusLabel.setText("当前状态: 离开");
-                videoStatusLabel.setText("离开模式：暂时不参与协作");
+                setVideoStatus("离开模式：暂时不参与协作");
             }
         });
 
@@ -226,69 +301,118 @@ public class Main extends Application {
     }
 
     private Node createAudioMixerControls() {
-        audioMixer.addChannel("user_Alice", 1.0f);
-        audioMixer.addChannel("background_music", 0.2f);
+        int musicHandle = audioMixer.addMusicChannel("background_music",
+                Main.class.getResource("/sounds/background.wav"), 0.2f);
+        // 同伴列表可用-Dvibecoding.peers=Alice,Bob,...指定
+        for (String name : System.getProperty("vibecoding.peers", "Alice").split(",")) {
+            if (!name.isBlank()) {
+                addPeer(name.trim());
+            }
+        }
+        audioMixer.start();
 
         VBox mixer = new VBox(5);
-        mixer.getChildren().add(new Label("同伴音量 (Alice):"));
-        Slider aliceSlider = new Slider(0, 1, 1);
-        aliceSlider.valueProperty().addListener((obs, oldVal, newVal) ->
-            audioMixer.setVolume("user_Alice", newVal.floatValue()));
-        mixer.getChildren().add(aliceSlider);
+        mixer.getChildren().add(peerControls);
 
         mixer.getChildren().add(new Label("背景音乐:"));
         Slider musicSlider = new Slider(0, 1, 0.2);
         musicSlider.valueProperty().addListener((obs, oldVal, newVal) ->
-            audioMixer.setVolume("background_music", newVal.floatValue()));
+            audioMixer.setVolume(musicHandle, newVal.floatValue()));
         mixer.getChildren().add(musicSlider);
 
         return mixer;
     }
 
+    /** 添加同伴的混音通道和音量滑块，需在FX线程调用 */
+    private void addPeer(String name) {
+        if (peerControlsByName.containsKey(name)) {
+            return;
+        }
+        int handle = audioMixer.addPeer(name);
+        Slider slider = new Slider(0, 1, 1);
+        // 滑块直接持有通道句柄，拖动时不按名字查找
+        slider.valueProperty().addListener((obs, oldVal, newVal) ->
+            audioMixer.setVolume(handle, newVal.floatValue()));
+        VBox control = new VBox(2, new Label("同伴音量 (" + name + "):"), slider);
+        peerControlsByName.put(name, control);
+        peerControls.getChildren().add(control);
+    }
+
     private Node createInteractionControls() {
-        Button thumbsUpBtn = new Button("👍");
-        Button thinkingBtn = new Button("🤔");
-        Button celebrateBtn = new Button("🎉");
+        // 按钮只发布事件，通知由总线按窗口汇总后显示
+        reactions.addListener(batch -> notifications.post(batch.describe()));
+        HBox buttons = new HBox(10);
+        for (Reaction reaction : Reaction.BUTTONS) {
+            Button button = new Button(reaction.getEmoji());
+            button.setOnAction(e -> reactions.publish(reaction, ReactionOrigin.LOCAL, null));
+            buttons.getChildren().add(button);
+        }
+        return buttons;
+    }
 
-        thumbsUpBtn.setOnAction(e -> {
-            System.out.println("交互: 发送 👍");
-            showNotification("发送了赞同表情");
-        });
-        thinkingBtn.setOnAction(e -> {
-            System.out.println("交互: 发送 🤔");
-            showNotification("发送了思考表情");
-        });
-        celebrateBtn.setOnAction(e -> {
-            System.out.println("交互: 发送 🎉");
-            showNotification("发送了庆祝表情");
-        });
+    /** 可在任意线程调用，通知排队、合并和到期由notifications统一调度 */
+    private void showNotification(String message) {
+        Platform.runLater(() -> notifications.post(message));
+    }
 
-        return new HBox(10, thumbsUpBtn, thinkingBtn, celebrateBtn);
+    /** 设置视频区域的状态文本；正在显示通知时只记录，通知结束后再显示 */
+    private void setVideoStatus(String text) {
+        videoStatusText = text;
+        if (!notifications.isShowing()) {
+            videoStatusLabel.setText(text);
+        }
     }
 
-    private void showNotification(String message) {
-        // 在视频区域短暂显示通知
-        Platform.runLater(() -> {
-            String originalText = videoStatusLabel.getText();
-            videoStatusLabel.setText(message);
-            videoStatusLabel.setTextFill(Color.YELLOW);
-
-            // 2秒后恢复原文本
-            Task<Void> task = new Task<Void>() {
-                @Override
-                protected Void call() throws Exception {
-                    Thread.sleep(2000);
-                    return null;
-                }
-
-                @Override
-                protected void succeeded() {
-                    videoStatusLabel.setText(originalText);
-                    videoStatusLabel.setTextFill(Color.LIGHTGRAY);
-                }
-            };
-            new Thread(task).start();
-        });
+    /** 在FX线程上按窗口分发的反应总线，由一个PauseTransition驱动 */
+    private ReactionBus createReactionBus() {
+        PauseTransition window = new PauseTransition();
+        return new ReactionBus(ReactionBus.DEFAULT_CAPACITY, ReactionBus.DEFAULT_WINDOW_MILLIS,
+                (delayMillis, drain) -> Platform.runLater(() -> {
+                    window.setDuration(Duration.millis(delayMillis));
+                    window.setOnFinished(e -> drain.run());
+                    window.playFromStart();
+                }));
+    }
+
+    /** 视频区域的通知显示，由一个PauseTransition驱动到期 */
+    private NotificationScheduler createNotificationScheduler() {
+        PauseTransition pause = new PauseTransition();
+        NotificationScheduler.Ticker ticker = new NotificationScheduler.Ticker() {
+            @Override
+            public void schedule(long delayMillis, Runnable action) {
+                pause.stop();
+                pause.setDuration(Duration.millis(delayMillis));
+                pause.setOnFinished(e -> action.run());
+                pause.playFromStart();
+            }
+
+            @Override
+            public void cancel() {
+                pause.stop();
+            }
+        };
+        NotificationScheduler.Display display = new NotificationScheduler.Display() {
+            @Override
+            public void show(String text) {
+                videoStatusLabel.setText(text);
+                videoStatusLabel.setTextFill(Color.YELLOW);
+            }
+
+            @Override
+            public void clear() {
+                videoStatusLabel.setText(videoStatusText);
+                videoStatusLabel.setTextFill(Color.LIGHTGRAY);
+            }
+        };
+        return new NotificationScheduler(display, ticker);
+    }
+
+    @Override
+    public void stop() {
+        if (notifications != null) {
+            notifications.clear();
+        }
+        audioMixer.close();
     }
 
     public static void main(String[] args) {
@@ -1,5 +1,10 @@
 package org.example;
 
+import org.example.reaction.Reaction;
+import org.example.reaction.ReactionBus;
+import org.example.reaction.ReactionOrigin;
+import org.example.ui.NotificationScheduler;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -89,46 +94,28 @@ public class SwingApp {
         interactionPanel.setLayout(new FlowLayout());
         interactionPanel.setBorder(BorderFactory.createTitledBorder("非语言交流"));
 
-        JButton thumbsUpBtn = new JButton("👍");
-        JButton thinkingBtn = new JButton("🤔");
-        JButton celebrateBtn = new JButton("🎉");
-
-        thumbsUpBtn.addActionListener(e -> {
-            statusLabel.setText("发送了赞同表情");
-            statusLabel.setForeground(Color.YELLOW);
-            // 2秒后恢复
-            new Timer(2000, evt -> {
-                statusLabel.setText("应用程序已成功启动");
-                statusLabel.setForeground(Color.LIGHT_GRAY);
-                ((Timer)evt.getSource()).stop();
-            }).start();
-        });
-
-        thinkingBtn.addActionListener(e -> {
-            statusLabel.setText("发送了思考表情");
-            statusLabel.setForeground(Color.YELLOW);
-            // 2秒后恢复
-            new Timer(2000, evt -> {
-                statusLabel.setText("应用程序已成功启动");
-                statusLabel.setForeground(Color.LIGHT_GRAY);
-                ((Timer)evt.getSource()).stop();
-            }).start();
-        });
+        // 所有通知共用一个调度器和一个定时器，到期后恢复当前状态文本
+        NotificationScheduler notifications = NotificationScheduler.forSwing(new NotificationScheduler.Display() {
+            @Override
+            public void show(String text) {
+                statusLabel.setText(text);
+                statusLabel.setForeground(Color.YELLOW);
+            }
 
-        celebrateBtn.addActionListener(e -> {
-            statusLabel.setText("发送了庆祝表情");
-            statusLabel.setForeground(Color.YELLOW);
-            // 2秒后恢复
-            new Timer(2000, evt -> {
+            @Override
+            public void clear() {
                 statusLabel.setText("应用程序已成功启动");
                 statusLabel.setForeground(Color.LIGHT_GRAY);
-                ((Timer)evt.getSource()).stop();
-            }).start();
+            }
         });
-
-        interactionPanel.add(thumbsUpBtn);
-        interactionPanel.add(thinkingBtn);
-        interactionPanel.add(celebrateBtn);
+        // 按钮只发布事件，总线按窗口汇总后在EDT上通知一次
+        ReactionBus reactions = ReactionBus.forSwing();
+        reactions.addListener(batch -> notifications.post(batch.describe()));
+        for (Reaction reaction : Reaction.BUTTONS) {
+            JButton button = new JButton(reaction.getEmoji());
+            button.addActionListener(e -> reactions.publish(reaction, ReactionOrigin.LOCAL, null));
+            interactionPanel.add(button);
+        }
 
         controlPanel.add(interactionPanel);
 
@@ -0,0 +1,22 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * 混音输出。由混音线程调用，write可以阻塞以控制节奏。
+ */
+public interface AudioSink extends AutoCloseable {
+
+    void open(AudioFormat format, int blockFrames) throws LineUnavailableException;
+
+    /**
+     * 写出一个混音块（交错立体声，取值-1~1）。
+     *
+     * @return 写入前输出端已经播放完所有数据（欠载）时返回false
+     */
+    boolean write(float[] samples, int frames);
+
+    @Override
+    void close();
+}
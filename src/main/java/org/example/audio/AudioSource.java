@@ -0,0 +1,14 @@
+package org.example.audio;
+
+/**
+ * 混音器的输入通道数据来源。由混音线程调用，实现不应阻塞或分配对象。
+ */
+public interface AudioSource {
+
+    /**
+     * 向buffer写入最多frames帧交错立体声样本（取值-1~1）。
+     *
+     * @return 实际写入的帧数；不足frames时混音器把剩余部分视为静音
+     */
+    int read(float[] buffer, int frames);
+}
@@ -0,0 +1,9 @@
+package org.example.audio;
+
+/**
+ * 通道类型：语音通道参与语音活动检测，并作为背景音乐闪避的触发源。
+ */
+public enum ChannelRole {
+    VOICE,
+    MUSIC
+}
@@ -0,0 +1,64 @@
+package org.example.audio;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 混音器通道表的不可变快照：按添加顺序排列的通道数组、按句柄索引的数组和id到通道的映射。
+ * 槽位是从0开始的稠密整数，通道删除后可被复用。增删通道时生成新快照整体替换（写时复制），
+ * 混音线程每块读取一次引用即可得到一致的视图，不需要加锁。
+ */
+final class ChannelTable {
+    static final ChannelTable EMPTY = new ChannelTable(new MixerChannel[0], new MixerChannel[MixerEngine.MAX_CHANNELS],
+            new HashMap<>());
+
+    final MixerChannel[] channels;
+    final MixerChannel[] bySlot;
+    private final Map<String, MixerChannel> byId;
+
+    private ChannelTable(MixerChannel[] channels, MixerChannel[] bySlot, Map<String, MixerChannel> byId) {
+        this.channels = channels;
+        this.bySlot = bySlot;
+        this.byId = byId;
+    }
+
+    MixerChannel get(String id) {
+        return byId.get(id);
+    }
+
+    /** 最小的空闲槽位，没有时返回-1 */
+    int freeSlot() {
+        for (int i = 0; i < bySlot.length; i++) {
+            if (bySlot[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    ChannelTable with(MixerChannel channel) {
+        MixerChannel[] nextChannels = Arrays.copyOf(channels, channels.length + 1);
+        nextChannels[channels.length] = channel;
+        MixerChannel[] nextBySlot = bySlot.clone();
+        nextBySlot[channel.getSlot()] = channel;
+        Map<String, MixerChannel> nextById = new HashMap<>(byId);
+        nextById.put(channel.getId(), channel);
+        return new ChannelTable(nextChannels, nextBySlot, nextById);
+    }
+
+    ChannelTable without(MixerChannel channel) {
+        int index = Arrays.asList(channels).indexOf(channel);
+        if (index < 0) {
+            return this;
+        }
+        MixerChannel[] nextChannels = new MixerChannel[channels.length - 1];
+        System.arraycopy(channels, 0, nextChannels, 0, index);
+        System.arraycopy(channels, index + 1, nextChannels, index, channels.length - index - 1);
+        MixerChannel[] nextBySlot = bySlot.clone();
+        nextBySlot[channel.getSlot()] = null;
+        Map<String, MixerChannel> nextById = new HashMap<>(byId);
+        nextById.remove(channel.getId());
+        return new ChannelTable(nextChannels, nextBySlot, nextById);
+    }
+}
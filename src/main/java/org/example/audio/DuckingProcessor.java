@@ -0,0 +1,85 @@
+package org.example.audio;
+
+/**
+ * 背景音乐闪避：任一语音通道检测到语音时，把音乐总线平滑压低到depth，语音结束后缓慢恢复。
+ * 触发源使用LevelMeter的语音活动检测结果，其自带的300ms保持避免了词间停顿时音乐反复起伏。
+ * 增益包络按块计算，块内逐样本线性插值。只在混音线程中调用process。
+ */
+public final class DuckingProcessor {
+    public static final float DEFAULT_DEPTH_DB = -12f;
+    public static final float DEFAULT_ATTACK_MILLIS = 50f;
+    public static final float DEFAULT_RELEASE_MILLIS = 500f;
+
+    private final float attackCoefficient;
+    private final float releaseCoefficient;
+    private volatile float depth;
+    private volatile boolean enabled = true;
+
+    // 混音线程状态
+    private float gain = 1f;
+
+    private volatile float publishedGain = 1f;
+
+    DuckingProcessor(float sampleRate, int blockFrames) {
+        double blockMillis = blockFrames * 1000.0 / sampleRate;
+        this.attackCoefficient = (float) (1 - Math.exp(-blockMillis / DEFAULT_ATTACK_MILLIS));
+        this.releaseCoefficient = (float) (1 - Math.exp(-blockMillis / DEFAULT_RELEASE_MILLIS));
+        setDepthDb(DEFAULT_DEPTH_DB);
+    }
+
+    /** 闪避深度，-60~0 dB */
+    public void setDepthDb(float db) {
+        if (!(db >= -60f && db <= 0f)) {
+            throw new IllegalArgumentException("闪避深度超出范围[-60, 0]: " + db);
+        }
+        depth = (float) Math.pow(10, db / 20);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 当前施加在音乐总线上的增益（线性） */
+    public float getGain() {
+        return publishedGain;
+    }
+
+    /**
+     * 把音乐总线按闪避增益叠加到输出。
+     *
+     * @param voiceActive 本块是否有语音通道处于活动状态
+     */
+    void process(float[] music, float[] out, int samples, boolean voiceActive) {
+        float target = enabled && voiceActive ? depth : 1f;
+        float from = gain;
+        float to = from + (target - from) * (target < from ? attackCoefficient : releaseCoefficient);
+        if (Math.abs(to - target) < 1e-4f) {
+            to = target;
+        }
+        gain = to;
+        publishedGain = to;
+        if (from == to) {
+            if (to == 1f) {
+                for (int i = 0; i < samples; i++) {
+                    out[i] += music[i];
+                }
+            } else {
+                for (int i = 0; i < samples; i++) {
+                    out[i] += music[i] * to;
+                }
+            }
+            return;
+        }
+        float step = (to - from) / (samples / MixerEngine.CHANNELS);
+        float g = from;
+        for (int i = 0; i < samples; i += MixerEngine.CHANNELS) {
+            g += step;
+            out[i] += music[i] * g;
+            out[i + 1] += music[i + 1] * g;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.audio;
+
+/**
+ * 单个通道的电平表和语音活动检测（VAD），在混音线程中逐块更新，每个通道只占固定的几个字段。
+ * <ul>
+ *     <li>RMS：块均方值按100ms时间常数平滑；峰值：取块内最大值，按20dB/s回落；</li>
+ *     <li>VAD：能量高于自适应噪声底噪9dB且高于-50dBFS时视为语音，连续2块才判为开始，
+ *     结束后保持300ms，避免词间停顿造成抖动。噪声底噪遇到更低能量时立即下降，否则按3dB/s缓慢上升。</li>
+ * </ul>
+ * 电平和语音活动状态随publish()以较低频率一起发布到volatile字段，其他线程随时读取；
+ * 不同字段之间不保证属于同一次发布。混音线程自身通过isActive()读取未发布的最新状态。
+ */
+public final class LevelMeter {
+    public static final float SILENCE_DB = -90f;
+
+    private static final float SPEECH_OVER_FLOOR = 8f;     // 约9dB
+    private static final float SPEECH_MIN_ENERGY = 1e-5f;  // -50dBFS
+    private static final float MIN_FLOOR = 1e-9f;
+    private static final int ATTACK_BLOCKS = 2;
+
+    private final float energyAlpha;
+    private final float peakDecay;
+    private final float floorRise;
+    private final int hangoverBlocks;
+
+    // 以下只在混音线程中访问
+    private float energy;
+    private float peak;
+    private float noiseFloor = MIN_FLOOR;
+    private int speechBlocks;
+    private int silentBlocks;
+    private boolean active;
+
+    private volatile float rmsDb = SILENCE_DB;
+    private volatile float peakDb = SILENCE_DB;
+    private volatile boolean voiceActive;
+
+    LevelMeter(float sampleRate, int blockFrames) {
+        double blockSeconds = blockFrames / (double) sampleRate;
+        this.energyAlpha = (float) (1 - Math.exp(-blockSeconds / 0.1));
+        this.peakDecay = (float) Math.pow(10, -blockSeconds);
+        this.floorRise = (float) Math.pow(10, 0.3 * blockSeconds);
+        this.hangoverBlocks = Math.max(1, (int) Math.ceil(0.3 / blockSeconds));
+    }
+
+    /**
+     * 处理一个块的输入样本。samples中前count个样本有效，其余视为静音。
+     *
+     * @return 语音活动状态是否在本块发生变化
+     */
+    boolean process(float[] samples, int count, int blockSamples, boolean detectVoice) {
+        float sum = 0f;
+        float max = 0f;
+        for (int i = 0; i < count; i++) {
+            float s = samples[i];
+            sum += s * s;
+            float a = Math.abs(s);
+            if (a > max) {
+                max = a;
+            }
+        }
+        float meanSquare = sum / blockSamples;
+        energy += energyAlpha * (meanSquare - energy);
+        peak = Math.max(max, peak * peakDecay);
+
+        if (!detectVoice) {
+            return false;
+        }
+        if (meanSquare < noiseFloor) {
+            noiseFloor = Math.max(meanSquare, MIN_FLOOR);
+        } else {
+            noiseFloor *= floorRise;
+        }
+        boolean speech = meanSquare > SPEECH_MIN_ENERGY && meanSquare > noiseFloor * SPEECH_OVER_FLOOR;
+        boolean was = active;
+        if (speech) {
+            silentBlocks = 0;
+            if (++speechBlocks >= ATTACK_BLOCKS) {
+                active = true;
+            }
+        } else {
+            speechBlocks = 0;
+            if (active && ++silentBlocks >= hangoverBlocks) {
+                active = false;
+            }
+        }
+        return active != was;
+    }
+
+    /** 混音线程读取的最新语音活动状态，不等待发布 */
+    boolean isActive() {
+        return active;
+    }
+
+    /** 发布当前电平和语音活动状态，由混音线程按较低频率调用 */
+    void publish() {
+        rmsDb = toDb(energy);
+        peakDb = toDb(peak * peak);
+        voiceActive = active;
+    }
+
+    private static float toDb(float power) {
+        return power <= 1e-9f ? SILENCE_DB : (float) (10 * Math.log10(power));
+    }
+
+    /** 平滑后的RMS电平，dBFS */
+    public float getRmsDb() {
+        return rmsDb;
+    }
+
+    /** 带回落的峰值电平，dBFS */
+    public float getPeakDb() {
+        return peakDb;
+    }
+
+    /** 最近一次发布时是否检测到语音；非语音通道始终为false */
+    public boolean isVoiceActive() {
+        return voiceActive;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.audio;
+
+/**
+ * 主总线峰值限制器：无预读，超过上限时立即把增益降到恰好不削波，随后按释放时间常数指数恢复。
+ * 立体声两个声道使用同一增益以保持声像。只在混音线程中调用process。
+ */
+public final class Limiter {
+    public static final float DEFAULT_CEILING_DB = -1f;
+    public static final float DEFAULT_RELEASE_MILLIS = 80f;
+
+    private final float releaseCoefficient;
+    private volatile float ceiling;
+    private volatile boolean enabled = true;
+
+    // 混音线程状态
+    private float gain = 1f;
+
+    private volatile float minGain = 1f;
+    private volatile long limitedSamples;
+
+    Limiter(float sampleRate) {
+        this.releaseCoefficient = (float) (1 - Math.exp(-1000.0 / (DEFAULT_RELEASE_MILLIS * sampleRate)));
+        setCeilingDb(DEFAULT_CEILING_DB);
+    }
+
+    /** 输出上限，-20~0 dBFS */
+    public void setCeilingDb(float db) {
+        if (!(db >= -20f && db <= 0f)) {
+            throw new IllegalArgumentException("限制器上限超出范围[-20, 0]: " + db);
+        }
+        ceiling = (float) Math.pow(10, db / 20);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void process(float[] out, int samples) {
+        if (!enabled) {
+            return;
+        }
+        float limit = ceiling;
+        float g = gain;
+        float lowest = 1f;
+        long limited = 0;
+        for (int i = 0; i < samples; i += MixerEngine.CHANNELS) {
+            float l = out[i];
+            float r = out[i + 1];
+            float peak = Math.max(Math.abs(l), Math.abs(r));
+            // 先恢复，再检查是否需要压低
+            g += (1f - g) * releaseCoefficient;
+            if (peak * g > limit) {
+                g = limit / peak;
+                limited++;
+            }
+            out[i] = l * g;
+            out[i + 1] = r * g;
+            if (g < lowest) {
+                lowest = g;
+            }
+        }
+        gain = g;
+        if (limited != 0) {
+            limitedSamples += limited;
+            if (lowest < minGain) {
+                minGain = lowest;
+            }
+        }
+    }
+
+    /** 触发限制的帧数 */
+    public long getLimitedSamples() {
+        return limitedSamples;
+    }
+
+    /** 最大增益衰减，dB */
+    public float getMaxReductionDb() {
+        return (float) (20 * Math.log10(minGain));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * 输出到声卡的SourceDataLine。样本转换为16位有符号小端PCM，转换缓冲区在open时分配。
+ */
+public final class LineAudioSink implements AudioSink {
+    /** 声卡缓冲区能容纳的混音块数，决定输出延迟 */
+    public static final int DEFAULT_BUFFERED_BLOCKS = 4;
+
+    private final int bufferedBlocks;
+    private SourceDataLine line;
+    private byte[] pcm = new byte[0];
+    private boolean primed;
+
+    public LineAudioSink() {
+        this(DEFAULT_BUFFERED_BLOCKS);
+    }
+
+    public LineAudioSink(int bufferedBlocks) {
+        if (bufferedBlocks < 2) {
+            throw new IllegalArgumentException("至少需要缓冲2个混音块: " + bufferedBlocks);
+        }
+        this.bufferedBlocks = bufferedBlocks;
+    }
+
+    @Override
+    public void open(AudioFormat format, int blockFrames) throws LineUnavailableException {
+        AudioFormat pcmFormat = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        int blockBytes = blockFrames * pcmFormat.getFrameSize();
+        line = AudioSystem.getSourceDataLine(pcmFormat);
+        line.open(pcmFormat, blockBytes * bufferedBlocks);
+        pcm = new byte[blockBytes];
+        primed = false;
+        line.start();
+    }
+
+    @Override
+    public boolean write(float[] samples, int frames) {
+        int count = frames * 2;
+        byte[] out = pcm;
+        for (int i = 0; i < count; i++) {
+            float s = samples[i];
+            s = s > 1f ? 1f : (s < -1f ? -1f : s);
+            int v = (int) (s * 32767f);
+            out[2 * i] = (byte) v;
+            out[2 * i + 1] = (byte) (v >> 8);
+        }
+        // 已开始播放后缓冲区被完全取空，说明上一块交付得太晚
+        boolean ok = !primed || line.available() < line.getBufferSize();
+        line.write(out, 0, count * 2);
+        primed = true;
+        return ok;
+    }
+
+    @Override
+    public void close() {
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+}
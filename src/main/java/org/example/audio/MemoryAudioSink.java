@@ -0,0 +1,86 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 内存输出，用于无声卡环境下的测试和基准。保留最近capacityFrames帧的样本。
+ * paced为true时按采样率模拟声卡的消费节奏：写入晚于播放进度时计为欠载。
+ */
+public final class MemoryAudioSink implements AudioSink {
+    private final int capacityFrames;
+    private final boolean paced;
+    private float[] ring = new float[0];
+    private volatile long framesWritten;
+    private long blockNanos;
+    private long deadline;
+
+    public MemoryAudioSink(int capacityFrames) {
+        this(capacityFrames, false);
+    }
+
+    public MemoryAudioSink(int capacityFrames, boolean paced) {
+        if (capacityFrames <= 0) {
+            throw new IllegalArgumentException("容量必须为正数: " + capacityFrames);
+        }
+        this.capacityFrames = capacityFrames;
+        this.paced = paced;
+    }
+
+    @Override
+    public void open(AudioFormat format, int blockFrames) {
+        ring = new float[capacityFrames * 2];
+        framesWritten = 0;
+        blockNanos = (long) (blockFrames * 1e9 / format.getSampleRate());
+        deadline = 0;
+    }
+
+    @Override
+    public boolean write(float[] samples, int frames) {
+        boolean ok = true;
+        if (paced) {
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now;
+            } else if (now > deadline + blockNanos) {
+                // 模拟的播放进度已经超过已写入的数据
+                ok = false;
+                deadline = now;
+            } else if (deadline > now) {
+                LockSupport.parkNanos(deadline - now);
+            }
+            deadline += blockNanos;
+        }
+        int pos = (int) (framesWritten % capacityFrames) * 2;
+        int count = frames * 2;
+        int first = Math.min(count, ring.length - pos);
+        System.arraycopy(samples, 0, ring, pos, first);
+        System.arraycopy(samples, first, ring, 0, count - first);
+        framesWritten += frames;
+        return ok;
+    }
+
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * 把最近写入的frames帧复制到dst（交错立体声），返回实际复制的帧数。
+     * 混音线程运行时调用只能得到近似结果。
+     */
+    public int copyRecent(float[] dst, int frames) {
+        long written = framesWritten;
+        int n = (int) Math.min(Math.min(frames, written), capacityFrames);
+        long start = written - n;
+        for (int i = 0; i < n; i++) {
+            int pos = (int) ((start + i) % capacityFrames) * 2;
+            dst[2 * i] = ring[pos];
+            dst[2 * i + 1] = ring[pos + 1];
+        }
+        return n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.audio;
+
+/**
+ * 混音器的一个输入通道。创建时分配一个稠密的槽位，增益以槽位为下标写入引擎的ParameterMailbox，
+ * 任意线程调用都不会阻塞；混音线程在下一块开始时取出新值，并在若干毫秒内逐样本线性过渡，避免拉链噪声。
+ * 句柄由槽位和该槽位的代数组成，通道删除后槽位可被复用，但旧句柄和旧通道对象的写入都会被忽略。
+ * 频繁调整增益的调用方（如滑块）应保存句柄并调用MixerEngine.setGain(int, float)，避免按id查找。
+ */
+public final class MixerChannel {
+    public static final float MAX_GAIN = 2.0f;
+
+    private final String id;
+    private final AudioSource source;
+    private final ChannelRole role;
+    private final LevelMeter meter;
+    private final ParameterMailbox mailbox;
+    private final int slot;
+    private final int handle;
+
+    // 混音线程首次处理该通道时直接采用当前增益，不从句柄的上一个使用者的增益过渡
+    boolean started;
+
+    MixerChannel(String id, AudioSource source, ChannelRole role, LevelMeter meter,
+                 ParameterMailbox mailbox, int slot, int handle, float gain) {
+        checkGain(gain);
+        this.id = id;
+        this.source = source;
+        this.role = role;
+        this.meter = meter;
+        this.mailbox = mailbox;
+        this.slot = slot;
+        this.handle = handle;
+        mailbox.claim(slot, handle, gain);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** 通道句柄，通道删除后失效，不会指向复用同一槽位的新通道 */
+    public int getHandle() {
+        return handle;
+    }
+
+    /** 参数信箱的槽位，同时是引擎内增益数组的下标 */
+    int getSlot() {
+        return slot;
+    }
+
+    public AudioSource getSource() {
+        return source;
+    }
+
+    public ChannelRole getRole() {
+        return role;
+    }
+
+    /** 输入电平（增益之前）和语音活动检测结果 */
+    public LevelMeter getMeter() {
+        return meter;
+    }
+
+    /** 设置目标增益（0~MAX_GAIN），可在任意线程调用，不阻塞；通道已删除时忽略 */
+    public void setGain(float gain) {
+        checkGain(gain);
+        mailbox.set(slot, handle, gain);
+    }
+
+    /** 最近设置的目标增益 */
+    public float getGain() {
+        return mailbox.get(slot);
+    }
+
+    static void checkGain(float gain) {
+        if (!(gain >= 0 && gain <= MAX_GAIN)) {
+            throw new IllegalArgumentException("增益超出范围[0, " + MAX_GAIN + "]: " + gain);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 软件混音引擎：把N个输入通道按各自增益混合为一路立体声，由专用的高优先级线程逐块写入AudioSink。
+ * <ul>
+ *     <li>增益经无锁的ParameterMailbox传给混音线程，每块取一次，并在rampMillis内逐样本线性过渡，避免拉链噪声；</li>
+ *     <li>通道id在添加时映射为稠密的整数槽位，增益及其过渡状态按槽位存放在基本类型数组中；
+ *     句柄在槽位之外带有该槽位的代数，槽位复用后旧句柄的写入被忽略；
+ *     通道表为写时复制的不可变快照，增删通道不影响正在进行的混音，每个样本的开销与通道总数无关；</li>
+ *     <li>所有缓冲区在构造时分配，混音循环中不分配对象；</li>
+ *     <li>每个通道在增益之前计量RMS/峰值，语音通道同时做语音活动检测，电平每100ms发布一次；</li>
+ *     <li>音乐通道先混入单独的音乐总线，有人说话时由DuckingProcessor压低；主总线经Limiter限幅；</li>
+ *     <li>统计已混音块数、欠载次数、削波样本数和单块最大耗时。</li>
+ * </ul>
+ * 不启动线程时也可以直接调用renderBlock()，用于测试和基准。
+ */
+public final class MixerEngine implements AutoCloseable {
+    /** 输出固定为交错立体声 */
+    public static final int CHANNELS = 2;
+    public static final float DEFAULT_SAMPLE_RATE = 48000f;
+    /** 默认每块10ms */
+    public static final int DEFAULT_BLOCK_FRAMES = 480;
+    /** 最多同时存在的通道数 */
+    public static final int MAX_CHANNELS = 256;
+    // 句柄的低8位为槽位，其余为槽位的代数
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_MASK = MAX_CHANNELS - 1;
+    private static final int MAX_GENERATION = Integer.MAX_VALUE >>> SLOT_BITS;
+    public static final float DEFAULT_RAMP_MILLIS = 20f;
+    public static final float METER_PUBLISH_MILLIS = 100f;
+
+    private final float sampleRate;
+    private final int blockFrames;
+    private final AudioSink sink;
+    private final float[] mix;
+    private final float[] channelBuffer;
+    private final float[] musicBus;
+    private final DuckingProcessor ducker;
+    private final Limiter limiter;
+    private final int rampFrames;
+    private final int meterPublishBlocks;
+    private final List<VoiceActivityListener> voiceListeners = new CopyOnWriteArrayList<>();
+    private volatile int activeVoices;
+
+    private final ParameterMailbox parameters = new ParameterMailbox(MAX_CHANNELS);
+    private final ParameterMailbox.Receiver gainReceiver = this::gainChanged;
+    private volatile ChannelTable table = ChannelTable.EMPTY;
+
+    // 每个槽位被删除过的次数，只在持有引擎锁时访问
+    private final int[] generations = new int[MAX_CHANNELS];
+
+    // 按槽位索引的增益状态，只在混音线程中访问
+    private final float[] gains = new float[MAX_CHANNELS];
+    private final float[] targetGains = new float[MAX_CHANNELS];
+    private final float[] rampSteps = new float[MAX_CHANNELS];
+    private final int[] rampRemaining = new int[MAX_CHANNELS];
+
+    private volatile boolean running;
+    private Thread thread;
+
+    private volatile long blocksRendered;
+    private volatile long underruns;
+    private volatile long clippedSamples;
+    private volatile long maxBlockNanos;
+    private volatile long totalBlockNanos;
+
+    public MixerEngine(AudioSink sink) {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_BLOCK_FRAMES, sink);
+    }
+
+    public MixerEngine(float sampleRate, int blockFrames, AudioSink sink) {
+        if (sampleRate <= 0 || blockFrames <= 0) {
+            throw new IllegalArgumentException("无效的混音参数: " + sampleRate + " Hz, " + blockFrames + " 帧/块");
+        }
+        this.sampleRate = sampleRate;
+        this.blockFrames = blockFrames;
+        this.sink = sink;
+        this.mix = new float[blockFrames * CHANNELS];
+        this.channelBuffer = new float[blockFrames * CHANNELS];
+        this.musicBus = new float[blockFrames * CHANNELS];
+        this.ducker = new DuckingProcessor(sampleRate, blockFrames);
+        this.limiter = new Limiter(sampleRate);
+        this.rampFrames = Math.max(1, (int) (sampleRate * DEFAULT_RAMP_MILLIS / 1000));
+        this.meterPublishBlocks = Math.max(1, (int) (sampleRate * METER_PUBLISH_MILLIS / 1000 / blockFrames));
+    }
+
+    public AudioFormat getFormat() {
+        return new AudioFormat(sampleRate, 16, CHANNELS, true, false);
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+
+    /** 添加语音通道 */
+    public MixerChannel addChannel(String id, AudioSource source, float gain) {
+        return addChannel(id, source, gain, ChannelRole.VOICE);
+    }
+
+    /**
+     * 添加输入通道。
+     *
+     * @throws IllegalArgumentException 通道已存在或通道数已达上限
+     */
+    public synchronized MixerChannel addChannel(String id, AudioSource source, float gain, ChannelRole role) {
+        ChannelTable current = table;
+        if (current.get(id) != null) {
+            throw new IllegalArgumentException("通道已存在: " + id);
+        }
+        int slot = current.freeSlot();
+        if (slot < 0) {
+            throw new IllegalArgumentException("通道数已达上限: " + MAX_CHANNELS);
+        }
+        MixerChannel channel = new MixerChannel(id, source, role, new LevelMeter(sampleRate, blockFrames),
+                parameters, slot, handle(slot), gain);
+        table = current.with(channel);
+        return channel;
+    }
+
+    public synchronized boolean removeChannel(String id) {
+        return remove(table.get(id));
+    }
+
+    /** 按句柄删除通道，句柄已失效时返回false */
+    public synchronized boolean removeChannel(int handle) {
+        return remove(getChannel(handle));
+    }
+
+    private boolean remove(MixerChannel channel) {
+        if (channel == null) {
+            return false;
+        }
+        table = table.without(channel);
+        // 换代后旧句柄和旧通道对象对该槽位的写入都会失败
+        int slot = channel.getSlot();
+        generations[slot] = (generations[slot] + 1) & MAX_GENERATION;
+        parameters.claim(slot, handle(slot), 0f);
+        return true;
+    }
+
+    private int handle(int slot) {
+        return (generations[slot] << SLOT_BITS) | slot;
+    }
+
+    /** 按id查找通道，不存在时返回null */
+    public MixerChannel getChannel(String id) {
+        return table.get(id);
+    }
+
+    /** 按句柄查找通道，不存在或句柄已失效时返回null */
+    public MixerChannel getChannel(int handle) {
+        if (handle < 0) {
+            return null;
+        }
+        MixerChannel channel = table.bySlot[handle & SLOT_MASK];
+        return channel != null && channel.getHandle() == handle ? channel : null;
+    }
+
+    /**
+     * 按句柄设置增益，可在任意线程调用，不查找、不加锁、不分配。
+     * 句柄不存在或已失效（通道删除后槽位可能已被新通道复用）时忽略。
+     */
+    public void setGain(int handle, float gain) {
+        MixerChannel.checkGain(gain);
+        if (handle >= 0) {
+            parameters.set(handle & SLOT_MASK, handle, gain);
+        }
+    }
+
+    public int getChannelCount() {
+        return table.channels.length;
+    }
+
+    /**
+     * 打开输出并启动混音线程。
+     */
+    public synchronized void start() throws LineUnavailableException {
+        if (running) {
+            return;
+        }
+        sink.open(getFormat(), blockFrames);
+        running = true;
+        thread = new Thread(this::mixLoop, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    private void mixLoop() {
+        while (running) {
+            float[] block = renderBlock();
+            try {
+                if (!sink.write(block, blockFrames)) {
+                    underruns++;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("音频输出失败: " + e.getMessage());
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * 混合一个块并返回内部缓冲区（交错立体声），内容在下一次调用时被覆盖。
+     * 启动混音线程后只应由混音线程调用。
+     */
+    public float[] renderBlock() {
+        long start = System.nanoTime();
+        float[] out = mix;
+        float[] buffer = channelBuffer;
+        int samples = blockFrames * CHANNELS;
+        Arrays.fill(out, 0f);
+        float[] music = musicBus;
+        Arrays.fill(music, 0f);
+        boolean voiceActive = false;
+
+        // 每块取一次参数变化
+        parameters.drain(gainReceiver);
+        MixerChannel[] list = table.channels;
+        for (MixerChannel channel : list) {
+            int h = channel.getSlot();
+            if (!channel.started) {
+                // 新通道直接采用当前增益
+                float initial = parameters.get(h);
+                gains[h] = initial;
+                targetGains[h] = initial;
+                rampRemaining[h] = 0;
+                channel.started = true;
+            }
+            int frames;
+            try {
+                frames = channel.getSource().read(buffer, blockFrames);
+            } catch (RuntimeException e) {
+                frames = 0;
+            }
+            int n = Math.max(0, Math.min(frames, blockFrames)) * CHANNELS;
+            boolean voice = channel.getRole() == ChannelRole.VOICE;
+            if (channel.getMeter().process(buffer, n, samples, voice)) {
+                voiceActivityChanged(channel);
+            }
+            // 被本地静音的同伴说话时不闪避音乐
+            voiceActive |= voice && targetGains[h] > 0f && channel.getMeter().isActive();
+            float[] bus = voice ? out : music;
+            int i = 0;
+            if (rampRemaining[h] > 0) {
+                // 过渡阶段逐样本插值，来源提前结束时也按完整块推进
+                int rampSamples = Math.min(rampRemaining[h], blockFrames) * CHANNELS;
+                float gain = gains[h];
+                float step = rampSteps[h];
+                for (; i < Math.min(rampSamples, n); i += CHANNELS) {
+                    gain += step;
+                    bus[i] += buffer[i] * gain;
+                    bus[i + 1] += buffer[i + 1] * gain;
+                }
+                rampRemaining[h] -= rampSamples / CHANNELS;
+                gains[h] = rampRemaining[h] == 0 ? targetGains[h] : gains[h] + step * (rampSamples / CHANNELS);
+                i = rampSamples;
+            }
+            float gain = gains[h];
+            if (gain != 0f) {
+                for (; i < n; i++) {
+                    bus[i] += buffer[i] * gain;
+                }
+            }
+        }
+        ducker.process(music, out, samples, voiceActive);
+        limiter.process(out, samples);
+
+        long clipped = 0;
+        for (int i = 0; i < samples; i++) {
+            float s = out[i];
+            if (s > 1f || s < -1f) {
+                clipped++;
+            }
+        }
+        if (clipped != 0) {
+            clippedSamples += clipped;
+        }
+
+        if (blocksRendered % meterPublishBlocks == 0) {
+            int voices = 0;
+            for (MixerChannel channel : list) {
+                channel.getMeter().publish();
+                if (channel.getMeter().isVoiceActive()) {
+                    voices++;
+                }
+            }
+            activeVoices = voices;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        blocksRendered++;
+        totalBlockNanos += elapsed;
+        if (elapsed > maxBlockNanos) {
+            maxBlockNanos = elapsed;
+        }
+        return out;
+    }
+
+    private void voiceActivityChanged(MixerChannel channel) {
+        boolean active = channel.getMeter().isActive();
+        for (VoiceActivityListener listener : voiceListeners) {
+            try {
+                listener.voiceActivityChanged(channel, active);
+            } catch (RuntimeException e) {
+                System.out.println("语音活动监听器执行失败: " + e.getMessage());
+            }
+        }
+    }
+
+    public void addVoiceActivityListener(VoiceActivityListener listener) {
+        voiceListeners.add(listener);
+    }
+
+    public void removeVoiceActivityListener(VoiceActivityListener listener) {
+        voiceListeners.remove(listener);
+    }
+
+    /** 检测到语音的通道数，随电平一起每100ms更新 */
+    public int getActiveVoiceCount() {
+        return activeVoices;
+    }
+
+    /** 混音线程：开始向新的目标增益过渡 */
+    private void gainChanged(int slot, float gain) {
+        targetGains[slot] = gain;
+        if (gain == gains[slot]) {
+            rampRemaining[slot] = 0;
+        } else {
+            rampSteps[slot] = (gain - gains[slot]) / rampFrames;
+            rampRemaining[slot] = rampFrames;
+        }
+    }
+
+    /** 参数写入次数与合并后交给混音线程的次数 */
+    public String getParameterStats() {
+        return "参数写入 " + parameters.getPosted() + ", 交付 " + parameters.getDelivered();
+    }
+
+    public long getBlocksRendered() {
+        return blocksRendered;
+    }
+
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    public DuckingProcessor getDucker() {
+        return ducker;
+    }
+
+    public Limiter getLimiter() {
+        return limiter;
+    }
+
+    /** 限幅之后仍超出[-1, 1]、输出时会被截断的样本数 */
+    public long getClippedSamples() {
+        return clippedSamples;
+    }
+
+    public long getMaxBlockNanos() {
+        return maxBlockNanos;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        Thread worker;
+        synchronized (this) {
+            running = false;
+            worker = thread;
+            thread = null;
+        }
+        if (worker != null) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sink.close();
+    }
+
+    @Override
+    public String toString() {
+        long blocks = blocksRendered;
+        double blockMillis = blockFrames * 1000.0 / sampleRate;
+        return String.format("混音器: %d 通道, %d 块(每块 %.1f ms), 欠载 %d, 削波样本 %d, 限幅帧 %d(最大 %.1f dB), 平均 %.3f ms, 最大 %.3f ms",
+                table.channels.length, blocks, blockMillis, underruns, clippedSamples,
+                limiter.getLimitedSamples(), limiter.getMaxReductionDb(),
+                blocks == 0 ? 0 : totalBlockNanos / 1e6 / blocks, maxBlockNanos / 1e6);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * UI线程与音频线程之间的无锁参数信箱：每个参数占一个原子float槽位，写入后在脏位图中置位；
+ * 音频线程每个混音块调用一次drain，只取出发生变化的槽位的最新值。
+ * 写入方不加锁、不阻塞，同一槽位在两次drain之间的多次写入自然合并为一次。
+ * 每个槽位还带有一个整数标签：槽位被复用时用claim换上新标签，之后带旧标签的写入原子地失败，
+ * 持有过期句柄的写入方不会改动新使用者的参数。
+ */
+public final class ParameterMailbox {
+
+    /** 接收变化的参数，由drain在调用线程中回调 */
+    public interface Receiver {
+        void parameterChanged(int slot, float value);
+    }
+
+    private final int capacity;
+    // 高32位为标签，低32位为float的位模式
+    private final AtomicLongArray values;
+    private final AtomicLongArray dirty;
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+
+    public ParameterMailbox(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须为正数: " + capacity);
+        }
+        this.capacity = capacity;
+        this.values = new AtomicLongArray(capacity);
+        this.dirty = new AtomicLongArray((capacity + 63) >>> 6);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** 写入参数，不检查标签，可在任意线程调用 */
+    public void set(int slot, float value) {
+        checkSlot(slot);
+        while (true) {
+            long current = values.get(slot);
+            if (values.compareAndSet(slot, current, pack((int) (current >>> 32), value))) {
+                break;
+            }
+        }
+        markDirty(slot);
+    }
+
+    /**
+     * 槽位标签等于tag时写入参数并返回true，否则不做任何修改并返回false。可在任意线程调用。
+     */
+    public boolean set(int slot, int tag, float value) {
+        checkSlot(slot);
+        long next = pack(tag, value);
+        while (true) {
+            long current = values.get(slot);
+            if ((int) (current >>> 32) != tag) {
+                return false;
+            }
+            if (values.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+        markDirty(slot);
+        return true;
+    }
+
+    /** 给槽位换上新标签并写入初始值，之后带旧标签的写入都会失败 */
+    public void claim(int slot, int tag, float value) {
+        checkSlot(slot);
+        values.set(slot, pack(tag, value));
+        markDirty(slot);
+    }
+
+    private static long pack(int tag, float value) {
+        return ((long) tag << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+    }
+
+    private static float unpack(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+
+    private void markDirty(int slot) {
+        int word = slot >>> 6;
+        long bit = 1L << slot;
+        // 先写值再置位：drain看到脏位时一定能读到这次或更新的值
+        while (true) {
+            long bits = dirty.get(word);
+            if ((bits & bit) != 0 || dirty.compareAndSet(word, bits, bits | bit)) {
+                break;
+            }
+        }
+        posted.incrementAndGet();
+    }
+
+    /** 最近写入的值 */
+    public float get(int slot) {
+        checkSlot(slot);
+        return unpack(values.get(slot));
+    }
+
+    /** 槽位当前的标签 */
+    public int getTag(int slot) {
+        checkSlot(slot);
+        return (int) (values.get(slot) >>> 32);
+    }
+
+    /**
+     * 取出自上次调用以来变化过的参数并逐个回调，返回回调次数。只应由单一消费线程调用。
+     */
+    public int drain(Receiver receiver) {
+        int count = 0;
+        for (int word = 0; word < dirty.length(); word++) {
+            if (dirty.get(word) == 0) {
+                continue;
+            }
+            long bits = dirty.getAndSet(word, 0);
+            while (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                receiver.parameterChanged(slot, unpack(values.get(slot)));
+                count++;
+            }
+        }
+        if (count != 0) {
+            delivered.addAndGet(count);
+        }
+        return count;
+    }
+
+    /** 写入次数 */
+    public long getPosted() {
+        return posted.get();
+    }
+
+    /** 合并后实际交给消费方的次数 */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= capacity) {
+            throw new IllegalArgumentException("参数槽位超出范围[0, " + capacity + "): " + slot);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+
+/**
+ * 16位有符号小端PCM数据的顺序读取，支持回到开头以便循环播放。
+ */
+abstract class PcmReader implements Closeable {
+
+    abstract AudioFormat getFormat();
+
+    /** 读取最多len字节，返回-1表示结束 */
+    abstract int read(byte[] buffer, int offset, int len) throws IOException;
+
+    abstract void rewind() throws IOException;
+
+    static AudioFormat pcm16(AudioFormat source) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+    }
+
+    /** 通过AudioInputStream流式解码，回到开头时重新打开 */
+    static final class Streamed extends PcmReader {
+        private final Callable<AudioInputStream> opener;
+        private AudioInputStream stream;
+
+        Streamed(Callable<AudioInputStream> opener) throws IOException {
+            this.opener = opener;
+            this.stream = open();
+        }
+
+        private AudioInputStream open() throws IOException {
+            AudioInputStream raw;
+            try {
+                raw = opener.call();
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("无法打开音频流: " + e.getMessage(), e);
+            }
+            AudioFormat target = pcm16(raw.getFormat());
+            return raw.getFormat().matches(target) ? raw : AudioSystem.getAudioInputStream(target, raw);
+        }
+
+        @Override
+        AudioFormat getFormat() {
+            return stream.getFormat();
+        }
+
+        @Override
+        int read(byte[] buffer, int offset, int len) throws IOException {
+            return stream.read(buffer, offset, len);
+        }
+
+        @Override
+        void rewind() throws IOException {
+            stream.close();
+            stream = open();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    /**
+     * 把16位PCM的WAV文件数据区映射到内存，直接从页缓存读取，不占用堆内存。
+     * close()立即解除映射，调用方必须保证之后不再读取。
+     */
+    static final class Mapped extends PcmReader {
+        private final RandomAccessFile file;
+        private final MappedByteBuffer data;
+        private final AudioFormat format;
+        private boolean closed;
+
+        private Mapped(RandomAccessFile file, MappedByteBuffer data, AudioFormat format) {
+            this.file = file;
+            this.data = data;
+            this.format = format;
+        }
+
+        /** 文件不是16位PCM的WAV时返回null */
+        static Mapped tryOpen(File path) throws IOException {
+            RandomAccessFile file = new RandomAccessFile(path, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+                if (channel.read(header, 0) < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {
+                    file.close();
+                    return null; // 不是"RIFF....WAVE"
+                }
+                AudioFormat format = null;
+                long pos = 12;
+                ByteBuffer chunk = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+                while (pos + 8 <= channel.size()) {
+                    chunk.clear();
+                    channel.read(chunk, pos);
+                    int id = chunk.getInt(0);
+                    long size = chunk.getInt(4) & 0xFFFFFFFFL;
+                    if (id == 0x20746D66) { // "fmt "
+                        int encoding = chunk.getShort(8) & 0xFFFF;
+                        int channels = chunk.getShort(10) & 0xFFFF;
+                        int rate = chunk.getInt(12);
+                        int bits = chunk.getShort(22) & 0xFFFF;
+                        if (encoding != 1 || bits != 16 || channels < 1 || channels > 2) {
+                            break;
+                        }
+                        format = new AudioFormat(rate, 16, channels, true, false);
+                    } else if (id == 0x61746164 && format != null) { // "data"
+                        long length = Math.min(size, channel.size() - pos - 8);
+                        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, pos + 8, length);
+                        return new Mapped(file, data, format);
+                    }
+                    pos += 8 + size + (size & 1);
+                }
+                file.close();
+                return null;
+            } catch (IOException | RuntimeException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        @Override
+        AudioFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        int read(byte[] buffer, int offset, int len) throws IOException {
+            if (closed) {
+                throw new IOException("音频文件已关闭");
+            }
+            int n = Math.min(len, data.remaining());
+            if (n == 0) {
+                return -1;
+            }
+            data.get(buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        void rewind() {
+            data.position(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            file.close();
+            unmap(data);
+        }
+
+        /**
+         * 立即解除映射。MappedByteBuffer没有公开的释放方法，否则要等到GC回收缓冲区对象才会解除，
+         * 期间文件在Windows上无法删除或替换；JDK不支持时保持原状，由GC释放。
+         */
+        private static void unmap(MappedByteBuffer buffer) {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                invokeCleaner.invoke(field.get(null), buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.out.println("释放内存映射失败，等待GC回收: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者单消费者的样本环形缓冲区：网络或采集线程写入同伴的音频，混音线程读取。
+ * 数据不足时读取方得到部分数据，其余由混音器补静音；写入方在缓冲区满时丢弃最早的数据以限制延迟。
+ */
+public final class PeerAudioBuffer implements AudioSource {
+    private final float[] samples;
+    private final int capacityFrames;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public PeerAudioBuffer(int capacityFrames) {
+        if (capacityFrames <= 0) {
+            throw new IllegalArgumentException("容量必须为正数: " + capacityFrames);
+        }
+        this.capacityFrames = capacityFrames;
+        this.samples = new float[capacityFrames * 2];
+    }
+
+    /** 生产者写入frames帧交错立体声样本 */
+    public void write(float[] src, int offsetFrames, int frames) {
+        if (frames > capacityFrames) {
+            // 只有最后capacityFrames帧能留在缓冲区中
+            dropped.addAndGet(frames - capacityFrames);
+            offsetFrames += frames - capacityFrames;
+            frames = capacityFrames;
+        }
+        long h = head.get();
+        // 超出容量时先推进读指针丢弃最早的数据，再覆盖这些槽位；
+        // 正在复制这些槽位的读取方随后CAS失败，不会返回被覆盖了一半的数据
+        long t = tail.get();
+        while (h + frames - t > capacityFrames) {
+            long next = h + frames - capacityFrames;
+            if (tail.compareAndSet(t, next)) {
+                dropped.addAndGet(next - t);
+                break;
+            }
+            t = tail.get();
+        }
+        for (int i = 0; i < frames; i++) {
+            int pos = (int) ((h + i) % capacityFrames) * 2;
+            samples[pos] = src[2 * (offsetFrames + i)];
+            samples[pos + 1] = src[2 * (offsetFrames + i) + 1];
+        }
+        head.set(h + frames);
+    }
+
+    @Override
+    public int read(float[] buffer, int frames) {
+        long t = tail.get();
+        int n = (int) Math.min(frames, head.get() - t);
+        for (int i = 0; i < n; i++) {
+            int pos = (int) ((t + i) % capacityFrames) * 2;
+            buffer[2 * i] = samples[pos];
+            buffer[2 * i + 1] = samples[pos + 1];
+        }
+        // 生产者在读取期间推进了读指针时，本次复制的槽位可能已被覆盖，按静音处理
+        if (n > 0 && !tail.compareAndSet(t, t + n)) {
+            return 0;
+        }
+        return n;
+    }
+
+    /** 当前缓冲的帧数 */
+    public int available() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /** 因缓冲区满而丢弃的帧数 */
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+}
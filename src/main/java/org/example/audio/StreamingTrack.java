@@ -0,0 +1,274 @@
+package org.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 流式背景音乐：加载线程把音轨分块解码到两个交替使用的缓冲区，混音线程消费其中一个时另一个在后台填充，
+ * 内存占用与音轨长度无关。循环播放时在块内直接接续开头，没有间隙。
+ * 较大的本地16位PCM WAV文件通过内存映射读取，其余格式经AudioInputStream流式解码；
+ * 采样率与混音器不同时做线性插值重采样，单声道复制到两个声道。
+ */
+public final class StreamingTrack implements AudioSource, AutoCloseable {
+    public static final int DEFAULT_CHUNK_FRAMES = 4096;
+    /** 超过该大小的本地WAV文件使用内存映射 */
+    public static final long MMAP_THRESHOLD_BYTES = 1 << 20;
+
+    private static final int EMPTY = 0;
+    private static final int FILLED = 1;
+
+    private final PcmReader reader;
+    private final boolean loop;
+    private final int sourceChannels;
+    private final double step;
+    private final String name;
+
+    // 两个交替使用的块，状态由filled发布：加载线程只写EMPTY的块，混音线程只读FILLED的块
+    private final float[][] chunks;
+    private final int[] chunkFrames = new int[2];
+    private final AtomicIntegerArray filled = new AtomicIntegerArray(2);
+    private final Thread loader;
+    private volatile boolean closed;
+    private volatile boolean ended;
+
+    // 混音线程状态
+    private int current;
+    private int position;
+    // 第一块填好之前的等待是启动延迟，不计为欠载
+    private boolean primed;
+
+    // 加载线程状态
+    private final byte[] bytes;
+    private int byteCount;
+    private int bytePos;
+    private float prevLeft;
+    private float prevRight;
+    private float nextLeft;
+    private float nextRight;
+    private double phase = 1.0;
+
+    private final AtomicLong underruns = new AtomicLong();
+    private final AtomicLong loops = new AtomicLong();
+
+    private StreamingTrack(PcmReader reader, String name, float outputRate, boolean loop, int chunkFrames) {
+        AudioFormat format = reader.getFormat();
+        if (format.getChannels() < 1 || format.getChannels() > 2) {
+            throw new IllegalArgumentException("只支持单声道或立体声: " + format);
+        }
+        this.reader = reader;
+        this.name = name;
+        this.loop = loop;
+        this.sourceChannels = format.getChannels();
+        this.step = format.getSampleRate() / outputRate;
+        this.chunks = new float[][]{new float[chunkFrames * 2], new float[chunkFrames * 2]};
+        this.bytes = new byte[chunkFrames * sourceChannels * 2];
+        this.loader = new Thread(this::loadLoop, "music-loader");
+        this.loader.setDaemon(true);
+        this.loader.setPriority(Thread.NORM_PRIORITY + 1);
+        this.loader.start();
+    }
+
+    /**
+     * 打开本地文件。16位PCM WAV且大于MMAP_THRESHOLD_BYTES时使用内存映射。
+     */
+    public static StreamingTrack open(File file, float outputRate, boolean loop)
+            throws IOException, UnsupportedAudioFileException {
+        PcmReader reader = null;
+        if (file.length() >= MMAP_THRESHOLD_BYTES) {
+            reader = PcmReader.Mapped.tryOpen(file);
+        }
+        if (reader == null) {
+            AudioSystem.getAudioFileFormat(file); // 提前发现不支持的格式
+            reader = new PcmReader.Streamed(() -> AudioSystem.getAudioInputStream(file));
+        }
+        return new StreamingTrack(reader, file.getName(), outputRate, loop, DEFAULT_CHUNK_FRAMES);
+    }
+
+    /**
+     * 打开类路径资源等URL。指向本地文件时（如未打包运行时的类路径资源）按open(File)处理，
+     * 可以使用内存映射；jar内的资源等其他URL流式解码。
+     */
+    public static StreamingTrack open(URL url, float outputRate, boolean loop)
+            throws IOException, UnsupportedAudioFileException {
+        if (url == null) {
+            throw new IOException("音频资源不存在");
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(new File(url.toURI()), outputRate, loop);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // 无法转换为文件路径时退回流式解码
+            }
+        }
+        AudioSystem.getAudioFileFormat(url);
+        return new StreamingTrack(new PcmReader.Streamed(() -> AudioSystem.getAudioInputStream(url)),
+                url.getPath(), outputRate, loop, DEFAULT_CHUNK_FRAMES);
+    }
+
+    @Override
+    public int read(float[] buffer, int frames) {
+        int written = 0;
+        while (written < frames) {
+            int chunk = current;
+            if (filled.get(chunk) != FILLED) {
+                if (!ended) {
+                    // 加载线程没能及时填充
+                    if (primed) {
+                        underruns.incrementAndGet();
+                    }
+                    LockSupport.unpark(loader);
+                }
+                break;
+            }
+            primed = true;
+            int available = chunkFrames[chunk] - position;
+            int n = Math.min(available, frames - written);
+            System.arraycopy(chunks[chunk], position * 2, buffer, written * 2, n * 2);
+            written += n;
+            position += n;
+            if (position == chunkFrames[chunk]) {
+                // 交还该块并切换到另一块
+                position = 0;
+                filled.set(chunk, EMPTY);
+                current = chunk ^ 1;
+                LockSupport.unpark(loader);
+            }
+        }
+        return written;
+    }
+
+    private void loadLoop() {
+        int chunk = 0;
+        while (!closed) {
+            if (filled.get(chunk) != EMPTY) {
+                LockSupport.park(this);
+                continue;
+            }
+            int frames;
+            try {
+                frames = fill(chunks[chunk]);
+            } catch (IOException e) {
+                System.out.println("背景音乐读取失败: " + e.getMessage());
+                frames = 0;
+            }
+            if (frames == 0) {
+                ended = true;
+                return;
+            }
+            chunkFrames[chunk] = frames;
+            filled.set(chunk, FILLED);
+            chunk ^= 1;
+        }
+    }
+
+    /** 解码并重采样一块，返回帧数；0表示音轨结束 */
+    private int fill(float[] out) throws IOException {
+        int capacity = out.length / 2;
+        int frames = 0;
+        while (frames < capacity) {
+            while (phase >= 1.0) {
+                prevLeft = nextLeft;
+                prevRight = nextRight;
+                if (!nextSourceFrame()) {
+                    return frames;
+                }
+                phase -= 1.0;
+            }
+            float t = (float) phase;
+            out[2 * frames] = prevLeft + (nextLeft - prevLeft) * t;
+            out[2 * frames + 1] = prevRight + (nextRight - prevRight) * t;
+            frames++;
+            phase += step;
+        }
+        return frames;
+    }
+
+    private boolean nextSourceFrame() throws IOException {
+        int frameBytes = sourceChannels * 2;
+        if (byteCount - bytePos < frameBytes) {
+            if (!refill(frameBytes)) {
+                return false;
+            }
+        }
+        float left = (short) ((bytes[bytePos] & 0xFF) | (bytes[bytePos + 1] << 8)) / 32768f;
+        float right = left;
+        if (sourceChannels == 2) {
+            right = (short) ((bytes[bytePos + 2] & 0xFF) | (bytes[bytePos + 3] << 8)) / 32768f;
+        }
+        bytePos += frameBytes;
+        nextLeft = left;
+        nextRight = right;
+        return true;
+    }
+
+    private boolean refill(int frameBytes) throws IOException {
+        // 保留不足一帧的残余字节
+        int rest = byteCount - bytePos;
+        System.arraycopy(bytes, bytePos, bytes, 0, rest);
+        byteCount = rest;
+        bytePos = 0;
+        boolean rewound = false;
+        while (byteCount < frameBytes) {
+            int n = reader.read(bytes, byteCount, bytes.length - byteCount);
+            if (n > 0) {
+                byteCount += n;
+                rewound = false;
+                continue;
+            }
+            if (!loop || rewound) {
+                return false; // 不循环，或音轨为空
+            }
+            // 无缝循环：丢弃残余字节，从头继续填充当前块
+            reader.rewind();
+            byteCount = 0;
+            rewound = true;
+            loops.incrementAndGet();
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 非循环播放时是否已播放完毕 */
+    public boolean isEnded() {
+        return ended && filled.get(0) == EMPTY && filled.get(1) == EMPTY;
+    }
+
+    /** 混音线程需要数据而加载线程尚未填好的次数 */
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public long getLoops() {
+        return loops.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(loader);
+        try {
+            loader.join(1000);
+            if (loader.isAlive()) {
+                // 加载线程可能仍在读取，此时释放内存映射会导致崩溃，交给GC回收
+                System.out.println("背景音乐加载线程未能及时停止，稍后由GC释放: " + name);
+                return;
+            }
+            reader.close();
+        } catch (IOException e) {
+            System.out.println("关闭背景音乐失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.audio;
+
+/**
+ * 正弦波测试信号，用于检查输出链路和测试混音器。
+ */
+public final class ToneSource implements AudioSource {
+    private final double phaseStep;
+    private final float amplitude;
+    private double phase;
+
+    public ToneSource(double frequency, float amplitude, float sampleRate) {
+        if (frequency <= 0 || frequency >= sampleRate / 2) {
+            throw new IllegalArgumentException("频率超出范围: " + frequency);
+        }
+        this.phaseStep = 2 * Math.PI * frequency / sampleRate;
+        this.amplitude = amplitude;
+    }
+
+    @Override
+    public int read(float[] buffer, int frames) {
+        double p = phase;
+        for (int i = 0; i < frames; i++) {
+            float s = (float) Math.sin(p) * amplitude;
+            buffer[2 * i] = s;
+            buffer[2 * i + 1] = s;
+            p += phaseStep;
+        }
+        phase = p % (2 * Math.PI);
+        return frames;
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.audio;
+
+/**
+ * 语音活动状态变化回调，在混音线程中调用，实现必须立即返回且不能阻塞。
+ */
+@FunctionalInterface
+public interface VoiceActivityListener {
+    void voiceActivityChanged(MixerChannel channel, boolean active);
+}
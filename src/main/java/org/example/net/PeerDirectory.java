@@ -0,0 +1,114 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 接收方的成员表：解码中继或房间服务器发来的消息，按序号应用状态并通知监听器。
+ * 只应由一个接收线程使用。
+ */
+final class PeerDirectory {
+    private static final Reaction[] REACTIONS = Reaction.values();
+
+    private final int selfId;
+    private final PresenceListener listener;
+    private final Map<Integer, PeerRecord> peers = new HashMap<>();
+    private volatile boolean joined;
+    private volatile long gapCount;
+
+    PeerDirectory(int selfId, PresenceListener listener) {
+        this.selfId = selfId;
+        this.listener = listener;
+    }
+
+    /** 是否已收到成员名单 */
+    boolean isJoined() {
+        return joined;
+    }
+
+    long getGapCount() {
+        return gapCount;
+    }
+
+    /**
+     * 处理一条完整的消息，返回增量不连续、需要请求关键帧的成员，没有时返回null。
+     * 消息格式无效时抛出IllegalArgumentException或BufferUnderflowException。
+     */
+    PeerRecord handle(ByteBuffer buf) {
+        byte type = PresenceProtocol.readHeader(buf);
+        int from = PresenceProtocol.peerIdOf(buf);
+        if (from == selfId) {
+            return null;
+        }
+        switch (type) {
+            case PresenceProtocol.STATE:
+                return apply(peer(from), buf);
+            case PresenceProtocol.ROSTER:
+                joined = true;
+                // 名单里都是关键帧，不会出现不连续
+                int entries = buf.get() & 0xFF;
+                for (int i = 0; i < entries; i++) {
+                    int id = buf.getInt();
+                    apply(peer(id), buf);
+                }
+                return null;
+            case PresenceProtocol.REACTION:
+                int ordinal = buf.get() & 0xFF;
+                int count = buf.getShort() & 0xFFFF;
+                if (ordinal >= REACTIONS.length || count == 0) {
+                    throw new IllegalArgumentException("无效的反应: " + ordinal);
+                }
+                PeerRecord sender = peers.get(from);
+                try {
+                    listener.reactionReceived(from, sender != null ? sender.name : null, REACTIONS[ordinal], count);
+                } catch (RuntimeException e) {
+                    listenerFailed(e);
+                }
+                return null;
+            case PresenceProtocol.LEAVE:
+                PeerRecord left = peers.remove(from);
+                try {
+                    listener.peerLeft(from, left != null ? left.name : null);
+                } catch (RuntimeException e) {
+                    listenerFailed(e);
+                }
+                return null;
+            default:
+                throw new IllegalArgumentException("未知的消息类型: " + type);
+        }
+    }
+
+    /** 监听器的异常不能当作消息格式错误，也不能打断同一条消息中其余成员的处理 */
+    private static void listenerFailed(RuntimeException e) {
+        System.out.println("状态监听器执行失败: " + e);
+    }
+
+    private PeerRecord peer(int id) {
+        PeerRecord peer = peers.get(id);
+        if (peer == null) {
+            peer = new PeerRecord(id);
+            peers.put(id, peer);
+        }
+        return peer;
+    }
+
+    private PeerRecord apply(PeerRecord peer, ByteBuffer buf) {
+        switch (peer.apply(buf)) {
+            case PeerRecord.CHANGED:
+                try {
+                    listener.peerStateChanged(peer.peerId, peer.name, peer.state);
+                } catch (RuntimeException e) {
+                    listenerFailed(e);
+                }
+                return null;
+            case PeerRecord.GAP:
+                gapCount++;
+                return peer;
+            default:
+                return null;
+        }
+    }
+}
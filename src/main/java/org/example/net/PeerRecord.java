@@ -0,0 +1,63 @@
+package org.example.net;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * 接收方保存的一个成员的状态和序号，按序号应用关键帧和增量。中继和客户端共用。
+ */
+class PeerRecord {
+    /** 状态有变化 */
+    static final int CHANGED = 0;
+    /** 已应用但状态不变，或是重复、过期的消息 */
+    static final int UNCHANGED = 1;
+    /** 增量与已有序号不连续，需要等待或请求关键帧 */
+    static final int GAP = 2;
+
+    final int peerId;
+    String name;
+    PeerState state = PeerState.INITIAL;
+    int seq;
+    /** 是否收到过关键帧且之后的增量都连续 */
+    boolean synced;
+    /** 客户端上次为该成员请求关键帧的时间 */
+    long syncRequestedAt;
+
+    PeerRecord(int peerId) {
+        this.peerId = peerId;
+    }
+
+    /** 读取一个状态体并按序号应用，返回CHANGED、UNCHANGED或GAP */
+    int apply(ByteBuffer buf) {
+        int messageSeq = buf.getInt();
+        int mask = buf.get() & 0xFF;
+        boolean keyframe = (mask & PresenceProtocol.KEYFRAME) != 0;
+        // 不论是否应用都要读完字段，名单中后面还有其他成员
+        PeerState next = PresenceProtocol.readFields(buf, mask, keyframe ? PeerState.INITIAL : state);
+        String nextName = (mask & PresenceProtocol.FIELD_NAME) != 0 ? PresenceProtocol.readText(buf) : name;
+
+        // 序号回绕时差值仍然正确
+        int diff = messageSeq - seq;
+        if (keyframe) {
+            if (synced && diff <= 0) {
+                return UNCHANGED;
+            }
+        } else if (!synced || diff > 1) {
+            synced = false;
+            return GAP;
+        } else if (diff <= 0) {
+            return UNCHANGED;
+        }
+        boolean changed = !next.equals(state) || !Objects.equals(nextName, name);
+        state = next;
+        name = nextName;
+        seq = messageSeq;
+        synced = true;
+        return changed ? CHANGED : UNCHANGED;
+    }
+
+    /** 写出当前状态的关键帧状态体 */
+    void putKeyframe(ByteBuffer buf) {
+        PresenceProtocol.putState(buf, seq, null, state, name);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.net;
+
+import org.example.session.Presence;
+import org.example.session.SessionState;
+
+import java.util.Objects;
+
+/**
+ * 同步给其他人的状态：在线状态及其原因、隐私设置。不可变，由PresenceClient按字段做增量编码。
+ */
+public final class PeerState {
+    /** 尚未收到任何状态时的默认值 */
+    public static final PeerState INITIAL = new PeerState(Presence.COLLABORATE, null, false, false);
+
+    private final Presence presence;
+    private final String reason;
+    private final boolean virtualAvatar;
+    private final boolean blurBackground;
+
+    public PeerState(Presence presence, String reason, boolean virtualAvatar, boolean blurBackground) {
+        this.presence = Objects.requireNonNull(presence, "presence");
+        this.reason = reason;
+        this.virtualAvatar = virtualAvatar;
+        this.blurBackground = blurBackground;
+    }
+
+    /** 取出会话状态中需要同步的部分 */
+    public static PeerState from(SessionState state) {
+        return new PeerState(state.getPresence(), state.getPresenceReason(),
+                state.isVirtualAvatar(), state.isBlurBackground());
+    }
+
+    public Presence getPresence() {
+        return presence;
+    }
+
+    /** 状态判断的依据；手动切换时为null */
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean isVirtualAvatar() {
+        return virtualAvatar;
+    }
+
+    public boolean isBlurBackground() {
+        return blurBackground;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PeerState)) {
+            return false;
+        }
+        PeerState other = (PeerState) o;
+        return presence == other.presence
+                && virtualAvatar == other.virtualAvatar
+                && blurBackground == other.blurBackground
+                && Objects.equals(reason, other.reason);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(presence, reason, virtualAvatar, blurBackground);
+    }
+
+    @Override
+    public String toString() {
+        return "PeerState{" + presence + (reason != null ? "(" + reason + ")" : "")
+                + ", avatar=" + virtualAvatar + ", blur=" + blurBackground + "}";
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Objects;
+
+/**
+ * 连接到PresenceRelay的客户端：发布自己的状态和反应，接收房间里其他成员的。
+ * <ul>
+ *     <li>状态按字段做增量编码，每StateEncoder.KEYFRAME_INTERVAL次发布和每HEARTBEAT_MILLIS发送一次关键帧，
+ *     丢包后最多等到下一个关键帧即可恢复；</li>
+ *     <li>收到不连续的增量时向中继请求该成员的关键帧，每SYNC_RETRY_MILLIS最多请求一次；</li>
+ *     <li>通道为非阻塞模式，receive()和tick()由PresenceClientLoop的线程驱动，一个线程可以服务多个客户端。</li>
+ * </ul>
+ * publish和sendReaction可在任意线程调用；receive只应由一个线程调用。
+ */
+public final class PresenceClient implements Closeable {
+    static final long HEARTBEAT_MILLIS = 5000;
+    static final long JOIN_RETRY_MILLIS = 1000;
+    static final long SYNC_RETRY_MILLIS = 1000;
+
+    private final int peerId;
+    private final String name;
+    private final DatagramChannel channel;
+
+    // 发送状态，由this保护
+    private final ByteBuffer out = ByteBuffer.allocateDirect(PresenceProtocol.MAX_DATAGRAM);
+    private final StateEncoder encoder;
+    private long lastSentAt;
+    private long joinSentAt;
+
+    // 接收状态，只在接收线程上访问
+    private final ByteBuffer in = ByteBuffer.allocateDirect(PresenceProtocol.MAX_DATAGRAM);
+    private final PeerDirectory directory;
+
+    private volatile long sentCount;
+    private volatile long sentBytes;
+    private volatile long receivedCount;
+    private volatile long malformedCount;
+
+    private PresenceClient(int peerId, String name, DatagramChannel channel, PresenceListener listener) {
+        this.peerId = peerId;
+        this.name = name;
+        this.channel = channel;
+        this.encoder = new StateEncoder(peerId, name);
+        this.directory = new PeerDirectory(peerId, listener);
+    }
+
+    /** 连接中继并发送JOIN；收到中继的成员名单后isJoined()为true */
+    public static PresenceClient connect(InetSocketAddress relay, int peerId, String name,
+                                         PresenceListener listener) throws IOException {
+        Objects.requireNonNull(relay, "relay");
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(listener, "listener");
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(relay);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        PresenceClient client = new PresenceClient(peerId, name, channel, listener);
+        client.sendJoin(System.currentTimeMillis());
+        return client;
+    }
+
+    public int getPeerId() {
+        return peerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 是否已收到中继的成员名单 */
+    public boolean isJoined() {
+        return directory.isJoined();
+    }
+
+    DatagramChannel channel() {
+        return channel;
+    }
+
+    /** 发布自己的状态，与上次发布的相同时不发送 */
+    public synchronized void publish(PeerState state) {
+        Objects.requireNonNull(state, "state");
+        out.clear();
+        if (encoder.encode(out, state)) {
+            send();
+        }
+    }
+
+    /** 发送一条反应，count为本地在一个窗口内合并的次数 */
+    public synchronized void sendReaction(Reaction reaction, int count) {
+        Objects.requireNonNull(reaction, "reaction");
+        if (count <= 0) {
+            throw new IllegalArgumentException("次数必须为正数: " + count);
+        }
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.REACTION, peerId);
+        out.put((byte) reaction.ordinal()).putShort((short) Math.min(count, 0xFFFF));
+        send();
+    }
+
+    /** 定时调用：未加入时重发JOIN，空闲超过HEARTBEAT_MILLIS时发送关键帧或心跳 */
+    public synchronized void tick(long now) {
+        if (!directory.isJoined() && now - joinSentAt >= JOIN_RETRY_MILLIS) {
+            sendJoin(now);
+        }
+        if (now - lastSentAt < HEARTBEAT_MILLIS) {
+            return;
+        }
+        out.clear();
+        if (encoder.hasState()) {
+            encoder.encodeKeyframe(out);
+        } else {
+            PresenceProtocol.putHeader(out, PresenceProtocol.PING, peerId);
+        }
+        send();
+    }
+
+    private synchronized void sendJoin(long now) {
+        joinSentAt = now;
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.JOIN, peerId);
+        PresenceProtocol.putText(out, name);
+        send();
+    }
+
+    private synchronized void requestSync(PeerRecord peer, long now) {
+        if (now - peer.syncRequestedAt < SYNC_RETRY_MILLIS) {
+            return;
+        }
+        peer.syncRequestedAt = now;
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.SYNC, peerId);
+        out.putInt(peer.peerId);
+        send();
+    }
+
+    /** 调用方持有this */
+    private void send() {
+        out.flip();
+        int bytes = out.remaining();
+        try {
+            // 发送缓冲区满时write返回0，与网络丢包一样由关键帧恢复
+            if (channel.write(out) > 0) {
+                sentCount++;
+                sentBytes += bytes;
+            }
+            lastSentAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            // 中继尚未启动或已关闭时回环上会收到端口不可达，下次心跳重试
+        }
+    }
+
+    /** 处理所有已到达的数据报，返回处理的数量；只应由一个线程调用 */
+    public int receive() {
+        int count = 0;
+        while (true) {
+            try {
+                in.clear();
+                if (channel.read(in) <= 0) {
+                    return count;
+                }
+            } catch (PortUnreachableException e) {
+                continue;
+            } catch (IOException e) {
+                if (channel.isOpen()) {
+                    System.out.println("接收状态失败: " + e.getMessage());
+                }
+                return count;
+            }
+            in.flip();
+            count++;
+            receivedCount++;
+            try {
+                PeerRecord gap = directory.handle(in);
+                if (gap != null) {
+                    requestSync(gap, System.currentTimeMillis());
+                }
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                malformedCount++;
+            }
+        }
+    }
+
+    /** 通知中继离开房间并关闭通道 */
+    @Override
+    public synchronized void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.LEAVE, peerId);
+        send();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("关闭状态同步失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("状态同步 %s(%d): 发送 %d 条/%d 字节, 接收 %d, 增量不连续 %d, 无效 %d",
+                name, peerId, sentCount, sentBytes, receivedCount, directory.getGapCount(), malformedCount);
+    }
+}
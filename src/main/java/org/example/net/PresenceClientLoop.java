@@ -0,0 +1,107 @@
+package org.example.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 驱动PresenceClient的线程：一个Selector等待所有客户端通道可读，并每TICK_MILLIS调用一次tick发送心跳。
+ * 应用里只有一个客户端，负载测试用少量线程驱动上千个客户端。关闭时同时关闭其中的客户端。
+ * 单个客户端处理时抛出的异常只记录下来，不会终止线程，同一线程上的其他客户端继续运行。
+ */
+public final class PresenceClientLoop implements Closeable {
+    private static final long TICK_MILLIS = 200;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<PresenceClient> pending = new ConcurrentLinkedQueue<>();
+    // 只在循环线程上访问
+    private final List<PresenceClient> clients = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public PresenceClientLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** 把客户端交给这个线程驱动，可在任意线程调用 */
+    public void add(PresenceClient client) {
+        pending.add(client);
+        selector.wakeup();
+    }
+
+    private void run() {
+        long lastTick = 0;
+        while (running) {
+            try {
+                selector.select(TICK_MILLIS);
+                PresenceClient added;
+                while ((added = pending.poll()) != null) {
+                    added.channel().register(selector, SelectionKey.OP_READ, added);
+                    clients.add(added);
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    PresenceClient client = (PresenceClient) key.attachment();
+                    try {
+                        client.receive();
+                    } catch (RuntimeException e) {
+                        clientFailed(client, e);
+                    }
+                }
+                selector.selectedKeys().clear();
+                long now = System.currentTimeMillis();
+                if (now - lastTick >= TICK_MILLIS) {
+                    lastTick = now;
+                    for (PresenceClient client : clients) {
+                        try {
+                            client.tick(now);
+                        } catch (RuntimeException e) {
+                            clientFailed(client, e);
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (ClosedChannelException e) {
+                // 客户端在加入前已被关闭
+            } catch (IOException e) {
+                System.out.println("状态同步循环失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void clientFailed(PresenceClient client, RuntimeException e) {
+        System.out.println("状态同步客户端 " + client.getName() + " 处理失败: " + e);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (PresenceClient client : clients) {
+            client.close();
+        }
+        PresenceClient client;
+        while ((client = pending.poll()) != null) {
+            client.close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.out.println("关闭状态同步循环失败: " + e.getMessage());
+        }
+    }
+}
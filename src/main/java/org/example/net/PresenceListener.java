@@ -0,0 +1,17 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+
+/**
+ * 房间中其他成员的状态和反应。在PresenceClient的接收线程上调用，需要操作Swing组件的实现应自行切换到EDT。
+ * name为成员在关键帧中带来的名字，尚未收到时为null。
+ */
+public interface PresenceListener {
+    void peerStateChanged(int peerId, String name, PeerState state);
+
+    default void peerLeft(int peerId, String name) {
+    }
+
+    default void reactionReceived(int peerId, String name, Reaction reaction, int count) {
+    }
+}
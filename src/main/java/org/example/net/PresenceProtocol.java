@@ -0,0 +1,169 @@
+package org.example.net;
+
+import org.example.session.Presence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 状态同步协议的二进制格式，所有整数为大端序。
+ * <pre>
+ * 报头(7字节)  magic(1) version(1) type(1) peerId(4)
+ * JOIN       报头 + 名字            加入房间，中继回复ROSTER
+ * LEAVE      报头                   离开房间，中继转发给其他人
+ * PING       报头                   心跳，尚未发布过状态时代替关键帧
+ * STATE      报头 + 状态体          中继原样转发给其他人
+ * REACTION   报头 + reaction(1) count(2)
+ * SYNC       报头 + 目标peerId(4)   收到不连续的增量后向中继请求目标的关键帧
+ * ROSTER     报头 + 数量(1) + [peerId(4) + 状态体]...  中继发给新成员的现有成员关键帧
+ *
+ * 状态体     seq(4) mask(1) [presence(1)] [privacy(1)] [reason 文本] [name 文本]
+ * 文本       长度(1) + UTF-8，长度255表示null
+ * </pre>
+ * mask的最高位表示关键帧，包含全部字段；增量只包含相对上一序号变化的字段，
+ * 只改了在线状态的增量共13字节。
+ * RoomServer在TCP上使用同样的消息，每条前加2字节长度；JOIN在名字后再带一个房间名文本。
+ */
+final class PresenceProtocol {
+    static final byte MAGIC = 0x56;
+    static final byte VERSION = 1;
+
+    static final byte JOIN = 1;
+    static final byte LEAVE = 2;
+    static final byte PING = 3;
+    static final byte STATE = 4;
+    static final byte REACTION = 5;
+    static final byte SYNC = 6;
+    static final byte ROSTER = 7;
+
+    static final int HEADER_BYTES = 7;
+    /** TCP上每条消息前的长度字段 */
+    static final int FRAME_PREFIX_BYTES = 2;
+    /** 单个数据报的上限，留在常见MTU以内避免分片 */
+    static final int MAX_DATAGRAM = 1200;
+    static final int MAX_TEXT_BYTES = 64;
+    /** 一条关键帧状态体的最大长度 */
+    static final int MAX_STATE_BYTES = 4 + 1 + 1 + 1 + 2 * (1 + MAX_TEXT_BYTES);
+
+    static final int FIELD_PRESENCE = 1;
+    static final int FIELD_PRIVACY = 1 << 1;
+    static final int FIELD_REASON = 1 << 2;
+    static final int FIELD_NAME = 1 << 3;
+    static final int KEYFRAME = 1 << 7;
+
+    private static final int PRIVACY_AVATAR = 1;
+    private static final int PRIVACY_BLUR = 1 << 1;
+    private static final int NULL_TEXT = 0xFF;
+    private static final Presence[] PRESENCES = Presence.values();
+
+    private PresenceProtocol() {
+    }
+
+    static void putHeader(ByteBuffer buf, byte type, int peerId) {
+        buf.put(MAGIC).put(VERSION).put(type).putInt(peerId);
+    }
+
+    /** 校验报头并返回消息类型；peerId随后用buf.getInt(3)读取 */
+    static byte readHeader(ByteBuffer buf) {
+        if (buf.remaining() < HEADER_BYTES || buf.get() != MAGIC || buf.get() != VERSION) {
+            throw new IllegalArgumentException("无效的报头");
+        }
+        byte type = buf.get();
+        buf.getInt();
+        return type;
+    }
+
+    static int peerIdOf(ByteBuffer buf) {
+        return buf.getInt(3);
+    }
+
+    /**
+     * 写入状态体。previous为null时写关键帧（包含name），否则只写与previous不同的字段。
+     */
+    static void putState(ByteBuffer buf, int seq, PeerState previous, PeerState current, String name) {
+        int mask;
+        if (previous == null) {
+            mask = KEYFRAME | FIELD_PRESENCE | FIELD_PRIVACY | FIELD_REASON | FIELD_NAME;
+        } else {
+            mask = 0;
+            if (previous.getPresence() != current.getPresence()) {
+                mask |= FIELD_PRESENCE;
+            }
+            if (privacyBits(previous) != privacyBits(current)) {
+                mask |= FIELD_PRIVACY;
+            }
+            if (!Objects.equals(previous.getReason(), current.getReason())) {
+                mask |= FIELD_REASON;
+            }
+        }
+        buf.putInt(seq).put((byte) mask);
+        if ((mask & FIELD_PRESENCE) != 0) {
+            buf.put((byte) current.getPresence().ordinal());
+        }
+        if ((mask & FIELD_PRIVACY) != 0) {
+            buf.put((byte) privacyBits(current));
+        }
+        if ((mask & FIELD_REASON) != 0) {
+            putText(buf, current.getReason());
+        }
+        if ((mask & FIELD_NAME) != 0) {
+            putText(buf, name);
+        }
+    }
+
+    /** 在base的基础上读取状态体中的字段 */
+    static PeerState readFields(ByteBuffer buf, int mask, PeerState base) {
+        Presence presence = base.getPresence();
+        boolean avatar = base.isVirtualAvatar();
+        boolean blur = base.isBlurBackground();
+        String reason = base.getReason();
+        if ((mask & FIELD_PRESENCE) != 0) {
+            int ordinal = buf.get() & 0xFF;
+            if (ordinal >= PRESENCES.length) {
+                throw new IllegalArgumentException("未知的在线状态: " + ordinal);
+            }
+            presence = PRESENCES[ordinal];
+        }
+        if ((mask & FIELD_PRIVACY) != 0) {
+            int bits = buf.get();
+            avatar = (bits & PRIVACY_AVATAR) != 0;
+            blur = (bits & PRIVACY_BLUR) != 0;
+        }
+        if ((mask & FIELD_REASON) != 0) {
+            reason = readText(buf);
+        }
+        return new PeerState(presence, reason, avatar, blur);
+    }
+
+    private static int privacyBits(PeerState state) {
+        return (state.isVirtualAvatar() ? PRIVACY_AVATAR : 0) | (state.isBlurBackground() ? PRIVACY_BLUR : 0);
+    }
+
+    static void putText(ByteBuffer buf, String text) {
+        if (text == null) {
+            buf.put((byte) NULL_TEXT);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        // 按码点截断，不会截出半个字符
+        while (bytes.length > MAX_TEXT_BYTES) {
+            text = text.substring(0, text.offsetByCodePoints(text.length(), -1));
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+        buf.put((byte) bytes.length).put(bytes);
+    }
+
+    static String readText(ByteBuffer buf) {
+        int length = buf.get() & 0xFF;
+        if (length == NULL_TEXT) {
+            return null;
+        }
+        if (length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("文本过长: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
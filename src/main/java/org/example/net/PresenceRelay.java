@@ -0,0 +1,404 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 状态和反应的中继服务器：一个非阻塞DatagramChannel和一个Selector线程，把每个成员发来的状态和反应转发给房间里的其他成员。
+ * <ul>
+ *     <li>每次先取完已到达的数据报再转发：同一成员在这一批中只有一条状态时原样转发增量，
+ *     有多条时只转发最新状态的关键帧，反应按类型合并次数，过载时延迟不会随入站速率无限增长；</li>
+ *     <li>中继按序号应用每个成员的状态，新成员加入时打包发送现有成员的关键帧，
+ *     客户端发现增量不连续时也由中继回复关键帧；</li>
+ *     <li>发送缓冲区满时直接丢弃，客户端靠SYNC和周期关键帧恢复，慢客户端不会拖住转发线程；</li>
+ *     <li>超过MEMBER_TIMEOUT_MILLIS没有消息的成员被移除，并向其他人发送LEAVE。</li>
+ * </ul>
+ * 可在进程内启动在本机端口上，供应用的“本地房间”和负载测试使用。
+ */
+public final class PresenceRelay implements Closeable {
+    public static final int DEFAULT_PORT = 47800;
+    static final long MEMBER_TIMEOUT_MILLIS = 15000;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+    private static final int SOCKET_BUFFER_BYTES = 4 << 20;
+    /** 一次最多连续接收的数据报数，之后先转发 */
+    private static final int MAX_BATCH = 4096;
+    private static final Reaction[] REACTIONS = Reaction.values();
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Thread thread;
+    private final InetSocketAddress address;
+    private volatile boolean running = true;
+
+    // 以下字段只在中继线程上访问
+    private final ByteBuffer in = ByteBuffer.allocateDirect(PresenceProtocol.MAX_DATAGRAM);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(PresenceProtocol.MAX_DATAGRAM);
+    private final Map<SocketAddress, Member> byAddress = new HashMap<>();
+    private final Map<Integer, Member> byId = new HashMap<>();
+    // 转发时遍历的成员数组，成员变化时重建
+    private Member[] members = new Member[0];
+    // 本批中有状态或反应待转发的成员
+    private final List<Member> dirty = new ArrayList<>();
+    private long lastSweep;
+
+    // 统计只由中继线程写入
+    private volatile int memberCount;
+    private volatile long received;
+    private volatile long forwarded;
+    private volatile long dropped;
+    private volatile long malformed;
+    private volatile long keyframesSent;
+    private volatile long coalesced;
+
+    private PresenceRelay(DatagramChannel channel, Selector selector) throws IOException {
+        this.channel = channel;
+        this.selector = selector;
+        this.address = (InetSocketAddress) channel.getLocalAddress();
+        this.thread = new Thread(this::run, "presence-relay");
+        this.thread.setDaemon(true);
+    }
+
+    /** 在本机回环地址上启动中继，port为0时使用任意空闲端口 */
+    public static PresenceRelay startLocal(int port) throws IOException {
+        return start(new InetSocketAddress("127.0.0.1", port));
+    }
+
+    public static PresenceRelay start(InetSocketAddress bind) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        Selector selector = null;
+        try {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_BYTES);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_BYTES);
+            channel.bind(bind);
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            PresenceRelay relay = new PresenceRelay(channel, selector);
+            relay.thread.start();
+            return relay;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (selector != null) {
+                selector.close();
+            }
+            throw e;
+        }
+    }
+
+    /** 实际绑定的地址 */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    private void run() {
+        lastSweep = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(SWEEP_INTERVAL_MILLIS);
+                selector.selectedKeys().clear();
+                // 先取完已到达的数据报再统一转发，同一成员在这批中的多次更新只转发一次
+                SocketAddress from;
+                int batch = 0;
+                while (batch < MAX_BATCH && (from = channel.receive(in.clear())) != null) {
+                    in.flip();
+                    handle(from);
+                    batch++;
+                }
+                flush();
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= SWEEP_INTERVAL_MILLIS) {
+                    lastSweep = now;
+                    sweep(now);
+                }
+            } catch (ClosedChannelException | ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                System.out.println("中继接收失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(SocketAddress from) {
+        received++;
+        try {
+            byte type = PresenceProtocol.readHeader(in);
+            int peerId = PresenceProtocol.peerIdOf(in);
+            Member member = byAddress.get(from);
+            if (member != null && member.peerId != peerId) {
+                // 一个地址只能代表一个成员
+                malformed++;
+                return;
+            }
+            switch (type) {
+                case PresenceProtocol.JOIN:
+                    member = member != null ? member : join(from, peerId);
+                    member.name = PresenceProtocol.readText(in);
+                    sendRoster(member);
+                    break;
+                case PresenceProtocol.STATE:
+                    if (member == null) {
+                        // 中继重启或成员超时后，客户端的关键帧相当于重新加入
+                        member = join(from, peerId);
+                    }
+                    member.apply(in);
+                    member.pendingStates++;
+                    member.pending.clear();
+                    member.pending.put(in.rewind());
+                    markDirty(member);
+                    break;
+                case PresenceProtocol.REACTION:
+                    if (member == null) {
+                        return;
+                    }
+                    int ordinal = in.get() & 0xFF;
+                    int count = in.getShort() & 0xFFFF;
+                    if (ordinal >= REACTIONS.length || count == 0 || in.hasRemaining()) {
+                        malformed++;
+                        return;
+                    }
+                    member.reactionCounts[ordinal] += count;
+                    markDirty(member);
+                    break;
+                case PresenceProtocol.SYNC:
+                    if (member == null) {
+                        return;
+                    }
+                    Member target = byId.get(in.getInt());
+                    if (target != null && target.synced) {
+                        out.clear();
+                        PresenceProtocol.putHeader(out, PresenceProtocol.STATE, target.peerId);
+                        target.putKeyframe(out);
+                        send(out.flip(), member);
+                        keyframesSent++;
+                    }
+                    break;
+                case PresenceProtocol.LEAVE:
+                    if (member != null) {
+                        remove(member);
+                    }
+                    return;
+                case PresenceProtocol.PING:
+                    break;
+                default:
+                    malformed++;
+                    return;
+            }
+            if (member != null) {
+                member.lastSeen = System.currentTimeMillis();
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            malformed++;
+        }
+    }
+
+    private Member join(SocketAddress from, int peerId) {
+        Member previous = byId.get(peerId);
+        if (previous != null) {
+            // 同一成员换了地址（例如客户端重启），旧地址作废
+            byAddress.remove(previous.address);
+        }
+        Member member = new Member(peerId, from);
+        member.lastSeen = System.currentTimeMillis();
+        byAddress.put(from, member);
+        byId.put(peerId, member);
+        rebuild();
+        return member;
+    }
+
+    private void remove(Member member) {
+        byAddress.remove(member.address);
+        byId.remove(member.peerId);
+        rebuild();
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.LEAVE, member.peerId);
+        out.flip();
+        for (Member other : members) {
+            out.position(0);
+            send(out, other);
+        }
+    }
+
+    private void rebuild() {
+        members = byId.values().toArray(new Member[0]);
+        memberCount = members.length;
+    }
+
+    private void markDirty(Member member) {
+        if (!member.dirty) {
+            member.dirty = true;
+            dirty.add(member);
+        }
+    }
+
+    /**
+     * 把这一批中有更新的成员转发给其他人：只有一条状态时原样转发增量，有多条时改发最新状态的关键帧；
+     * 反应按类型合并次数。转发耗时随之只取决于有更新的成员数，入站速率再高延迟也有上界。
+     */
+    private void flush() {
+        for (Member member : dirty) {
+            member.dirty = false;
+            if (byId.get(member.peerId) != member) {
+                // 本批中已离开或换了地址
+                member.pendingStates = 0;
+                Arrays.fill(member.reactionCounts, 0);
+                continue;
+            }
+            if (member.pendingStates == 1 || (member.pendingStates > 1 && !member.synced)) {
+                forward(member.pending.flip(), member);
+            } else if (member.pendingStates > 1) {
+                coalesced += member.pendingStates - 1;
+                out.clear();
+                PresenceProtocol.putHeader(out, PresenceProtocol.STATE, member.peerId);
+                member.putKeyframe(out);
+                forward(out.flip(), member);
+                keyframesSent++;
+            }
+            member.pendingStates = 0;
+            for (int k = 0; k < REACTIONS.length; k++) {
+                int count = member.reactionCounts[k];
+                if (count > 0) {
+                    member.reactionCounts[k] = 0;
+                    out.clear();
+                    PresenceProtocol.putHeader(out, PresenceProtocol.REACTION, member.peerId);
+                    out.put((byte) k).putShort((short) Math.min(count, 0xFFFF));
+                    forward(out.flip(), member);
+                }
+            }
+        }
+        dirty.clear();
+    }
+
+    /** 把buf中的消息发给除sender以外的所有成员 */
+    private void forward(ByteBuffer buf, Member sender) {
+        for (Member member : members) {
+            if (member != sender) {
+                buf.position(0);
+                send(buf, member);
+            }
+        }
+    }
+
+    /** 打包发送所有已同步成员的关键帧；没有其他成员时也发送一个空名单，客户端据此确认已加入 */
+    private void sendRoster(Member joiner) {
+        int count = 0;
+        startRoster();
+        for (Member member : members) {
+            if (member == joiner || !member.synced) {
+                continue;
+            }
+            if (count == 255 || out.remaining() < 4 + PresenceProtocol.MAX_STATE_BYTES) {
+                finishRoster(joiner, count);
+                startRoster();
+                count = 0;
+            }
+            out.putInt(member.peerId);
+            member.putKeyframe(out);
+            count++;
+            keyframesSent++;
+        }
+        finishRoster(joiner, count);
+    }
+
+    private void startRoster() {
+        out.clear();
+        PresenceProtocol.putHeader(out, PresenceProtocol.ROSTER, 0);
+        out.put((byte) 0);
+    }
+
+    private void finishRoster(Member joiner, int count) {
+        out.put(PresenceProtocol.HEADER_BYTES, (byte) count);
+        send(out.flip(), joiner);
+    }
+
+    private void send(ByteBuffer buf, Member member) {
+        try {
+            if (channel.send(buf, member.address) == 0) {
+                dropped++;
+            } else {
+                forwarded++;
+            }
+        } catch (IOException e) {
+            dropped++;
+        }
+    }
+
+    private void sweep(long now) {
+        List<Member> expired = null;
+        for (Member member : members) {
+            if (now - member.lastSeen > MEMBER_TIMEOUT_MILLIS) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(member);
+            }
+        }
+        if (expired != null) {
+            for (Member member : expired) {
+                remove(member);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("关闭中继失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("中继 %s: 成员 %d, 接收 %d, 发送 %d, 丢弃 %d, 无效 %d, 关键帧 %d, 合并的状态 %d",
+                address, memberCount, received, forwarded, dropped, malformed, keyframesSent, coalesced);
+    }
+
+    private static final class Member extends PeerRecord {
+        final SocketAddress address;
+        long lastSeen;
+        // 本批中最后一条状态的原始数据报和条数
+        final ByteBuffer pending = ByteBuffer.allocate(PresenceProtocol.MAX_DATAGRAM);
+        int pendingStates;
+        final int[] reactionCounts = new int[REACTIONS.length];
+        boolean dirty;
+
+        Member(int peerId, SocketAddress address) {
+            super(peerId);
+            this.address = address;
+        }
+    }
+}
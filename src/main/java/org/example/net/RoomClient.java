@@ -0,0 +1,176 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * 连接到RoomServer的客户端，状态编码和成员表与PresenceClient相同。TCP不丢包，不需要心跳和SYNC；
+ * 读得太慢时服务器会改发快照，快照中的关键帧会覆盖漏掉的增量。
+ * publish和sendReaction可在任意线程调用，监听器在读线程上被调用。
+ */
+public final class RoomClient implements Closeable {
+    private static final int RECEIVE_BUFFER_BYTES = 16 * 1024;
+
+    private final Socket socket;
+    private final String name;
+    private final OutputStream out;
+    private final PeerDirectory directory;
+
+    // 发送状态，由this保护
+    private final ByteBuffer frame = ByteBuffer.allocate(PresenceProtocol.FRAME_PREFIX_BYTES + PresenceProtocol.MAX_DATAGRAM);
+    private final StateEncoder encoder;
+    private final int peerId;
+
+    private volatile long receivedCount;
+
+    private RoomClient(Socket socket, int peerId, String name, PresenceListener listener) throws IOException {
+        this.socket = socket;
+        this.peerId = peerId;
+        this.name = name;
+        this.out = socket.getOutputStream();
+        this.encoder = new StateEncoder(peerId, name);
+        this.directory = new PeerDirectory(peerId, listener);
+    }
+
+    /** 连接并加入房间，读线程由readers提供 */
+    public static RoomClient connect(InetSocketAddress server, String room, int peerId, String name,
+                                     PresenceListener listener, Executor readers) throws IOException {
+        Objects.requireNonNull(server, "server");
+        Objects.requireNonNull(room, "room");
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(listener, "listener");
+        Socket socket = new Socket();
+        RoomClient client;
+        try {
+            socket.setTcpNoDelay(true);
+            // 与服务器的发送缓冲区一样保持较小，读得慢时积压留在服务器的有界队列里，由快照追上
+            socket.setReceiveBufferSize(RECEIVE_BUFFER_BYTES);
+            socket.connect(server);
+            client = new RoomClient(socket, peerId, name, listener);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+        client.join(room);
+        readers.execute(client::readLoop);
+        return client;
+    }
+
+    /** 连接并加入房间，使用一个新的守护线程读取 */
+    public static RoomClient connect(InetSocketAddress server, String room, int peerId, String name,
+                                     PresenceListener listener) throws IOException {
+        return connect(server, room, peerId, name, listener, task -> {
+            Thread thread = new Thread(task, "room-client-" + peerId);
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    public int getPeerId() {
+        return peerId;
+    }
+
+    /** 是否已收到服务器的第一个快照 */
+    public boolean isJoined() {
+        return directory.isJoined();
+    }
+
+    private synchronized void join(String room) throws IOException {
+        startFrame();
+        PresenceProtocol.putHeader(frame, PresenceProtocol.JOIN, peerId);
+        PresenceProtocol.putText(frame, name);
+        PresenceProtocol.putText(frame, room);
+        writeFrame();
+    }
+
+    /** 发布自己的状态，与上次发布的相同时不发送 */
+    public synchronized void publish(PeerState state) throws IOException {
+        Objects.requireNonNull(state, "state");
+        startFrame();
+        if (encoder.encode(frame, state)) {
+            writeFrame();
+        }
+    }
+
+    public synchronized void sendReaction(Reaction reaction, int count) throws IOException {
+        Objects.requireNonNull(reaction, "reaction");
+        if (count <= 0) {
+            throw new IllegalArgumentException("次数必须为正数: " + count);
+        }
+        startFrame();
+        PresenceProtocol.putHeader(frame, PresenceProtocol.REACTION, peerId);
+        frame.put((byte) reaction.ordinal()).putShort((short) Math.min(count, 0xFFFF));
+        writeFrame();
+    }
+
+    private void startFrame() {
+        frame.clear();
+        frame.position(PresenceProtocol.FRAME_PREFIX_BYTES);
+    }
+
+    private void writeFrame() throws IOException {
+        frame.putShort(0, (short) (frame.position() - PresenceProtocol.FRAME_PREFIX_BYTES));
+        out.write(frame.array(), 0, frame.position());
+    }
+
+    private void readLoop() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] body = new byte[PresenceProtocol.MAX_DATAGRAM];
+            while (true) {
+                int length = in.readUnsignedShort();
+                if (length > body.length) {
+                    throw new IllegalArgumentException("无效的消息长度: " + length);
+                }
+                in.readFully(body, 0, length);
+                receivedCount++;
+                directory.handle(ByteBuffer.wrap(body, 0, length));
+            }
+        } catch (EOFException | SocketException e) {
+            // 连接已关闭
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            System.out.println("房间连接异常断开: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    /** 通知服务器离开并断开连接 */
+    @Override
+    public synchronized void close() {
+        if (socket.isClosed()) {
+            return;
+        }
+        try {
+            startFrame();
+            PresenceProtocol.putHeader(frame, PresenceProtocol.LEAVE, peerId);
+            writeFrame();
+        } catch (IOException e) {
+            // 连接已断开
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("关闭房间连接失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("房间客户端 %s(%d): 接收 %d, 增量不连续 %d",
+                name, peerId, receivedCount, directory.getGapCount());
+    }
+}
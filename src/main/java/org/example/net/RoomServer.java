@@ -0,0 +1,431 @@
+package org.example.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 房间服务器：TCP连接，每个成员一个读线程和一个写线程，运行时支持时使用虚拟线程，代码按阻塞I/O的方式直接书写。
+ * <ul>
+ *     <li>成员按JOIN中的房间名分组，状态和反应只转发给同一房间的其他成员；</li>
+ *     <li>转发只是把消息放进每个接收方的有界发送队列，从不阻塞发送方或整个房间；</li>
+ *     <li>接收方读得太慢、队列已满时丢弃其队列并切换到快照模式：写线程下一次发送房间内所有成员的最新关键帧，
+ *     之后恢复逐条发送增量，慢成员只会少看到中间状态；快照不包含已离开的成员，
+ *     因此丢弃积压时保留其中的LEAVE，在快照之后写出；</li>
+ *     <li>消息格式与PresenceRelay相同，每条前加2字节长度；SYNC等不处理的消息类型计数后忽略，
+ *     丢失的增量由快照模式恢复。</li>
+ * </ul>
+ * 虚拟线程需要JDK 21；在更早的运行时上通过反射检测不到时退回到按需创建的平台线程，行为相同，只是线程开销更大。
+ */
+public final class RoomServer implements Closeable {
+    public static final int DEFAULT_PORT = 47801;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    static final String DEFAULT_ROOM = "default";
+    private static final int PEER_SEND_BUFFER_BYTES = 16 * 1024;
+
+    // 写线程的特殊队列项：只唤醒，不发送
+    private static final byte[] WAKE = new byte[0];
+
+    private final ServerSocket server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int queueCapacity;
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger peerCount = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+
+    private RoomServer(ServerSocket server, ExecutorService executor, boolean virtualThreads, int queueCapacity) {
+        this.server = server;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /** 在本机回环地址上启动，port为0时使用任意空闲端口 */
+    public static RoomServer startLocal(int port, int queueCapacity) throws IOException {
+        return start(new InetSocketAddress("127.0.0.1", port), queueCapacity);
+    }
+
+    public static RoomServer start(InetSocketAddress bind, int queueCapacity) throws IOException {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("队列长度必须为正数: " + queueCapacity);
+        }
+        ServerSocket server = new ServerSocket();
+        try {
+            server.bind(bind, 1024);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        ExecutorService virtual = newVirtualThreadExecutor();
+        ExecutorService executor = virtual != null ? virtual : Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "room-peer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        RoomServer room = new RoomServer(server, executor, virtual != null, queueCapacity);
+        executor.execute(room::acceptLoop);
+        return room;
+    }
+
+    /** JDK 21起的Executors.newVirtualThreadPerTaskExecutor()，不可用时返回null */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    /** 每个成员是否运行在虚拟线程上 */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    public int getPeerCount() {
+        return peerCount.get();
+    }
+
+    public long getSnapshotCount() {
+        return snapshots.sum();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                // 内核发送缓冲区较小，慢成员的积压留在有界队列里，由快照模式处理
+                socket.setSendBufferSize(PEER_SEND_BUFFER_BYTES);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("接受连接失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** 成员的读线程：第一条消息必须是JOIN，之后读取状态和反应并转发 */
+    private void serve(Socket socket) {
+        Peer peer = null;
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            byte[] frame = readFrame(in);
+            ByteBuffer buf = body(frame);
+            if (PresenceProtocol.readHeader(buf) != PresenceProtocol.JOIN) {
+                return;
+            }
+            String name = PresenceProtocol.readText(buf);
+            String roomName = buf.hasRemaining() ? PresenceProtocol.readText(buf) : null;
+            peer = new Peer(s, PresenceProtocol.peerIdOf(buf), name);
+            join(peer, roomName != null ? roomName : DEFAULT_ROOM);
+            Peer writer = peer;
+            executor.execute(writer::writeLoop);
+
+            while (running) {
+                frame = readFrame(in);
+                buf = body(frame);
+                byte type = PresenceProtocol.readHeader(buf);
+                if (PresenceProtocol.peerIdOf(buf) != peer.record.peerId) {
+                    throw new IllegalArgumentException("成员编号不符");
+                }
+                received.increment();
+                if (type == PresenceProtocol.STATE) {
+                    synchronized (peer.record) {
+                        peer.record.apply(buf);
+                    }
+                    broadcast(peer, frame);
+                } else if (type == PresenceProtocol.REACTION) {
+                    if (buf.remaining() != 3) {
+                        throw new IllegalArgumentException("无效的反应");
+                    }
+                    broadcast(peer, frame);
+                } else if (type == PresenceProtocol.LEAVE) {
+                    break;
+                } else if (type != PresenceProtocol.PING) {
+                    // SYNC等本服务器不处理的类型：计数后跳过，不断开连接
+                    ignored.increment();
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // 对方断开
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            System.out.println("成员连接异常断开: " + e.getMessage());
+        } finally {
+            if (peer != null) {
+                leave(peer);
+            }
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length < PresenceProtocol.HEADER_BYTES || length > PresenceProtocol.MAX_DATAGRAM) {
+            throw new IllegalArgumentException("无效的消息长度: " + length);
+        }
+        // 保留长度前缀，转发时整段写出
+        byte[] frame = new byte[PresenceProtocol.FRAME_PREFIX_BYTES + length];
+        frame[0] = (byte) (length >>> 8);
+        frame[1] = (byte) length;
+        in.readFully(frame, PresenceProtocol.FRAME_PREFIX_BYTES, length);
+        return frame;
+    }
+
+    private static ByteBuffer body(byte[] frame) {
+        return ByteBuffer.wrap(frame, PresenceProtocol.FRAME_PREFIX_BYTES,
+                frame.length - PresenceProtocol.FRAME_PREFIX_BYTES).slice();
+    }
+
+    private void join(Peer peer, String roomName) {
+        peer.room = rooms.compute(roomName, (key, room) -> {
+            Room r = room != null ? room : new Room(key);
+            r.peers.add(peer);
+            return r;
+        });
+        peerCount.incrementAndGet();
+        // 第一次发送的就是快照，同时告诉客户端已加入
+        peer.requestSnapshot();
+    }
+
+    private void leave(Peer peer) {
+        peer.close();
+        Room room = peer.room;
+        if (room == null) {
+            return;
+        }
+        rooms.computeIfPresent(room.name, (key, r) -> {
+            r.peers.remove(peer);
+            return r.peers.isEmpty() ? null : r;
+        });
+        peerCount.decrementAndGet();
+        ByteBuffer frame = ByteBuffer.allocate(PresenceProtocol.FRAME_PREFIX_BYTES + PresenceProtocol.HEADER_BYTES);
+        frame.putShort((short) PresenceProtocol.HEADER_BYTES);
+        PresenceProtocol.putHeader(frame, PresenceProtocol.LEAVE, peer.record.peerId);
+        broadcast(peer, frame.array());
+    }
+
+    /** 放入同一房间其他成员的发送队列，不阻塞 */
+    private void broadcast(Peer sender, byte[] frame) {
+        for (Peer peer : sender.room.peers) {
+            if (peer != sender) {
+                peer.offer(frame);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.out.println("关闭房间服务器失败: " + e.getMessage());
+        }
+        for (Room room : rooms.values()) {
+            for (Peer peer : room.peers) {
+                peer.close();
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("房间服务器 %s (%s): 房间 %d, 成员 %d, 接收 %d, 入队 %d, 丢弃 %d, 快照 %d, 忽略 %d",
+                getAddress(), virtualThreads ? "虚拟线程" : "平台线程", rooms.size(), peerCount.get(),
+                received.sum(), queued.sum(), dropped.sum(), snapshots.sum(), ignored.sum());
+    }
+
+    private static final class Room {
+        final String name;
+        // 转发时遍历，加入和离开远少于转发
+        final List<Peer> peers = new CopyOnWriteArrayList<>();
+
+        Room(String name) {
+            this.name = name;
+        }
+    }
+
+    private final class Peer {
+        final Socket socket;
+        // 读线程写入，其他成员的写线程生成快照时读取，访问时锁住record
+        final PeerRecord record;
+        final ArrayBlockingQueue<byte[]> outbox = new ArrayBlockingQueue<>(queueCapacity);
+        // 丢弃积压时保留下来的LEAVE：快照只列出仍在房间里的成员，无法告诉接收方谁已经离开
+        final ConcurrentLinkedQueue<byte[]> leaves = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean snapshotPending = new AtomicBoolean();
+        volatile Room room;
+        volatile boolean closed;
+
+        Peer(Socket socket, int peerId, String name) {
+            this.socket = socket;
+            this.record = new PeerRecord(peerId);
+            this.record.name = name;
+        }
+
+        void offer(byte[] frame) {
+            if (outbox.offer(frame)) {
+                queued.increment();
+                return;
+            }
+            // 队列已满：先标记快照再丢弃积压的增量，写线程不会在两者之间写出不连续的增量
+            if (snapshotPending.compareAndSet(false, true)) {
+                snapshots.increment();
+            }
+            if (!keepLeave(frame)) {
+                dropped.increment();
+            }
+            dropDeltas();
+            outbox.offer(WAKE);
+        }
+
+        /** 清空发送队列，其中的LEAVE移到leaves */
+        private void dropDeltas() {
+            byte[] frame;
+            while ((frame = outbox.poll()) != null) {
+                if (frame != WAKE && !keepLeave(frame)) {
+                    dropped.increment();
+                }
+            }
+        }
+
+        private boolean keepLeave(byte[] frame) {
+            if (frame == null || frame == WAKE
+                    || frame[PresenceProtocol.FRAME_PREFIX_BYTES + 2] != PresenceProtocol.LEAVE) {
+                return false;
+            }
+            leaves.add(frame);
+            return true;
+        }
+
+        void requestSnapshot() {
+            if (snapshotPending.compareAndSet(false, true)) {
+                snapshots.increment();
+            }
+            outbox.offer(WAKE);
+        }
+
+        /** 写线程：逐条写出队列中的消息，队列空时才刷新；有快照请求时先发快照 */
+        void writeLoop() {
+            try {
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+                while (!closed) {
+                    byte[] frame = outbox.poll(1, TimeUnit.SECONDS);
+                    if (snapshotPending.getAndSet(false)) {
+                        // 队列里的增量都不比快照新，一并丢弃
+                        keepLeave(frame);
+                        dropDeltas();
+                        writeSnapshot(out);
+                    } else if (frame != null && frame != WAKE) {
+                        out.write(frame);
+                    }
+                    // 离开的成员已不在房间里，快照不包含它们，LEAVE写在快照之后；
+                    // 它们的增量都在LEAVE之前入队，要么已写出，要么已丢弃
+                    byte[] leave;
+                    while ((leave = leaves.poll()) != null) {
+                        out.write(leave);
+                    }
+                    if (outbox.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** 把房间内其他成员的最新关键帧打包成ROSTER消息写出 */
+        private void writeSnapshot(OutputStream out) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(PresenceProtocol.FRAME_PREFIX_BYTES + PresenceProtocol.MAX_DATAGRAM);
+            int count = 0;
+            startRoster(buf);
+            for (Peer peer : room.peers) {
+                if (peer == this) {
+                    continue;
+                }
+                synchronized (peer.record) {
+                    if (!peer.record.synced) {
+                        continue;
+                    }
+                    if (count == 255 || buf.remaining() < 4 + PresenceProtocol.MAX_STATE_BYTES) {
+                        finishRoster(buf, count, out);
+                        startRoster(buf);
+                        count = 0;
+                    }
+                    buf.putInt(peer.record.peerId);
+                    peer.record.putKeyframe(buf);
+                    count++;
+                }
+            }
+            finishRoster(buf, count, out);
+        }
+
+        private void startRoster(ByteBuffer buf) {
+            buf.clear();
+            buf.putShort((short) 0);
+            PresenceProtocol.putHeader(buf, PresenceProtocol.ROSTER, 0);
+            buf.put((byte) 0);
+        }
+
+        private void finishRoster(ByteBuffer buf, int count, OutputStream out) throws IOException {
+            buf.putShort(0, (short) (buf.position() - PresenceProtocol.FRAME_PREFIX_BYTES));
+            buf.put(PresenceProtocol.FRAME_PREFIX_BYTES + PresenceProtocol.HEADER_BYTES, (byte) count);
+            out.write(buf.array(), 0, buf.position());
+        }
+
+        void close() {
+            closed = true;
+            outbox.offer(WAKE);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 已关闭
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 发送方的状态编码：维护序号和上次发送的状态，按字段写增量，每KEYFRAME_INTERVAL次写一次关键帧。
+ * 非线程安全，由使用它的客户端加锁。
+ */
+final class StateEncoder {
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private final int peerId;
+    private final String name;
+    private PeerState lastSent;
+    private int seq;
+    private int sinceKeyframe;
+
+    StateEncoder(int peerId, String name) {
+        this.peerId = peerId;
+        this.name = name;
+    }
+
+    boolean hasState() {
+        return lastSent != null;
+    }
+
+    /** 写入一条STATE消息；与上次发送的状态相同时不写入并返回false */
+    boolean encode(ByteBuffer out, PeerState state) {
+        if (state.equals(lastSent)) {
+            return false;
+        }
+        boolean keyframe = lastSent == null || ++sinceKeyframe >= KEYFRAME_INTERVAL;
+        write(out, keyframe ? null : lastSent, state);
+        return true;
+    }
+
+    /** 写入当前状态的关键帧，用于心跳；调用前hasState()应为true */
+    void encodeKeyframe(ByteBuffer out) {
+        write(out, null, lastSent);
+    }
+
+    private void write(ByteBuffer out, PeerState previous, PeerState state) {
+        seq++;
+        if (previous == null) {
+            sinceKeyframe = 0;
+        }
+        PresenceProtocol.putHeader(out, PresenceProtocol.STATE, peerId);
+        PresenceProtocol.putState(out, seq, previous, state, name);
+        lastSent = state;
+    }
+}
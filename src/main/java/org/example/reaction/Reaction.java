@@ -0,0 +1,39 @@
+package org.example.reaction;
+
+import java.util.List;
+
+/**
+ * 非语言交流的表情反应，也是手势识别的结果类型。
+ * RAISED_HAND和WAVE只由手势识别产生，界面上的反应按钮只使用BUTTONS中的反应。
+ */
+public enum Reaction {
+    THUMBS_UP("👍", "赞同"),
+    THINKING("🤔", "思考"),
+    CELEBRATE("🎉", "庆祝"),
+    RAISED_HAND("✋", "举手"),
+    WAVE("👋", "挥手");
+
+    /** 界面上提供按钮的反应，按显示顺序排列 */
+    public static final List<Reaction> BUTTONS = List.of(THUMBS_UP, THINKING, CELEBRATE);
+
+    private final String emoji;
+    private final String displayName;
+
+    Reaction(String emoji, String displayName) {
+        this.emoji = emoji;
+        this.displayName = displayName;
+    }
+
+    public String getEmoji() {
+        return emoji;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /** 表情加名称，如“👍 赞同” */
+    public String getLabel() {
+        return emoji + " " + displayName;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.reaction;
+
+/**
+ * 一个时间窗口内的反应汇总：各类型的次数，以及最后一条反应的来源、发送者和时间。
+ * 缓冲区满时被丢弃的事件仍计入次数，只是不会成为“最后一条”。
+ */
+public final class ReactionBatch {
+    private static final Reaction[] REACTIONS = Reaction.values();
+
+    private final int[] counts;
+    private final int total;
+    private final Reaction last;
+    private final ReactionOrigin lastOrigin;
+    private final String lastSender;
+    private final long lastTime;
+    private final long overflowed;
+
+    ReactionBatch(int[] counts, Reaction last, ReactionOrigin lastOrigin, String lastSender,
+                  long lastTime, long overflowed) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        this.counts = counts;
+        this.total = sum;
+        this.last = last;
+        this.lastOrigin = lastOrigin;
+        this.lastSender = lastSender;
+        this.lastTime = lastTime;
+        this.overflowed = overflowed;
+    }
+
+    public int getCount(Reaction reaction) {
+        return counts[reaction.ordinal()];
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /** 窗口内最后一条反应；窗口内的事件全部因缓冲区满而只计数时为null */
+    public Reaction getLast() {
+        return last;
+    }
+
+    public ReactionOrigin getLastOrigin() {
+        return lastOrigin;
+    }
+
+    public String getLastSender() {
+        return lastSender;
+    }
+
+    /** 最后一条反应的发布时间（System.currentTimeMillis） */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /** 本窗口内因缓冲区满而只计数的事件数 */
+    public long getOverflowed() {
+        return overflowed;
+    }
+
+    /** 汇总文本，如“👍 ×12  🎉 ×3” */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Reaction reaction : REACTIONS) {
+            int count = counts[reaction.ordinal()];
+            if (count > 0) {
+                if (sb.length() > 0) {
+                    sb.append("  ");
+                }
+                sb.append(reaction.getEmoji()).append(" ×").append(count);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 通知文本：单条反应按来源描述，多条时为汇总 */
+    public String describe() {
+        if (total != 1 || last == null) {
+            return summary();
+        }
+        switch (lastOrigin) {
+            case GESTURE:
+                return "检测到手势: " + last.getLabel();
+            case REMOTE:
+                return lastSender + ": " + last.getLabel();
+            default:
+                return "发送了" + last.getDisplayName() + "表情";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.reaction;
+
+import javax.swing.Timer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 反应和手势事件总线：任意线程发布，按时间窗口批量分发给订阅者。
+ * <ul>
+ *     <li>事件写入预分配的多生产者单消费者环形缓冲区，发布时不加锁、不分配对象；</li>
+ *     <li>窗口内第一条事件通过Dispatcher安排一次分发，窗口结束时一次取出全部事件，
+ *     按类型汇总成一个ReactionBatch交给订阅者，大房间里数百条反应只触发一次界面刷新；</li>
+ *     <li>缓冲区满时事件只计入溢出计数，次数汇总仍然准确。</li>
+ * </ul>
+ */
+public final class ReactionBus {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_WINDOW_MILLIS = 100;
+
+    private static final Reaction[] REACTIONS = Reaction.values();
+    private static final ReactionOrigin[] ORIGINS = ReactionOrigin.values();
+
+    /** 在window毫秒后于分发线程上执行drain；同一时间最多有一次待执行的分发 */
+    public interface Dispatcher {
+        void dispatchLater(long delayMillis, Runnable drain);
+    }
+
+    private final int mask;
+    private final byte[] kinds;
+    private final byte[] origins;
+    private final long[] times;
+    private final String[] senders;
+    // 槽位中的事件序号+1，非0且等于期望值时表示已写完
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // 只由分发线程写入，发布方据此判断缓冲区是否已满
+    private volatile long consumed;
+    private final AtomicLongArray overflow = new AtomicLongArray(REACTIONS.length);
+
+    private final long windowMillis;
+    private final Dispatcher dispatcher;
+    private final Runnable drain = this::drain;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final List<ReactionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private long batchCount;
+
+    /**
+     * @param capacity     环形缓冲区容量，取整为2的幂
+     * @param windowMillis 汇总窗口
+     * @param dispatcher   安排分发的方式，决定订阅者在哪个线程上被调用
+     */
+    public ReactionBus(int capacity, long windowMillis, Dispatcher dispatcher) {
+        if (capacity <= 0 || capacity > (1 << 20)) {
+            throw new IllegalArgumentException("容量超出范围(0, 2^20]: " + capacity);
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("窗口不能为负数: " + windowMillis);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.origins = new byte[size];
+        this.times = new long[size];
+        this.senders = new String[size];
+        this.published = new AtomicLongArray(size);
+        this.windowMillis = windowMillis;
+        this.dispatcher = Objects.requireNonNull(dispatcher, "dispatcher");
+    }
+
+    /** 在EDT上分发的总线，使用一个单次触发的javax.swing.Timer */
+    public static ReactionBus forSwing() {
+        return new ReactionBus(DEFAULT_CAPACITY, DEFAULT_WINDOW_MILLIS, new SwingDispatcher());
+    }
+
+    public void addListener(ReactionListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    public void removeListener(ReactionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 发布一条反应，可在任意线程调用。sender为发送者，本地反应可为null。
+     * 返回false表示缓冲区已满，事件只计入次数。
+     */
+    public boolean publish(Reaction reaction, ReactionOrigin origin, String sender) {
+        Objects.requireNonNull(reaction, "reaction");
+        Objects.requireNonNull(origin, "origin");
+        publishedCount.incrementAndGet();
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed > mask) {
+                overflow.incrementAndGet(reaction.ordinal());
+                overflowCount.incrementAndGet();
+                wakeUp();
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int i = (int) (seq & mask);
+        kinds[i] = (byte) reaction.ordinal();
+        origins[i] = (byte) origin.ordinal();
+        times[i] = System.currentTimeMillis();
+        senders[i] = sender;
+        // 发布写入，分发线程看到序号后一定能看到上面的字段
+        published.lazySet(i, seq + 1);
+        wakeUp();
+        return true;
+    }
+
+    private void wakeUp() {
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.dispatchLater(windowMillis, drain);
+        }
+    }
+
+    /** 在分发线程上取出当前窗口的全部事件并通知订阅者 */
+    private void drain() {
+        // 先清除标记再取事件，之后发布的事件会安排下一次分发
+        scheduled.set(false);
+        int[] counts = new int[REACTIONS.length];
+        int last = -1;
+        long seq = consumed;
+        while (true) {
+            int i = (int) (seq & mask);
+            if (published.get(i) != seq + 1) {
+                // 空，或某个发布方已占位但尚未写完，留到下一窗口
+                break;
+            }
+            counts[kinds[i]]++;
+            last = i;
+            seq++;
+        }
+        ReactionBatch batch = null;
+        long overflowed = 0;
+        for (int k = 0; k < counts.length; k++) {
+            long n = overflow.getAndSet(k, 0);
+            counts[k] += (int) n;
+            overflowed += n;
+        }
+        if (last >= 0) {
+            batch = new ReactionBatch(counts, REACTIONS[kinds[last]], ORIGINS[origins[last]], senders[last],
+                    times[last], overflowed);
+        } else if (overflowed > 0) {
+            batch = new ReactionBatch(counts, null, null, null, 0, overflowed);
+        }
+        for (long s = consumed; s < seq; s++) {
+            senders[(int) (s & mask)] = null;
+        }
+        // 读完槽位后再推进，发布方才能复用这些槽位
+        consumed = seq;
+        if (claimed.get() != seq) {
+            wakeUp();
+        }
+        if (batch == null) {
+            return;
+        }
+        batchCount++;
+        for (ReactionListener listener : listeners) {
+            try {
+                listener.onReactions(batch);
+            } catch (RuntimeException e) {
+                System.out.println("分发反应失败: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("反应总线: 发布 %d, 溢出 %d, 批次 %d",
+                publishedCount.get(), overflowCount.get(), batchCount);
+    }
+
+    private static final class SwingDispatcher implements Dispatcher {
+        private final Timer timer;
+        private volatile Runnable drain;
+
+        SwingDispatcher() {
+            timer = new Timer(0, e -> drain.run());
+            timer.setRepeats(false);
+        }
+
+        @Override
+        public void dispatchLater(long delayMillis, Runnable drain) {
+            this.drain = drain;
+            // Timer的方法可在任意线程调用
+            timer.setInitialDelay((int) delayMillis);
+            timer.restart();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.reaction;
+
+/**
+ * 反应批次的订阅者。在ReactionBus的分发线程上调用（Swing实现中为EDT），每个时间窗口最多一次。
+ */
+@FunctionalInterface
+public interface ReactionListener {
+    void onReactions(ReactionBatch batch);
+}
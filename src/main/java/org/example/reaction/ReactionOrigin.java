@@ -0,0 +1,13 @@
+package org.example.reaction;
+
+/**
+ * 反应的来源
+ */
+public enum ReactionOrigin {
+    /** 本地用户点击按钮 */
+    LOCAL,
+    /** 本地摄像头识别出的手势 */
+    GESTURE,
+    /** 房间中的其他成员 */
+    REMOTE
+}
@@ -0,0 +1,20 @@
+package org.example.session;
+
+/**
+ * 用户在线状态
+ */
+public enum Presence {
+    COLLABORATE("协作模式"),
+    FOCUS("专注模式"),
+    AWAY("暂时离开");
+
+    private final String displayName;
+
+    Presence(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.session;
+
+/**
+ * 在线状态判断：对亮度和运动比例做指数移动平均，再经滞回区间和最短停留时间得到稳定的状态。
+ * <ul>
+ *     <li>平均按实际时间间隔计算，分析频率变化时时间常数不变；</li>
+ *     <li>进入和离开一个状态使用不同的阈值，数值在阈值附近抖动不会来回切换；</li>
+ *     <li>新状态要持续满足一段确认时间，当前状态也至少保持MIN_DWELL_MILLIS，才会切换；</li>
+ *     <li>只有真正切换时update才返回true，调用方据此更新会话状态。</li>
+ * </ul>
+ * 非线程安全，应由单一分析线程使用。
+ */
+public final class PresenceEngine {
+    /** 平均亮度低于此值进入离开状态，高于AWAY_EXIT_BRIGHTNESS才恢复 */
+    public static final double AWAY_ENTER_BRIGHTNESS = 30;
+    public static final double AWAY_EXIT_BRIGHTNESS = 45;
+    /** 平均运动比例高于此值进入协作状态，低于COLLABORATE_EXIT_MOTION才退出 */
+    public static final double COLLABORATE_ENTER_MOTION = 0.10;
+    public static final double COLLABORATE_EXIT_MOTION = 0.05;
+
+    private static final double BRIGHTNESS_TAU_MILLIS = 2000;
+    private static final double MOTION_TAU_MILLIS = 1500;
+    private static final long MIN_DWELL_MILLIS = 2000;
+    private static final long AWAY_CONFIRM_MILLIS = 3000;
+    private static final long COLLABORATE_CONFIRM_MILLIS = 500;
+    private static final long FOCUS_CONFIRM_MILLIS = 5000;
+
+    private Presence presence;
+    private String reason;
+    private long enteredAt;
+
+    private boolean primed;
+    private long lastSample;
+    private double brightness;
+    private double motion;
+
+    private Presence candidate;
+    private long candidateSince;
+
+    private long samples;
+    private long transitions;
+
+    public PresenceEngine(Presence initial) {
+        reset(initial, 0);
+    }
+
+    /**
+     * 从指定状态重新开始，例如重新启用自动检测时从当前手动选择的状态开始。平均值在下一个样本时重新初始化。
+     */
+    public void reset(Presence current, long timeMillis) {
+        if (current == null) {
+            throw new IllegalArgumentException("状态不能为空");
+        }
+        presence = current;
+        reason = null;
+        enteredAt = timeMillis;
+        primed = false;
+        candidate = null;
+    }
+
+    /**
+     * 输入一个分析样本。
+     *
+     * @param averageBrightness 平均亮度（0-255）
+     * @param motionRatio       运动像素比例
+     * @param voiceActive       是否有人在说话
+     * @return 状态是否发生了切换
+     */
+    public boolean update(int averageBrightness, double motionRatio, boolean voiceActive, long timeMillis) {
+        samples++;
+        if (!primed) {
+            brightness = averageBrightness;
+            motion = motionRatio;
+            primed = true;
+        } else {
+            long dt = Math.max(0, timeMillis - lastSample);
+            brightness += (1 - Math.exp(-dt / BRIGHTNESS_TAU_MILLIS)) * (averageBrightness - brightness);
+            motion += (1 - Math.exp(-dt / MOTION_TAU_MILLIS)) * (motionRatio - motion);
+        }
+        lastSample = timeMillis;
+
+        Presence target;
+        String targetReason;
+        if (brightness < (presence == Presence.AWAY ? AWAY_EXIT_BRIGHTNESS : AWAY_ENTER_BRIGHTNESS)) {
+            target = Presence.AWAY;
+            targetReason = "检测到低亮度";
+        } else if (motion > (presence == Presence.COLLABORATE ? COLLABORATE_EXIT_MOTION : COLLABORATE_ENTER_MOTION)) {
+            target = Presence.COLLABORATE;
+            targetReason = "检测到动作";
+        } else if (voiceActive) {
+            // 画面静止但有人在说话，仍在协作
+            target = Presence.COLLABORATE;
+            targetReason = "检测到语音";
+        } else {
+            target = Presence.FOCUS;
+            targetReason = "检测到静止";
+        }
+
+        if (target == presence) {
+            candidate = null;
+            return false;
+        }
+        if (candidate != target) {
+            candidate = target;
+            candidateSince = timeMillis;
+        }
+        if (timeMillis - candidateSince < confirmMillis(target) || timeMillis - enteredAt < MIN_DWELL_MILLIS) {
+            return false;
+        }
+        presence = target;
+        reason = targetReason;
+        enteredAt = timeMillis;
+        candidate = null;
+        transitions++;
+        return true;
+    }
+
+    private static long confirmMillis(Presence target) {
+        switch (target) {
+            case AWAY:
+                return AWAY_CONFIRM_MILLIS;
+            case COLLABORATE:
+                return COLLABORATE_CONFIRM_MILLIS;
+            default:
+                return FOCUS_CONFIRM_MILLIS;
+        }
+    }
+
+    public Presence getPresence() {
+        return presence;
+    }
+
+    /** 最近一次切换的原因，reset后为null */
+    public String getReason() {
+        return reason;
+    }
+
+    public double getSmoothedBrightness() {
+        return brightness;
+    }
+
+    public double getSmoothedMotion() {
+        return motion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("状态判断: %s, 样本 %d, 切换 %d, 平均亮度 %.1f, 平均运动 %.3f",
+                presence.getDisplayName(), samples, transitions, brightness, motion);
+    }
+}
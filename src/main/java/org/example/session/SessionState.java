@@ -0,0 +1,134 @@
+package org.example.session;
+
+import org.example.video.TileMode;
+
+import java.util.Objects;
+
+/**
+ * 会话状态的不可变快照：在线状态、隐私设置和最近一次手势。
+ * 所有修改都通过with*方法生成新对象，由SessionStateStore原子地发布，读取方无需加锁也不会看到不一致的组合。
+ */
+public final class SessionState {
+    private static final SessionState INITIAL =
+            new SessionState(Presence.COLLABORATE, null, true, false, false, "无", 0);
+
+    private final Presence presence;
+    private final String presenceReason;
+    private final boolean autoDetect;
+    private final boolean virtualAvatar;
+    private final boolean blurBackground;
+    private final String lastGesture;
+    private final long lastGestureTime;
+
+    private SessionState(Presence presence, String presenceReason, boolean autoDetect,
+                         boolean virtualAvatar, boolean blurBackground, String lastGesture, long lastGestureTime) {
+        this.presence = Objects.requireNonNull(presence, "presence");
+        this.presenceReason = presenceReason;
+        this.autoDetect = autoDetect;
+        this.virtualAvatar = virtualAvatar;
+        this.blurBackground = blurBackground;
+        this.lastGesture = Objects.requireNonNull(lastGesture, "lastGesture");
+        this.lastGestureTime = lastGestureTime;
+    }
+
+    /** 启动时的状态：协作模式，自动检测开启，隐私功能关闭 */
+    public static SessionState initial() {
+        return INITIAL;
+    }
+
+    public Presence getPresence() {
+        return presence;
+    }
+
+    /** 状态判断的依据，例如"检测到动作"；手动切换时为null */
+    public String getPresenceReason() {
+        return presenceReason;
+    }
+
+    public boolean isAutoDetect() {
+        return autoDetect;
+    }
+
+    public boolean isVirtualAvatar() {
+        return virtualAvatar;
+    }
+
+    public boolean isBlurBackground() {
+        return blurBackground;
+    }
+
+    public String getLastGesture() {
+        return lastGesture;
+    }
+
+    public long getLastGestureTime() {
+        return lastGestureTime;
+    }
+
+    /** 视频画面的显示模式，虚拟形象优先于背景模糊 */
+    public TileMode getTileMode() {
+        return virtualAvatar ? TileMode.AVATAR : (blurBackground ? TileMode.BLUR : TileMode.CAMERA);
+    }
+
+    public SessionState withPresence(Presence presence, String reason) {
+        if (this.presence == presence && Objects.equals(presenceReason, reason)) {
+            return this;
+        }
+        return new SessionState(presence, reason, autoDetect, virtualAvatar, blurBackground, lastGesture, lastGestureTime);
+    }
+
+    public SessionState withAutoDetect(boolean autoDetect) {
+        if (this.autoDetect == autoDetect) {
+            return this;
+        }
+        return new SessionState(presence, presenceReason, autoDetect, virtualAvatar, blurBackground, lastGesture, lastGestureTime);
+    }
+
+    public SessionState withVirtualAvatar(boolean virtualAvatar) {
+        if (this.virtualAvatar == virtualAvatar) {
+            return this;
+        }
+        return new SessionState(presence, presenceReason, autoDetect, virtualAvatar, blurBackground, lastGesture, lastGestureTime);
+    }
+
+    public SessionState withBlurBackground(boolean blurBackground) {
+        if (this.blurBackground == blurBackground) {
+            return this;
+        }
+        return new SessionState(presence, presenceReason, autoDetect, virtualAvatar, blurBackground, lastGesture, lastGestureTime);
+    }
+
+    public SessionState withGesture(String gesture, long time) {
+        return new SessionState(presence, presenceReason, autoDetect, virtualAvatar, blurBackground, gesture, time);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SessionState)) {
+            return false;
+        }
+        SessionState other = (SessionState) o;
+        return presence == other.presence
+                && autoDetect == other.autoDetect
+                && virtualAvatar == other.virtualAvatar
+                && blurBackground == other.blurBackground
+                && lastGestureTime == other.lastGestureTime
+                && Objects.equals(presenceReason, other.presenceReason)
+                && lastGesture.equals(other.lastGesture);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(presence, presenceReason, autoDetect, virtualAvatar, blurBackground, lastGesture, lastGestureTime);
+    }
+
+    @Override
+    public String toString() {
+        return "SessionState{" + presence + (presenceReason != null ? "(" + presenceReason + ")" : "")
+                + ", autoDetect=" + autoDetect + ", avatar=" + virtualAvatar + ", blur=" + blurBackground
+                + ", gesture=" + lastGesture + "@" + lastGestureTime + "}";
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.session;
+
+/**
+ * 会话状态变化监听器。在执行修改的线程上调用，需要操作Swing组件的实现应自行切换到EDT。
+ */
+@FunctionalInterface
+public interface SessionStateListener {
+    void stateChanged(SessionState previous, SessionState current);
+}
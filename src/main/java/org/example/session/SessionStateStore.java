@@ -0,0 +1,88 @@
+package org.example.session;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * 会话状态的无锁存储：当前快照保存在AtomicReference中，修改通过比较并交换完成。
+ * 分析线程、EDT和绘制线程都可以随时调用get()读取一致的快照；
+ * 只有状态真正发生变化时才通知监听器。
+ */
+public final class SessionStateStore {
+    private final AtomicReference<SessionState> state;
+    private final List<SessionStateListener> listeners = new CopyOnWriteArrayList<>();
+
+    public SessionStateStore() {
+        this(SessionState.initial());
+    }
+
+    public SessionStateStore(SessionState initial) {
+        if (initial == null) {
+            throw new IllegalArgumentException("初始状态不能为空");
+        }
+        this.state = new AtomicReference<>(initial);
+    }
+
+    /** 当前快照，不加锁 */
+    public SessionState get() {
+        return state.get();
+    }
+
+    /**
+     * 以CAS循环应用状态转换。transition可能因竞争被调用多次，应为无副作用的纯函数。
+     *
+     * @return 转换后的状态
+     */
+    public SessionState update(UnaryOperator<SessionState> transition) {
+        while (true) {
+            SessionState previous = state.get();
+            SessionState next = transition.apply(previous);
+            if (next == null) {
+                throw new IllegalStateException("状态转换返回了null");
+            }
+            if (next.equals(previous)) {
+                return previous;
+            }
+            if (state.compareAndSet(previous, next)) {
+                fireChanged(previous, next);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 仅当当前状态仍为expected时替换为next，用于"检查后修改"的场景（如手势冷却）。
+     */
+    public boolean compareAndSet(SessionState expected, SessionState next) {
+        if (next == null) {
+            throw new IllegalArgumentException("新状态不能为空");
+        }
+        if (!state.compareAndSet(expected, next)) {
+            return false;
+        }
+        if (!next.equals(expected)) {
+            fireChanged(expected, next);
+        }
+        return true;
+    }
+
+    public void addListener(SessionStateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(SessionState previous, SessionState current) {
+        for (SessionStateListener listener : listeners) {
+            try {
+                listener.stateChanged(previous, current);
+            } catch (RuntimeException e) {
+                System.out.println("状态监听器执行失败: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.ui;
+
+import javax.swing.Timer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * 通知调度器：所有通知进入同一个队列，到期和切换由一个单次触发的定时器驱动，不为每条通知创建线程或定时器。
+ * <ul>
+ *     <li>与正在显示或排队中的通知内容相同时合并为一条并显示次数（如“×3”），正在显示的那条顺延到期时间；</li>
+ *     <li>有通知排队时，当前通知至少显示minDisplayMillis后即切换到下一条，连续点击不会排起长队；</li>
+ *     <li>队列已满时丢弃最早排队的通知；</li>
+ *     <li>全部到期后调用Display.clear()，由界面恢复它此刻的状态文本，而不是恢复显示通知前保存的旧文本。</li>
+ * </ul>
+ * 非线程安全，只应在界面线程（Swing的EDT或JavaFX应用线程）上调用，Ticker也应在界面线程上回调。
+ */
+public final class NotificationScheduler {
+    public static final long DEFAULT_DISPLAY_MILLIS = 2000;
+    public static final long DEFAULT_MIN_DISPLAY_MILLIS = 600;
+    public static final int DEFAULT_MAX_QUEUED = 8;
+
+    /** 通知的显示位置 */
+    public interface Display {
+        void show(String text);
+
+        /** 没有通知可显示，恢复正常内容 */
+        void clear();
+    }
+
+    /** 单一定时器：schedule取代之前安排的触发，到期时在界面线程上执行action */
+    public interface Ticker {
+        void schedule(long delayMillis, Runnable action);
+
+        void cancel();
+    }
+
+    private final Display display;
+    private final Ticker ticker;
+    private final long displayMillis;
+    private final long minDisplayMillis;
+    private final int maxQueued;
+    private final Runnable tick = this::tick;
+
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private Entry current;
+
+    private long posted;
+    private long merged;
+    private long dropped;
+    private long shown;
+
+    public NotificationScheduler(Display display, Ticker ticker) {
+        this(display, ticker, DEFAULT_DISPLAY_MILLIS, DEFAULT_MIN_DISPLAY_MILLIS, DEFAULT_MAX_QUEUED);
+    }
+
+    public NotificationScheduler(Display display, Ticker ticker, long displayMillis,
+                                 long minDisplayMillis, int maxQueued) {
+        if (displayMillis <= 0 || minDisplayMillis < 0 || minDisplayMillis > displayMillis) {
+            throw new IllegalArgumentException("无效的显示时长: " + displayMillis + "/" + minDisplayMillis);
+        }
+        if (maxQueued <= 0) {
+            throw new IllegalArgumentException("队列长度必须为正数: " + maxQueued);
+        }
+        this.display = Objects.requireNonNull(display, "display");
+        this.ticker = Objects.requireNonNull(ticker, "ticker");
+        this.displayMillis = displayMillis;
+        this.minDisplayMillis = minDisplayMillis;
+        this.maxQueued = maxQueued;
+    }
+
+    /** 使用一个javax.swing.Timer驱动的调度器 */
+    public static NotificationScheduler forSwing(Display display) {
+        return new NotificationScheduler(display, new SwingTicker());
+    }
+
+    /** 提交一条通知 */
+    public void post(String message) {
+        Objects.requireNonNull(message, "message");
+        posted++;
+        long now = now();
+        if (current != null && current.message.equals(message)) {
+            current.count++;
+            current.expiresAt = now + displayMillis;
+            merged++;
+            display.show(current.text());
+            reschedule(now);
+            return;
+        }
+        for (Entry entry : queue) {
+            if (entry.message.equals(message)) {
+                entry.count++;
+                merged++;
+                return;
+            }
+        }
+        if (queue.size() == maxQueued) {
+            queue.pollFirst();
+            dropped++;
+        }
+        queue.addLast(new Entry(message));
+        if (current == null) {
+            advance(now);
+        } else {
+            reschedule(now);
+        }
+    }
+
+    /** 丢弃所有通知并恢复正常内容 */
+    public void clear() {
+        queue.clear();
+        if (current != null) {
+            current = null;
+            display.clear();
+        }
+        ticker.cancel();
+    }
+
+    /** 是否正在显示通知 */
+    public boolean isShowing() {
+        return current != null;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void tick() {
+        if (current == null) {
+            return;
+        }
+        long now = now();
+        if (now < deadline()) {
+            // 定时器提前触发，或到期时间已被顺延
+            reschedule(now);
+        } else {
+            advance(now);
+        }
+    }
+
+    private void advance(long now) {
+        current = queue.pollFirst();
+        if (current == null) {
+            ticker.cancel();
+            display.clear();
+            return;
+        }
+        current.shownAt = now;
+        current.expiresAt = now + displayMillis;
+        shown++;
+        display.show(current.text());
+        reschedule(now);
+    }
+
+    private void reschedule(long now) {
+        ticker.schedule(Math.max(0, deadline() - now), tick);
+    }
+
+    /** 当前通知应让位的时间：正常到期，或有排队时显示满最短时长 */
+    private long deadline() {
+        return queue.isEmpty() ? current.expiresAt : Math.min(current.expiresAt, current.shownAt + minDisplayMillis);
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("通知: 提交 %d, 合并 %d, 显示 %d, 丢弃 %d", posted, merged, shown, dropped);
+    }
+
+    private static final class Entry {
+        private final String message;
+        private int count = 1;
+        private long shownAt;
+        private long expiresAt;
+
+        Entry(String message) {
+            this.message = message;
+        }
+
+        String text() {
+            return count > 1 ? message + " ×" + count : message;
+        }
+    }
+
+    private static final class SwingTicker implements Ticker {
+        private final Timer timer;
+        private Runnable action;
+
+        SwingTicker() {
+            timer = new Timer(0, e -> action.run());
+            timer.setRepeats(false);
+        }
+
+        @Override
+        public void schedule(long delayMillis, Runnable action) {
+            this.action = action;
+            timer.setInitialDelay((int) Math.min(delayMillis, Integer.MAX_VALUE));
+            timer.restart();
+        }
+
+        @Override
+        public void cancel() {
+            timer.stop();
+        }
+    }
+}
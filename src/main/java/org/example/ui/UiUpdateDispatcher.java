@@ -0,0 +1,171 @@
+package org.example.ui;
+
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并式界面更新调度器：任意线程提交的更新按(组件, 属性)合并，只保留最新值，
+ * 每个刷新周期最多在EDT上执行一批；文本或颜色与组件当前值相同时跳过。
+ * 分析管线以较高帧率运行时，EDT上的任务数与刷新频率成正比，而不是与提交次数成正比。
+ */
+public final class UiUpdateDispatcher {
+    /** 默认刷新周期，约一帧显示刷新时间 */
+    public static final int DEFAULT_INTERVAL_MILLIS = 16;
+
+    private final Map<Key, Update> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Timer timer;
+    private final int intervalMillis;
+    // 在EDT上写入，schedule()可能在任意线程读取
+    private volatile long lastFlushMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public UiUpdateDispatcher() {
+        this(DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public UiUpdateDispatcher(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("刷新周期不能为负数: " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+        // 单次触发的Timer，有待处理的更新时才启动，空闲时不占用EDT
+        this.timer = new Timer(intervalMillis, e -> flush());
+        this.timer.setRepeats(false);
+    }
+
+    /** 设置标签文本，与当前文本相同时不做任何修改 */
+    public void setText(JLabel label, String text) {
+        enqueue(label, "text", () -> {
+            if (!Objects.equals(label.getText(), text)) {
+                label.setText(text);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /** 设置前景色，与当前颜色相同时不做任何修改 */
+    public void setForeground(JComponent component, Color color) {
+        enqueue(component, "foreground", () -> {
+            if (!Objects.equals(component.getForeground(), color)) {
+                component.setForeground(color);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 提交任意更新。同一owner和property的未执行更新会被新的更新替换。
+     */
+    public void submit(Object owner, String property, Runnable update) {
+        enqueue(owner, property, () -> {
+            update.run();
+            return true;
+        });
+    }
+
+    private void enqueue(Object owner, String property, Update update) {
+        submitted.incrementAndGet();
+        if (pending.put(new Key(owner, property), update) != null) {
+            coalesced.incrementAndGet();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        // 距上一批已超过一个周期时尽快执行，否则等到周期结束；Timer的方法可在任意线程调用
+        long wait = intervalMillis - (System.currentTimeMillis() - lastFlushMillis);
+        timer.setInitialDelay((int) Math.max(0, Math.min(intervalMillis, wait)));
+        timer.restart();
+    }
+
+    /** 在EDT上执行当前所有待处理更新 */
+    private void flush() {
+        lastFlushMillis = System.currentTimeMillis();
+        // 先清除标记再取出更新，之后提交的更新会安排下一批而不会丢失
+        scheduled.set(false);
+        batches.incrementAndGet();
+        Iterator<Map.Entry<Key, Update>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Update> entry = it.next();
+            Update update = entry.getValue();
+            // 只移除取到的这一个，期间被替换的新值留到下一批
+            if (!pending.remove(entry.getKey(), update)) {
+                continue;
+            }
+            try {
+                if (update.apply()) {
+                    applied.incrementAndGet();
+                } else {
+                    skipped.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                System.out.println("界面更新失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /** 立即在EDT上执行所有待处理更新，用于关闭前 */
+    public void flushNow() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            timer.stop();
+            flush();
+        } else {
+            SwingUtilities.invokeLater(this::flushNow);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("界面更新: 提交 %d, 合并 %d, 执行 %d, 无变化跳过 %d, 批次 %d",
+                submitted.get(), coalesced.get(), applied.get(), skipped.get(), batches.get());
+    }
+
+    /** 返回true表示组件确实被修改 */
+    private interface Update {
+        boolean apply();
+    }
+
+    private static final class Key {
+        private final Object owner;
+        private final String property;
+
+        Key(Object owner, String property) {
+            this.owner = Objects.requireNonNull(owner, "owner");
+            this.property = Objects.requireNonNull(property, "property");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            // 组件按同一实例区分
+            return owner == other.owner && property.equals(other.property);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(owner) * 31 + property.hashCode();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.ui;
+
+import org.example.video.TileCompositor;
+import org.example.video.TileMode;
+
+import javax.swing.JComponent;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 显示一路视频的组件，所有内容由TileCompositor合成到后备缓冲区，绘制时只拷贝脏区域。
+ * 切换摄像头、背景模糊和虚拟形象模式只改变合成方式，不增删子组件。
+ * setFrame可在任意线程调用，只保留最新一帧，合成在EDT的下一次绘制中进行；其他方法只应在EDT上调用。
+ */
+public final class VideoTile extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private final TileCompositor compositor = new TileCompositor();
+    private final AtomicReference<BufferedImage> pendingFrame = new AtomicReference<>();
+    private volatile TileMode mode = TileMode.CAMERA;
+
+    public VideoTile(int width, int height) {
+        setPreferredSize(new Dimension(width, height));
+        setOpaque(true);
+        // 后备缓冲区已经是完整画面，不需要Swing再做一次双缓冲
+        setDoubleBuffered(false);
+    }
+
+    /** 提交新的一帧；虚拟形象模式下直接丢弃，不触发重绘 */
+    public void setFrame(BufferedImage frame) {
+        if (mode == TileMode.AVATAR) {
+            return;
+        }
+        pendingFrame.set(frame);
+        repaint();
+    }
+
+    public void setMode(TileMode mode) {
+        this.mode = mode;
+        compositor.setMode(mode);
+        repaintDirty();
+    }
+
+    public void setMirrored(boolean mirrored) {
+        compositor.setMirrored(mirrored);
+        repaintDirty();
+    }
+
+    public void setBlurRadius(int radius) {
+        compositor.setBlurRadius(radius);
+        repaintDirty();
+    }
+
+    public void setAvatar(BufferedImage avatar) {
+        compositor.setAvatar(avatar);
+        repaintDirty();
+    }
+
+    public void setCaption(String caption) {
+        compositor.setCaption(caption);
+        repaintDirty();
+    }
+
+    private void repaintDirty() {
+        Rectangle dirty = compositor.getDirty();
+        if (!dirty.isEmpty()) {
+            repaint(dirty);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        compositor.setSize(getWidth(), getHeight());
+        BufferedImage frame = pendingFrame.getAndSet(null);
+        if (frame != null) {
+            compositor.setFrame(frame);
+        }
+        compositor.compose();
+        BufferedImage back = compositor.getBackBuffer();
+        if (back != null) {
+            g.drawImage(back, 0, 0, null);
+        }
+    }
+
+    /** 合成统计 */
+    public String report() {
+        return compositor.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.video;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应分析频率调度：画面静止或用户离开时逐步降低分析频率，出现运动时立即恢复到最高频率，
+ * 同时根据分析线程实际消耗的CPU时间把频率限制在CPU预算以内。
+ * 采集频率也随之降低：画面静止或用户离开时采集间隔跟随分析间隔放宽，但不超过maxCaptureIntervalMillis，
+ * 出现运动时和分析频率一起恢复。
+ * 只应由分析线程调用reportActivity/onAnalyzed，其他线程可以读取统计值。
+ */
+public final class AdaptiveAnalysisScheduler {
+    /** 运动比例超过此值视为画面有动作 */
+    public static final double ACTIVE_MOTION_RATIO = 0.02;
+    private static final double BACKOFF_FACTOR = 1.5;
+    private static final double CPU_SMOOTHING = 0.2;
+
+    private final long minIntervalNanos;
+    private final long idleIntervalNanos;
+    private final long awayIntervalNanos;
+    private final long maxCaptureIntervalNanos;
+    private final double cpuBudget;
+
+    private long activityIntervalNanos;
+    private volatile long intervalNanos;
+    private volatile long captureIntervalNanos;
+    private volatile double cpuNanosPerAnalysis;
+    private volatile double cpuPercent;
+
+    /**
+     * 只调整分析频率，采集频率保持不变。
+     */
+    public AdaptiveAnalysisScheduler(long minIntervalMillis, long idleIntervalMillis,
+                                     long awayIntervalMillis, double cpuBudgetPercent) {
+        this(minIntervalMillis, idleIntervalMillis, awayIntervalMillis, 0, cpuBudgetPercent);
+    }
+
+    /**
+     * @param minIntervalMillis        有动作时的分析间隔
+     * @param idleIntervalMillis       画面静止时逐步放宽到的间隔
+     * @param awayIntervalMillis       用户离开时的间隔
+     * @param maxCaptureIntervalMillis 静止或离开时采集间隔的上限，0表示不降低采集频率
+     * @param cpuBudgetPercent         分析线程允许占用单核CPU的百分比
+     */
+    public AdaptiveAnalysisScheduler(long minIntervalMillis, long idleIntervalMillis, long awayIntervalMillis,
+                                     long maxCaptureIntervalMillis, double cpuBudgetPercent) {
+        if (minIntervalMillis <= 0 || idleIntervalMillis < minIntervalMillis || awayIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("无效的分析间隔: " + minIntervalMillis + "/"
+                    + idleIntervalMillis + "/" + awayIntervalMillis);
+        }
+        if (maxCaptureIntervalMillis < 0) {
+            throw new IllegalArgumentException("无效的采集间隔上限: " + maxCaptureIntervalMillis);
+        }
+        if (cpuBudgetPercent <= 0 || cpuBudgetPercent > 100) {
+            throw new IllegalArgumentException("CPU预算应在(0, 100]之间: " + cpuBudgetPercent);
+        }
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.idleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(idleIntervalMillis);
+        this.awayIntervalNanos = TimeUnit.MILLISECONDS.toNanos(awayIntervalMillis);
+        this.maxCaptureIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxCaptureIntervalMillis);
+        this.cpuBudget = cpuBudgetPercent / 100.0;
+        this.activityIntervalNanos = minIntervalNanos;
+        this.intervalNanos = minIntervalNanos;
+    }
+
+    /**
+     * 报告本次分析得到的场景活跃程度，在分析处理函数中调用。
+     */
+    public void reportActivity(double motionRatio, boolean away) {
+        if (away) {
+            activityIntervalNanos = awayIntervalNanos;
+        } else if (motionRatio > ACTIVE_MOTION_RATIO) {
+            // 出现动作立即恢复最高频率
+            activityIntervalNanos = minIntervalNanos;
+        } else {
+            activityIntervalNanos = Math.min(idleIntervalNanos,
+                    Math.max(minIntervalNanos, (long) (activityIntervalNanos * BACKOFF_FACTOR)));
+        }
+        // 有动作时不限制采集，由管线按目标帧率采集；静止后采集间隔跟随分析间隔放宽
+        captureIntervalNanos = activityIntervalNanos == minIntervalNanos
+                ? 0 : Math.min(activityIntervalNanos, maxCaptureIntervalNanos);
+    }
+
+    /**
+     * 记录一次分析的CPU耗时，并计算下一次分析前应等待的间隔。cpuNanos小于0表示无法测量线程CPU时间。
+     */
+    public void onAnalyzed(long cpuNanos) {
+        if (cpuNanos >= 0) {
+            double smoothed = cpuNanosPerAnalysis;
+            smoothed = smoothed == 0 ? cpuNanos : smoothed + CPU_SMOOTHING * (cpuNanos - smoothed);
+            cpuNanosPerAnalysis = smoothed;
+        }
+        // 每次分析的CPU耗时 / 间隔 ≤ 预算
+        long budgetInterval = (long) (cpuNanosPerAnalysis / cpuBudget);
+        long next = Math.max(activityIntervalNanos, budgetInterval);
+        intervalNanos = next;
+        cpuPercent = 100.0 * cpuNanosPerAnalysis / next;
+    }
+
+    public long nextIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /** 建议的最小采集间隔，0表示按管线的目标帧率采集 */
+    public long nextCaptureIntervalNanos() {
+        return captureIntervalNanos;
+    }
+
+    public long getIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    /** 按当前间隔估算的分析线程CPU占用（单核百分比） */
+    public double getEstimatedCpuPercent() {
+        return cpuPercent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("分析间隔 %d ms, 采集间隔下限 %d ms, 单次CPU %.2f ms, 预计占用 %.1f%%/%.1f%%",
+                getIntervalMillis(), TimeUnit.NANOSECONDS.toMillis(captureIntervalNanos),
+                cpuNanosPerAnalysis / 1e6, cpuPercent, cpuBudget * 100);
+    }
+}
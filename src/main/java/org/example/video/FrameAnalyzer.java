@@ -0,0 +1,181 @@
+package org.example.video;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * 帧分析引擎：基于多分辨率金字塔计算亮度和运动。
+ * <ol>
+ *     <li>在1/8层上覆盖整幅画面，统计整体亮度和帧间差异，并用运动像素的质心跟踪感兴趣区域(ROI)；</li>
+ *     <li>在1/2层上只对ROI做精细统计，得到用于状态判断的平均亮度和运动比例。</li>
+ * </ol>
+ * 用户偏离画面中心时ROI会跟随移动，且总计算量低于原来在全分辨率上裁剪中心区域的做法。
+ * 逐像素统计由FrameStatsKernel完成，可用时使用向量实现。
+ * 前一帧的金字塔与当前帧交换复用，稳定运行时每帧不分配对象。非线程安全，应由单一分析线程使用。
+ */
+public final class FrameAnalyzer {
+    public static final int DEFAULT_MOTION_THRESHOLD = 30;
+
+    /** ROI尺寸占画面的比例（头肩区域） */
+    private static final double ROI_WIDTH_FRACTION = 0.25;
+    private static final double ROI_HEIGHT_FRACTION = 0.35;
+    /** 1/8层上至少有这么多运动像素才移动ROI，避免噪声把ROI拉走 */
+    private static final int MIN_TRACKING_PIXELS = 4;
+    private static final double ROI_FOLLOW_RATE = 0.5;
+
+    private final int motionThreshold;
+    private final FrameStatsKernel kernel;
+    private final FrameStats stats = new FrameStats();
+
+    private FramePyramid current = new FramePyramid();
+    private FramePyramid previous = new FramePyramid();
+    private boolean hasPrevious;
+
+    // ROI中心，以原始帧坐标表示；负值表示尚未初始化
+    private double roiCenterX = -1;
+    private double roiCenterY = -1;
+    private int roiX;
+    private int roiY;
+    private int roiWidth;
+    private int roiHeight;
+
+    // 最近一次分析结果
+    private int averageBrightness;
+    private double motionRatio;
+    private int sceneBrightness;
+    private double sceneMotionRatio;
+    private int sampledPixels;
+
+    public FrameAnalyzer() {
+        this(DEFAULT_MOTION_THRESHOLD);
+    }
+
+    public FrameAnalyzer(int motionThreshold) {
+        this(motionThreshold, FrameStatsKernels.best());
+    }
+
+    public FrameAnalyzer(int motionThreshold, FrameStatsKernel kernel) {
+        this.motionThreshold = motionThreshold;
+        this.kernel = kernel;
+    }
+
+    /**
+     * 分析一帧。返回true表示本帧与前一帧做了运动比较。
+     */
+    public boolean analyze(BufferedImage frame) {
+        current.build(frame);
+        boolean compared = hasPrevious && current.sameGeometry(previous);
+        if (!compared) {
+            roiCenterX = -1;
+        }
+
+        analyzeScene(compared);
+        analyzeRoi(compared);
+
+        // 交换金字塔，当前帧成为下一次比较的前一帧
+        FramePyramid swap = previous;
+        previous = current;
+        current = swap;
+        hasPrevious = true;
+        return compared;
+    }
+
+    /** 1/8层整幅画面：整体亮度、运动比例，并更新ROI中心 */
+    private void analyzeScene(boolean compared) {
+        int level = FramePyramid.EIGHTH;
+        int w = current.getWidth(level);
+        int h = current.getHeight(level);
+        byte[] cur = current.getPlane(level);
+        byte[] prev = previous.getPlane(level);
+
+        kernel.compute(cur, compared ? prev : null, w, 0, 0, w, h, motionThreshold, false, stats);
+        long moving = stats.getDiffCount();
+        sceneBrightness = stats.getMeanLuma();
+        sceneMotionRatio = stats.getDiffRatio();
+
+        int frameW = current.getFrameWidth();
+        int frameH = current.getFrameHeight();
+        if (roiCenterX < 0) {
+            roiCenterX = frameW / 2.0;
+            roiCenterY = frameH / 2.0;
+        }
+        if (moving >= MIN_TRACKING_PIXELS) {
+            // 1/8层坐标换算回原始帧坐标（像素中心）
+            double targetX = (stats.getDiffSumX() / (double) moving + 0.5) * 8;
+            double targetY = (stats.getDiffSumY() / (double) moving + 0.5) * 8;
+            roiCenterX += ROI_FOLLOW_RATE * (targetX - roiCenterX);
+            roiCenterY += ROI_FOLLOW_RATE * (targetY - roiCenterY);
+        }
+        roiWidth = (int) (frameW * ROI_WIDTH_FRACTION);
+        roiHeight = (int) (frameH * ROI_HEIGHT_FRACTION);
+        roiX = clamp((int) (roiCenterX - roiWidth / 2.0), 0, frameW - roiWidth);
+        roiY = clamp((int) (roiCenterY - roiHeight / 2.0), 0, frameH - roiHeight);
+    }
+
+    /** 1/2层ROI：精细的亮度和运动比例 */
+    private void analyzeRoi(boolean compared) {
+        int level = FramePyramid.HALF;
+        int w = current.getWidth(level);
+        int h = current.getHeight(level);
+        int x0 = Math.min(roiX / 2, w - 1);
+        int y0 = Math.min(roiY / 2, h - 1);
+        int x1 = Math.min(x0 + Math.max(1, roiWidth / 2), w);
+        int y1 = Math.min(y0 + Math.max(1, roiHeight / 2), h);
+        byte[] cur = current.getPlane(level);
+        byte[] prev = previous.getPlane(level);
+
+        kernel.compute(cur, compared ? prev : null, w, x0, y0, x1, y1, motionThreshold, false, stats);
+        sampledPixels = (int) stats.getPixelCount();
+        averageBrightness = stats.getMeanLuma();
+        motionRatio = compared ? stats.getDiffRatio() : 0.0;
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return v < min ? min : (v > max ? max : v);
+    }
+
+    /** 丢弃前一帧，下一帧不做运动比较，ROI回到画面中心 */
+    public void reset() {
+        hasPrevious = false;
+        roiCenterX = -1;
+    }
+
+    /** ROI内的平均亮度（0-255） */
+    public int getAverageBrightness() {
+        return averageBrightness;
+    }
+
+    /** ROI内发生明显变化的像素比例 */
+    public double getMotionRatio() {
+        return motionRatio;
+    }
+
+    /** 整幅画面的平均亮度（1/8层） */
+    public int getSceneBrightness() {
+        return sceneBrightness;
+    }
+
+    /** 整幅画面发生明显变化的像素比例（1/8层） */
+    public double getSceneMotionRatio() {
+        return sceneMotionRatio;
+    }
+
+    /** ROI在1/2层上参与统计的像素数 */
+    public int getSampledPixels() {
+        return sampledPixels;
+    }
+
+    public String getKernelName() {
+        return kernel.getName();
+    }
+
+    /** 当前ROI，原始帧坐标 */
+    public Rectangle getRoi() {
+        return new Rectangle(roiX, roiY, roiWidth, roiHeight);
+    }
+
+    /** 最近一帧的金字塔，供其他检测器复用；内容在下一次analyze时被覆盖 */
+    public FramePyramid getPyramid() {
+        return previous;
+    }
+}
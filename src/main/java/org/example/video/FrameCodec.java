@@ -0,0 +1,104 @@
+package org.example.video;
+
+/**
+ * FrameEncoder和FrameDecoder共用的码流格式和颜色转换。
+ * <p>
+ * 码流：头部（类型1字节、亮度量化位数1字节、宽2字节、高2字节、帧号4字节），
+ * 关键帧之后依次是所有块；增量帧之后是块位图（每块2位：0未变化、1帧间编码、2帧内编码），再依次是有变化的块。
+ * <p>
+ * 图像转为YCbCr 4:2:0后按位数右移量化，色度比亮度多量化1位。每块为16x16亮度加两个8x8色度，
+ * 块内按Y、Cb、Cr顺序逐行排列的样本编码为残差：帧内编码为与重建后的左侧（行首为上方）样本之差，帧间编码为与参考帧之差。
+ * 残差按zigzag映射为非负数后编码为字节：0表示块内其余样本都为0，0x01-0x7F为单个残差，0x80|n为n+1个0。
+ */
+final class FrameCodec {
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final int HEADER_BYTES = 10;
+    static final int BLOCK_INTER = 1;
+    static final int BLOCK_INTRA = 2;
+
+    static final int BLOCK = 16;
+    static final int CHROMA_BLOCK = BLOCK / 2;
+    static final int BLOCK_SAMPLES = BLOCK * BLOCK + 2 * CHROMA_BLOCK * CHROMA_BLOCK;
+
+    /** 量化位数至少为2，残差的zigzag值才不超过0x7F */
+    static final int MIN_LUMA_SHIFT = 2;
+    static final int MAX_LUMA_SHIFT = 5;
+    static final int MAX_DIMENSION = 0xFFFF;
+
+    static final int TOKEN_END = 0;
+    static final int TOKEN_RUN = 0x80;
+    static final int MAX_RUN = 128;
+
+    private FrameCodec() {
+    }
+
+    static int blocksWide(int width) {
+        return (width + BLOCK - 1) / BLOCK;
+    }
+
+    static int blocksHigh(int height) {
+        return (height + BLOCK - 1) / BLOCK;
+    }
+
+    /** 编码一帧最多需要的字节数：每个样本都是单独的残差时 */
+    static int maxEncodedBytes(int width, int height) {
+        int blocks = blocksWide(width) * blocksHigh(height);
+        return HEADER_BYTES + blockMapBytes(blocks) + blocks * (BLOCK_SAMPLES + 1);
+    }
+
+    static int blockMapBytes(int blocks) {
+        return (blocks + 3) / 4;
+    }
+
+    static void checkSize(int width, int height) {
+        if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("无效的帧尺寸: " + width + "x" + height);
+        }
+    }
+
+    static void checkLumaShift(int lumaShift) {
+        if (lumaShift < MIN_LUMA_SHIFT || lumaShift > MAX_LUMA_SHIFT) {
+            throw new IllegalArgumentException("量化位数超出范围[" + MIN_LUMA_SHIFT + ", " + MAX_LUMA_SHIFT + "]: " + lumaShift);
+        }
+    }
+
+    static int zigzag(int r) {
+        return (r << 1) ^ (r >> 31);
+    }
+
+    static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static int luma(int r, int g, int b) {
+        return (77 * r + 150 * g + 29 * b) >> 8;
+    }
+
+    static int cb(int r, int g, int b) {
+        return clamp(((-43 * r - 85 * g + 128 * b) >> 8) + 128);
+    }
+
+    static int cr(int r, int g, int b) {
+        return clamp(((128 * r - 107 * g - 21 * b) >> 8) + 128);
+    }
+
+    /** 量化后的YCbCr转回0xRRGGBB */
+    static int rgb(int y, int cb, int cr) {
+        int c = y << 8;
+        int u = cb - 128;
+        int v = cr - 128;
+        return clamp((c + 359 * v) >> 8) << 16
+                | clamp((c - 88 * u - 183 * v) >> 8) << 8
+                | clamp((c + 454 * u) >> 8);
+    }
+
+    /** 量化级别还原为该级别区间的中点 */
+    static int dequantize(int level, int shift) {
+        return (level << shift) + (1 << shift >> 1);
+    }
+
+    static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+}
@@ -0,0 +1,241 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+
+import static org.example.video.FrameCodec.BLOCK;
+import static org.example.video.FrameCodec.CHROMA_BLOCK;
+import static org.example.video.FrameCodec.TOKEN_END;
+import static org.example.video.FrameCodec.TOKEN_RUN;
+
+/**
+ * FrameEncoder码流的解码器。只重建有变化的块，输出图像在尺寸不变时复用。
+ * 增量帧的帧号与上一帧不连续（丢帧）或还没有收到关键帧时不解码，返回false，调用方应向发送端请求关键帧。
+ * 非线程安全，应由单一解码线程使用。
+ */
+public final class FrameDecoder {
+    private int width;
+    private int height;
+    private int chromaWidth;
+    private int chromaHeight;
+    private int blocksWide;
+    private int blocksHigh;
+    private int lumaShift;
+    private int chromaShift;
+
+    private byte[] luma = new byte[0];
+    private byte[] cb = new byte[0];
+    private byte[] cr = new byte[0];
+    private byte[] blockMap = new byte[0];
+    private BufferedImage image;
+    private int[] pixels;
+
+    private boolean hasReference;
+    private int nextFrameNumber;
+    private int zeroRun;
+    private boolean blockEnded;
+
+    private long lastDecodeNanos;
+    private int lastChangedBlocks;
+
+    /**
+     * 解码从in当前位置开始的一帧，成功时返回true，getImage()为解码后的图像。
+     * 码流无效时抛出IllegalArgumentException或BufferUnderflowException，之后需要新的关键帧。
+     */
+    public boolean decode(ByteBuffer in) {
+        long start = System.nanoTime();
+        byte type = in.get();
+        int shift = in.get();
+        int w = in.getShort() & 0xFFFF;
+        int h = in.getShort() & 0xFFFF;
+        int frameNumber = in.getInt();
+        if (type != FrameCodec.KEYFRAME && type != FrameCodec.DELTA) {
+            throw new IllegalArgumentException("未知的帧类型: " + type);
+        }
+        FrameCodec.checkLumaShift(shift);
+        FrameCodec.checkSize(w, h);
+
+        if (type == FrameCodec.DELTA && (!hasReference || frameNumber != nextFrameNumber
+                || w != width || h != height || shift != lumaShift)) {
+            return false;
+        }
+        // 解码失败时参考帧已部分更新，必须等下一个关键帧
+        hasReference = false;
+        if (type == FrameCodec.KEYFRAME) {
+            resize(w, h);
+            lumaShift = shift;
+            chromaShift = shift + 1;
+            lastChangedBlocks = decodeKeyframe(in);
+        } else {
+            lastChangedBlocks = decodeDelta(in);
+        }
+        hasReference = true;
+        nextFrameNumber = frameNumber + 1;
+        lastDecodeNanos = System.nanoTime() - start;
+        return true;
+    }
+
+    private void resize(int w, int h) {
+        if (w == width && h == height) {
+            return;
+        }
+        width = w;
+        height = h;
+        chromaWidth = (w + 1) / 2;
+        chromaHeight = (h + 1) / 2;
+        blocksWide = FrameCodec.blocksWide(w);
+        blocksHigh = FrameCodec.blocksHigh(h);
+        luma = new byte[w * h];
+        cb = new byte[chromaWidth * chromaHeight];
+        cr = new byte[chromaWidth * chromaHeight];
+        blockMap = new byte[FrameCodec.blockMapBytes(blocksWide * blocksHigh)];
+        image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private int decodeKeyframe(ByteBuffer in) {
+        for (int by = 0; by < blocksHigh; by++) {
+            for (int bx = 0; bx < blocksWide; bx++) {
+                intraBlock(in, bx, by);
+                reconstruct(bx, by);
+            }
+        }
+        return blocksWide * blocksHigh;
+    }
+
+    private int decodeDelta(ByteBuffer in) {
+        in.get(blockMap);
+        int changed = 0;
+        for (int by = 0; by < blocksHigh; by++) {
+            for (int bx = 0; bx < blocksWide; bx++) {
+                int block = by * blocksWide + bx;
+                int mode = (blockMap[block >> 2] >> ((block & 3) * 2)) & 3;
+                if (mode == 0) {
+                    continue;
+                }
+                if (mode == FrameCodec.BLOCK_INTRA) {
+                    intraBlock(in, bx, by);
+                } else if (mode == FrameCodec.BLOCK_INTER) {
+                    startBlock();
+                    interPlane(in, luma, width, height, bx * BLOCK, by * BLOCK, BLOCK, lumaShift);
+                    interPlane(in, cb, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                            CHROMA_BLOCK, chromaShift);
+                    interPlane(in, cr, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                            CHROMA_BLOCK, chromaShift);
+                    endBlock();
+                } else {
+                    throw new IllegalArgumentException("未知的块编码方式: " + mode);
+                }
+                reconstruct(bx, by);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void intraBlock(ByteBuffer in, int bx, int by) {
+        startBlock();
+        intraPlane(in, luma, width, height, bx * BLOCK, by * BLOCK, BLOCK, lumaShift);
+        intraPlane(in, cb, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, chromaShift);
+        intraPlane(in, cr, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, chromaShift);
+        endBlock();
+    }
+
+    private void intraPlane(ByteBuffer in, byte[] levels, int stride, int rows, int x0, int y0, int size, int shift) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        int mid = 128 >> shift;
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                int predicted = x > 0 ? levels[i - 1] : (y > 0 ? levels[i - stride] : mid);
+                levels[i] = level(predicted + nextResidual(in), shift);
+            }
+        }
+    }
+
+    private void interPlane(ByteBuffer in, byte[] levels, int stride, int rows, int x0, int y0, int size, int shift) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                levels[i] = level(levels[i] + nextResidual(in), shift);
+            }
+        }
+    }
+
+    private static byte level(int v, int shift) {
+        if (v < 0 || v > 255 >> shift) {
+            throw new IllegalArgumentException("量化级别超出范围: " + v);
+        }
+        return (byte) v;
+    }
+
+    private void startBlock() {
+        zeroRun = 0;
+        blockEnded = false;
+    }
+
+    private int nextResidual(ByteBuffer in) {
+        if (blockEnded) {
+            return 0;
+        }
+        if (zeroRun > 0) {
+            zeroRun--;
+            return 0;
+        }
+        int token = in.get() & 0xFF;
+        if (token == TOKEN_END) {
+            blockEnded = true;
+            return 0;
+        }
+        if ((token & TOKEN_RUN) != 0) {
+            zeroRun = token & ~TOKEN_RUN;
+            return 0;
+        }
+        return FrameCodec.unzigzag(token);
+    }
+
+    private void endBlock() {
+        if (zeroRun > 0) {
+            throw new IllegalArgumentException("0的游程超出块边界: " + zeroRun);
+        }
+    }
+
+    /** 把一个块的YCbCr转为RGB写入输出图像 */
+    private void reconstruct(int bx, int by) {
+        int x0 = bx * BLOCK;
+        int y0 = by * BLOCK;
+        int x1 = Math.min(x0 + BLOCK, width);
+        int y1 = Math.min(y0 + BLOCK, height);
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            int chromaRow = (y >> 1) * chromaWidth;
+            for (int x = x0; x < x1; x++) {
+                int c = chromaRow + (x >> 1);
+                pixels[row + x] = FrameCodec.rgb(FrameCodec.dequantize(luma[row + x], lumaShift),
+                        FrameCodec.dequantize(cb[c], chromaShift), FrameCodec.dequantize(cr[c], chromaShift));
+            }
+        }
+    }
+
+    /** 最近解码的图像，还没有解码过关键帧时为null；下一次decode会覆盖其内容 */
+    public BufferedImage getImage() {
+        return hasReference ? image : null;
+    }
+
+    public long getLastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    /** 最近一帧重建的块数 */
+    public int getLastChangedBlocks() {
+        return lastChangedBlocks;
+    }
+}
@@ -0,0 +1,394 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.example.video.FrameCodec.BLOCK;
+import static org.example.video.FrameCodec.CHROMA_BLOCK;
+import static org.example.video.FrameCodec.MAX_RUN;
+import static org.example.video.FrameCodec.TOKEN_END;
+import static org.example.video.FrameCodec.TOKEN_RUN;
+
+/**
+ * 低码率帧编码器，码流格式见FrameCodec。
+ * 每keyframeInterval帧或requestKeyframe()之后编码一个关键帧，其余帧只编码与参考帧相比有变化的块。
+ * 参考帧是解码端将会重建出的量化图像，而不是上一帧原图，因此编解码两端不会漂移；
+ * 与参考帧（帧内编码时与预测值）相差不超过DEAD_ZONE个量化级别的样本按0编码，摄像头噪声不会让整块被重新编码。
+ * 所有缓冲区在构造时分配并复用，码流写入调用方提供的（可以是直接）ByteBuffer。
+ * 非线程安全，应由单一编码线程使用。
+ */
+public final class FrameEncoder {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60;
+    public static final int DEFAULT_LUMA_SHIFT = 3;
+    /** 按0编码的残差上限（量化级别） */
+    static final int DEAD_ZONE = 1;
+
+    private final int width;
+    private final int height;
+    private final int chromaWidth;
+    private final int chromaHeight;
+    private final int blocksWide;
+    private final int blocksHigh;
+    private final int keyframeInterval;
+    private final int lumaShift;
+    private final int chromaShift;
+
+    private final int[] rgb;
+    private final int[] rowScratch;
+    private final byte[] lumaLevels;
+    private final byte[] cbLevels;
+    private final byte[] crLevels;
+    private final byte[] refLuma;
+    private final byte[] refCb;
+    private final byte[] refCr;
+    private final byte[] intraLuma;
+    private final byte[] intraCb;
+    private final byte[] intraCr;
+    private final byte[] interBytes = new byte[FrameCodec.BLOCK_SAMPLES + 1];
+    private final byte[] intraBytes = new byte[FrameCodec.BLOCK_SAMPLES + 1];
+    private final byte[] blockMap;
+
+    private boolean keyframeRequested = true;
+    private int frameNumber;
+    private byte[] tokens;
+    private int tokenCount;
+    private int zeroRun;
+    private int nonZero;
+
+    private long frameCount;
+    private long keyframeCount;
+    private long totalBytes;
+    private long keyframeBytes;
+    private long totalEncodeNanos;
+    private long lastEncodeNanos;
+    private int lastChangedBlocks;
+
+    public FrameEncoder(int width, int height) {
+        this(width, height, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_LUMA_SHIFT);
+    }
+
+    /**
+     * @param keyframeInterval 关键帧间隔（帧数），1表示每帧都是关键帧
+     * @param lumaShift        亮度量化位数，越大码率越低、画质越差；色度多量化1位
+     */
+    public FrameEncoder(int width, int height, int keyframeInterval, int lumaShift) {
+        FrameCodec.checkSize(width, height);
+        FrameCodec.checkLumaShift(lumaShift);
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("关键帧间隔必须为正数: " + keyframeInterval);
+        }
+        this.width = width;
+        this.height = height;
+        this.chromaWidth = (width + 1) / 2;
+        this.chromaHeight = (height + 1) / 2;
+        this.blocksWide = FrameCodec.blocksWide(width);
+        this.blocksHigh = FrameCodec.blocksHigh(height);
+        this.keyframeInterval = keyframeInterval;
+        this.lumaShift = lumaShift;
+        this.chromaShift = lumaShift + 1;
+        this.rgb = new int[width * height];
+        this.rowScratch = new int[width];
+        this.lumaLevels = new byte[width * height];
+        this.cbLevels = new byte[chromaWidth * chromaHeight];
+        this.crLevels = new byte[chromaWidth * chromaHeight];
+        this.refLuma = new byte[lumaLevels.length];
+        this.refCb = new byte[cbLevels.length];
+        this.refCr = new byte[crLevels.length];
+        this.intraLuma = new byte[lumaLevels.length];
+        this.intraCb = new byte[cbLevels.length];
+        this.intraCr = new byte[crLevels.length];
+        this.blockMap = new byte[FrameCodec.blockMapBytes(blocksWide * blocksHigh)];
+    }
+
+    /** 编码一帧最多需要的字节数，输出缓冲区的剩余空间至少应为此值 */
+    public int maxEncodedBytes() {
+        return FrameCodec.maxEncodedBytes(width, height);
+    }
+
+    /** 下一帧编码为关键帧，例如新成员加入或对端报告丢帧时 */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * 编码一帧，从out的当前位置写入，返回写入的字节数。
+     * 剩余空间不足maxEncodedBytes()时抛出IllegalArgumentException，此时编码器状态不变。
+     */
+    public int encode(BufferedImage image, ByteBuffer out) {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("帧尺寸与编码器不一致: " + image.getWidth() + "x" + image.getHeight());
+        }
+        if (out.remaining() < maxEncodedBytes()) {
+            throw new IllegalArgumentException("输出缓冲区不足: " + out.remaining() + " < " + maxEncodedBytes());
+        }
+        long start = System.nanoTime();
+        Rasters.readRgb(image, rgb, rowScratch);
+        quantize();
+
+        boolean keyframe = keyframeRequested || frameNumber % keyframeInterval == 0;
+        int begin = out.position();
+        out.put(keyframe ? FrameCodec.KEYFRAME : FrameCodec.DELTA)
+                .put((byte) lumaShift)
+                .putShort((short) width)
+                .putShort((short) height)
+                .putInt(frameNumber);
+        int changed = keyframe ? encodeKeyframe(out) : encodeDelta(out);
+
+        keyframeRequested = false;
+        frameNumber++;
+        int bytes = out.position() - begin;
+        lastEncodeNanos = System.nanoTime() - start;
+        lastChangedBlocks = changed;
+        frameCount++;
+        totalBytes += bytes;
+        totalEncodeNanos += lastEncodeNanos;
+        if (keyframe) {
+            keyframeCount++;
+            keyframeBytes += bytes;
+        }
+        return bytes;
+    }
+
+    /** RGB转为量化后的Y和2x2平均后的Cb、Cr */
+    private void quantize() {
+        for (int i = 0; i < rgb.length; i++) {
+            int p = rgb[i];
+            lumaLevels[i] = (byte) (FrameCodec.luma((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF) >> lumaShift);
+        }
+        for (int cy = 0; cy < chromaHeight; cy++) {
+            int y0 = cy * 2;
+            int y1 = Math.min(y0 + 1, height - 1);
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                int x0 = cx * 2;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int p00 = rgb[y0 * width + x0];
+                int p01 = rgb[y0 * width + x1];
+                int p10 = rgb[y1 * width + x0];
+                int p11 = rgb[y1 * width + x1];
+                int r = (((p00 >> 16) & 0xFF) + ((p01 >> 16) & 0xFF) + ((p10 >> 16) & 0xFF) + ((p11 >> 16) & 0xFF) + 2) >> 2;
+                int g = (((p00 >> 8) & 0xFF) + ((p01 >> 8) & 0xFF) + ((p10 >> 8) & 0xFF) + ((p11 >> 8) & 0xFF) + 2) >> 2;
+                int b = ((p00 & 0xFF) + (p01 & 0xFF) + (p10 & 0xFF) + (p11 & 0xFF) + 2) >> 2;
+                int i = cy * chromaWidth + cx;
+                cbLevels[i] = (byte) (FrameCodec.cb(r, g, b) >> chromaShift);
+                crLevels[i] = (byte) (FrameCodec.cr(r, g, b) >> chromaShift);
+            }
+        }
+    }
+
+    private int encodeKeyframe(ByteBuffer out) {
+        for (int by = 0; by < blocksHigh; by++) {
+            for (int bx = 0; bx < blocksWide; bx++) {
+                intraBlock(bx, by, refLuma, refCb, refCr);
+                out.put(intraBytes, 0, tokenCount);
+            }
+        }
+        return blocksWide * blocksHigh;
+    }
+
+    /**
+     * 有变化的块分别按帧间和帧内编码，取较短的一种：整体亮度渐变时帧内编码更短，噪声大的静止背景则相反。
+     * 先留出块位图的位置，块数据写完后再回填。
+     */
+    private int encodeDelta(ByteBuffer out) {
+        int mapAt = out.position();
+        out.position(mapAt + blockMap.length);
+        Arrays.fill(blockMap, (byte) 0);
+        int changed = 0;
+        for (int by = 0; by < blocksHigh; by++) {
+            for (int bx = 0; bx < blocksWide; bx++) {
+                interBlock(bx, by);
+                if (nonZero == 0) {
+                    continue;
+                }
+                int interCount = tokenCount;
+                intraBlock(bx, by, intraLuma, intraCb, intraCr);
+                int mode;
+                if (tokenCount < interCount) {
+                    forEachPlane(bx, by, this::copyIntra);
+                    out.put(intraBytes, 0, tokenCount);
+                    mode = FrameCodec.BLOCK_INTRA;
+                } else {
+                    forEachPlane(bx, by, this::applyInter);
+                    out.put(interBytes, 0, interCount);
+                    mode = FrameCodec.BLOCK_INTER;
+                }
+                int block = by * blocksWide + bx;
+                blockMap[block >> 2] |= (byte) (mode << ((block & 3) * 2));
+                changed++;
+            }
+        }
+        out.put(mapAt, blockMap);
+        return changed;
+    }
+
+    /** 块在一个平面上的区域 */
+    private interface PlaneRegion {
+        void visit(byte[] levels, byte[] ref, byte[] intra, int stride, int rows, int x0, int y0, int size, int mid);
+    }
+
+    private void forEachPlane(int bx, int by, PlaneRegion region) {
+        region.visit(lumaLevels, refLuma, intraLuma, width, height, bx * BLOCK, by * BLOCK, BLOCK, 128 >> lumaShift);
+        region.visit(cbLevels, refCb, intraCb, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, 128 >> chromaShift);
+        region.visit(crLevels, refCr, intraCr, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, 128 >> chromaShift);
+    }
+
+    /** 帧内编码一个块到intraBytes，重建结果写入给定的三个平面 */
+    private void intraBlock(int bx, int by, byte[] luma, byte[] cb, byte[] cr) {
+        startBlock(intraBytes);
+        intraPlane(lumaLevels, luma, width, height, bx * BLOCK, by * BLOCK, BLOCK, 128 >> lumaShift);
+        intraPlane(cbLevels, cb, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, 128 >> chromaShift);
+        intraPlane(crLevels, cr, chromaWidth, chromaHeight, bx * CHROMA_BLOCK, by * CHROMA_BLOCK,
+                CHROMA_BLOCK, 128 >> chromaShift);
+        endBlock();
+    }
+
+    /** 帧间编码一个块到interBytes，不修改参考帧 */
+    private void interBlock(int bx, int by) {
+        startBlock(interBytes);
+        forEachPlane(bx, by, this::interPlane);
+        endBlock();
+    }
+
+    /**
+     * 与重建后的左侧样本之差，行首与上方样本之差，块的第一个样本与中间值之差。
+     * 差不超过DEAD_ZONE时按0编码，重建误差不超过DEAD_ZONE且不会沿行累积。
+     */
+    private void intraPlane(byte[] levels, byte[] recon, int stride, int rows, int x0, int y0, int size, int mid) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                int predicted = x > 0 ? recon[i - 1] : (y > 0 ? recon[i - stride] : mid);
+                int r = levels[i] - predicted;
+                if (r <= DEAD_ZONE && r >= -DEAD_ZONE) {
+                    r = 0;
+                }
+                recon[i] = (byte) (predicted + r);
+                emit(r);
+            }
+        }
+    }
+
+    /** 与参考帧之差，死区内的样本按0编码 */
+    private void interPlane(byte[] levels, byte[] ref, byte[] intra, int stride, int rows, int x0, int y0,
+                            int size, int mid) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                int r = levels[i] - ref[i];
+                emit(r <= DEAD_ZONE && r >= -DEAD_ZONE ? 0 : r);
+            }
+        }
+    }
+
+    /** 帧间编码被选中后更新参考帧，死区内的样本保持不变 */
+    private void applyInter(byte[] levels, byte[] ref, byte[] intra, int stride, int rows, int x0, int y0,
+                            int size, int mid) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                int r = levels[i] - ref[i];
+                if (r > DEAD_ZONE || r < -DEAD_ZONE) {
+                    ref[i] = levels[i];
+                }
+            }
+        }
+    }
+
+    /** 帧内编码被选中后把重建结果复制到参考帧 */
+    private void copyIntra(byte[] levels, byte[] ref, byte[] intra, int stride, int rows, int x0, int y0,
+                           int size, int mid) {
+        int w = Math.min(size, stride - x0);
+        int h = Math.min(size, rows - y0);
+        for (int y = 0; y < h; y++) {
+            int row = (y0 + y) * stride + x0;
+            System.arraycopy(intra, row, ref, row, w);
+        }
+    }
+
+    private void startBlock(byte[] target) {
+        tokens = target;
+        tokenCount = 0;
+        zeroRun = 0;
+        nonZero = 0;
+    }
+
+    private void emit(int residual) {
+        if (residual == 0) {
+            zeroRun++;
+            return;
+        }
+        flushRun();
+        tokens[tokenCount++] = (byte) FrameCodec.zigzag(residual);
+        nonZero++;
+    }
+
+    private void flushRun() {
+        while (zeroRun > 0) {
+            int n = Math.min(zeroRun, MAX_RUN);
+            tokens[tokenCount++] = (byte) (TOKEN_RUN | (n - 1));
+            zeroRun -= n;
+        }
+    }
+
+    /** 块末尾的连续0用一个结束符代替 */
+    private void endBlock() {
+        if (zeroRun > 0) {
+            tokens[tokenCount++] = TOKEN_END;
+            zeroRun = 0;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /** 最近一帧的编码耗时（纳秒），含读取像素和颜色转换 */
+    public long getLastEncodeNanos() {
+        return lastEncodeNanos;
+    }
+
+    /** 最近一帧编码的块数，关键帧为全部块 */
+    public int getLastChangedBlocks() {
+        return lastChangedBlocks;
+    }
+
+    @Override
+    public String toString() {
+        long deltas = frameCount - keyframeCount;
+        return String.format("帧编码 %dx%d: %d 帧(关键帧 %d), 平均 %.0f 字节/帧(关键帧 %.0f, 增量帧 %.0f), 平均编码 %.2f ms",
+                width, height, frameCount, keyframeCount,
+                frameCount == 0 ? 0.0 : (double) totalBytes / frameCount,
+                keyframeCount == 0 ? 0.0 : (double) keyframeBytes / keyframeCount,
+                deltas == 0 ? 0.0 : (double) (totalBytes - keyframeBytes) / deltas,
+                frameCount == 0 ? 0.0 : totalEncodeNanos / 1e6 / frameCount);
+    }
+}
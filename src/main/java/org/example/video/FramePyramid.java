@@ -0,0 +1,101 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 多分辨率亮度金字塔：每帧生成1/2、1/4、1/8三层降采样亮度平面（2x2均值）。
+ * 1/2层在读取光栅的同时完成降采样，不会产生全分辨率的亮度平面；各层缓冲区在尺寸不变时复用。
+ * 奇数尺寸时丢弃最后一行/列。非线程安全。
+ */
+public final class FramePyramid {
+    public static final int HALF = 1;
+    public static final int QUARTER = 2;
+    public static final int EIGHTH = 3;
+    public static final int LEVELS = 3;
+
+    private final int[] widths = new int[LEVELS + 1];
+    private final int[] heights = new int[LEVELS + 1];
+    private final byte[][] planes = new byte[LEVELS + 1][];
+    private int[] rowScratch = new int[0];
+
+    /**
+     * 从一帧图像构建金字塔。
+     */
+    public void build(BufferedImage frame) {
+        int w = frame.getWidth();
+        int h = frame.getHeight();
+        ensureSize(w, h);
+
+        // 第1层：读取光栅时直接做2x2平均
+        Rasters.readHalfLuma(frame, planes[HALF], rowScratch);
+        for (int level = QUARTER; level <= LEVELS; level++) {
+            downsample(planes[level - 1], widths[level - 1], planes[level], widths[level], heights[level]);
+        }
+    }
+
+    private static void downsample(byte[] src, int sw, byte[] dst, int dw, int dh) {
+        for (int y = 0; y < dh; y++) {
+            int row0 = 2 * y * sw;
+            int row1 = row0 + sw;
+            int out = y * dw;
+            for (int x = 0; x < dw; x++) {
+                int i = 2 * x;
+                dst[out + x] = (byte) (((src[row0 + i] & 0xFF) + (src[row0 + i + 1] & 0xFF)
+                        + (src[row1 + i] & 0xFF) + (src[row1 + i + 1] & 0xFF) + 2) >> 2);
+            }
+        }
+    }
+
+    private void ensureSize(int w, int h) {
+        if (widths[0] == w && heights[0] == h && planes[HALF] != null) {
+            return;
+        }
+        if (w < 16 || h < 16) {
+            throw new IllegalArgumentException("帧尺寸过小，无法生成金字塔: " + w + "x" + h);
+        }
+        widths[0] = w;
+        heights[0] = h;
+        for (int level = 1; level <= LEVELS; level++) {
+            widths[level] = widths[level - 1] / 2;
+            heights[level] = heights[level - 1] / 2;
+            planes[level] = new byte[widths[level] * heights[level]];
+        }
+        rowScratch = new int[2 * w];
+    }
+
+    /** 原始帧宽度（第0层） */
+    public int getFrameWidth() {
+        return widths[0];
+    }
+
+    public int getFrameHeight() {
+        return heights[0];
+    }
+
+    public int getWidth(int level) {
+        checkLevel(level);
+        return widths[level];
+    }
+
+    public int getHeight(int level) {
+        checkLevel(level);
+        return heights[level];
+    }
+
+    /** 第level层的亮度平面（行优先），内容在下次build时被覆盖 */
+    public byte[] getPlane(int level) {
+        checkLevel(level);
+        return planes[level];
+    }
+
+    /** 两个金字塔的尺寸是否一致，可逐像素比较 */
+    public boolean sameGeometry(FramePyramid other) {
+        return widths[0] == other.widths[0] && heights[0] == other.heights[0] && planes[HALF] != null;
+    }
+
+    private static void checkLevel(int level) {
+        if (level < 1 || level > LEVELS) {
+            throw new IllegalArgumentException("金字塔层级应在[1, " + LEVELS + "]之间: " + level);
+        }
+    }
+}
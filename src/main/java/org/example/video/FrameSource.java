@@ -0,0 +1,31 @@
+package org.example.video;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+
+/**
+ * 视频帧来源。接口形状与sarxos Webcam保持一致，
+ * 使分析和模糊管线可以在没有摄像头的环境中（如CI）以任意分辨率和帧率运行。
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /** 打开来源，失败时返回false */
+    boolean open();
+
+    boolean isOpen();
+
+    /**
+     * 获取下一帧。每次调用返回新的图像对象，调用方可以长期持有；来源未打开或已结束时返回null。
+     */
+    BufferedImage getImage();
+
+    Dimension getViewSize();
+
+    /** 来源的标称帧率 */
+    double getFrameRate();
+
+    String getName();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,55 @@
+package org.example.video;
+
+import java.io.File;
+
+/**
+ * 根据配置字符串创建帧来源，用于在没有摄像头时替换Webcam：
+ * <ul>
+ *     <li>{@code synthetic} 或 {@code synthetic:1280x720@30}</li>
+ *     <li>{@code dir:/path/to/frames} 或 {@code dir:/path/to/frames@15}</li>
+ * </ul>
+ */
+public final class FrameSources {
+    public static final String PROPERTY = "vibecoding.frameSource";
+
+    private FrameSources() {
+    }
+
+    /** 读取系统属性vibecoding.frameSource，未设置时返回null */
+    public static FrameSource fromSystemProperty() {
+        String spec = System.getProperty(PROPERTY);
+        return spec == null || spec.isBlank() ? null : parse(spec.trim());
+    }
+
+    public static FrameSource parse(String spec) {
+        if (spec.equals("synthetic")) {
+            return new SyntheticFrameSource(640, 480, 30);
+        }
+        if (spec.startsWith("synthetic:")) {
+            String body = spec.substring("synthetic:".length());
+            double fps = 30;
+            int at = body.indexOf('@');
+            if (at >= 0) {
+                fps = Double.parseDouble(body.substring(at + 1));
+                body = body.substring(0, at);
+            }
+            int x = body.indexOf('x');
+            if (x < 0) {
+                throw new IllegalArgumentException("无效的分辨率: " + spec);
+            }
+            return new SyntheticFrameSource(Integer.parseInt(body.substring(0, x)),
+                    Integer.parseInt(body.substring(x + 1)), fps);
+        }
+        if (spec.startsWith("dir:")) {
+            String path = spec.substring("dir:".length());
+            double fps = 15;
+            int at = path.lastIndexOf('@');
+            if (at >= 0) {
+                fps = Double.parseDouble(path.substring(at + 1));
+                path = path.substring(0, at);
+            }
+            return new RecordedFrameSource(new File(path), fps, false);
+        }
+        throw new IllegalArgumentException("未知的帧来源: " + spec);
+    }
+}
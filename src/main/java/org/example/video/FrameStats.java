@@ -0,0 +1,62 @@
+package org.example.video;
+
+/**
+ * 帧统计结果：亮度总和、帧间差异像素数及其坐标和、可选的亮度直方图。
+ * 全部使用long累加，4K分辨率下也不会溢出。由FrameStatsKernel填充，可跨帧复用。
+ */
+public final class FrameStats {
+    long pixelCount;
+    long lumaSum;
+    long diffCount;
+    long diffSumX;
+    long diffSumY;
+    final long[] histogram = new long[256];
+    boolean histogramValid;
+
+    void reset(boolean withHistogram) {
+        pixelCount = 0;
+        lumaSum = 0;
+        diffCount = 0;
+        diffSumX = 0;
+        diffSumY = 0;
+        if (withHistogram) {
+            java.util.Arrays.fill(histogram, 0);
+        }
+        histogramValid = withHistogram;
+    }
+
+    public long getPixelCount() {
+        return pixelCount;
+    }
+
+    public long getLumaSum() {
+        return lumaSum;
+    }
+
+    public int getMeanLuma() {
+        return pixelCount == 0 ? 0 : (int) (lumaSum / pixelCount);
+    }
+
+    /** 与前一帧亮度差超过阈值的像素数 */
+    public long getDiffCount() {
+        return diffCount;
+    }
+
+    public double getDiffRatio() {
+        return pixelCount == 0 ? 0 : (double) diffCount / pixelCount;
+    }
+
+    /** 差异像素的x坐标之和，除以getDiffCount()即为质心 */
+    public long getDiffSumX() {
+        return diffSumX;
+    }
+
+    public long getDiffSumY() {
+        return diffSumY;
+    }
+
+    /** 亮度直方图（256档）；未请求直方图时返回null */
+    public long[] getHistogram() {
+        return histogramValid ? histogram : null;
+    }
+}
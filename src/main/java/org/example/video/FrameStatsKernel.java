@@ -0,0 +1,21 @@
+package org.example.video;
+
+/**
+ * 亮度平面统计内核：在矩形区域内按行优先遍历，计算亮度总和、帧间差异和直方图。
+ * 实现均为无状态或仅持有复用的临时缓冲区，每个分析线程应使用自己的实例。
+ */
+public interface FrameStatsKernel {
+
+    /**
+     * 统计平面[x0, x1) × [y0, y1)区域。
+     *
+     * @param current   当前帧亮度平面（行优先，行宽stride）
+     * @param previous  前一帧亮度平面，为null时不统计帧间差异
+     * @param threshold 亮度差严格大于该值时计为差异像素
+     * @param histogram 是否统计直方图
+     */
+    void compute(byte[] current, byte[] previous, int stride, int x0, int y0, int x1, int y1,
+                 int threshold, boolean histogram, FrameStats out);
+
+    String getName();
+}
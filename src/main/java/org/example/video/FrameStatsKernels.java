@@ -0,0 +1,33 @@
+package org.example.video;
+
+/**
+ * 选择可用的统计内核：JVM加载了jdk.incubator.vector模块（--add-modules jdk.incubator.vector）时使用向量实现，
+ * 否则回退到标量实现。-Dvibecoding.vector=false可强制使用标量实现。
+ */
+public final class FrameStatsKernels {
+    private static final String VECTOR_KERNEL = "org.example.video.VectorFrameStatsKernel";
+
+    private FrameStatsKernels() {
+    }
+
+    /** 返回新的内核实例，每个分析线程使用各自的实例 */
+    public static FrameStatsKernel best() {
+        if (vectorAvailable()) {
+            try {
+                return (FrameStatsKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.out.println("向量统计内核不可用，使用标量实现: " + e);
+            }
+        }
+        return scalar();
+    }
+
+    public static FrameStatsKernel scalar() {
+        return new ScalarFrameStatsKernel();
+    }
+
+    public static boolean vectorAvailable() {
+        return Boolean.parseBoolean(System.getProperty("vibecoding.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
@@ -0,0 +1,414 @@
+package org.example.video;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多人画廊视图的渲染器：成员按网格排列在可垂直滚动的画布上，合成到与视口同尺寸的后备缓冲区。
+ * <ul>
+ *     <li>每个画面按屏幕上的宽度选择缩放级别（原始帧的1、1/2、1/4、1/8），不说话的成员再低一级，
+ *     用于请求对方发送对应分辨率的视频；</li>
+ *     <li>帧在刷新时一次缩放到与画面同尺寸的缓存图像，绘制时一比一拷贝，不再缩放；
+ *     帧未更新或未到刷新时间时直接复用缓存图像；</li>
+ *     <li>刷新间隔由画面大小和是否在说话决定，说话的成员每帧刷新，小画面每秒只刷新几次，
+ *     各成员的刷新时刻错开，避免集中在同一帧缩放；</li>
+ *     <li>完全在视口外的画面既不缩放也不绘制，其缓存图像归还给按尺寸分类的对象池，
+ *     内存占用与可见画面数成正比；</li>
+ *     <li>只重绘内容有变化的画面，布局或滚动位置变化时才整体重绘。</li>
+ * </ul>
+ * 非线程安全，应由单一绘制线程使用；成员的帧由调用方持有，渲染器只保留最新一帧的引用。
+ */
+public final class GalleryRenderer {
+    public static final int MIN_TILE_WIDTH = 160;
+    public static final int MAX_LEVEL = 3;
+    static final int GAP = 4;
+    /** 对象池中每种尺寸最多保留的图像数 */
+    static final int POOL_PER_SIZE = 4;
+
+    private static final long SPEAKING_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+    private static final long PHASE_RANGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Color BACKGROUND = new Color(30, 30, 30);
+    private static final Color PLACEHOLDER = Color.DARK_GRAY;
+    private static final Color LABEL_BACKGROUND = new Color(0, 0, 0, 150);
+    private static final Color SPEAKING_BORDER = new Color(80, 200, 120);
+    private static final BasicStroke BORDER_STROKE = new BasicStroke(3);
+
+    private final Map<Integer, Tile> tiles = new LinkedHashMap<>();
+    private final Map<Long, ArrayDeque<BufferedImage>> pool = new HashMap<>();
+    private final Font nameFont = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+    private int viewWidth;
+    private int viewHeight;
+    private int scrollY;
+    private BufferedImage backBuffer;
+    private FontMetrics nameMetrics;
+    private boolean layoutDirty = true;
+    private int columns = 1;
+    private int tileWidth;
+    private int tileHeight;
+    private int contentHeight;
+
+    private long renderCount;
+    private long totalRenderNanos;
+    private long lastRenderNanos;
+    private int lastDrawn;
+    private int lastOffscreen;
+    private int lastScaled;
+    private long scaledCount;
+    private long reusedCount;
+    private long pooledReuseCount;
+
+    /** 一个成员的画面 */
+    private static final class Tile {
+        final int peerId;
+        final String name;
+        final Rectangle bounds = new Rectangle();
+        // 刷新时刻的相位，使刷新间隔相同的画面分散在不同帧上缩放
+        final long phaseNanos;
+        boolean speaking;
+        BufferedImage frame;
+        long frameVersion;
+        // 与bounds同尺寸
+        BufferedImage scaled;
+        long scaledVersion = -1;
+        long scaledAtNanos;
+        boolean needsDraw = true;
+
+        Tile(int peerId, String name) {
+            this.peerId = peerId;
+            this.name = name;
+            this.phaseNanos = Math.floorMod(peerId * 0x9E3779B97F4A7C15L, PHASE_RANGE_NANOS);
+        }
+    }
+
+    public void addPeer(int peerId, String name) {
+        if (tiles.containsKey(peerId)) {
+            throw new IllegalArgumentException("成员已存在: " + peerId);
+        }
+        tiles.put(peerId, new Tile(peerId, name));
+        layoutDirty = true;
+    }
+
+    public void removePeer(int peerId) {
+        Tile tile = tiles.remove(peerId);
+        if (tile != null) {
+            release(tile);
+            layoutDirty = true;
+        }
+    }
+
+    public int getPeerCount() {
+        return tiles.size();
+    }
+
+    public void setSpeaking(int peerId, boolean speaking) {
+        Tile tile = tile(peerId);
+        if (tile.speaking != speaking) {
+            tile.speaking = speaking;
+            tile.needsDraw = true;
+        }
+    }
+
+    /** 成员的最新一帧，下一次render()时按该成员的刷新间隔决定是否使用 */
+    public void submitFrame(int peerId, BufferedImage frame) {
+        Tile tile = tile(peerId);
+        tile.frame = frame;
+        tile.frameVersion++;
+    }
+
+    /** 视口尺寸和画布上的垂直滚动位置，滚动位置会被限制在画布范围内 */
+    public void setViewport(int width, int height, int scrollY) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("无效的视口尺寸: " + width + "x" + height);
+        }
+        if (width != viewWidth || height != viewHeight) {
+            viewWidth = width;
+            viewHeight = height;
+            backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = backBuffer.createGraphics();
+            nameMetrics = g.getFontMetrics(nameFont);
+            g.dispose();
+            layoutDirty = true;
+        }
+        // 先按画布高度限制再比较，否则超出范围的请求每次都会被当作滚动
+        layout();
+        int clamped = clampScroll(scrollY);
+        if (clamped != this.scrollY) {
+            this.scrollY = clamped;
+            layoutDirty = true;
+        }
+    }
+
+    /** 当前的滚动位置，已限制在画布范围内 */
+    public int getScrollY() {
+        layout();
+        return scrollY;
+    }
+
+    /** 画布总高度，供滚动条使用 */
+    public int getContentHeight() {
+        layout();
+        return contentHeight;
+    }
+
+    /** 成员画面在画布上的位置 */
+    public Rectangle getTileBounds(int peerId) {
+        layout();
+        return new Rectangle(tile(peerId).bounds);
+    }
+
+    /** 成员画面所需的缩放级别，可用于请求对方发送对应分辨率的视频 */
+    public int getLevel(int peerId) {
+        layout();
+        Tile tile = tile(peerId);
+        return tile.frame == null ? 0 : levelFor(tile, tile.frame.getWidth());
+    }
+
+    /** 成员画面的刷新间隔（毫秒），可用于请求对方降低帧率 */
+    public long getRefreshIntervalMillis(int peerId) {
+        layout();
+        return TimeUnit.NANOSECONDS.toMillis(refreshNanos(tile(peerId)));
+    }
+
+    /**
+     * 渲染一帧并返回后备缓冲区，其中(0, 0)对应画布上的(0, scrollY)。
+     * 返回的图像在视口尺寸不变时一直是同一个对象。
+     */
+    public BufferedImage render(long nowNanos) {
+        if (backBuffer == null) {
+            throw new IllegalStateException("尚未设置视口");
+        }
+        long start = System.nanoTime();
+        Graphics2D g = backBuffer.createGraphics();
+        int drawn = 0;
+        int offscreen = 0;
+        int scaled = 0;
+        try {
+            if (layoutDirty) {
+                layout();
+                g.setColor(BACKGROUND);
+                g.fillRect(0, 0, viewWidth, viewHeight);
+                for (Tile tile : tiles.values()) {
+                    tile.needsDraw = true;
+                }
+                layoutDirty = false;
+            }
+            Rectangle view = new Rectangle(0, scrollY, viewWidth, viewHeight);
+            for (Tile tile : tiles.values()) {
+                if (!view.intersects(tile.bounds)) {
+                    release(tile);
+                    offscreen++;
+                    continue;
+                }
+                if (refresh(tile, nowNanos)) {
+                    scaled++;
+                }
+                if (tile.needsDraw) {
+                    draw(g, tile);
+                    tile.needsDraw = false;
+                    drawn++;
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        lastDrawn = drawn;
+        lastOffscreen = offscreen;
+        lastScaled = scaled;
+        lastRenderNanos = System.nanoTime() - start;
+        totalRenderNanos += lastRenderNanos;
+        renderCount++;
+        return backBuffer;
+    }
+
+    /**
+     * 网格布局：一屏放得下时选使画面最大的列数；画面宽度会小于MIN_TILE_WIDTH时，
+     * 改用宽度不小于MIN_TILE_WIDTH的最多列数，超出视口的行需要滚动查看。
+     */
+    private void layout() {
+        if (!layoutDirty || viewWidth == 0) {
+            return;
+        }
+        int count = Math.max(1, tiles.size());
+        tileWidth = 0;
+        for (int c = 1; c <= count; c++) {
+            int r = (count + c - 1) / c;
+            int w = Math.min((viewWidth - GAP * (c + 1)) / c, (viewHeight - GAP * (r + 1)) / r * 4 / 3);
+            if (w > tileWidth) {
+                tileWidth = w;
+                columns = c;
+            }
+        }
+        if (tileWidth < MIN_TILE_WIDTH) {
+            columns = Math.max(1, Math.min(count, (viewWidth - GAP) / (MIN_TILE_WIDTH + GAP)));
+            tileWidth = (viewWidth - GAP * (columns + 1)) / columns;
+        }
+        tileHeight = tileWidth * 3 / 4;
+        int rows = (count + columns - 1) / columns;
+        contentHeight = GAP + rows * (tileHeight + GAP);
+        scrollY = clampScroll(scrollY);
+        int i = 0;
+        for (Tile tile : tiles.values()) {
+            int row = i / columns;
+            int column = i % columns;
+            tile.bounds.setBounds(GAP + column * (tileWidth + GAP), GAP + row * (tileHeight + GAP), tileWidth, tileHeight);
+            i++;
+        }
+    }
+
+    private int clampScroll(int y) {
+        return Math.max(0, Math.min(y, contentHeight - viewHeight));
+    }
+
+    /** 最小的、宽度不小于所需宽度的级别；不说话的成员所需宽度减半 */
+    private int levelFor(Tile tile, int frameWidth) {
+        int needed = tile.speaking ? tile.bounds.width : tile.bounds.width / 2;
+        int level = 0;
+        while (level < MAX_LEVEL && (frameWidth >> (level + 1)) >= needed) {
+            level++;
+        }
+        return level;
+    }
+
+    private long refreshNanos(Tile tile) {
+        if (tile.speaking) {
+            return SPEAKING_REFRESH_NANOS;
+        }
+        int width = tile.bounds.width;
+        long millis = width >= 320 ? 66 : (width >= MIN_TILE_WIDTH ? 133 : 200);
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /** 需要时把最新帧缩放到与画面同尺寸的缓存图像中，返回是否缩放过 */
+    private boolean refresh(Tile tile, long nowNanos) {
+        BufferedImage frame = tile.frame;
+        if (frame == null) {
+            return false;
+        }
+        int width = Math.max(1, tile.bounds.width);
+        int height = Math.max(1, tile.bounds.height);
+        boolean resized = tile.scaled == null || tile.scaled.getWidth() != width || tile.scaled.getHeight() != height;
+        long interval = refreshNanos(tile);
+        boolean stale = tile.scaledVersion != tile.frameVersion
+                && (nowNanos + tile.phaseNanos) / interval != (tile.scaledAtNanos + tile.phaseNanos) / interval;
+        if (!resized && !stale) {
+            reusedCount++;
+            return false;
+        }
+        if (resized) {
+            release(tile);
+            tile.scaled = acquire(width, height);
+        }
+        Graphics2D g = tile.scaled.createGraphics();
+        try {
+            g.drawImage(frame, 0, 0, tile.scaled.getWidth(), tile.scaled.getHeight(), null);
+        } finally {
+            g.dispose();
+        }
+        tile.scaledVersion = tile.frameVersion;
+        tile.scaledAtNanos = nowNanos;
+        tile.needsDraw = true;
+        scaledCount++;
+        return true;
+    }
+
+    private void draw(Graphics2D g, Tile tile) {
+        int x = tile.bounds.x;
+        int y = tile.bounds.y - scrollY;
+        int w = tile.bounds.width;
+        int h = tile.bounds.height;
+        if (tile.scaled != null) {
+            g.drawImage(tile.scaled, x, y, null);
+        } else {
+            g.setColor(PLACEHOLDER);
+            g.fillRect(x, y, w, h);
+        }
+        if (tile.name != null) {
+            int labelHeight = nameMetrics.getHeight() + 4;
+            int labelWidth = Math.min(w, nameMetrics.stringWidth(tile.name) + 8);
+            g.setColor(LABEL_BACKGROUND);
+            g.fillRect(x, y + h - labelHeight, labelWidth, labelHeight);
+            g.setColor(Color.WHITE);
+            g.setFont(nameFont);
+            g.drawString(tile.name, x + 4, y + h - 2 - nameMetrics.getDescent());
+        }
+        if (tile.speaking) {
+            g.setColor(SPEAKING_BORDER);
+            g.setStroke(BORDER_STROKE);
+            g.drawRect(x + 1, y + 1, w - 3, h - 3);
+        }
+    }
+
+    private BufferedImage acquire(int width, int height) {
+        ArrayDeque<BufferedImage> free = pool.get(sizeKey(width, height));
+        if (free != null && !free.isEmpty()) {
+            pooledReuseCount++;
+            return free.pop();
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /** 缓存图像归还对象池，池满时丢弃；之后进入视口时重新缩放 */
+    private void release(Tile tile) {
+        BufferedImage image = tile.scaled;
+        if (image == null) {
+            return;
+        }
+        tile.scaled = null;
+        tile.scaledVersion = -1;
+        ArrayDeque<BufferedImage> free = pool.computeIfAbsent(sizeKey(image.getWidth(), image.getHeight()),
+                k -> new ArrayDeque<>());
+        if (free.size() < POOL_PER_SIZE) {
+            free.push(image);
+        }
+    }
+
+    private static long sizeKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+
+    private Tile tile(int peerId) {
+        Tile tile = tiles.get(peerId);
+        if (tile == null) {
+            throw new IllegalArgumentException("未知的成员: " + peerId);
+        }
+        return tile;
+    }
+
+    public long getLastRenderNanos() {
+        return lastRenderNanos;
+    }
+
+    /** 最近一次render()重绘的画面数 */
+    public int getLastDrawn() {
+        return lastDrawn;
+    }
+
+    /** 最近一次render()跳过的视口外画面数 */
+    public int getLastOffscreen() {
+        return lastOffscreen;
+    }
+
+    /** 最近一次render()重新缩放的画面数 */
+    public int getLastScaled() {
+        return lastScaled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("画廊 %dx%d: %d 个成员, %d 列, 渲染 %d 次, 平均 %.2f ms, 缩放 %d, 复用缓存 %d, 复用池中图像 %d",
+                viewWidth, viewHeight, tiles.size(), columns, renderCount,
+                renderCount == 0 ? 0.0 : totalRenderNanos / 1e6 / renderCount,
+                scaledCount, reusedCount, pooledReuseCount);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.video;
+
+/**
+ * GestureDetector识别的手势
+ */
+public enum Gesture {
+    NONE("无"),
+    RAISED_HAND("举手"),
+    THUMBS_UP("点赞"),
+    WAVE("挥手");
+
+    private final String displayName;
+
+    Gesture(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,562 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于肤色分割和运动历史的手势识别，只用CPU，在1/8分辨率的网格上工作。
+ * <ol>
+ *     <li>每个8x8格子取样颜色，按YCbCr范围判断是否为肤色；同时用金字塔1/8层亮度的帧间差和肤色状态的变化
+ *     更新运动历史(MHI)，记录每个格子最近一次运动的时间；</li>
+ *     <li>对肤色格子做连通域标记，最大且位于画面上部的区域视为脸，其余大小合适的区域为手的候选，取最高的一个；</li>
+ *     <li>按手相对脸的位置、形状和运动轨迹判断：
+ *     手高过头顶并保持不动为举手；手在下巴到胸口之间、竖长且保持不动为点赞；
+ *     手在头部高度、水平往返摆动并有运动历史为挥手。</li>
+ * </ol>
+ * 同一次手势只报告一次。每帧耗时受预算限制：超出预算时放弃本帧的分类，平均耗时接近预算时改用更粗的网格。
+ * 切换网格粗细时运动历史按新网格重采样，手的轨迹和保持中的姿势保留，两次切换之间至少间隔STRIDE_DWELL_FRAMES帧。
+ * 时间由调用方传入，分析频率变化时判断依然按实际时间进行。非线程安全，应由单一分析线程使用。
+ */
+public final class GestureDetector {
+    public static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(3);
+
+    private static final int CELL = 8;
+    private static final int MAX_STRIDE = 4;
+    private static final int MOTION_THRESHOLD = 16;
+    /** 多久以内的运动算作“正在运动” */
+    private static final long MOTION_RECENT_MILLIS = 400;
+    /** 举手和点赞需要保持的时间 */
+    private static final long HOLD_MILLIS = 500;
+    private static final long WAVE_WINDOW_MILLIS = 1500;
+    private static final int WAVE_REVERSALS = 2;
+    private static final long COOLDOWN_MILLIS = 2000;
+    private static final int MAX_BLOBS = 16;
+    private static final int HISTORY = 64;
+    private static final double COST_SMOOTHING = 0.1;
+    /** 网格粗细两次切换之间的最少帧数，避免耗时在阈值附近时反复切换 */
+    static final int STRIDE_DWELL_FRAMES = 30;
+
+    private final long budgetNanos;
+    private final FramePyramid ownPyramid = new FramePyramid();
+
+    // 网格，尺寸为1/8层尺寸除以stride
+    private int levelWidth;
+    private int levelHeight;
+    private int stride = 1;
+    // 当前网格数组对应的stride，与stride不同时下一帧重采样
+    private int gridStride = 1;
+    private int framesSinceStrideChange;
+    private int gw;
+    private int gh;
+    private int[] rgb = new int[0];
+    private byte[] skin = new byte[0];
+    private byte[] previousLuma = new byte[0];
+    private long[] motionTime = new long[0];
+    private int[] labels = new int[0];
+    private int[] stack = new int[0];
+    private boolean hasPrevious;
+
+    // 连通域统计，只保留最大的MAX_BLOBS个
+    private int blobCount;
+    private final int[] blobArea = new int[MAX_BLOBS];
+    private final int[] blobMinX = new int[MAX_BLOBS];
+    private final int[] blobMinY = new int[MAX_BLOBS];
+    private final int[] blobMaxX = new int[MAX_BLOBS];
+    private final int[] blobMaxY = new int[MAX_BLOBS];
+    private final float[] blobCx = new float[MAX_BLOBS];
+    private final float[] blobCy = new float[MAX_BLOBS];
+    private final int[] blobMoving = new int[MAX_BLOBS];
+
+    // 手的轨迹，环形缓冲
+    private final long[] historyTime = new long[HISTORY];
+    private final float[] historyX = new float[HISTORY];
+    private final float[] historyY = new float[HISTORY];
+    private int historyStart;
+    private int historySize;
+
+    private long raisedSince = -1;
+    private long thumbsSince = -1;
+    private boolean raisedReported;
+    private boolean thumbsReported;
+    private final long[] lastReported = new long[Gesture.values().length];
+
+    // 统计
+    private long frames;
+    private long overBudget;
+    private long detections;
+    private double meanCostNanos;
+    private long maxCostNanos;
+    private long lastCostNanos;
+
+    public GestureDetector() {
+        this(DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * @param budgetNanos 每帧耗时预算
+     */
+    public GestureDetector(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("耗时预算必须为正数: " + budgetNanos);
+        }
+        this.budgetNanos = budgetNanos;
+        Arrays.fill(lastReported, Long.MIN_VALUE / 2);
+    }
+
+    /**
+     * 处理一帧，自行构建金字塔。
+     */
+    public Gesture detect(BufferedImage frame, long timeMillis) {
+        ownPyramid.build(frame);
+        return detect(frame, ownPyramid, timeMillis);
+    }
+
+    /**
+     * 处理一帧。pyramid必须是由frame构建的（如FrameAnalyzer.getPyramid()），可避免重复降采样。
+     * 返回本帧新识别出的手势，大多数帧返回NONE。
+     */
+    public Gesture detect(BufferedImage frame, FramePyramid pyramid, long timeMillis) {
+        long start = System.nanoTime();
+        ensureGrid(pyramid.getWidth(FramePyramid.EIGHTH), pyramid.getHeight(FramePyramid.EIGHTH));
+        updateSkin(frame, timeMillis);
+        updateMotion(pyramid.getPlane(FramePyramid.EIGHTH), timeMillis);
+
+        Gesture gesture = Gesture.NONE;
+        if (System.nanoTime() - start > budgetNanos) {
+            // 已超出预算，放弃本帧的分类
+            overBudget++;
+        } else {
+            findBlobs(timeMillis);
+            gesture = report(classify(timeMillis), timeMillis);
+        }
+        record(System.nanoTime() - start);
+        return gesture;
+    }
+
+    private void ensureGrid(int w, int h) {
+        if (w != levelWidth || h != levelHeight) {
+            // 分辨率变化，之前的状态不再适用
+            levelWidth = w;
+            levelHeight = h;
+            allocateGrid();
+            reset();
+        } else if (stride != gridStride) {
+            regrid();
+        }
+    }
+
+    private void allocateGrid() {
+        gridStride = stride;
+        gw = levelWidth / stride;
+        gh = levelHeight / stride;
+        int n = gw * gh;
+        rgb = new int[n];
+        skin = new byte[n];
+        previousLuma = new byte[n];
+        motionTime = new long[n];
+        Arrays.fill(motionTime, Long.MIN_VALUE / 2);
+        labels = new int[n];
+        stack = new int[n];
+    }
+
+    /**
+     * 改变网格粗细：运动历史按覆盖关系重采样（取最近的运动时间），轨迹坐标换算到新网格，
+     * 保持中的举手/点赞和已报告状态不变。亮度和肤色基准在下一帧重建，这一帧不产生运动。
+     */
+    private void regrid() {
+        int oldStride = gridStride;
+        int oldGw = gw;
+        int oldGh = gh;
+        long[] oldMotion = motionTime;
+        allocateGrid();
+        for (int y = 0; y < gh; y++) {
+            int y0 = Math.min(oldGh - 1, y * stride / oldStride);
+            int y1 = Math.min(oldGh, Math.max(y0 + 1, (y + 1) * stride / oldStride));
+            for (int x = 0; x < gw; x++) {
+                int x0 = Math.min(oldGw - 1, x * stride / oldStride);
+                int x1 = Math.min(oldGw, Math.max(x0 + 1, (x + 1) * stride / oldStride));
+                long latest = Long.MIN_VALUE / 2;
+                for (int oy = y0; oy < y1; oy++) {
+                    for (int ox = x0; ox < x1; ox++) {
+                        latest = Math.max(latest, oldMotion[oy * oldGw + ox]);
+                    }
+                }
+                motionTime[y * gw + x] = latest;
+            }
+        }
+        float scale = oldStride / (float) stride;
+        for (int k = 0; k < historySize; k++) {
+            int i = (historyStart + k) % HISTORY;
+            historyX[i] *= scale;
+            historyY[i] *= scale;
+        }
+        hasPrevious = false;
+    }
+
+    /** 清除运动历史和轨迹，下一帧重新开始 */
+    public void reset() {
+        hasPrevious = false;
+        Arrays.fill(motionTime, Long.MIN_VALUE / 2);
+        historySize = 0;
+        raisedSince = -1;
+        thumbsSince = -1;
+        raisedReported = false;
+        thumbsReported = false;
+    }
+
+    private void updateMotion(byte[] plane, long now) {
+        byte[] prev = previousLuma;
+        long[] mhi = motionTime;
+        for (int y = 0; y < gh; y++) {
+            int src = y * stride * levelWidth;
+            int out = y * gw;
+            for (int x = 0; x < gw; x++) {
+                int luma = plane[src + x * stride] & 0xFF;
+                if (hasPrevious && Math.abs(luma - (prev[out + x] & 0xFF)) > MOTION_THRESHOLD) {
+                    mhi[out + x] = now;
+                }
+                prev[out + x] = (byte) luma;
+            }
+        }
+        hasPrevious = true;
+    }
+
+    /** 肤色分割；格子的肤色状态变化也记入运动历史，手和背景亮度接近时亮度差检测不到运动 */
+    private void updateSkin(BufferedImage frame, long now) {
+        Rasters.sampleCells(frame, CELL * stride, gw, gh, rgb);
+        for (int i = 0; i < rgb.length; i++) {
+            byte value = isSkin(rgb[i]) ? (byte) 1 : 0;
+            if (hasPrevious && value != skin[i]) {
+                motionTime[i] = now;
+            }
+            skin[i] = value;
+        }
+    }
+
+    /** 经典的YCbCr肤色范围(Cb 77~127, Cr 133~173)，排除过暗的像素 */
+    static boolean isSkin(int p) {
+        int r = (p >> 16) & 0xFF;
+        int g = (p >> 8) & 0xFF;
+        int b = p & 0xFF;
+        int y = (77 * r + 150 * g + 29 * b) >> 8;
+        int cb = ((-43 * r - 85 * g + 128 * b) >> 8) + 128;
+        int cr = ((128 * r - 107 * g - 21 * b) >> 8) + 128;
+        return y > 40 && cb >= 77 && cb <= 127 && cr >= 133 && cr <= 173;
+    }
+
+    /** 4连通域标记，统计最大的MAX_BLOBS个区域 */
+    private void findBlobs(long now) {
+        Arrays.fill(labels, 0);
+        blobCount = 0;
+        int minArea = Math.max(3, gw * gh / 800);
+        int label = 0;
+        for (int start = 0; start < skin.length; start++) {
+            if (skin[start] == 0 || labels[start] != 0) {
+                continue;
+            }
+            label++;
+            int area = 0;
+            int minX = gw;
+            int minY = gh;
+            int maxX = -1;
+            int maxY = -1;
+            long sumX = 0;
+            long sumY = 0;
+            int moving = 0;
+            int top = 0;
+            stack[top++] = start;
+            labels[start] = label;
+            while (top > 0) {
+                int i = stack[--top];
+                int x = i % gw;
+                int y = i / gw;
+                area++;
+                sumX += x;
+                sumY += y;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                if (now - motionTime[i] <= MOTION_RECENT_MILLIS) {
+                    moving++;
+                }
+                if (x > 0 && skin[i - 1] != 0 && labels[i - 1] == 0) {
+                    labels[i - 1] = label;
+                    stack[top++] = i - 1;
+                }
+                if (x < gw - 1 && skin[i + 1] != 0 && labels[i + 1] == 0) {
+                    labels[i + 1] = label;
+                    stack[top++] = i + 1;
+                }
+                if (y > 0 && skin[i - gw] != 0 && labels[i - gw] == 0) {
+                    labels[i - gw] = label;
+                    stack[top++] = i - gw;
+                }
+                if (y < gh - 1 && skin[i + gw] != 0 && labels[i + gw] == 0) {
+                    labels[i + gw] = label;
+                    stack[top++] = i + gw;
+                }
+            }
+            if (area < minArea) {
+                continue;
+            }
+            int slot = blobCount;
+            if (blobCount == MAX_BLOBS) {
+                // 替换最小的区域
+                slot = 0;
+                for (int k = 1; k < MAX_BLOBS; k++) {
+                    if (blobArea[k] < blobArea[slot]) {
+                        slot = k;
+                    }
+                }
+                if (blobArea[slot] >= area) {
+                    continue;
+                }
+            } else {
+                blobCount++;
+            }
+            blobArea[slot] = area;
+            blobMinX[slot] = minX;
+            blobMinY[slot] = minY;
+            blobMaxX[slot] = maxX;
+            blobMaxY[slot] = maxY;
+            blobCx[slot] = (float) sumX / area;
+            blobCy[slot] = (float) sumY / area;
+            blobMoving[slot] = moving;
+        }
+    }
+
+    /** 本帧满足条件的手势（不考虑是否已报告） */
+    private Gesture classify(long now) {
+        int face = -1;
+        int minFaceArea = gw * gh / 80;
+        for (int k = 0; k < blobCount; k++) {
+            if (blobCy[k] < gh * 0.7 && blobArea[k] >= minFaceArea && (face < 0 || blobArea[k] > blobArea[face])) {
+                face = k;
+            }
+        }
+        if (face < 0) {
+            loseHand();
+            return Gesture.NONE;
+        }
+        int faceW = blobMaxX[face] - blobMinX[face] + 1;
+        int faceH = blobMaxY[face] - blobMinY[face] + 1;
+        float faceCy = blobCy[face];
+        int faceTop = blobMinY[face];
+        int faceBottom = blobMaxY[face];
+
+        // 手：大小与脸相称，不低于胸口，取最高的一个
+        int hand = -1;
+        for (int k = 0; k < blobCount; k++) {
+            if (k == face || blobArea[k] < blobArea[face] / 15 || blobArea[k] > blobArea[face] * 0.9) {
+                continue;
+            }
+            if (blobCy[k] > faceBottom + 0.9f * faceH) {
+                continue;
+            }
+            if (hand < 0 || blobMinY[k] < blobMinY[hand]) {
+                hand = k;
+            }
+        }
+        if (hand < 0) {
+            loseHand();
+            return Gesture.NONE;
+        }
+        addHistory(now, blobCx[hand], blobCy[hand]);
+
+        int handW = blobMaxX[hand] - blobMinX[hand] + 1;
+        int handH = blobMaxY[hand] - blobMinY[hand] + 1;
+        float aspect = handH / (float) handW;
+        float cy = blobCy[hand];
+        boolean moving = blobMoving[hand] * 4 >= blobArea[hand];
+        float still = Math.max(1f, faceW * 0.25f);
+
+        if (cy < faceBottom && moving && countReversals(now, Math.max(2f, faceW * 0.2f)) >= WAVE_REVERSALS) {
+            return Gesture.WAVE;
+        }
+
+        boolean raised = blobMinY[hand] < faceTop && cy < faceCy && aspect >= 1.0f;
+        // 姿势保持HOLD_MILLIS，且这段时间内手基本不动
+        boolean steady = range(now, HOLD_MILLIS) < still;
+        raisedSince = hold(raised, raisedSince, now);
+        if (raisedSince < 0) {
+            raisedReported = false;
+        } else if (now - raisedSince >= HOLD_MILLIS && steady) {
+            return Gesture.RAISED_HAND;
+        }
+
+        // 竖起的拇指接近下巴高度，放在桌面上的手不算
+        boolean thumbs = cy > faceCy && blobMinY[hand] < faceBottom + 0.3f * faceH && aspect >= 1.3f
+                && blobArea[hand] < blobArea[face] / 2;
+        thumbsSince = hold(thumbs, thumbsSince, now);
+        if (thumbsSince < 0) {
+            thumbsReported = false;
+        } else if (now - thumbsSince >= HOLD_MILLIS && steady) {
+            return Gesture.THUMBS_UP;
+        }
+        return Gesture.NONE;
+    }
+
+    private static long hold(boolean condition, long since, long now) {
+        return condition ? (since < 0 ? now : since) : -1;
+    }
+
+    /** 同一次保持的举手/点赞只报告一次，挥手报告后清空轨迹；同类手势之间有冷却时间 */
+    private Gesture report(Gesture gesture, long now) {
+        if (gesture == Gesture.NONE || now - lastReported[gesture.ordinal()] < COOLDOWN_MILLIS) {
+            return Gesture.NONE;
+        }
+        if (gesture == Gesture.RAISED_HAND) {
+            if (raisedReported) {
+                return Gesture.NONE;
+            }
+            raisedReported = true;
+        } else if (gesture == Gesture.THUMBS_UP) {
+            if (thumbsReported) {
+                return Gesture.NONE;
+            }
+            thumbsReported = true;
+        } else {
+            historySize = 0;
+        }
+        lastReported[gesture.ordinal()] = now;
+        detections++;
+        return gesture;
+    }
+
+    private void loseHand() {
+        historySize = 0;
+        raisedSince = -1;
+        thumbsSince = -1;
+        raisedReported = false;
+        thumbsReported = false;
+    }
+
+    private void addHistory(long now, float x, float y) {
+        int index = (historyStart + historySize) % HISTORY;
+        if (historySize == HISTORY) {
+            historyStart = (historyStart + 1) % HISTORY;
+        } else {
+            historySize++;
+        }
+        historyTime[index] = now;
+        historyX[index] = x;
+        historyY[index] = y;
+    }
+
+    /** 最近windowMillis内手在水平和垂直方向移动范围的较大者（格） */
+    private float range(long now, long windowMillis) {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int k = 0; k < historySize; k++) {
+            int i = (historyStart + k) % HISTORY;
+            if (now - historyTime[i] <= windowMillis) {
+                minX = Math.min(minX, historyX[i]);
+                maxX = Math.max(maxX, historyX[i]);
+                minY = Math.min(minY, historyY[i]);
+                maxY = Math.max(maxY, historyY[i]);
+            }
+        }
+        return maxX < minX ? 0 : Math.max(maxX - minX, maxY - minY);
+    }
+
+    /** 挥手窗口内水平方向的折返次数，幅度小于amplitude的抖动不计 */
+    private int countReversals(long now, float amplitude) {
+        int dir = 0;
+        int reversals = 0;
+        float hi = 0;
+        float lo = 0;
+        boolean first = true;
+        for (int k = 0; k < historySize; k++) {
+            int i = (historyStart + k) % HISTORY;
+            if (now - historyTime[i] > WAVE_WINDOW_MILLIS) {
+                continue;
+            }
+            float x = historyX[i];
+            if (first) {
+                hi = x;
+                lo = x;
+                first = false;
+            } else if (dir == 0) {
+                if (x - lo >= amplitude) {
+                    dir = 1;
+                    hi = x;
+                } else if (hi - x >= amplitude) {
+                    dir = -1;
+                    lo = x;
+                } else {
+                    hi = Math.max(hi, x);
+                    lo = Math.min(lo, x);
+                }
+            } else if (dir > 0) {
+                if (x > hi) {
+                    hi = x;
+                } else if (hi - x >= amplitude) {
+                    dir = -1;
+                    lo = x;
+                    reversals++;
+                }
+            } else {
+                if (x < lo) {
+                    lo = x;
+                } else if (x - lo >= amplitude) {
+                    dir = 1;
+                    hi = x;
+                    reversals++;
+                }
+            }
+        }
+        return reversals;
+    }
+
+    /** 记录耗时，并按平均耗时调整网格粗细 */
+    private void record(long costNanos) {
+        frames++;
+        lastCostNanos = costNanos;
+        maxCostNanos = Math.max(maxCostNanos, costNanos);
+        meanCostNanos = frames == 1 ? costNanos : meanCostNanos + COST_SMOOTHING * (costNanos - meanCostNanos);
+        if (++framesSinceStrideChange < STRIDE_DWELL_FRAMES) {
+            return;
+        }
+        if (meanCostNanos > budgetNanos * 0.75 && stride < MAX_STRIDE) {
+            stride *= 2;
+            meanCostNanos /= 4;
+            framesSinceStrideChange = 0;
+        } else if (meanCostNanos < budgetNanos * 0.15 && stride > 1) {
+            stride /= 2;
+            meanCostNanos *= 4;
+            framesSinceStrideChange = 0;
+        }
+    }
+
+    /** 指定网格粗细（1、2或4），下一帧生效；之后仍按耗时自动调整 */
+    void setStride(int stride) {
+        if (stride != 1 && stride != 2 && stride != MAX_STRIDE) {
+            throw new IllegalArgumentException("无效的网格粗细: " + stride);
+        }
+        this.stride = stride;
+        framesSinceStrideChange = 0;
+    }
+
+    /** 当前网格的取样间隔（1为8x8像素一格） */
+    public int getStride() {
+        return stride;
+    }
+
+    public long getLastCostNanos() {
+        return lastCostNanos;
+    }
+
+    public long getOverBudgetFrames() {
+        return overBudget;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("手势识别: %d帧, 识别 %d 次, 平均 %.2f ms, 最大 %.2f ms, 超预算 %d 帧, 网格 %dx%d",
+                frames, detections, meanCostNanos / 1e6, maxCostNanos / 1e6, overBudget, gw, gh);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.video;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单生产者/单消费者的有界环形缓冲区，采用"最新帧优先"的丢弃策略：
+ * 缓冲区满时生产者丢弃最旧的元素而不是阻塞，消费者可以用pollLatest直接跳到最新元素。
+ * 生产者丢弃最旧元素时与消费者通过CAS竞争tail，其余操作均无锁。
+ */
+public final class LatestFrameRing<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity 容量，会向上取整为2的幂
+     */
+    public LatestFrameRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须为正数: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /** 只能由生产者线程调用。缓冲区满时丢弃最旧的元素 */
+    public void offer(T value) {
+        long h = head.get();
+        while (true) {
+            long t = tail.get();
+            if (h - t < slots.length()) {
+                break;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                dropped.incrementAndGet();
+            }
+        }
+        slots.set((int) (h & mask), value);
+        head.lazySet(h + 1);
+    }
+
+    /** 只能由消费者线程调用。取出最旧的元素，缓冲区为空时返回null */
+    public T poll() {
+        while (true) {
+            long t = tail.get();
+            if (t >= head.get()) {
+                return null;
+            }
+            T value = slots.get((int) (t & mask));
+            // 生产者可能已丢弃该元素并覆盖槽位，此时CAS失败并重试
+            if (tail.compareAndSet(t, t + 1)) {
+                return value;
+            }
+        }
+    }
+
+    /** 只能由消费者线程调用。跳过积压的旧元素，只返回最新的一个 */
+    public T pollLatest() {
+        T latest = null;
+        T value;
+        while ((value = poll()) != null) {
+            if (latest != null) {
+                dropped.incrementAndGet();
+            }
+            latest = value;
+        }
+        return latest;
+    }
+
+    public int size() {
+        return (int) Math.max(0, head.get() - tail.get());
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /** 因缓冲区满或被新元素跳过而丢弃的元素总数 */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,330 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * 直接读取BufferedImage底层光栅数据的工具方法。
+ * 常见的摄像头格式(TYPE_3BYTE_BGR、TYPE_INT_RGB等)走数组直读路径，其他格式按行回退到getRGB。
+ * 亮度定义与原有分析逻辑一致：(R + G + B) / 3。
+ */
+public final class Rasters {
+
+    private Rasters() {
+    }
+
+    /**
+     * 读取指定区域的亮度到dst（行优先，宽度为w）。
+     * rowScratch仅在回退路径中使用，长度至少为w；调用方负责复用，避免每帧分配。
+     */
+    public static void readLuma(BufferedImage image, int x0, int y0, int w, int h,
+                                byte[] dst, int[] rowScratch) {
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+
+        if (buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel
+                && model.getNumBands() >= 3) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) model;
+            int stride = sm.getScanlineStride();
+            int base = buffer.getOffset() + sm.getOffset(x0 - tx, y0 - ty);
+            for (int y = 0; y < h; y++) {
+                int src = base + y * stride;
+                int out = y * w;
+                for (int x = 0; x < w; x++) {
+                    int p = data[src + x];
+                    // 三个颜色分量求和与通道顺序无关，RGB/BGR均适用
+                    dst[out + x] = (byte) ((((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3);
+                }
+            }
+            return;
+        }
+
+        if (buffer instanceof DataBufferByte && model instanceof ComponentSampleModel) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            ComponentSampleModel sm = (ComponentSampleModel) model;
+            int[] bankIndices = sm.getBankIndices();
+            boolean singleBank = true;
+            for (int bank : bankIndices) {
+                singleBank &= bank == 0;
+            }
+            if (singleBank) {
+                int pixelStride = sm.getPixelStride();
+                int stride = sm.getScanlineStride();
+                int[] bandOffsets = sm.getBandOffsets();
+                int base = buffer.getOffset() + (y0 - ty) * stride + (x0 - tx) * pixelStride;
+                if (sm.getNumBands() == 1) {
+                    int b0 = bandOffsets[0];
+                    for (int y = 0; y < h; y++) {
+                        int src = base + y * stride + b0;
+                        int out = y * w;
+                        for (int x = 0; x < w; x++, src += pixelStride) {
+                            dst[out + x] = data[src];
+                        }
+                    }
+                    return;
+                }
+                if (sm.getNumBands() >= 3) {
+                    int b0 = bandOffsets[0];
+                    int b1 = bandOffsets[1];
+                    int b2 = bandOffsets[2];
+                    for (int y = 0; y < h; y++) {
+                        int src = base + y * stride;
+                        int out = y * w;
+                        for (int x = 0; x < w; x++, src += pixelStride) {
+                            dst[out + x] = (byte) (((data[src + b0] & 0xFF)
+                                    + (data[src + b1] & 0xFF)
+                                    + (data[src + b2] & 0xFF)) / 3);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        // 回退路径：逐行批量读取，不创建Color对象
+        for (int y = 0; y < h; y++) {
+            image.getRGB(x0, y0 + y, w, 1, rowScratch, 0, w);
+            int out = y * w;
+            for (int x = 0; x < w; x++) {
+                int p = rowScratch[x];
+                dst[out + x] = (byte) ((((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3);
+            }
+        }
+    }
+
+    /**
+     * 读取整幅图像的像素到dst，格式为0xRRGGBB（行优先）。
+     * rowScratch仅在回退路径中使用，长度至少为图像宽度。
+     */
+    public static void readRgb(BufferedImage image, int[] dst, int[] rowScratch) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int type = image.getType();
+
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && buffer instanceof DataBufferInt) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) model;
+            int stride = sm.getScanlineStride();
+            int base = buffer.getOffset() + sm.getOffset(-tx, -ty);
+            for (int y = 0; y < h; y++) {
+                System.arraycopy(data, base + y * stride, dst, y * w, w);
+            }
+            return;
+        }
+
+        if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+                && buffer instanceof DataBufferByte) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            ComponentSampleModel sm = (ComponentSampleModel) model;
+            int pixelStride = sm.getPixelStride();
+            int stride = sm.getScanlineStride();
+            int[] bandOffsets = sm.getBandOffsets();
+            int rOff = bandOffsets[0];
+            int gOff = bandOffsets[1];
+            int bOff = bandOffsets[2];
+            int base = buffer.getOffset() + (-ty) * stride + (-tx) * pixelStride;
+            for (int y = 0; y < h; y++) {
+                int src = base + y * stride;
+                int out = y * w;
+                for (int x = 0; x < w; x++, src += pixelStride) {
+                    dst[out + x] = ((data[src + rOff] & 0xFF) << 16)
+                            | ((data[src + gOff] & 0xFF) << 8)
+                            | (data[src + bOff] & 0xFF);
+                }
+            }
+            return;
+        }
+
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, rowScratch, 0, w);
+            System.arraycopy(rowScratch, 0, dst, y * w, w);
+        }
+    }
+
+    /**
+     * 直接从光栅生成1/2分辨率亮度平面：每个输出像素为2x2块12个颜色分量之和除以12。
+     * 读取与降采样合并在一次遍历中完成，不产生全分辨率亮度数据。奇数尺寸时丢弃最后一行/列。
+     * scratch仅在回退路径中使用，长度至少为2 * 图像宽度。
+     */
+    public static void readHalfLuma(BufferedImage image, byte[] dst, int[] scratch) {
+        int w = image.getWidth();
+        int dw = w / 2;
+        int dh = image.getHeight() / 2;
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+
+        if (buffer instanceof DataBufferByte && model instanceof ComponentSampleModel
+                && model.getNumBands() >= 3) {
+            ComponentSampleModel sm = (ComponentSampleModel) model;
+            int pixelStride = sm.getPixelStride();
+            int[] bandOffsets = sm.getBandOffsets();
+            int[] banks = sm.getBankIndices();
+            // 3字节BGR这类紧凑排列：三个颜色分量在像素内连续时可以按字节顺序求和
+            if (banks[0] == 0 && banks[1] == 0 && banks[2] == 0 && pixelStride >= 3
+                    && isContiguous(bandOffsets)) {
+                byte[] data = ((DataBufferByte) buffer).getData();
+                int stride = sm.getScanlineStride();
+                int first = Math.min(bandOffsets[0], Math.min(bandOffsets[1], bandOffsets[2]));
+                int base = buffer.getOffset() + (-ty) * stride + (-tx) * pixelStride + first;
+                for (int y = 0; y < dh; y++) {
+                    int row0 = base + 2 * y * stride;
+                    int row1 = row0 + stride;
+                    int out = y * dw;
+                    for (int x = 0; x < dw; x++) {
+                        int a = row0 + 2 * x * pixelStride;
+                        int b = row1 + 2 * x * pixelStride;
+                        int sum = (data[a] & 0xFF) + (data[a + 1] & 0xFF) + (data[a + 2] & 0xFF)
+                                + (data[a + pixelStride] & 0xFF) + (data[a + pixelStride + 1] & 0xFF)
+                                + (data[a + pixelStride + 2] & 0xFF)
+                                + (data[b] & 0xFF) + (data[b + 1] & 0xFF) + (data[b + 2] & 0xFF)
+                                + (data[b + pixelStride] & 0xFF) + (data[b + pixelStride + 1] & 0xFF)
+                                + (data[b + pixelStride + 2] & 0xFF);
+                        dst[out + x] = (byte) ((sum + 6) / 12);
+                    }
+                }
+                return;
+            }
+        }
+
+        if (buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel
+                && model.getNumBands() >= 3) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) model;
+            int stride = sm.getScanlineStride();
+            int base = buffer.getOffset() + sm.getOffset(-tx, -ty);
+            for (int y = 0; y < dh; y++) {
+                int row0 = base + 2 * y * stride;
+                int row1 = row0 + stride;
+                int out = y * dw;
+                for (int x = 0; x < dw; x++) {
+                    int i = 2 * x;
+                    int sum = componentSum(data[row0 + i]) + componentSum(data[row0 + i + 1])
+                            + componentSum(data[row1 + i]) + componentSum(data[row1 + i + 1]);
+                    dst[out + x] = (byte) ((sum + 6) / 12);
+                }
+            }
+            return;
+        }
+
+        // 回退路径：每次批量读取两行
+        for (int y = 0; y < dh; y++) {
+            image.getRGB(0, 2 * y, w, 2, scratch, 0, w);
+            int out = y * dw;
+            for (int x = 0; x < dw; x++) {
+                int i = 2 * x;
+                int sum = componentSum(scratch[i]) + componentSum(scratch[i + 1])
+                        + componentSum(scratch[w + i]) + componentSum(scratch[w + i + 1]);
+                dst[out + x] = (byte) ((sum + 6) / 12);
+            }
+        }
+    }
+
+    /**
+     * 按cell x cell的网格对图像取样：每个格子取(1/4, 3/4)位置的2x2个像素求平均，格式为0xRRGGBB，
+     * 结果写入dst（行优先，gw * gh）。用于肤色等只需要粗略颜色的检测，读取量与网格大小成正比。
+     */
+    public static void sampleCells(BufferedImage image, int cell, int gw, int gh, int[] dst) {
+        int near = cell / 4;
+        int far = cell - 1 - near;
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int type = image.getType();
+
+        if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+                && buffer instanceof DataBufferByte) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            ComponentSampleModel sm = (ComponentSampleModel) model;
+            int pixelStride = sm.getPixelStride();
+            int stride = sm.getScanlineStride();
+            int[] bandOffsets = sm.getBandOffsets();
+            int rOff = bandOffsets[0];
+            int gOff = bandOffsets[1];
+            int bOff = bandOffsets[2];
+            int base = buffer.getOffset() + (-ty) * stride + (-tx) * pixelStride;
+            int dx = (far - near) * pixelStride;
+            int dy = (far - near) * stride;
+            for (int y = 0; y < gh; y++) {
+                int row = base + (y * cell + near) * stride + near * pixelStride;
+                int out = y * gw;
+                for (int x = 0; x < gw; x++) {
+                    int a = row + x * cell * pixelStride;
+                    int b = a + dy;
+                    int r = (data[a + rOff] & 0xFF) + (data[a + dx + rOff] & 0xFF)
+                            + (data[b + rOff] & 0xFF) + (data[b + dx + rOff] & 0xFF);
+                    int g = (data[a + gOff] & 0xFF) + (data[a + dx + gOff] & 0xFF)
+                            + (data[b + gOff] & 0xFF) + (data[b + dx + gOff] & 0xFF);
+                    int bl = (data[a + bOff] & 0xFF) + (data[a + dx + bOff] & 0xFF)
+                            + (data[b + bOff] & 0xFF) + (data[b + dx + bOff] & 0xFF);
+                    dst[out + x] = ((r >> 2) << 16) | ((g >> 2) << 8) | (bl >> 2);
+                }
+            }
+            return;
+        }
+
+        boolean direct = (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && buffer instanceof DataBufferInt;
+        int[] data = direct ? ((DataBufferInt) buffer).getData() : null;
+        int stride = direct ? ((SinglePixelPackedSampleModel) model).getScanlineStride() : 0;
+        int base = direct ? buffer.getOffset() + ((SinglePixelPackedSampleModel) model).getOffset(-tx, -ty) : 0;
+        for (int y = 0; y < gh; y++) {
+            int y0 = y * cell + near;
+            int y1 = y * cell + far;
+            for (int x = 0; x < gw; x++) {
+                int x0 = x * cell + near;
+                int x1 = x * cell + far;
+                int p0;
+                int p1;
+                int p2;
+                int p3;
+                if (direct) {
+                    p0 = data[base + y0 * stride + x0];
+                    p1 = data[base + y0 * stride + x1];
+                    p2 = data[base + y1 * stride + x0];
+                    p3 = data[base + y1 * stride + x1];
+                } else {
+                    // 回退路径：只取样少量像素，逐个getRGB的开销可以接受
+                    p0 = image.getRGB(x0, y0);
+                    p1 = image.getRGB(x1, y0);
+                    p2 = image.getRGB(x0, y1);
+                    p3 = image.getRGB(x1, y1);
+                }
+                int r = ((p0 >> 16) & 0xFF) + ((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF);
+                int g = ((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF);
+                int b = (p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF);
+                dst[y * gw + x] = ((r >> 2) << 16) | ((g >> 2) << 8) | (b >> 2);
+            }
+        }
+    }
+
+    private static int componentSum(int p) {
+        return ((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF);
+    }
+
+    private static boolean isContiguous(int[] bandOffsets) {
+        int min = Math.min(bandOffsets[0], Math.min(bandOffsets[1], bandOffsets[2]));
+        int max = Math.max(bandOffsets[0], Math.max(bandOffsets[1], bandOffsets[2]));
+        return max - min == 2;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.video;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 回放磁盘上的帧文件（目录中的png/jpg/bmp，按文件名排序），播放到末尾后循环。
+ * 可选择预先载入全部帧，避免回放时的解码开销影响性能测试。
+ */
+public class RecordedFrameSource implements FrameSource {
+    private final File directory;
+    private final double frameRate;
+    private final boolean preload;
+
+    private File[] files = new File[0];
+    private BufferedImage[] preloaded;
+    private Dimension viewSize = new Dimension(0, 0);
+    private volatile boolean open;
+    private int position;
+
+    public RecordedFrameSource(File directory, double frameRate, boolean preload) {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("帧率必须为正数: " + frameRate);
+        }
+        this.directory = directory;
+        this.frameRate = frameRate;
+        this.preload = preload;
+    }
+
+    @Override
+    public synchronized boolean open() {
+        File[] found = directory.listFiles((dir, name) -> isImageFile(name));
+        if (found == null || found.length == 0) {
+            System.out.println("帧目录为空或不存在: " + directory);
+            return false;
+        }
+        Arrays.sort(found);
+        files = found;
+        position = 0;
+        try {
+            BufferedImage first = ImageIO.read(files[0]);
+            if (first == null) {
+                System.out.println("无法解码帧文件: " + files[0]);
+                return false;
+            }
+            viewSize = new Dimension(first.getWidth(), first.getHeight());
+            if (preload) {
+                preloaded = new BufferedImage[files.length];
+                preloaded[0] = first;
+                for (int i = 1; i < files.length; i++) {
+                    preloaded[i] = ImageIO.read(files[i]);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("读取帧文件失败: " + e.getMessage());
+            return false;
+        }
+        open = true;
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized BufferedImage getImage() {
+        if (!open) {
+            return null;
+        }
+        int index = position;
+        position = (position + 1) % files.length;
+        if (preloaded != null) {
+            // 预载入的帧被多次回放，返回副本以免调用方修改缓存
+            return copy(preloaded[index]);
+        }
+        try {
+            return ImageIO.read(files[index]);
+        } catch (IOException e) {
+            System.out.println("读取帧文件失败: " + files[index] + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), source.getType());
+        source.copyData(copy.getRaster());
+        return copy;
+    }
+
+    /**
+     * 把另一个来源的count帧录制为png文件，供之后回放。
+     */
+    public static void record(FrameSource source, File directory, int count) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录: " + directory);
+        }
+        for (int i = 0; i < count; i++) {
+            BufferedImage frame = source.getImage();
+            if (frame == null) {
+                break;
+            }
+            ImageIO.write(frame, "png", new File(directory, String.format("frame_%06d.png", i)));
+        }
+    }
+
+    private static boolean isImageFile(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".bmp");
+    }
+
+    @Override
+    public Dimension getViewSize() {
+        return new Dimension(viewSize);
+    }
+
+    @Override
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public String getName() {
+        return "帧回放 " + directory.getPath();
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        preloaded = null;
+    }
+}
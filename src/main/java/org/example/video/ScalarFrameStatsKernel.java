@@ -0,0 +1,84 @@
+package org.example.video;
+
+/**
+ * 标量统计内核，也是向量内核不可用时的回退实现。
+ */
+public final class ScalarFrameStatsKernel implements FrameStatsKernel {
+    // 4路交错的直方图，避免相邻像素落在同一档时的写后读依赖
+    private final int[] partialHistograms = new int[4 * 256];
+
+    @Override
+    public void compute(byte[] current, byte[] previous, int stride, int x0, int y0, int x1, int y1,
+                        int threshold, boolean histogram, FrameStats out) {
+        out.reset(histogram);
+        out.pixelCount = (long) Math.max(0, x1 - x0) * Math.max(0, y1 - y0);
+        long lumaSum = 0;
+        long diffCount = 0;
+        long diffSumX = 0;
+        long diffSumY = 0;
+        for (int y = y0; y < y1; y++) {
+            int row = y * stride;
+            int rowSum = 0;
+            if (previous != null) {
+                int rowDiff = 0;
+                for (int x = x0; x < x1; x++) {
+                    int b = current[row + x] & 0xFF;
+                    rowSum += b;
+                    if (Math.abs(b - (previous[row + x] & 0xFF)) > threshold) {
+                        rowDiff++;
+                        diffSumX += x;
+                    }
+                }
+                diffCount += rowDiff;
+                diffSumY += (long) rowDiff * y;
+            } else {
+                for (int x = x0; x < x1; x++) {
+                    rowSum += current[row + x] & 0xFF;
+                }
+            }
+            lumaSum += rowSum;
+        }
+        out.lumaSum = lumaSum;
+        out.diffCount = diffCount;
+        out.diffSumX = diffSumX;
+        out.diffSumY = diffSumY;
+        if (histogram) {
+            histogram(current, stride, x0, y0, x1, y1, partialHistograms, out.histogram);
+        }
+    }
+
+    /** 直方图统计，向量内核同样使用该实现 */
+    static void histogram(byte[] plane, int stride, int x0, int y0, int x1, int y1,
+                          int[] partial, long[] out) {
+        java.util.Arrays.fill(partial, 0);
+        for (int y = y0; y < y1; y++) {
+            int row = y * stride;
+            int x = x0;
+            for (; x + 3 < x1; x += 4) {
+                partial[plane[row + x] & 0xFF]++;
+                partial[256 + (plane[row + x + 1] & 0xFF)]++;
+                partial[512 + (plane[row + x + 2] & 0xFF)]++;
+                partial[768 + (plane[row + x + 3] & 0xFF)]++;
+            }
+            for (; x < x1; x++) {
+                partial[plane[row + x] & 0xFF]++;
+            }
+            // 每行合并一次，单行像素数不会让int计数溢出
+            for (int i = 0; i < 256; i++) {
+                int n = partial[i] + partial[256 + i] + partial[512 + i] + partial[768 + i];
+                if (n != 0) {
+                    out[i] += n;
+                    partial[i] = 0;
+                    partial[256 + i] = 0;
+                    partial[512 + i] = 0;
+                    partial[768 + i] = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.video;
+
+/**
+ * 单个管线阶段的延迟统计。只由该阶段的工作线程写入，其他线程读取的是近似值。
+ * serviceNanos为阶段自身的处理耗时，ageNanos为处理完成时距离采集的时间（含排队等待）。
+ */
+public final class StageStats {
+    private final String name;
+    private volatile long count;
+    private volatile long totalServiceNanos;
+    private volatile long maxServiceNanos;
+    private volatile long totalAgeNanos;
+    private volatile long maxAgeNanos;
+
+    public StageStats(String name) {
+        this.name = name;
+    }
+
+    void record(long serviceNanos, long ageNanos) {
+        count = count + 1;
+        totalServiceNanos = totalServiceNanos + serviceNanos;
+        totalAgeNanos = totalAgeNanos + ageNanos;
+        if (serviceNanos > maxServiceNanos) {
+            maxServiceNanos = serviceNanos;
+        }
+        if (ageNanos > maxAgeNanos) {
+            maxAgeNanos = ageNanos;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanServiceMillis() {
+        long n = count;
+        return n == 0 ? 0 : totalServiceNanos / 1e6 / n;
+    }
+
+    public double getMaxServiceMillis() {
+        return maxServiceNanos / 1e6;
+    }
+
+    public double getMeanAgeMillis() {
+        long n = count;
+        return n == 0 ? 0 : totalAgeNanos / 1e6 / n;
+    }
+
+    public double getMaxAgeMillis() {
+        return maxAgeNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d帧, 处理 %.2f/%.2f ms(平均/最大), 距采集 %.2f/%.2f ms",
+                name, count, getMeanServiceMillis(), getMaxServiceMillis(), getMeanAgeMillis(), getMaxAgeMillis());
+    }
+}
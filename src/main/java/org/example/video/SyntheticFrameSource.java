@@ -0,0 +1,158 @@
+package org.example.video;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * 确定性的合成视频源：亮度渐变背景、移动的形状和伪随机噪声。
+ * 第n帧的内容只取决于构造参数和n，便于复现分析结果和性能测试。
+ */
+public class SyntheticFrameSource implements FrameSource {
+    private final int width;
+    private final int height;
+    private final double frameRate;
+    private final long seed;
+    private final int noiseAmplitude;
+    private final boolean brightnessRamp;
+
+    private volatile boolean open;
+    private long frameIndex;
+
+    public SyntheticFrameSource(int width, int height, double frameRate) {
+        this(width, height, frameRate, 42L, 8, true);
+    }
+
+    /**
+     * @param noiseAmplitude 每像素噪声幅度（0表示无噪声）
+     * @param brightnessRamp 是否让整体亮度随时间缓慢起伏（模拟环境光变化和离开时的暗场）
+     */
+    public SyntheticFrameSource(int width, int height, double frameRate, long seed,
+                                int noiseAmplitude, boolean brightnessRamp) {
+        if (width <= 0 || height <= 0 || frameRate <= 0) {
+            throw new IllegalArgumentException("无效的合成视频参数: " + width + "x" + height + "@" + frameRate);
+        }
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.seed = seed;
+        this.noiseAmplitude = noiseAmplitude;
+        this.brightnessRamp = brightnessRamp;
+    }
+
+    @Override
+    public boolean open() {
+        open = true;
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized BufferedImage getImage() {
+        if (!open) {
+            return null;
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        render(frameIndex++, image);
+        return image;
+    }
+
+    /**
+     * 把第index帧绘制到dst中。dst尺寸应与来源一致；性能测试可预先渲染到复用的图像上。
+     */
+    public void render(long index, BufferedImage dst) {
+        double t = index / frameRate;
+        int base = 150;
+        if (brightnessRamp) {
+            // 20秒一个周期，在暗场(约20)与正常亮度之间起伏
+            base = (int) (85 + 65 * Math.cos(2 * Math.PI * t / 20.0));
+        }
+
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setPaint(new GradientPaint(0, 0, gray(base + 20), 0, height, gray(base - 20)));
+            g.fillRect(0, 0, width, height);
+
+            // 居中的"头部"，缓慢左右摇摆
+            int headW = width / 4;
+            int headH = height / 3;
+            int headX = (int) (width / 2 - headW / 2 + width * 0.05 * Math.sin(2 * Math.PI * t / 6.0));
+            int headY = height / 3 - headH / 4;
+            g.setColor(new Color(clamp(base + 60), clamp(base + 30), clamp(base + 10)));
+            g.fillOval(headX, headY, headW, headH);
+
+            // 沿Lissajous轨迹移动的方块和圆
+            int size = Math.max(4, Math.min(width, height) / 8);
+            int bx = (int) ((width - size) * (0.5 + 0.45 * Math.sin(2 * Math.PI * t / 3.0)));
+            int by = (int) ((height - size) * (0.5 + 0.45 * Math.sin(2 * Math.PI * t / 4.3)));
+            g.setColor(new Color(40, clamp(base + 80), 200));
+            g.fillRect(bx, by, size, size);
+
+            int cx = (int) ((width - size) * (0.5 + 0.4 * Math.cos(2 * Math.PI * t / 5.1)));
+            int cy = (int) ((height - size) * (0.5 + 0.4 * Math.sin(2 * Math.PI * t / 2.7)));
+            g.setColor(new Color(clamp(base + 90), 60, 60));
+            g.fillOval(cx, cy, size, size);
+        } finally {
+            g.dispose();
+        }
+
+        if (noiseAmplitude > 0) {
+            addNoise(index, dst);
+        }
+    }
+
+    private void addNoise(long index, BufferedImage dst) {
+        if (!(dst.getRaster().getDataBuffer() instanceof DataBufferByte)) {
+            return;
+        }
+        byte[] data = ((DataBufferByte) dst.getRaster().getDataBuffer()).getData();
+        // xorshift伪随机数，由seed和帧序号确定
+        long state = seed * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L + 1;
+        int span = 2 * noiseAmplitude + 1;
+        for (int i = 0; i < data.length; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            int noise = (int) ((state >>> 33) % span) - noiseAmplitude;
+            data[i] = (byte) clamp((data[i] & 0xFF) + noise);
+        }
+    }
+
+    private static Color gray(int v) {
+        int c = clamp(v);
+        return new Color(c, c, c);
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+
+    @Override
+    public Dimension getViewSize() {
+        return new Dimension(width, height);
+    }
+
+    @Override
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public String getName() {
+        return "合成视频源 " + width + "x" + height + "@" + frameRate;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
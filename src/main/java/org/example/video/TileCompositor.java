@@ -0,0 +1,239 @@
+package org.example.video;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * 视频画面合成器：把摄像头帧（或其模糊结果）、虚拟形象和文字叠加层合成到一个复用的后备缓冲区中，
+ * 后备缓冲区与显示尺寸相同，绘制到屏幕时只需一次不缩放的拷贝。
+ * 每次修改都记录受影响的脏区域，compose()只重绘脏区域：
+ * <ul>
+ *     <li>摄像头和模糊模式下新帧使整个画面变脏；虚拟形象模式下新帧被直接丢弃，画面保持不变；</li>
+ *     <li>说明文字变化只重绘新旧文字框所在区域，模糊模式下复用当前帧的模糊结果；</li>
+ *     <li>切换模式只重绘一次整个画面，不创建新的缓冲区或组件。</li>
+ * </ul>
+ * 纯CPU绘制，不依赖VolatileImage或显卡加速。非线程安全，应由单一绘制线程（通常是EDT）使用。
+ */
+public final class TileCompositor {
+    private static final Color BACKGROUND = Color.DARK_GRAY;
+    private static final Color CAPTION_BACKGROUND = new Color(0, 0, 0, 150);
+    private static final int CAPTION_MARGIN = 8;
+    private static final int CAPTION_PADDING = 6;
+
+    private final BackgroundBlur blur = new BackgroundBlur();
+    private final Font captionFont = new Font(Font.SANS_SERIF, Font.BOLD, 14);
+
+    private int width;
+    private int height;
+    private BufferedImage backBuffer;
+    private FontMetrics captionMetrics;
+    private final Rectangle dirty = new Rectangle();
+
+    private TileMode mode = TileMode.CAMERA;
+    private boolean mirrored;
+    private BufferedImage frame;
+    private BufferedImage blurred;
+    private BufferedImage avatar;
+    private String caption;
+    private Rectangle captionBounds = new Rectangle();
+
+    private long composeCount;
+    private long composedPixels;
+    private long skippedFrames;
+    private long totalComposeNanos;
+    private long lastComposeNanos;
+
+    /** 调整后备缓冲区尺寸，与当前尺寸相同时不做任何事 */
+    public void setSize(int width, int height) {
+        if (width <= 0 || height <= 0 || (width == this.width && height == this.height)) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = backBuffer.createGraphics();
+        captionMetrics = g.getFontMetrics(captionFont);
+        g.dispose();
+        captionBounds = captionBounds(caption);
+        markDirty(0, 0, width, height);
+    }
+
+    public void setMode(TileMode mode) {
+        if (mode != this.mode) {
+            this.mode = mode;
+            markAllDirty();
+        }
+    }
+
+    public TileMode getMode() {
+        return mode;
+    }
+
+    /** 水平镜像摄像头画面，与照镜子的感觉一致 */
+    public void setMirrored(boolean mirrored) {
+        if (mirrored != this.mirrored) {
+            this.mirrored = mirrored;
+            if (mode != TileMode.AVATAR) {
+                markAllDirty();
+            }
+        }
+    }
+
+    public void setBlurRadius(int radius) {
+        blur.setRadius(radius);
+        if (mode == TileMode.BLUR) {
+            blurred = null;
+            markAllDirty();
+        }
+    }
+
+    public void setAvatar(BufferedImage avatar) {
+        this.avatar = avatar;
+        if (mode == TileMode.AVATAR) {
+            markAllDirty();
+        }
+    }
+
+    /** 新的摄像头帧；虚拟形象模式下不保留，也不产生脏区域 */
+    public void setFrame(BufferedImage frame) {
+        if (mode == TileMode.AVATAR) {
+            skippedFrames++;
+            return;
+        }
+        this.frame = frame;
+        blurred = null;
+        markAllDirty();
+    }
+
+    /** 画面左下角的说明文字，null表示不显示 */
+    public void setCaption(String caption) {
+        if (caption == null ? this.caption == null : caption.equals(this.caption)) {
+            return;
+        }
+        this.caption = caption;
+        markDirty(captionBounds);
+        captionBounds = captionBounds(caption);
+        markDirty(captionBounds);
+    }
+
+    /** 当前待重绘的区域，为空表示画面无需更新；返回的是副本 */
+    public Rectangle getDirty() {
+        return new Rectangle(dirty);
+    }
+
+    /** 重绘脏区域并返回该区域，没有后备缓冲区或没有脏区域时返回空矩形 */
+    public Rectangle compose() {
+        if (backBuffer == null || dirty.isEmpty()) {
+            return new Rectangle();
+        }
+        long start = System.nanoTime();
+        Rectangle region = new Rectangle(dirty);
+        Graphics2D g = backBuffer.createGraphics();
+        try {
+            g.clip(region);
+            drawBase(g);
+            drawCaption(g);
+        } finally {
+            g.dispose();
+        }
+        dirty.setBounds(0, 0, 0, 0);
+        lastComposeNanos = System.nanoTime() - start;
+        totalComposeNanos += lastComposeNanos;
+        composeCount++;
+        composedPixels += (long) region.width * region.height;
+        return region;
+    }
+
+    /** 合成结果，尺寸变化前一直是同一个对象 */
+    public BufferedImage getBackBuffer() {
+        return backBuffer;
+    }
+
+    private void drawBase(Graphics2D g) {
+        BufferedImage image = mode == TileMode.AVATAR ? avatar : frame;
+        if (image == null) {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, width, height);
+            return;
+        }
+        if (mode == TileMode.BLUR) {
+            // 同一帧只模糊一次，只有文字变化时复用
+            if (blurred == null) {
+                blurred = blur.apply(frame);
+            }
+            image = blurred;
+        }
+        boolean flip = mirrored && mode != TileMode.AVATAR;
+        g.drawImage(image, flip ? width : 0, 0, flip ? 0 : width, height,
+                0, 0, image.getWidth(), image.getHeight(), null);
+    }
+
+    private void drawCaption(Graphics2D g) {
+        if (caption == null || captionBounds.isEmpty()) {
+            return;
+        }
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(CAPTION_BACKGROUND);
+        g.fillRect(captionBounds.x, captionBounds.y, captionBounds.width, captionBounds.height);
+        g.setColor(Color.WHITE);
+        g.setFont(captionFont);
+        g.drawString(caption, captionBounds.x + CAPTION_PADDING,
+                captionBounds.y + CAPTION_PADDING + captionMetrics.getAscent());
+    }
+
+    private Rectangle captionBounds(String text) {
+        if (text == null || captionMetrics == null) {
+            return new Rectangle();
+        }
+        int w = captionMetrics.stringWidth(text) + 2 * CAPTION_PADDING;
+        int h = captionMetrics.getHeight() + 2 * CAPTION_PADDING;
+        return new Rectangle(CAPTION_MARGIN, height - CAPTION_MARGIN - h, w, h);
+    }
+
+    private void markAllDirty() {
+        markDirty(0, 0, width, height);
+    }
+
+    private void markDirty(Rectangle r) {
+        markDirty(r.x, r.y, r.width, r.height);
+    }
+
+    private void markDirty(int x, int y, int w, int h) {
+        Rectangle r = new Rectangle(x, y, w, h).intersection(new Rectangle(0, 0, width, height));
+        if (r.isEmpty()) {
+            return;
+        }
+        if (dirty.isEmpty()) {
+            dirty.setBounds(r);
+        } else {
+            dirty.add(r);
+        }
+    }
+
+    public long getComposeCount() {
+        return composeCount;
+    }
+
+    /** 所有compose()重绘的像素总数 */
+    public long getComposedPixels() {
+        return composedPixels;
+    }
+
+    public long getLastComposeNanos() {
+        return lastComposeNanos;
+    }
+
+    @Override
+    public String toString() {
+        long area = (long) width * height;
+        return String.format("画面合成 %dx%d %s: 合成 %d 次, 平均重绘 %.1f%% 画面, 平均 %.2f ms, 丢弃帧 %d",
+                width, height, mode.getDisplayName(), composeCount,
+                composeCount == 0 || area == 0 ? 0.0 : 100.0 * composedPixels / composeCount / area,
+                composeCount == 0 ? 0.0 : totalComposeNanos / 1e6 / composeCount, skippedFrames);
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.video;
+
+/**
+ * 视频画面的显示模式
+ */
+public enum TileMode {
+    CAMERA("摄像头"),
+    BLUR("背景模糊"),
+    AVATAR("虚拟形象");
+
+    private final String displayName;
+
+    TileMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
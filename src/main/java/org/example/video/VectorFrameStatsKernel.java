@@ -0,0 +1,107 @@
+package org.example.video;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于jdk.incubator.vector的统计内核。字节按无符号扩展为short后做求和、差值和比较；
+ * short累加器每128次迭代（亮度和最大32640）折叠进long，保证4K分辨率下不溢出；
+ * 差异像素的x坐标和由"块起点×命中数"加上按通道累计的命中次数×通道下标得到，不需要逐个遍历命中通道。
+ * 只能在加载了jdk.incubator.vector模块时使用，应通过FrameStatsKernels.best()获取。
+ */
+final class VectorFrameStatsKernel implements FrameStatsKernel {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+    private static final int LANES = SHORTS.length();
+    private static final int FLUSH_INTERVAL = 128;
+    private static final ShortVector ONES = ShortVector.broadcast(SHORTS, (short) 1);
+    private static final ShortVector LANE_INDEX = ShortVector.zero(SHORTS).addIndex(1);
+
+    private final int[] partialHistograms = new int[4 * 256];
+
+    @Override
+    public void compute(byte[] current, byte[] previous, int stride, int x0, int y0, int x1, int y1,
+                        int threshold, boolean histogram, FrameStats out) {
+        out.reset(histogram);
+        out.pixelCount = (long) Math.max(0, x1 - x0) * Math.max(0, y1 - y0);
+        short limit = (short) threshold;
+        long lumaSum = 0;
+        long diffCount = 0;
+        long diffSumX = 0;
+        long diffSumY = 0;
+        for (int y = y0; y < y1; y++) {
+            int row = y * stride;
+            ShortVector acc = ShortVector.zero(SHORTS);
+            // 每个通道位置上的差异像素计数，用于求差异像素x坐标之和
+            ShortVector laneHits = ShortVector.zero(SHORTS);
+            int pending = 0;
+            long rowDiff = 0;
+            int x = x0;
+            int bound = x0 + (x1 - x0) / LANES * LANES;
+            for (; x < bound; x += LANES) {
+                ShortVector cur = widen(ByteVector.fromArray(BYTES, current, row + x));
+                acc = acc.add(cur);
+                if (previous != null) {
+                    ShortVector prev = widen(ByteVector.fromArray(BYTES, previous, row + x));
+                    VectorMask<Short> moving = cur.sub(prev).abs().compare(VectorOperators.GT, limit);
+                    int hits = moving.trueCount();
+                    if (hits != 0) {
+                        // x坐标和 = 块起点 × 命中数 + 命中通道下标之和，后者由laneHits在折叠时算出
+                        rowDiff += hits;
+                        diffSumX += (long) x * hits;
+                        laneHits = laneHits.add(ONES, moving);
+                    }
+                }
+                if (++pending == FLUSH_INTERVAL) {
+                    lumaSum += sumLanes(acc);
+                    diffSumX += sumLanes(laneHits.mul(LANE_INDEX));
+                    acc = ShortVector.zero(SHORTS);
+                    laneHits = ShortVector.zero(SHORTS);
+                    pending = 0;
+                }
+            }
+            lumaSum += sumLanes(acc);
+            diffSumX += sumLanes(laneHits.mul(LANE_INDEX));
+            // 行尾不足一个向量的部分
+            for (; x < x1; x++) {
+                int b = current[row + x] & 0xFF;
+                lumaSum += b;
+                if (previous != null && Math.abs(b - (previous[row + x] & 0xFF)) > threshold) {
+                    rowDiff++;
+                    diffSumX += x;
+                }
+            }
+            diffCount += rowDiff;
+            diffSumY += rowDiff * y;
+        }
+        out.lumaSum = lumaSum;
+        out.diffCount = diffCount;
+        out.diffSumX = diffSumX;
+        out.diffSumY = diffSumY;
+        if (histogram) {
+            // 向量API没有高效的散射累加，直方图沿用标量实现
+            ScalarFrameStatsKernel.histogram(current, stride, x0, y0, x1, y1, partialHistograms, out.histogram);
+        }
+    }
+
+    private static ShortVector widen(ByteVector bytes) {
+        return ((ShortVector) bytes.convertShape(VectorOperators.B2S, SHORTS, 0)).and((short) 0xFF);
+    }
+
+    private static long sumLanes(ShortVector acc) {
+        // 先扩展为int再归约，避免short精度下的溢出
+        return ((IntVector) acc.convert(VectorOperators.S2I, 0)).reduceLanesToLong(VectorOperators.ADD)
+                + ((IntVector) acc.convert(VectorOperators.S2I, 1)).reduceLanesToLong(VectorOperators.ADD);
+    }
+
+    @Override
+    public String getName() {
+        return "vector(" + SHORTS.vectorBitSize() + "bit)";
+    }
+}
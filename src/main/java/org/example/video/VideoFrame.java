@@ -0,0 +1,40 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 在管线各阶段之间传递的一帧及其时间戳（System.nanoTime）。
+ */
+public final class VideoFrame {
+    private final BufferedImage image;
+    private final long sequence;
+    private final long captureNanos;
+    private volatile long analyzedNanos;
+
+    public VideoFrame(BufferedImage image, long sequence, long captureNanos) {
+        this.image = image;
+        this.sequence = sequence;
+        this.captureNanos = captureNanos;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /** 分析完成的时间，尚未分析时为0 */
+    public long getAnalyzedNanos() {
+        return analyzedNanos;
+    }
+
+    void markAnalyzed(long nanos) {
+        analyzedNanos = nanos;
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.video;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 采集 → 分析 → 渲染三阶段视频管线，每个阶段有独立的工作线程。
+ * <pre>
+ *   采集 ──captureToAnalysis──▶ 分析 ──analysisToRender──┐
+ *     └──────────captureToRender──────────────────────▶ 渲染
+ * </pre>
+ * 阶段之间通过容量很小的LatestFrameRing连接，积压时丢弃旧帧；
+ * 渲染直接取采集的最新帧，并附带最近一次分析完成的帧，因此分析变慢不会拖慢画面。
+ * 分析频率可以固定，也可以交给AdaptiveAnalysisScheduler按场景活跃度和CPU预算动态调整，
+ * 此时画面静止或用户离开时采集频率也按调度器的建议降低。
+ */
+public final class VideoPipeline implements AutoCloseable {
+    private static final int RING_CAPACITY = 2;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** 分析阶段处理函数，在分析线程中调用 */
+    public interface Analyzer {
+        void analyze(VideoFrame frame) throws Exception;
+    }
+
+    /** 渲染阶段处理函数，在渲染线程中调用；lastAnalyzed为最近分析完成的帧，可能为null */
+    public interface Renderer {
+        void render(VideoFrame frame, VideoFrame lastAnalyzed) throws Exception;
+    }
+
+    private final FrameSource source;
+    private final long capturePeriodNanos;
+    private final long analysisIntervalNanos;
+    private final AdaptiveAnalysisScheduler scheduler;
+    private final Analyzer analyzer;
+    private final Renderer renderer;
+
+    private final LatestFrameRing<VideoFrame> captureToAnalysis = new LatestFrameRing<>(RING_CAPACITY);
+    private final LatestFrameRing<VideoFrame> captureToRender = new LatestFrameRing<>(RING_CAPACITY);
+    private final LatestFrameRing<VideoFrame> analysisToRender = new LatestFrameRing<>(RING_CAPACITY);
+
+    private final StageStats captureStats = new StageStats("采集");
+    private final StageStats analysisStats = new StageStats("分析");
+    private final StageStats renderStats = new StageStats("渲染");
+
+    private volatile boolean running;
+    private Thread captureThread;
+    private Thread analysisThread;
+    private Thread renderThread;
+
+    /**
+     * @param captureFps            采集帧率
+     * @param analysisIntervalMillis 两次分析之间的最小间隔，期间到达的帧被跳过；0表示每帧都分析
+     */
+    public VideoPipeline(FrameSource source, double captureFps, long analysisIntervalMillis,
+                         Analyzer analyzer, Renderer renderer) {
+        this(source, captureFps, analysisIntervalMillis, null, analyzer, renderer);
+    }
+
+    /**
+     * 使用自适应调度的管线，分析间隔由scheduler决定。
+     */
+    public VideoPipeline(FrameSource source, double captureFps, AdaptiveAnalysisScheduler scheduler,
+                         Analyzer analyzer, Renderer renderer) {
+        this(source, captureFps, 0, scheduler, analyzer, renderer);
+    }
+
+    private VideoPipeline(FrameSource source, double captureFps, long analysisIntervalMillis,
+                          AdaptiveAnalysisScheduler scheduler, Analyzer analyzer, Renderer renderer) {
+        if (captureFps <= 0) {
+            throw new IllegalArgumentException("采集帧率必须为正数: " + captureFps);
+        }
+        this.source = source;
+        this.capturePeriodNanos = (long) (1e9 / captureFps);
+        this.analysisIntervalNanos = TimeUnit.MILLISECONDS.toNanos(analysisIntervalMillis);
+        this.scheduler = scheduler;
+        this.analyzer = analyzer;
+        this.renderer = renderer;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        analysisThread = newWorker("video-analysis", this::analysisLoop, Thread.NORM_PRIORITY - 1);
+        renderThread = newWorker("video-render", this::renderLoop, Thread.NORM_PRIORITY);
+        captureThread = newWorker("video-capture", this::captureLoop, Thread.NORM_PRIORITY);
+        analysisThread.start();
+        renderThread.start();
+        captureThread.start();
+    }
+
+    private static Thread newWorker(String name, Runnable body, int priority) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+        return thread;
+    }
+
+    private void captureLoop() {
+        long sequence = 0;
+        long last = System.nanoTime() - currentCapturePeriod();
+        while (running) {
+            // 每轮重新计算周期，调度器缩短间隔后被唤醒时立即按新频率采集
+            long period = currentCapturePeriod();
+            long wait = last + period - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            long start = System.nanoTime();
+            // 采集本身跟不上目标帧率时不追赶，避免突发
+            last = -wait > period ? start : last + period;
+            try {
+                BufferedImage image = source.isOpen() ? source.getImage() : null;
+                if (image != null) {
+                    long now = System.nanoTime();
+                    VideoFrame frame = new VideoFrame(image, sequence++, now);
+                    captureToAnalysis.offer(frame);
+                    captureToRender.offer(frame);
+                    LockSupport.unpark(analysisThread);
+                    LockSupport.unpark(renderThread);
+                    captureStats.record(now - start, 0);
+                }
+            } catch (Exception e) {
+                System.out.println("视频采集错误: " + e.getMessage());
+            }
+        }
+    }
+
+    private long currentCapturePeriod() {
+        return scheduler != null ? Math.max(capturePeriodNanos, scheduler.nextCaptureIntervalNanos())
+                : capturePeriodNanos;
+    }
+
+    private void analysisLoop() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureCpu = scheduler != null && threads.isCurrentThreadCpuTimeSupported();
+        long lastAnalysis = System.nanoTime() - currentAnalysisInterval();
+        while (running) {
+            long wait = lastAnalysis + currentAnalysisInterval() - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            VideoFrame frame = captureToAnalysis.pollLatest();
+            if (frame == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            long start = System.nanoTime();
+            long cpuStart = measureCpu ? threads.getCurrentThreadCpuTime() : -1;
+            lastAnalysis = start;
+            // 分析处理函数会向调度器报告场景活跃度，先记下原来的采集周期
+            long capturePeriod = currentCapturePeriod();
+            try {
+                analyzer.analyze(frame);
+            } catch (Exception e) {
+                System.out.println("视频分析错误: " + e.getMessage());
+            }
+            long end = System.nanoTime();
+            if (scheduler != null) {
+                scheduler.onAnalyzed(measureCpu ? threads.getCurrentThreadCpuTime() - cpuStart : -1);
+                if (currentCapturePeriod() < capturePeriod) {
+                    // 出现动作后不等采集线程睡完较长的空闲间隔
+                    LockSupport.unpark(captureThread);
+                }
+            }
+            frame.markAnalyzed(end);
+            analysisToRender.offer(frame);
+            analysisStats.record(end - start, end - frame.getCaptureNanos());
+        }
+    }
+
+    private long currentAnalysisInterval() {
+        return scheduler != null ? scheduler.nextIntervalNanos() : analysisIntervalNanos;
+    }
+
+    private void renderLoop() {
+        VideoFrame lastAnalyzed = null;
+        while (running) {
+            VideoFrame frame = captureToRender.pollLatest();
+            if (frame == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            VideoFrame analyzed = analysisToRender.pollLatest();
+            if (analyzed != null) {
+                lastAnalyzed = analyzed;
+            }
+            long start = System.nanoTime();
+            try {
+                renderer.render(frame, lastAnalyzed);
+            } catch (Exception e) {
+                System.out.println("视频渲染错误: " + e.getMessage());
+            }
+            long end = System.nanoTime();
+            renderStats.record(end - start, end - frame.getCaptureNanos());
+        }
+    }
+
+    public StageStats getCaptureStats() {
+        return captureStats;
+    }
+
+    public StageStats getAnalysisStats() {
+        return analysisStats;
+    }
+
+    public StageStats getRenderStats() {
+        return renderStats;
+    }
+
+    /** 各阶段延迟及丢帧数的文字报告 */
+    public String report() {
+        return captureStats + "\n"
+                + analysisStats + ", 跳过 " + captureToAnalysis.getDropped() + "帧\n"
+                + renderStats + ", 跳过 " + captureToRender.getDropped() + "帧"
+                + (scheduler != null ? "\n" + scheduler : "");
+    }
+
+    @Override
+    public void close() {
+        Thread[] workers;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            workers = new Thread[]{captureThread, analysisThread, renderThread};
+        }
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelMeterTest {
+    private static final int BLOCK = 480;
+
+    @Test
+    void voiceStateIsPublishedWithLevels() {
+        LevelMeter meter = new LevelMeter(48000f, BLOCK);
+        float[] quiet = new float[BLOCK * 2];
+        Arrays.fill(quiet, 1e-4f);
+        for (int i = 0; i < 20; i++) {
+            meter.process(quiet, quiet.length, quiet.length, true);
+        }
+        float[] loud = new float[BLOCK * 2];
+        Arrays.fill(loud, 0.1f);
+        boolean changed = false;
+        for (int i = 0; i < 3; i++) {
+            changed |= meter.process(loud, loud.length, loud.length, true);
+        }
+        assertTrue(changed);
+        assertTrue(meter.isActive());
+        // 发布之前其他线程看到的仍是上一次发布的状态
+        assertFalse(meter.isVoiceActive());
+        assertEquals(LevelMeter.SILENCE_DB, meter.getRmsDb());
+
+        meter.publish();
+        assertTrue(meter.isVoiceActive());
+        assertTrue(meter.getRmsDb() > -40f);
+    }
+
+    @Test
+    void musicChannelNeverReportsVoice() {
+        LevelMeter meter = new LevelMeter(48000f, BLOCK);
+        float[] loud = new float[BLOCK * 2];
+        Arrays.fill(loud, 0.5f);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(meter.process(loud, loud.length, loud.length, false));
+        }
+        meter.publish();
+        assertFalse(meter.isVoiceActive());
+        assertTrue(meter.getPeakDb() > -7f);
+    }
+}
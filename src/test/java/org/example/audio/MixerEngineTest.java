@@ -0,0 +1,142 @@
+package org.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 使用MemoryAudioSink在没有声卡的环境下测试混音 */
+class MixerEngineTest {
+    private static final int BLOCK = 480;
+
+    private static AudioSource constant(float value) {
+        return (buffer, frames) -> {
+            for (int i = 0; i < frames * 2; i++) {
+                buffer[i] = value;
+            }
+            return frames;
+        };
+    }
+
+    @Test
+    void mixesChannelsWithTheirGains() {
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, new MemoryAudioSink(BLOCK));
+        mixer.addChannel("a", constant(0.2f), 0.5f);
+        mixer.addChannel("b", constant(0.1f), 1.0f);
+        float[] block = mixer.renderBlock();
+        for (int i = 0; i < BLOCK * 2; i++) {
+            assertEquals(0.2f, block[i], 1e-6f);
+        }
+    }
+
+    @Test
+    void shortReadIsPaddedWithSilence() {
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, new MemoryAudioSink(BLOCK));
+        mixer.addChannel("peer", (buffer, frames) -> {
+            for (int i = 0; i < 100 * 2; i++) {
+                buffer[i] = 0.3f;
+            }
+            return 100;
+        }, 1.0f);
+        float[] block = mixer.renderBlock();
+        assertEquals(0.3f, block[199], 1e-6f);
+        assertEquals(0f, block[200]);
+        assertEquals(0f, block[BLOCK * 2 - 1]);
+    }
+
+    /** 增益变化在DEFAULT_RAMP_MILLIS内逐样本线性过渡，不出现跳变 */
+    @Test
+    void gainChangeIsRamped() {
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, new MemoryAudioSink(BLOCK));
+        MixerChannel channel = mixer.addChannel("a", constant(0.5f), 0f);
+        mixer.renderBlock();
+        channel.setGain(1.0f);
+        int rampFrames = (int) (48000 * MixerEngine.DEFAULT_RAMP_MILLIS / 1000);
+        float maxStep = 0.5f / rampFrames + 1e-6f;
+        float previous = 0f;
+        for (int b = 0; b * BLOCK < rampFrames + BLOCK; b++) {
+            float[] block = mixer.renderBlock();
+            for (int i = 0; i < BLOCK * 2; i += 2) {
+                assertTrue(block[i] - previous <= maxStep, "增益跳变: " + previous + " -> " + block[i]);
+                assertTrue(block[i] >= previous);
+                previous = block[i];
+            }
+        }
+        assertEquals(0.5f, previous, 1e-5f);
+    }
+
+    /** 删除通道后槽位被新通道复用，旧句柄和旧通道对象都不能再修改增益 */
+    @Test
+    void staleHandleDoesNotTouchReusedSlot() {
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, new MemoryAudioSink(BLOCK));
+        MixerChannel old = mixer.addChannel("old", constant(0.1f), 0.5f);
+        int staleHandle = old.getHandle();
+        assertTrue(mixer.removeChannel("old"));
+        MixerChannel reused = mixer.addChannel("new", constant(0.1f), 1.0f);
+        assertEquals(old.getSlot(), reused.getSlot());
+        assertTrue(reused.getHandle() != staleHandle);
+
+        mixer.setGain(staleHandle, 0f);
+        old.setGain(0f);
+        assertEquals(1.0f, reused.getGain());
+        assertNull(mixer.getChannel(staleHandle));
+        assertFalse(mixer.removeChannel(staleHandle));
+        assertEquals(0.1f, mixer.renderBlock()[0], 1e-6f);
+
+        mixer.setGain(reused.getHandle(), 0.5f);
+        assertEquals(0.5f, reused.getGain());
+    }
+
+    @Test
+    void mixerThreadWritesToMemorySink() throws LineUnavailableException, InterruptedException {
+        MemoryAudioSink sink = new MemoryAudioSink(BLOCK * 4);
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, sink);
+        mixer.addChannel("a", constant(0.25f), 1.0f);
+        mixer.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sink.getFramesWritten() < BLOCK * 10L && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        } finally {
+            mixer.close();
+        }
+        assertTrue(sink.getFramesWritten() >= BLOCK * 10L);
+        float[] recent = new float[BLOCK * 2];
+        assertEquals(BLOCK, sink.copyRecent(recent, BLOCK));
+        for (float sample : recent) {
+            assertEquals(0.25f, sample, 1e-6f);
+        }
+        assertEquals(0, mixer.getUnderruns());
+    }
+
+    /** 按采样率消费的内存输出：来源阻塞超过一块的时长时计为欠载 */
+    @Test
+    void slowSourceIsCountedAsUnderrun() throws LineUnavailableException, InterruptedException {
+        MemoryAudioSink sink = new MemoryAudioSink(BLOCK * 4, true);
+        MixerEngine mixer = new MixerEngine(48000f, BLOCK, sink);
+        long[] calls = new long[1];
+        mixer.addChannel("slow", (buffer, frames) -> {
+            if (++calls[0] == 5) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            }
+            return 0;
+        }, 1.0f);
+        mixer.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (mixer.getBlocksRendered() < 10 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        } finally {
+            mixer.close();
+        }
+        assertTrue(mixer.getUnderruns() >= 1, "欠载次数: " + mixer.getUnderruns());
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeerAudioBufferTest {
+
+    /** 第i帧的左右声道分别为i和-i */
+    private static float[] frames(int first, int count) {
+        float[] samples = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            samples[2 * i] = first + i;
+            samples[2 * i + 1] = -(first + i);
+        }
+        return samples;
+    }
+
+    @Test
+    void readsWhatWasWrittenInOrder() {
+        PeerAudioBuffer buffer = new PeerAudioBuffer(8);
+        buffer.write(frames(0, 5), 0, 5);
+        float[] out = new float[16];
+        assertEquals(3, buffer.read(out, 3));
+        assertEquals(2, buffer.read(out, 8));
+        assertEquals(3f, out[0]);
+        assertEquals(-4f, out[3]);
+        assertEquals(0, buffer.available());
+    }
+
+    @Test
+    void fullBufferDropsOldestFrames() {
+        PeerAudioBuffer buffer = new PeerAudioBuffer(4);
+        buffer.write(frames(0, 3), 0, 3);
+        buffer.write(frames(3, 3), 0, 3);
+        assertEquals(4, buffer.available());
+        assertEquals(2, buffer.getDroppedFrames());
+        float[] out = new float[8];
+        assertEquals(4, buffer.read(out, 4));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2f + i, out[2 * i]);
+        }
+    }
+
+    @Test
+    void writeLargerThanCapacityKeepsNewestFrames() {
+        PeerAudioBuffer buffer = new PeerAudioBuffer(4);
+        buffer.write(frames(0, 10), 0, 10);
+        assertEquals(6, buffer.getDroppedFrames());
+        float[] out = new float[8];
+        assertEquals(4, buffer.read(out, 4));
+        assertEquals(6f, out[0]);
+        assertEquals(-9f, out[7]);
+    }
+
+    /** 生产者持续写满缓冲区时，读取方要么得到连续的一段，要么得到0帧，不会得到被覆盖了一半的数据 */
+    @Test
+    void concurrentOverwriteNeverReturnsTornData() throws InterruptedException {
+        PeerAudioBuffer buffer = new PeerAudioBuffer(64);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            float[] block = new float[32 * 2];
+            for (int next = 0; next < 2_000_000; next += 32) {
+                for (int i = 0; i < 32; i++) {
+                    block[2 * i] = next + i;
+                    block[2 * i + 1] = -(next + i);
+                }
+                buffer.write(block, 0, 32);
+            }
+        });
+        producer.start();
+        float[] out = new float[48 * 2];
+        long reads = 0;
+        while (producer.isAlive() && failure.get() == null) {
+            int n = buffer.read(out, 48);
+            for (int i = 1; i < n; i++) {
+                if (out[2 * i] != out[0] + i || out[2 * i + 1] != -out[2 * i]) {
+                    failure.set("第" + reads + "次读取在第" + i + "帧不连续: " + out[2 * (i - 1)] + " -> " + out[2 * i]);
+                    break;
+                }
+            }
+            reads++;
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertTrue(buffer.getDroppedFrames() > 0, "生产者应当多次写满缓冲区");
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.audio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingTrackTest {
+    private static final float RATE = 48000f;
+    /** 超过内存映射阈值的立体声帧数 */
+    private static final int FRAMES = (int) (StreamingTrack.MMAP_THRESHOLD_BYTES / 4) + 1000;
+
+    private File wav;
+
+    @BeforeEach
+    void writeWav() throws IOException {
+        // 第i帧左声道为i % 1000，右声道为其相反数
+        byte[] pcm = new byte[FRAMES * 4];
+        for (int i = 0; i < FRAMES; i++) {
+            short left = (short) (i % 1000);
+            short right = (short) -left;
+            pcm[4 * i] = (byte) left;
+            pcm[4 * i + 1] = (byte) (left >> 8);
+            pcm[4 * i + 2] = (byte) right;
+            pcm[4 * i + 3] = (byte) (right >> 8);
+        }
+        AudioFormat format = new AudioFormat(RATE, 16, 2, true, false);
+        wav = File.createTempFile("streaming-track", ".wav");
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, FRAMES),
+                AudioFileFormat.Type.WAVE, wav);
+    }
+
+    @AfterEach
+    void deleteWav() {
+        wav.delete();
+    }
+
+    @Test
+    void largeWavIsMappedAndUnmappedOnClose() throws IOException {
+        PcmReader reader = PcmReader.Mapped.tryOpen(wav);
+        assertNotNull(reader);
+        byte[] buffer = new byte[16];
+        assertEquals(16, reader.read(buffer, 0, 16));
+        reader.close();
+        assertThrows(IOException.class, () -> reader.read(buffer, 0, 16));
+        // 映射已解除，文件可以立即删除
+        assertTrue(wav.delete());
+    }
+
+    @Test
+    void fileUrlPlaysWholeTrackWithoutUnderruns() throws Exception {
+        StreamingTrack track = StreamingTrack.open(wav.toURI().toURL(), RATE, false);
+        try {
+            float[] block = new float[480 * 2];
+            long frames = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!track.isEnded() && System.nanoTime() < deadline) {
+                int n = track.read(block, 480);
+                for (int i = 0; i < n; i++) {
+                    // 插值从静音开始，输出比源数据晚一帧
+                    long index = frames + i - 1;
+                    assertEquals(index < 0 ? 0f : (index % 1000) / 32768f, block[2 * i], 1e-6f);
+                    assertEquals(-block[2 * i], block[2 * i + 1], 1e-6f);
+                }
+                frames += n;
+                if (n < 480) {
+                    Thread.sleep(1);
+                }
+            }
+            assertEquals(FRAMES, frames);
+            assertEquals(wav.getName(), track.getName());
+        } finally {
+            track.close();
+        }
+    }
+
+    /** 加载线程还没填好第一块时的读取是启动延迟，不计为欠载 */
+    @Test
+    void readBeforeFirstFillIsNotAnUnderrun() throws Exception {
+        StreamingTrack track = StreamingTrack.open(wav, RATE, true);
+        try {
+            float[] block = new float[480 * 2];
+            while (track.read(block, 480) == 0) {
+                Thread.yield();
+            }
+            assertEquals(0, track.getUnderruns());
+        } finally {
+            track.close();
+        }
+    }
+}
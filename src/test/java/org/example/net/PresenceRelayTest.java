@@ -0,0 +1,136 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+import org.example.session.Presence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 在本机回环地址上启动中继，客户端通过同一个PresenceClientLoop收发 */
+class PresenceRelayTest {
+    private PresenceRelay relay;
+    private PresenceClientLoop loop;
+
+    /** 记录每个成员最新状态和收到的反应、离开 */
+    private static class Recorder implements PresenceListener {
+        final Map<Integer, PeerState> states = new ConcurrentHashMap<>();
+        final Map<Integer, String> names = new ConcurrentHashMap<>();
+        final AtomicInteger reactions = new AtomicInteger();
+        final AtomicInteger left = new AtomicInteger();
+
+        @Override
+        public void peerStateChanged(int peerId, String name, PeerState state) {
+            states.put(peerId, state);
+            if (name != null) {
+                names.put(peerId, name);
+            }
+        }
+
+        @Override
+        public void peerLeft(int peerId, String name) {
+            states.remove(peerId);
+            left.incrementAndGet();
+        }
+
+        @Override
+        public void reactionReceived(int peerId, String name, Reaction reaction, int count) {
+            reactions.addAndGet(count);
+        }
+    }
+
+    @BeforeEach
+    void start() throws IOException {
+        relay = PresenceRelay.startLocal(0);
+        loop = new PresenceClientLoop("presence-test");
+    }
+
+    @AfterEach
+    void stop() {
+        loop.close();
+        relay.close();
+    }
+
+    private PresenceClient join(int peerId, String name, PresenceListener listener) throws IOException {
+        PresenceClient client = PresenceClient.connect(relay.getAddress(), peerId, name, listener);
+        loop.add(client);
+        await(client::isJoined, "加入房间");
+        return client;
+    }
+
+    private static void await(BooleanSupplier condition, String what) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("等待超时: " + what);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Test
+    void stateChangesReachOtherPeers() throws IOException {
+        Recorder bob = new Recorder();
+        PresenceClient alice = join(1, "Alice", new Recorder());
+        join(2, "Bob", bob);
+
+        PeerState focus = new PeerState(Presence.FOCUS, "检测到静止", false, true);
+        alice.publish(focus);
+        await(() -> focus.equals(bob.states.get(1)), "收到专注状态");
+        assertEquals("Alice", bob.names.get(1));
+
+        // 只有在线状态变化，其余字段由增量保持
+        PeerState away = new PeerState(Presence.AWAY, "检测到低亮度", false, true);
+        alice.publish(away);
+        await(() -> away.equals(bob.states.get(1)), "收到离开状态");
+    }
+
+    @Test
+    void reactionsAndLeaveAreDelivered() throws IOException {
+        Recorder bob = new Recorder();
+        PresenceClient alice = join(1, "Alice", new Recorder());
+        join(2, "Bob", bob);
+
+        alice.sendReaction(Reaction.THUMBS_UP, 3);
+        await(() -> bob.reactions.get() == 3, "收到反应");
+        alice.close();
+        await(() -> bob.left.get() == 1, "收到离开");
+    }
+
+    /** 一个客户端的监听器抛出异常时，同一线程上的其他客户端继续收到更新 */
+    @Test
+    void throwingListenerDoesNotStopTheLoop() throws IOException {
+        AtomicInteger thrown = new AtomicInteger();
+        join(3, "Carol", new PresenceListener() {
+            @Override
+            public void peerStateChanged(int peerId, String name, PeerState state) {
+                thrown.incrementAndGet();
+                throw new IllegalStateException("监听器故障");
+            }
+        });
+        Recorder bob = new Recorder();
+        join(2, "Bob", bob);
+        PresenceClient alice = join(1, "Alice", new Recorder());
+
+        for (Presence presence : Presence.values()) {
+            PeerState state = new PeerState(presence, null, false, false);
+            alice.publish(state);
+            await(() -> state.equals(bob.states.get(1)), "收到" + presence);
+        }
+        assertTrue(thrown.get() >= Presence.values().length, "抛出次数: " + thrown.get());
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.net;
+
+import org.example.reaction.Reaction;
+import org.example.session.Presence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 在本机回环地址上启动房间服务器 */
+class RoomServerTest {
+    private RoomServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = RoomServer.startLocal(0, RoomServer.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    /** 写出一条带2字节长度前缀的消息 */
+    private static void writeFrame(OutputStream out, ByteBuffer body) throws IOException {
+        body.flip();
+        ByteBuffer frame = ByteBuffer.allocate(PresenceProtocol.FRAME_PREFIX_BYTES + body.remaining());
+        frame.putShort((short) body.remaining()).put(body);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    private static void await(BooleanSupplier condition, String what) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("等待超时: " + what);
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Test
+    void unknownMessageTypesAreSkipped() throws IOException {
+        AtomicInteger reactions = new AtomicInteger();
+        try (RoomClient bob = RoomClient.connect(server.getAddress(), "room", 2, "Bob", new PresenceListener() {
+            @Override
+            public void peerStateChanged(int peerId, String name, PeerState state) {
+            }
+
+            @Override
+            public void reactionReceived(int peerId, String name, Reaction reaction, int count) {
+                reactions.addAndGet(count);
+            }
+        }); Socket raw = new Socket(server.getAddress().getAddress(), server.getAddress().getPort())) {
+            OutputStream out = raw.getOutputStream();
+            ByteBuffer body = ByteBuffer.allocate(PresenceProtocol.MAX_DATAGRAM);
+            PresenceProtocol.putHeader(body, PresenceProtocol.JOIN, 1);
+            PresenceProtocol.putText(body, "Alice");
+            PresenceProtocol.putText(body, "room");
+            writeFrame(out, body);
+            await(() -> server.getPeerCount() == 2 && bob.isJoined(), "加入房间");
+
+            // 房间服务器靠快照模式恢复，不处理SYNC；未定义的类型也一样跳过
+            for (byte type : new byte[]{PresenceProtocol.SYNC, 42}) {
+                body.clear();
+                PresenceProtocol.putHeader(body, type, 1);
+                body.putInt(2);
+                writeFrame(out, body);
+            }
+            body.clear();
+            PresenceProtocol.putHeader(body, PresenceProtocol.REACTION, 1);
+            body.put((byte) Reaction.THUMBS_UP.ordinal()).putShort((short) 2);
+            writeFrame(out, body);
+
+            await(() -> reactions.get() == 2, "收到反应");
+            assertEquals(2, server.getPeerCount());
+        }
+    }
+
+    /**
+     * 慢成员的发送队列溢出时另一个成员离开：积压被快照取代，但LEAVE不能随之丢失，
+     * 慢成员读完后成员表应与房间一致。
+     */
+    @Test
+    void slowPeerSeesLeaveAfterOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<Integer, PeerState> seen = new ConcurrentHashMap<>();
+        AtomicInteger left = new AtomicInteger();
+        PresenceListener slowListener = new PresenceListener() {
+            @Override
+            public void peerStateChanged(int peerId, String name, PeerState state) {
+                seen.put(peerId, state);
+                try {
+                    // 放行前卡住读线程，服务器上的积压只能越来越多
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void peerLeft(int peerId, String name) {
+                seen.remove(peerId);
+                left.incrementAndGet();
+            }
+        };
+        PresenceListener ignore = (peerId, name, state) -> {
+        };
+        try (RoomClient slow = RoomClient.connect(server.getAddress(), "room", 1, "Slow", slowListener);
+             RoomClient alice = RoomClient.connect(server.getAddress(), "room", 2, "Alice", ignore)) {
+            RoomClient bob = RoomClient.connect(server.getAddress(), "room", 3, "Bob", ignore);
+            await(() -> slow.isJoined() && alice.isJoined() && bob.isJoined(), "加入房间");
+            bob.publish(new PeerState(Presence.FOCUS, "bob", false, false));
+
+            // 加入时的第一次快照也计入快照次数
+            long joinSnapshots = server.getSnapshotCount();
+            int n = 0;
+            while (server.getSnapshotCount() == joinSnapshots && n < 1_000_000) {
+                alice.publish(new PeerState(Presence.FOCUS, "#" + n++, false, false));
+            }
+            assertTrue(server.getSnapshotCount() > joinSnapshots, "发送队列没有溢出");
+            // 继续发送，直到内核缓冲区也被填满，服务器的写线程阻塞在写出上
+            for (int i = 0; i < 50_000; i++) {
+                alice.publish(new PeerState(Presence.FOCUS, "#" + n++, false, false));
+            }
+            bob.close();
+            await(() -> server.getPeerCount() == 2, "离开房间");
+            // LEAVE之后再次溢出，队列中的LEAVE会被清掉
+            for (int i = 0; i < 2 * RoomServer.DEFAULT_QUEUE_CAPACITY; i++) {
+                alice.publish(new PeerState(Presence.FOCUS, "#" + n++, false, false));
+            }
+            PeerState last = new PeerState(Presence.AWAY, "#" + n, false, false);
+            alice.publish(last);
+
+            release.countDown();
+            await(() -> last.equals(seen.get(2)), "追上最新状态");
+            await(() -> !seen.containsKey(3), "Bob离开");
+            assertFalse(seen.containsKey(3));
+            assertEquals(1, left.get());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameCodecTest {
+    /** 颜色转换往返的舍入误差 */
+    private static final int ROUNDING = 2;
+
+    /** 平滑渐变加噪声，各通道保持在[48, 208]内，转换回RGB时不会被截断 */
+    private static BufferedImage frame(int width, int height, Random random) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int phase = random.nextInt(64);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = 48 + (x * 3 + phase + random.nextInt(24)) % 160;
+                int g = 48 + (y * 2 + x + random.nextInt(24)) % 160;
+                int b = 48 + (x + y * 3 + phase * 2 + random.nextInt(24)) % 160;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    /** 复制一帧，把其中一个矩形换成新内容，其余像素只加不超过死区的噪声 */
+    private static BufferedImage moved(BufferedImage previous, int x0, int y0, int size, Random random) {
+        BufferedImage image = new BufferedImage(previous.getWidth(), previous.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int p = previous.getRGB(x, y);
+                if (x >= x0 && x < x0 + size && y >= y0 && y < y0 + size) {
+                    p = (60 + random.nextInt(130)) << 16 | (60 + random.nextInt(130)) << 8 | (60 + random.nextInt(130));
+                } else {
+                    int d = random.nextInt(3) - 1;
+                    p = (((p >> 16) & 0xFF) + d) << 16 | (((p >> 8) & 0xFF) + d) << 8 | ((p & 0xFF) + d);
+                }
+                image.setRGB(x, y, p);
+            }
+        }
+        return image;
+    }
+
+    private static ByteBuffer encode(FrameEncoder encoder, BufferedImage image) {
+        ByteBuffer buf = ByteBuffer.allocate(encoder.maxEncodedBytes());
+        int bytes = encoder.encode(image, buf);
+        buf.flip();
+        assertEquals(bytes, buf.remaining());
+        return buf;
+    }
+
+    /**
+     * 每个样本的重建误差不超过一个量化级别的一半加DEAD_ZONE个级别，按(1 + DEAD_ZONE)个量化步长检查：
+     * 亮度逐像素比较，色度按2x2平均后比较。转回RGB时被截断的像素无法反推YCbCr，跳过。
+     */
+    private static void assertWithinStep(BufferedImage original, BufferedImage decoded, int lumaShift) {
+        int lumaLimit = ((1 + FrameEncoder.DEAD_ZONE) << lumaShift) + ROUNDING;
+        int chromaLimit = ((1 + FrameEncoder.DEAD_ZONE) << (lumaShift + 1)) + ROUNDING;
+        int width = original.getWidth();
+        int height = original.getHeight();
+        assertEquals(width, decoded.getWidth());
+        assertEquals(height, decoded.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (clipped(decoded.getRGB(x, y))) {
+                    continue;
+                }
+                int expected = luma(original.getRGB(x, y));
+                int actual = luma(decoded.getRGB(x, y));
+                assertTrue(Math.abs(expected - actual) <= lumaLimit,
+                        "亮度 (" + x + ", " + y + "): " + expected + " -> " + actual);
+            }
+        }
+        for (int y = 0; y < height; y += 2) {
+            for (int x = 0; x < width; x += 2) {
+                int decodedRgb = decoded.getRGB(x, y);
+                if (clipped(decodedRgb)) {
+                    continue;
+                }
+                int[] average = average(original, x, y);
+                int r = (decodedRgb >> 16) & 0xFF;
+                int g = (decodedRgb >> 8) & 0xFF;
+                int b = decodedRgb & 0xFF;
+                int cb = FrameCodec.cb(average[0], average[1], average[2]);
+                int cr = FrameCodec.cr(average[0], average[1], average[2]);
+                assertTrue(Math.abs(cb - FrameCodec.cb(r, g, b)) <= chromaLimit, "Cb (" + x + ", " + y + ")");
+                assertTrue(Math.abs(cr - FrameCodec.cr(r, g, b)) <= chromaLimit, "Cr (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    private static boolean clipped(int rgb) {
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int c = (rgb >> shift) & 0xFF;
+            if (c == 0 || c == 255) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int luma(int rgb) {
+        return FrameCodec.luma((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    /** 与编码器相同的2x2平均，右边和下边不足时重复最后一行或一列 */
+    private static int[] average(BufferedImage image, int x0, int y0) {
+        int x1 = Math.min(x0 + 1, image.getWidth() - 1);
+        int y1 = Math.min(y0 + 1, image.getHeight() - 1);
+        int[] p = {image.getRGB(x0, y0), image.getRGB(x1, y0), image.getRGB(x0, y1), image.getRGB(x1, y1)};
+        int[] sum = new int[3];
+        for (int rgb : p) {
+            sum[0] += (rgb >> 16) & 0xFF;
+            sum[1] += (rgb >> 8) & 0xFF;
+            sum[2] += rgb & 0xFF;
+        }
+        return new int[]{(sum[0] + 2) >> 2, (sum[1] + 2) >> 2, (sum[2] + 2) >> 2};
+    }
+
+    /** 关键帧之后若干增量帧，每帧解码结果都在误差范围内，误差不随帧数累积 */
+    private static void roundTrip(int width, int height, int lumaShift, long seed) {
+        Random random = new Random(seed);
+        FrameEncoder encoder = new FrameEncoder(width, height, FrameEncoder.DEFAULT_KEYFRAME_INTERVAL, lumaShift);
+        FrameDecoder decoder = new FrameDecoder();
+        BufferedImage image = frame(width, height, random);
+        assertTrue(decoder.decode(encode(encoder, image)));
+        assertEquals(encoder.getLastChangedBlocks(), decoder.getLastChangedBlocks());
+        assertWithinStep(image, decoder.getImage(), lumaShift);
+        for (int i = 0; i < 10; i++) {
+            int size = Math.max(1, Math.min(width, height) / 3);
+            image = moved(image, random.nextInt(width - size + 1), random.nextInt(height - size + 1), size, random);
+            assertTrue(decoder.decode(encode(encoder, image)), "增量帧 " + i);
+            assertEquals(encoder.getLastChangedBlocks(), decoder.getLastChangedBlocks());
+            assertWithinStep(image, decoder.getImage(), lumaShift);
+        }
+    }
+
+    @Test
+    void keyframesAndDeltasStayWithinOneStep() {
+        for (int shift = FrameCodec.MIN_LUMA_SHIFT; shift <= FrameCodec.MAX_LUMA_SHIFT; shift++) {
+            roundTrip(96, 64, shift, shift);
+        }
+    }
+
+    /** 宽高不是16的倍数（包括奇数）时右边和下边的残块 */
+    @Test
+    void sizesThatAreNotMultiplesOfTheBlock() {
+        roundTrip(37, 21, FrameEncoder.DEFAULT_LUMA_SHIFT, 1);
+        roundTrip(17, 33, FrameEncoder.DEFAULT_LUMA_SHIFT, 2);
+        roundTrip(1, 1, FrameEncoder.DEFAULT_LUMA_SHIFT, 3);
+        roundTrip(250, 18, FrameEncoder.DEFAULT_LUMA_SHIFT, 4);
+    }
+
+    /** 帧内重建与原值之差在死区内，同一帧再编码为增量帧时不包含任何块 */
+    @Test
+    void unchangedFrameProducesEmptyDelta() {
+        Random random = new Random(5);
+        FrameEncoder encoder = new FrameEncoder(64, 48);
+        FrameDecoder decoder = new FrameDecoder();
+        BufferedImage image = frame(64, 48, random);
+        assertTrue(decoder.decode(encode(encoder, image)));
+        ByteBuffer delta = encode(encoder, image);
+        assertEquals(0, encoder.getLastChangedBlocks());
+        assertEquals(FrameCodec.HEADER_BYTES + FrameCodec.blockMapBytes(4 * 3), delta.remaining());
+        assertTrue(decoder.decode(delta));
+        assertEquals(0, decoder.getLastChangedBlocks());
+    }
+
+    @Test
+    void skippedFrameNumberIsRejectedUntilKeyframe() {
+        Random random = new Random(6);
+        FrameEncoder encoder = new FrameEncoder(48, 32);
+        FrameDecoder decoder = new FrameDecoder();
+        BufferedImage image = frame(48, 32, random);
+        assertTrue(decoder.decode(encode(encoder, image)));
+        image = moved(image, 0, 0, 16, random);
+        encode(encoder, image);
+        image = moved(image, 16, 8, 16, random);
+        assertFalse(decoder.decode(encode(encoder, image)));
+        image = moved(image, 8, 8, 16, random);
+        assertFalse(decoder.decode(encode(encoder, image)), "丢帧后仍然拒绝增量帧");
+
+        encoder.requestKeyframe();
+        assertTrue(decoder.decode(encode(encoder, image)));
+        assertWithinStep(image, decoder.getImage(), FrameEncoder.DEFAULT_LUMA_SHIFT);
+    }
+
+    /** 还没有关键帧时增量帧不能解码 */
+    @Test
+    void deltaWithoutKeyframeIsRejected() {
+        Random random = new Random(7);
+        FrameEncoder encoder = new FrameEncoder(32, 32);
+        BufferedImage image = frame(32, 32, random);
+        encode(encoder, image);
+        assertFalse(new FrameDecoder().decode(encode(encoder, moved(image, 0, 0, 8, random))));
+    }
+
+    @Test
+    void truncatedBufferThrows() {
+        Random random = new Random(8);
+        FrameEncoder encoder = new FrameEncoder(64, 48);
+        BufferedImage image = frame(64, 48, random);
+        ByteBuffer keyframe = encode(encoder, image);
+        ByteBuffer delta = encode(encoder, moved(image, 8, 8, 24, random));
+
+        for (int length : new int[]{3, FrameCodec.HEADER_BYTES, keyframe.remaining() / 2, keyframe.remaining() - 1}) {
+            ByteBuffer truncated = keyframe.duplicate();
+            truncated.limit(length);
+            assertThrows(BufferUnderflowException.class, () -> new FrameDecoder().decode(truncated), "长度 " + length);
+        }
+        FrameDecoder decoder = new FrameDecoder();
+        assertTrue(decoder.decode(keyframe.duplicate()));
+        ByteBuffer truncated = delta.duplicate();
+        truncated.limit(delta.remaining() - 1);
+        assertThrows(BufferUnderflowException.class, () -> decoder.decode(truncated));
+        // 解码失败后参考帧已不可靠，完整的增量帧也要等下一个关键帧
+        assertFalse(decoder.decode(delta.duplicate()));
+    }
+}
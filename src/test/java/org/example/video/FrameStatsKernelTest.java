@@ -0,0 +1,100 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrameStatsKernelTest {
+    private static final int THRESHOLD = 24;
+
+    private static byte[] plane(int stride, int rows, Random random) {
+        byte[] plane = new byte[stride * rows];
+        random.nextBytes(plane);
+        return plane;
+    }
+
+    /** 前一帧：约三分之一的像素有大于或小于阈值的变化 */
+    private static byte[] moved(byte[] current, Random random) {
+        byte[] previous = current.clone();
+        for (int i = 0; i < previous.length; i++) {
+            if (random.nextInt(3) == 0) {
+                previous[i] = (byte) (previous[i] + random.nextInt(2 * THRESHOLD + 9) - THRESHOLD - 4);
+            }
+        }
+        return previous;
+    }
+
+    /** 两个内核在同一区域上的统计结果必须完全相同 */
+    private static void assertSameStats(byte[] current, byte[] previous, int stride,
+                                        int x0, int y0, int x1, int y1, boolean histogram) {
+        FrameStats expected = new FrameStats();
+        FrameStats actual = new FrameStats();
+        new ScalarFrameStatsKernel().compute(current, previous, stride, x0, y0, x1, y1, THRESHOLD, histogram, expected);
+        new VectorFrameStatsKernel().compute(current, previous, stride, x0, y0, x1, y1, THRESHOLD, histogram, actual);
+        String region = "(" + x0 + "," + y0 + ")-(" + x1 + "," + y1 + ")";
+        assertEquals(expected.getPixelCount(), actual.getPixelCount(), region);
+        assertEquals(expected.getLumaSum(), actual.getLumaSum(), region);
+        assertEquals(expected.getMeanLuma(), actual.getMeanLuma(), region);
+        assertEquals(expected.getDiffCount(), actual.getDiffCount(), region);
+        assertEquals(expected.getDiffSumX(), actual.getDiffSumX(), region);
+        assertEquals(expected.getDiffSumY(), actual.getDiffSumY(), region);
+        if (histogram) {
+            assertArrayEquals(expected.getHistogram(), actual.getHistogram(), region);
+        }
+    }
+
+    private static void compare(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] current = plane(width, height, random);
+        byte[] previous = moved(current, random);
+        assertSameStats(current, previous, width, 0, 0, width, height, true);
+        assertSameStats(current, null, width, 0, 0, width, height, false);
+    }
+
+    @Test
+    void widthsThatAreNotMultiplesOfTheLaneCount() {
+        int[] widths = {1, 7, 15, 16, 17, 31, 33, 63, 65, 641};
+        for (int i = 0; i < widths.length; i++) {
+            compare(widths[i], 9, i);
+        }
+    }
+
+    @Test
+    void subRegionOfAWiderPlane() {
+        Random random = new Random(7);
+        int stride = 320;
+        byte[] current = plane(stride, 40, random);
+        byte[] previous = moved(current, random);
+        assertSameStats(current, previous, stride, 3, 5, 300, 37, true);
+        assertSameStats(current, previous, stride, 17, 0, 18, 40, true);
+        assertSameStats(current, previous, stride, 10, 10, 10, 20, true);
+    }
+
+    /** 行宽超过128次向量迭代，short累加器要在行内折叠 */
+    @Test
+    void rowsLongerThanTheFlushInterval() {
+        compare(4096, 2160, 11);
+        compare(4133, 5, 12);
+    }
+
+    /** 全白且每个像素都有变化时，128次迭代的short累加器正好接近上限 */
+    @Test
+    void saturatedFrameDoesNotOverflow() {
+        int width = 4133;
+        int height = 3;
+        byte[] current = new byte[width * height];
+        Arrays.fill(current, (byte) 255);
+        byte[] previous = new byte[current.length];
+        assertSameStats(current, previous, width, 0, 0, width, height, true);
+
+        FrameStats stats = new FrameStats();
+        new VectorFrameStatsKernel().compute(current, previous, width, 0, 0, width, height, THRESHOLD, true, stats);
+        assertEquals(255L * width * height, stats.getLumaSum());
+        assertEquals((long) width * height, stats.getDiffCount());
+        assertEquals((long) width * height, stats.getHistogram()[255]);
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GalleryRendererTest {
+    private static final int VIEW_WIDTH = 1280;
+    private static final int VIEW_HEIGHT = 720;
+
+    private static GalleryRenderer renderer(int peers) {
+        GalleryRenderer renderer = new GalleryRenderer();
+        for (int p = 0; p < peers; p++) {
+            renderer.addPeer(p, null);
+        }
+        renderer.setViewport(VIEW_WIDTH, VIEW_HEIGHT, 0);
+        return renderer;
+    }
+
+    /** 左半红、右半蓝的640x480帧 */
+    private static BufferedImage frame() {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 320, 480);
+        g.setColor(Color.BLUE);
+        g.fillRect(320, 0, 320, 480);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void fewPeersFitOnOneScreen() {
+        GalleryRenderer renderer = renderer(4);
+        Rectangle view = new Rectangle(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+        for (int p = 0; p < 4; p++) {
+            Rectangle bounds = renderer.getTileBounds(p);
+            assertTrue(view.contains(bounds), "画面 " + p + ": " + bounds);
+            assertEquals(bounds.width * 3 / 4, bounds.height);
+            for (int q = 0; q < p; q++) {
+                assertFalse(bounds.intersects(renderer.getTileBounds(q)));
+            }
+        }
+        assertEquals(renderer.getTileBounds(0).y, renderer.getTileBounds(1).y);
+        assertTrue(renderer.getTileBounds(2).y > renderer.getTileBounds(0).y);
+        assertTrue(renderer.getContentHeight() <= VIEW_HEIGHT);
+    }
+
+    /** 放不下时保持最小宽度并滚动，视口外的画面不绘制 */
+    @Test
+    void manyPeersScroll() {
+        GalleryRenderer renderer = renderer(100);
+        assertTrue(renderer.getTileBounds(0).width >= GalleryRenderer.MIN_TILE_WIDTH);
+        assertTrue(renderer.getContentHeight() > VIEW_HEIGHT);
+        BufferedImage frame = frame();
+        for (int p = 0; p < 100; p++) {
+            renderer.submitFrame(p, frame);
+        }
+        renderer.render(0);
+        assertTrue(renderer.getLastOffscreen() > 0);
+        assertEquals(100 - renderer.getLastOffscreen(), renderer.getLastDrawn());
+
+        renderer.setViewport(VIEW_WIDTH, VIEW_HEIGHT, Integer.MAX_VALUE);
+        assertEquals(renderer.getContentHeight() - VIEW_HEIGHT, renderer.getScrollY());
+        renderer.render(1);
+        Rectangle last = renderer.getTileBounds(99);
+        assertTrue(last.y + last.height <= renderer.getScrollY() + VIEW_HEIGHT);
+    }
+
+    /** 级别是宽度不小于所需宽度的最小级别，不说话的成员所需宽度减半 */
+    @Test
+    void levelFollowsTileWidthAndSpeaking() {
+        for (int peers : new int[]{1, 4, 16, 49}) {
+            GalleryRenderer renderer = renderer(peers);
+            renderer.submitFrame(0, frame());
+            for (boolean speaking : new boolean[]{true, false}) {
+                renderer.setSpeaking(0, speaking);
+                int width = renderer.getTileBounds(0).width;
+                int needed = speaking ? width : width / 2;
+                int level = renderer.getLevel(0);
+                assertTrue(level == 0 || (640 >> level) >= needed, peers + " 人, 级别 " + level);
+                assertTrue(level == GalleryRenderer.MAX_LEVEL || (640 >> (level + 1)) < needed,
+                        peers + " 人, 级别 " + level);
+            }
+        }
+        GalleryRenderer single = renderer(1);
+        single.submitFrame(0, frame());
+        single.setSpeaking(0, true);
+        assertEquals(0, single.getLevel(0));
+    }
+
+    @Test
+    void refreshIntervalDependsOnSpeakingAndSize() {
+        GalleryRenderer renderer = renderer(4);
+        renderer.setSpeaking(0, true);
+        assertEquals(33, renderer.getRefreshIntervalMillis(0));
+        assertEquals(66, renderer.getRefreshIntervalMillis(1));
+        GalleryRenderer crowded = renderer(100);
+        assertEquals(133, crowded.getRefreshIntervalMillis(1));
+    }
+
+    /** 缓存图像与画面同尺寸，帧不变时既不重新缩放也不重绘 */
+    @Test
+    void framesAreScaledOnceAndDrawnAtTileSize() {
+        GalleryRenderer renderer = renderer(4);
+        BufferedImage frame = frame();
+        for (int p = 0; p < 4; p++) {
+            renderer.submitFrame(p, frame);
+        }
+        BufferedImage back = renderer.render(0);
+        assertEquals(4, renderer.getLastScaled());
+        assertEquals(4, renderer.getLastDrawn());
+        Rectangle bounds = renderer.getTileBounds(3);
+        int y = bounds.y + bounds.height / 2;
+        assertEquals(Color.RED.getRGB(), back.getRGB(bounds.x + 2, y));
+        assertEquals(Color.RED.getRGB(), back.getRGB(bounds.x + bounds.width / 2 - 1, y));
+        assertEquals(Color.BLUE.getRGB(), back.getRGB(bounds.x + bounds.width / 2 + 1, y));
+        assertEquals(Color.BLUE.getRGB(), back.getRGB(bounds.x + bounds.width - 3, y));
+
+        renderer.render(1_000_000_000L);
+        assertEquals(0, renderer.getLastScaled());
+        assertEquals(0, renderer.getLastDrawn());
+    }
+
+    /** 超出画布范围的滚动位置被限制后与当前位置相同，不引起整体重绘 */
+    @Test
+    void clampedScrollDoesNotRedraw() {
+        GalleryRenderer renderer = renderer(4);
+        renderer.submitFrame(0, frame());
+        renderer.setViewport(VIEW_WIDTH, VIEW_HEIGHT, 500);
+        assertEquals(0, renderer.getScrollY());
+        renderer.render(0);
+        assertEquals(4, renderer.getLastDrawn());
+
+        renderer.setViewport(VIEW_WIDTH, VIEW_HEIGHT, 500);
+        renderer.render(1);
+        assertEquals(0, renderer.getLastDrawn());
+    }
+}
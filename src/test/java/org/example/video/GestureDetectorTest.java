@@ -0,0 +1,93 @@
+package org.example.video;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GestureDetectorTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final long FRAME_MILLIS = 67;
+    private static final Color SKIN = new Color(224, 172, 140);
+    private static final int FACE_W = 120;
+    private static final int FACE_H = 156;
+    private static final int FACE_CX = 280;
+    private static final int FACE_TOP = 80;
+
+    /** 灰色背景前的一张脸，raised为true时手举过头顶 */
+    private static BufferedImage frame(boolean raised) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(128, 128, 128));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(new Color(30, 40, 90));
+        g.fillRect(FACE_CX - 156, FACE_TOP + FACE_H + 20, 312, HEIGHT);
+        g.setColor(SKIN);
+        g.fillOval(FACE_CX - FACE_W / 2, FACE_TOP, FACE_W, FACE_H);
+        if (raised) {
+            int w = 54;
+            int h = 78;
+            g.fillRoundRect(FACE_CX + FACE_W - w / 2, FACE_TOP - 36, w, h, w / 2, w / 2);
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void skinRangeRejectsGrayAndBlue() {
+        assertTrue(GestureDetector.isSkin(SKIN.getRGB()));
+        assertFalse(GestureDetector.isSkin(new Color(128, 128, 128).getRGB()));
+        assertFalse(GestureDetector.isSkin(new Color(30, 40, 90).getRGB()));
+    }
+
+    @Test
+    void faceAloneIsNoGesture() {
+        GestureDetector detector = new GestureDetector(Long.MAX_VALUE);
+        BufferedImage image = frame(false);
+        for (long t = 0; t < 3000; t += FRAME_MILLIS) {
+            assertEquals(Gesture.NONE, detector.detect(image, t));
+        }
+    }
+
+    @Test
+    void heldRaisedHandIsReportedOnce() {
+        GestureDetector detector = new GestureDetector(Long.MAX_VALUE);
+        BufferedImage image = frame(true);
+        int reports = 0;
+        long first = -1;
+        for (long t = 0; t < 3000; t += FRAME_MILLIS) {
+            Gesture gesture = detector.detect(image, t);
+            if (gesture != Gesture.NONE) {
+                assertEquals(Gesture.RAISED_HAND, gesture);
+                reports++;
+                first = first < 0 ? t : first;
+            }
+        }
+        assertEquals(1, reports);
+        assertTrue(first >= 500 && first < 700, "识别时刻: " + first);
+    }
+
+    /** 保持中途切换网格粗细，已经保持的时间不清零 */
+    @Test
+    void strideChangeKeepsOngoingHold() {
+        GestureDetector detector = new GestureDetector(Long.MAX_VALUE);
+        BufferedImage image = frame(true);
+        long detected = -1;
+        for (long t = 0; t < 3000 && detected < 0; t += FRAME_MILLIS) {
+            if (t == 5 * FRAME_MILLIS) {
+                detector.setStride(2);
+            }
+            if (detector.detect(image, t) == Gesture.RAISED_HAND) {
+                detected = t;
+            }
+        }
+        assertEquals(2, detector.getStride());
+        assertTrue(detected >= 500 && detected < 700, "识别时刻: " + detected);
+    }
+}